@@ -2,8 +2,11 @@ package com.crudpractica.finanzastestproyec.Controller;
 
 
 import com.crudpractica.finanzastestproyec.Service.ClienteService;
+import com.crudpractica.finanzastestproyec.Service.ImportacionClientesService;
 import com.crudpractica.finanzastestproyec.dto.request.ClienteRequest;
 import com.crudpractica.finanzastestproyec.dto.response.ClienteResponse;
+import com.crudpractica.finanzastestproyec.dto.response.ImportacionClientesResponse;
+import com.crudpractica.finanzastestproyec.dto.response.PaginaResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,7 +15,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.resource.ResourceUrlProvider;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+
 
 @RestController
 @RequestMapping("/api/clientes")
@@ -21,6 +26,7 @@ import java.util.List;
 public class ClienteController {
     private final ClienteService clienteService;
     private final ResourceUrlProvider resourceUrlProvider;
+    private final ImportacionClientesService importacionClientesService;
 
     /*
     * crea un nuevo cliente
@@ -37,16 +43,42 @@ public class ClienteController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
-    /*Lista todos los clientes registrados
-    * Enpoints: GET /api/clientes
-    * @return ResponseEntity con lista de clientes y codigo 200
+    /*
+    * importa clientes, y opcionalmente una cuenta por cliente, desde un CSV
+    * Endpoint: POST /api/clientes/importar?importacion={id}
+    *
+    * el cuerpo es el archivo (Content-Type text/csv) y se lee mientras llega;
+    * si la peticion falla se reenvia el archivo con el mismo id y continua
+    * desde la ultima fila confirmada
+    *
+    * @param importacion id de la importacion, se omite en el primer envio
+    * @param csv contenido del archivo
+    * @return ResponseEntity con el id, las cantidades y los errores por fila y codigo 200
+    * */
+
+    @PostMapping(value = "/importar", consumes = "text/csv")
+    public ResponseEntity<ImportacionClientesResponse>importar(
+            @RequestParam(value = "importacion", required = false) String importacion,
+            InputStream csv) throws IOException {
+        log.info("POST /api/clientes/importar - importacion {}", importacion);
+        ImportacionClientesResponse response = importacionClientesService.importar(importacion, csv);
+        return ResponseEntity.ok(response);
+    }
+
+    /*Lista los clientes registrados, paginados por cursor
+    * Enpoints: GET /api/clientes?after={id}&limit={n}
+    * @param despues siguienteCursor de la pagina anterior, se omite en la primera
+    * @param limite cantidad de clientes por pagina
+    * @return ResponseEntity con la pagina de clientes y codigo 200
     *
     * */
 
     @GetMapping
-    public ResponseEntity<List<ClienteResponse>>listarTodos(){
-        log.info("GET /api/clientes - listar todos los clientes");
-        List<ClienteResponse>clientes =  clienteService.listarTodos();
+    public ResponseEntity<PaginaResponse<ClienteResponse>>listarTodos(
+            @RequestParam(value = "after", required = false) Long despues,
+            @RequestParam(value = "limit", required = false) Integer limite){
+        log.info("GET /api/clientes - listar clientes despues de {}", despues);
+        PaginaResponse<ClienteResponse> clientes = clienteService.listarTodos(despues, limite);
         return ResponseEntity.ok(clientes);
 
     }
@@ -2,15 +2,23 @@ package com.crudpractica.finanzastestproyec.Controller;
 
 import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
 import com.crudpractica.finanzastestproyec.Service.CuentaService;
+import com.crudpractica.finanzastestproyec.Service.ExtractoService;
+import com.crudpractica.finanzastestproyec.Service.LiquidacionInteresesService;
 import com.crudpractica.finanzastestproyec.dto.request.CuentaRequest;
 import com.crudpractica.finanzastestproyec.dto.response.CuentaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.LiquidacionInteresesResponse;
+import com.crudpractica.finanzastestproyec.dto.response.PaginaResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -20,6 +28,8 @@ import java.util.List;
 public class CuentaController {
 
     private final CuentaService cuentaService;
+    private final ExtractoService extractoService;
+    private final LiquidacionInteresesService liquidacionInteresesService;
 
     @PostMapping
     public ResponseEntity<CuentaResponse> crear(@Valid @RequestBody CuentaRequest request) {
@@ -28,10 +38,15 @@ public class CuentaController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /*
+    * Listado paginado por cursor: ?after=<siguienteCursor de la pagina anterior>&limit=<n>
+    * */
     @GetMapping
-    public ResponseEntity<List<CuentaResponse>> listarTodas() {
-        log.info("GET /api/cuentas - Listar todas");
-        return ResponseEntity.ok(cuentaService.listarTodas());
+    public ResponseEntity<PaginaResponse<CuentaResponse>> listarTodas(
+            @RequestParam(value = "after", required = false) Long despues,
+            @RequestParam(value = "limit", required = false) Integer limite) {
+        log.info("GET /api/cuentas - Listar despues de {}", despues);
+        return ResponseEntity.ok(cuentaService.listarTodas(despues, limite));
     }
 
     @GetMapping("/{id}")
@@ -40,6 +55,37 @@ public class CuentaController {
         return ResponseEntity.ok(cuentaService.buscarPorId(id));
     }
 
+    /*
+    * Extracto de la cuenta con el saldo despues de cada movimiento
+    * Endpoint: GET /api/cuentas/{id}/extracto?desde=yyyy-MM-dd&hasta=yyyy-MM-dd
+    *
+    * ambas fechas se incluyen; el JSON se escribe a medida que se leen los movimientos
+    * */
+    @GetMapping("/{id}/extracto")
+    public ResponseEntity<StreamingResponseBody> extracto(
+            @PathVariable Long id,
+            @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        log.info("GET /api/cuentas/{}/extracto - del {} al {}", id, desde, hasta);
+        extractoService.validar(id, desde, hasta);
+        StreamingResponseBody cuerpo = salida -> extractoService.escribir(id, desde, hasta, salida);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(cuerpo);
+    }
+
+    /*
+    * Liquida los intereses de un dia en las cuentas de ahorro activas
+    * Endpoint: POST /api/cuentas/intereses?fecha=yyyy-MM-dd
+    *
+    * la liquidacion programada usa el dia anterior; repetir una fecha solo
+    * liquida las particiones que no alcanzaron a confirmarse
+    * */
+    @PostMapping("/intereses")
+    public ResponseEntity<LiquidacionInteresesResponse> liquidarIntereses(
+            @RequestParam("fecha") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+        log.info("POST /api/cuentas/intereses - fecha {}", fecha);
+        return ResponseEntity.ok(liquidacionInteresesService.liquidar(fecha));
+    }
+
     @GetMapping("/numero/{numeroCuenta}")
     public ResponseEntity<CuentaResponse> buscarPorNumero(@PathVariable String numeroCuenta) {
         log.info("GET /api/cuentas/numero/{}", numeroCuenta);
@@ -1,15 +1,31 @@
 package com.crudpractica.finanzastestproyec.Controller;
 
+import com.crudpractica.finanzastestproyec.Enums.FormatoExportacion;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.ReintentoBloqueos;
+import com.crudpractica.finanzastestproyec.Service.ExportacionTransaccionesService;
+import com.crudpractica.finanzastestproyec.Service.IdempotenciaService;
+import com.crudpractica.finanzastestproyec.Service.IngestaAsincronaService;
 import com.crudpractica.finanzastestproyec.Service.TransaccionService;
+import com.crudpractica.finanzastestproyec.dto.request.LoteTransaccionRequest;
 import com.crudpractica.finanzastestproyec.dto.request.TransaccionRequest;
+import com.crudpractica.finanzastestproyec.dto.response.EstadoTransaccionAsincronaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.LoteTransaccionResponse;
+import com.crudpractica.finanzastestproyec.dto.response.PaginaResponse;
 import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -19,18 +35,97 @@ import java.util.List;
 public class TransaccionController {
 
     private final TransaccionService transaccionService;
+    private final ReintentoBloqueos reintentoBloqueos;
+    private final IdempotenciaService idempotenciaService;
+    private final IngestaAsincronaService ingestaAsincronaService;
+    private final ExportacionTransaccionesService exportacionTransaccionesService;
 
+    /*
+    * Con la cabecera Idempotency-Key una peticion repetida devuelve la
+    * transaccion creada la primera vez en lugar de crear otra
+    * */
     @PostMapping
-    public ResponseEntity<TransaccionResponse> crear(@Valid @RequestBody TransaccionRequest request) {
+    public ResponseEntity<TransaccionResponse> crear(
+            @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia,
+            @Valid @RequestBody TransaccionRequest request) {
         log.info("POST /api/transacciones - Crear transacción");
-        TransaccionResponse response = transaccionService.crear(request);
+        if (claveIdempotencia == null) {
+            TransaccionResponse response = reintentoBloqueos.ejecutar(() -> transaccionService.crear(request));
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+        if (claveIdempotencia.isBlank() || claveIdempotencia.length() > 100) {
+            throw new BuisnessException("La Idempotency-Key debe tener entre 1 y 100 caracteres");
+        }
+        TransaccionResponse response = idempotenciaService.ejecutar(claveIdempotencia, request,
+                () -> reintentoBloqueos.ejecutar(() -> transaccionService.crear(request, claveIdempotencia)));
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /*
+    * Recibe la transaccion sin esperar a que se aplique: responde 202 con un id
+    * de seguimiento, o 429 si la cola de recepcion esta llena
+    * */
+    @PostMapping("/async")
+    public ResponseEntity<EstadoTransaccionAsincronaResponse> encolar(@Valid @RequestBody TransaccionRequest request) {
+        log.info("POST /api/transacciones/async - Encolar transacción");
+        return ingestaAsincronaService.encolar(request)
+                .map(estado -> ResponseEntity.status(HttpStatus.ACCEPTED).body(estado))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .build());
+    }
+
+    @GetMapping("/async/{seguimientoId}")
+    public ResponseEntity<EstadoTransaccionAsincronaResponse> consultarEstado(@PathVariable String seguimientoId) {
+        log.info("GET /api/transacciones/async/{}", seguimientoId);
+        return ResponseEntity.ok(ingestaAsincronaService.consultarEstado(seguimientoId));
+    }
+
+    @PostMapping("/lote")
+    public ResponseEntity<LoteTransaccionResponse> procesarLote(@Valid @RequestBody LoteTransaccionRequest request) {
+        log.info("POST /api/transacciones/lote - Procesar lote de {} transacciones", request.getTransacciones().size());
+        LoteTransaccionResponse response = reintentoBloqueos.ejecutar(() -> transaccionService.procesarLote(request));
+        return ResponseEntity.ok(response);
+    }
+
+    /*
+    * Listado paginado por cursor: ?after=<siguienteCursor de la pagina anterior>&limit=<n>
+    * */
     @GetMapping
-    public ResponseEntity<List<TransaccionResponse>> listarTodas() {
-        log.info("GET /api/transacciones - Listar todas");
-        return ResponseEntity.ok(transaccionService.listarTodas());
+    public ResponseEntity<PaginaResponse<TransaccionResponse>> listarTodas(
+            @RequestParam(value = "after", required = false) Long despues,
+            @RequestParam(value = "limit", required = false) Integer limite) {
+        log.info("GET /api/transacciones - Listar despues de {}", despues);
+        return ResponseEntity.ok(transaccionService.listarTodas(despues, limite));
+    }
+
+    /*
+    * Exporta el historial de transacciones sin cargarlo en memoria
+    * Endpoint: GET /api/transacciones/exportar?formato=NDJSON|CSV&cuentaId=&tipo=&desde=&hasta=
+    *
+    * las fechas son dias (yyyy-MM-dd) y ambos extremos se incluyen; el cuerpo
+    * se escribe a medida que se leen las filas
+    * */
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @RequestParam(value = "formato", defaultValue = "NDJSON") FormatoExportacion formato,
+            @RequestParam(value = "cuentaId", required = false) Long cuentaId,
+            @RequestParam(value = "tipo", required = false) TipoTrasaccion tipo,
+            @RequestParam(value = "desde", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(value = "hasta", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        log.info("GET /api/transacciones/exportar - formato {}, cuenta {}, tipo {}, desde {} hasta {}",
+                formato, cuentaId, tipo, desde, hasta);
+        //se valida antes de empezar a escribir, despues ya no se puede cambiar el codigo de respuesta
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            throw new BuisnessException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        StreamingResponseBody cuerpo = salida ->
+                exportacionTransaccionesService.exportar(formato, cuentaId, tipo, desde, hasta, salida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formato.getTipoContenido()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transacciones." + formato.getExtension() + "\"")
+                .body(cuerpo);
     }
 
     @GetMapping("/{id}")
@@ -39,6 +134,17 @@ public class TransaccionController {
         return ResponseEntity.ok(transaccionService.buscarPorId(id));
     }
 
+    /*
+    * Ultimos movimientos de una cuenta (por defecto 10), del mas reciente al mas antiguo
+    * */
+    @GetMapping("/cuenta/{cuentaId}/recientes")
+    public ResponseEntity<List<TransaccionResponse>> listarRecientes(
+            @PathVariable Long cuentaId,
+            @RequestParam(value = "n", required = false) Integer cantidad) {
+        log.info("GET /api/transacciones/cuenta/{}/recientes", cuentaId);
+        return ResponseEntity.ok(transaccionService.listarRecientes(cuentaId, cantidad));
+    }
+
     @GetMapping("/cuenta/{cuentaId}")
     public ResponseEntity<List<TransaccionResponse>> listarPorCuenta(@PathVariable Long cuentaId) {
         log.info("GET /api/transacciones/cuenta/{} - Estado de cuenta", cuentaId);
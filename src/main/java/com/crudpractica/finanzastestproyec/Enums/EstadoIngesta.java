@@ -0,0 +1,46 @@
+package com.crudpractica.finanzastestproyec.Enums;
+
+
+/*
+    Enumeracion que define el estado de una transaccion recibida de forma asincrona
+
+    @author Sistema de Gestion Financiera
+    @version 1.0.0
+*/
+
+
+public enum EstadoIngesta {
+
+    //Pendiente - la transaccion esta en la cola y aun no se procesa
+
+    PENDIENTE("Pendiente"),
+
+    //Procesada - la transaccion se aplico sobre las cuentas
+
+    PROCESADA("Procesada"),
+
+    //Fallida - la transaccion fue rechazada, el motivo queda en el error
+
+    FALLIDA("Fallida");
+
+
+    private final String descripcion;
+
+    /*
+    constructor del enum EstadoIngesta
+    */
+    EstadoIngesta(String descripcion) {
+        this.descripcion = descripcion;
+    }
+
+
+    /*
+
+    Obtiene la descripcion del estado
+    @return descripcion del estado
+    */
+
+    public String getDescripcion(){
+        return descripcion;
+    }
+}
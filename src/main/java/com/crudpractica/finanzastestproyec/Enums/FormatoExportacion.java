@@ -0,0 +1,54 @@
+package com.crudpractica.finanzastestproyec.Enums;
+
+
+/*
+    Enumeracion que define los formatos de exportacion del historial de transacciones
+
+    @author Sistema de Gestion Financiera
+    @version 1.0.0
+*/
+
+
+public enum FormatoExportacion {
+
+    //NDJSON - un objeto JSON por linea
+
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    //CSV - encabezado y una fila por transaccion separada por comas
+
+    CSV("text/csv", "csv");
+
+
+    private final String tipoContenido;
+    private final String extension;
+
+    /*
+    constructor del enum FormatoExportacion
+    */
+    FormatoExportacion(String tipoContenido, String extension) {
+        this.tipoContenido = tipoContenido;
+        this.extension = extension;
+    }
+
+
+    /*
+
+    Obtiene el Content-Type de la respuesta
+    @return tipo de contenido del formato
+    */
+
+    public String getTipoContenido(){
+        return tipoContenido;
+    }
+
+    /*
+
+    Obtiene la extension del archivo exportado
+    @return extension sin punto
+    */
+
+    public String getExtension(){
+        return extension;
+    }
+}
@@ -0,0 +1,42 @@
+package com.crudpractica.finanzastestproyec.Enums;
+
+
+/*
+    Enumeracion que define como se protegen las cuentas durante una transferencia
+
+    @author Sistema de Gestion Financiera
+    @version 1.0.0
+*/
+
+
+public enum ModoBloqueoTransferencia {
+
+    //Atomico - cada pata se aplica con un UPDATE condicional, sin bloquear la entidad
+
+    ATOMICO("Actualizacion atomica del saldo"),
+
+    //Ordenado - ambas cuentas se bloquean (SELECT ... FOR UPDATE) en orden ascendente de id
+
+    ORDENADO("Bloqueo pesimista en orden de id");
+
+
+    private final String descripcion;
+
+    /*
+    constructor del enum ModoBloqueoTransferencia
+    */
+    ModoBloqueoTransferencia(String descripcion) {
+        this.descripcion = descripcion;
+    }
+
+
+    /*
+
+    Obtiene la descripcion del modo de bloqueo
+    @return descripcion del modo
+    */
+
+    public String getDescripcion(){
+        return descripcion;
+    }
+}
@@ -22,7 +22,12 @@ public enum TipoTrasaccion {
 
     //Transferencia - Mueve  dinero  entre cuentas(debito en origen, credito en disino)
 
-    TRANSFERENCIA("Transferencia");
+    TRANSFERENCIA("Transferencia"),
+
+    //GMF - Gravamen (4x1000) que el sistema debita de la cuenta origen de un retiro o
+    //transferencia; no se puede solicitar. El journal guarda el ordinal: los tipos nuevos van al final
+
+    GMF("GMF 4x1000");
 
 
     private final String descripcion;
@@ -0,0 +1,263 @@
+package com.crudpractica.finanzastestproyec.Infrastructure;
+
+
+
+/*
+* Asigna numeros de cuenta desde bloques reservados por tipo de cuenta
+*
+* cada tipo tiene una secuencia propia (numeros_cuenta_ahorro_seq,
+* numeros_cuenta_corriente_seq); un nextval reserva un bloque de 1000
+* contadores consecutivos que ninguna otra instancia recibira. Cada contador
+* se convierte en los 8 digitos del numero con una permutacion de Feistel
+* sobre [0, 10^8): es biyectiva, asi contadores distintos nunca dan el mismo
+* numero, y los numeros consecutivos no se parecen entre si.
+*
+* los numeros se entregan desde memoria sin bloqueos; cuando al bloque
+* actual le quedan umbral-recarga numeros se reserva el siguiente en segundo
+* plano. Solo los numeros generados antes, al azar, pueden coincidir: se
+* descartan por bloque con el filtro de numeros de cuenta, que solo consulta
+* la base de datos por los que no puede descartar.
+*
+* un numero entregado a una cuenta que no llega a guardarse se pierde, igual
+* que los bloques sin terminar al reiniciar la aplicacion.
+*
+* metricas por tipo: finanzas.numeros-cuenta.bloques (bloques reservados) y
+* finanzas.numeros-cuenta.descartados (numeros que ya tenia otra cuenta)
+*
+* */
+
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Service.FiltrosUnicidadService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Component
+@Slf4j
+public class AsignadorNumerosCuenta {
+
+    //contadores por bloque; no debe cambiar, los bloques ya entregados se calcularon con este valor
+    static final int NUMEROS_POR_BLOQUE = 1000;
+
+    //los 8 digitos se permutan como dos mitades de 4
+    private static final long MITAD = 10_000;
+    private static final long BLOQUES = MITAD * MITAD / NUMEROS_POR_BLOQUE;
+
+    //llaves de las rondas; cambiarlas repetiria numeros ya entregados
+    private static final long[] LLAVES = {0x5A17C3E9L, 0x1F0B7D25L, 0x6C94E1A3L, 0x3D2F8B57L};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final FiltrosUnicidadService filtros;
+    private final FinanzasProperties propiedades;
+    private final MeterRegistry registry;
+    private final Map<TipoCuenta, Reserva> reservas = new EnumMap<>(TipoCuenta.class);
+    private final ExecutorService recarga = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "numeros-cuenta-recarga");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    public AsignadorNumerosCuenta(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                                  FiltrosUnicidadService filtros, FinanzasProperties propiedades,
+                                  MeterRegistry registry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.filtros = filtros;
+        this.propiedades = propiedades;
+        this.registry = registry;
+    }
+
+    /*
+    * Crea las secuencias que falten; Hibernate solo crea las de los ids
+    * */
+    @PostConstruct
+    public void iniciar() {
+        for (TipoCuenta tipo : TipoCuenta.values()) {
+            Reserva reserva = new Reserva(tipo);
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + reserva.secuencia);
+            reservas.put(tipo, reserva);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        recarga.shutdownNow();
+    }
+
+    /*
+    * Entrega el siguiente numero libre del tipo de cuenta
+    *
+    * @param tipo tipo de cuenta, define el prefijo y la secuencia
+    * @return numero de 10 digitos que ninguna cuenta tiene
+    * @throws BuisnessException si el tipo ya no tiene numeros disponibles
+    * */
+    public String siguiente(TipoCuenta tipo) {
+        Reserva reserva = reservas.get(tipo);
+        while (true) {
+            Bloque bloque = reserva.actual.get();
+            int posicion = bloque.posicion.getAndIncrement();
+            if (posicion < bloque.numeros.length) {
+                if (bloque.numeros.length - posicion <= propiedades.getNumerosCuenta().getUmbralRecarga()) {
+                    precargar(reserva);
+                }
+                return bloque.numeros[posicion];
+            }
+            cambiarBloque(reserva, bloque);
+        }
+    }
+
+    /*
+    * Permutacion de Feistel de cuatro rondas sobre [0, 10^8)
+    *
+    * cada ronda cambia (izquierda, derecha) por (derecha, izquierda + f(derecha))
+    * modulo 10^4, que se puede deshacer; por eso la permutacion es biyectiva
+    * */
+    static long permutar(long contador) {
+        long izquierda = contador / MITAD;
+        long derecha = contador % MITAD;
+        for (long llave : LLAVES) {
+            long nueva = (izquierda + ronda(derecha, llave)) % MITAD;
+            izquierda = derecha;
+            derecha = nueva;
+        }
+        return izquierda * MITAD + derecha;
+    }
+
+    private static long ronda(long valor, long llave) {
+        long mezcla = (valor + 1) * 0x9E3779B97F4A7C15L ^ llave;
+        mezcla ^= mezcla >>> 29;
+        mezcla *= 0xBF58476D1CE4E5B9L;
+        mezcla ^= mezcla >>> 32;
+        return Math.floorMod(mezcla, MITAD);
+    }
+
+    /*
+    * El bloque actual se agoto: se usa el precargado o, si no se pidio a
+    * tiempo o fallo, se reserva uno aqui. Solo un hilo lo cambia, los demas
+    * esperan y reintentan con el nuevo.
+    * */
+    private void cambiarBloque(Reserva reserva, Bloque agotado) {
+        synchronized (reserva) {
+            if (reserva.actual.get() != agotado) {
+                return;
+            }
+            CompletableFuture<Bloque> precargado = reserva.proximo.getAndSet(null);
+            Bloque nuevo = null;
+            if (precargado != null) {
+                try {
+                    nuevo = precargado.join();
+                } catch (CompletionException ex) {
+                    log.warn("No se pudo precargar el bloque de numeros de cuenta {}", reserva.tipo, ex.getCause());
+                }
+            }
+            reserva.actual.set(nuevo != null ? nuevo : reservarBloque(reserva));
+        }
+    }
+
+    private void precargar(Reserva reserva) {
+        CompletableFuture<Bloque> futuro = new CompletableFuture<>();
+        if (reserva.proximo.get() != null || !reserva.proximo.compareAndSet(null, futuro)) {
+            return;
+        }
+        recarga.execute(() -> {
+            try {
+                futuro.complete(reservarBloque(reserva));
+            } catch (RuntimeException ex) {
+                futuro.completeExceptionally(ex);
+            }
+        });
+    }
+
+    /*
+    * Un nextval reserva el bloque; los numeros que ya tiene alguna cuenta se
+    * descartan con el filtro y a lo sumo una consulta
+    * */
+    private Bloque reservarBloque(Reserva reserva) {
+        while (true) {
+            long bloque = jdbcTemplate.queryForObject(reserva.consultaSiguienteValor(), Long.class);
+            if (bloque >= BLOQUES) {
+                throw new BuisnessException("No quedan numeros disponibles para " + reserva.tipo.getDescrpicion());
+            }
+            reserva.bloques.increment();
+
+            List<String> candidatos = new ArrayList<>(NUMEROS_POR_BLOQUE);
+            long inicio = bloque * NUMEROS_POR_BLOQUE;
+            for (long contador = inicio; contador < inicio + NUMEROS_POR_BLOQUE; contador++) {
+                candidatos.add(reserva.tipo.getPrefijo() + String.format("%08d", permutar(contador)));
+            }
+
+            Set<String> existentes = filtros.numerosCuentaExistentes(candidatos);
+            if (!existentes.isEmpty()) {
+                reserva.descartados.increment(existentes.size());
+                candidatos.removeIf(existentes::contains);
+            }
+            log.debug("Bloque {} de numeros {} reservado, {} disponibles", bloque, reserva.tipo, candidatos.size());
+            if (!candidatos.isEmpty()) {
+                return new Bloque(candidatos.toArray(String[]::new));
+            }
+        }
+    }
+
+    /*
+    * Estado de un tipo de cuenta: bloque en uso y el que se esta precargando
+    * */
+    private final class Reserva {
+
+        private final TipoCuenta tipo;
+        private final String secuencia;
+        private final Counter bloques;
+        private final Counter descartados;
+        private final AtomicReference<Bloque> actual = new AtomicReference<>(new Bloque(new String[0]));
+        private final AtomicReference<CompletableFuture<Bloque>> proximo = new AtomicReference<>();
+        private String consultaSiguienteValor;
+
+        private Reserva(TipoCuenta tipo) {
+            this.tipo = tipo;
+            this.secuencia = "numeros_cuenta_" + tipo.name().toLowerCase() + "_seq";
+            this.bloques = Counter.builder("finanzas.numeros-cuenta.bloques")
+                    .description("Bloques de numeros de cuenta reservados")
+                    .tag("tipo", tipo.name())
+                    .register(registry);
+            this.descartados = Counter.builder("finanzas.numeros-cuenta.descartados")
+                    .description("Numeros de cuenta descartados porque ya los tenia otra cuenta")
+                    .tag("tipo", tipo.name())
+                    .register(registry);
+        }
+
+        private String consultaSiguienteValor() {
+            if (consultaSiguienteValor == null) {
+                consultaSiguienteValor = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                        .getJdbcServices().getDialect().getSequenceSupport()
+                        .getSequenceNextValString(secuencia);
+            }
+            return consultaSiguienteValor;
+        }
+    }
+
+    private record Bloque(String[] numeros, AtomicInteger posicion) {
+
+        private Bloque(String[] numeros) {
+            this(numeros, new AtomicInteger());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.crudpractica.finanzastestproyec.Infrastructure;
+
+
+
+/*
+* Agrupa lecturas concurrentes e identicas en una sola carga (single-flight)
+*
+* la primera peticion por una clave ejecuta la carga y las que llegan
+* mientras esta en curso esperan ese mismo resultado. Las que esperan no
+* abren transaccion ni toman conexion del pool: solo la carga se ejecuta
+* dentro de una transaccion de solo lectura. Si la carga falla, todas
+* reciben la misma excepcion. Al terminar la clave se libera, asi que no es
+* una cache: la siguiente peticion vuelve a cargar.
+*
+* el resultado es el mismo objeto para todas las peticiones agrupadas, los
+* llamadores no deben modificarlo.
+*
+* metricas por operacion: finanzas.lecturas.solicitudes (peticiones recibidas),
+* finanzas.lecturas.cargas (cargas ejecutadas) y finanzas.lecturas.fan-in
+* (solicitudes por carga; 1 significa que no hubo lecturas agrupadas)
+*
+* */
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+@Component
+public class CoalescedorLecturas {
+
+    private final MeterRegistry registry;
+    private final TransactionTemplate lectura;
+    private final Map<Clave, CompletableFuture<Object>> enCurso = new ConcurrentHashMap<>();
+    private final Map<String, Contadores> contadores = new ConcurrentHashMap<>();
+
+    public CoalescedorLecturas(MeterRegistry registry, PlatformTransactionManager transactionManager) {
+        this.registry = registry;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+    }
+
+    /*
+    * Ejecuta la carga o espera la que ya esta en curso para la misma clave
+    *
+    * @param operacion nombre de la lectura, separa las claves y etiqueta las metricas
+    * @param clave valor buscado (id, numero de cuenta...)
+    * @param carga consulta a la base de datos
+    * @return resultado de la carga, compartido por las peticiones agrupadas
+    * */
+    @SuppressWarnings("unchecked")
+    public <T> T ejecutar(String operacion, Object clave, Supplier<T> carga) {
+        Contadores contador = contadores.computeIfAbsent(operacion, this::registrar);
+        contador.solicitudes.increment();
+
+        CompletableFuture<Object> propio = new CompletableFuture<>();
+        Clave llave = new Clave(operacion, clave);
+        CompletableFuture<Object> existente = enCurso.putIfAbsent(llave, propio);
+        if (existente != null) {
+            return (T) esperar(existente);
+        }
+
+        contador.cargas.increment();
+        try {
+            T resultado = lectura.execute(status -> carga.get());
+            propio.complete(resultado);
+            return resultado;
+        } catch (RuntimeException ex) {
+            propio.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            enCurso.remove(llave, propio);
+        }
+    }
+
+    private Object esperar(CompletableFuture<Object> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException ex) {
+            //se relanza la excepcion original de la carga (BuisnessException si no existe)
+            if (ex.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw ex;
+        }
+    }
+
+    private Contadores registrar(String operacion) {
+        Counter solicitudes = Counter.builder("finanzas.lecturas.solicitudes")
+                .description("Lecturas recibidas, agrupadas o no")
+                .tag("operacion", operacion)
+                .register(registry);
+        Counter cargas = Counter.builder("finanzas.lecturas.cargas")
+                .description("Lecturas que consultaron la base de datos")
+                .tag("operacion", operacion)
+                .register(registry);
+        Gauge.builder("finanzas.lecturas.fan-in", () -> cargas.count() == 0 ? 0 : solicitudes.count() / cargas.count())
+                .description("Lecturas recibidas por cada consulta a la base de datos")
+                .tag("operacion", operacion)
+                .register(registry);
+        return new Contadores(solicitudes, cargas);
+    }
+
+    private record Clave(String operacion, Object valor) {
+    }
+
+    private record Contadores(Counter solicitudes, Counter cargas) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.crudpractica.finanzastestproyec.Infrastructure;
+
+
+
+/*
+* Filtro de Bloom para cadenas
+*
+* responde "seguro que no esta" o "puede estar": nunca da falsos negativos
+* y los falsos positivos se mantienen cerca de la tasa pedida mientras no se
+* agreguen mas elementos de los esperados. Los elementos no se pueden quitar.
+*
+* los bits viven en un AtomicLongArray, asi varios hilos agregan y consultan
+* sin bloqueos
+*
+* */
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long cantidadBits;
+    private final int funciones;
+
+    /*
+    * @param elementosEsperados cantidad de elementos para la que se dimensiona
+    * @param tasaFalsosPositivos probabilidad de "puede estar" para un elemento ausente
+    * */
+    public FiltroBloom(long elementosEsperados, double tasaFalsosPositivos) {
+        long elementos = Math.max(1, elementosEsperados);
+        double ln2 = Math.log(2);
+        long optimos = (long) Math.ceil(-elementos * Math.log(tasaFalsosPositivos) / (ln2 * ln2));
+        int palabras = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimos + 63) / 64));
+        this.bits = new AtomicLongArray(palabras);
+        this.cantidadBits = (long) palabras * 64;
+        this.funciones = Math.max(1, (int) Math.round((double) cantidadBits / elementos * ln2));
+    }
+
+    public void agregar(String valor) {
+        long h1 = hash(valor);
+        long h2 = mezclar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < funciones; i++) {
+            long bit = Math.floorMod(h1 + i * h2, cantidadBits);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            long actual = bits.get(palabra);
+            while ((actual & mascara) == 0 && !bits.compareAndSet(palabra, actual, actual | mascara)) {
+                actual = bits.get(palabra);
+            }
+        }
+    }
+
+    public boolean puedeContener(String valor) {
+        long h1 = hash(valor);
+        long h2 = mezclar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < funciones; i++) {
+            long bit = Math.floorMod(h1 + i * h2, cantidadBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+    * Probabilidad de falso positivo segun los bits encendidos: (encendidos / total)^funciones
+    * recorre todo el arreglo, es para metricas y no para cada consulta
+    * */
+    public double tasaEstimada() {
+        long encendidos = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            encendidos += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) encendidos / cantidadBits, funciones);
+    }
+
+    //FNV-1a de 64 bits sobre los bytes UTF-8, con una mezcla final para repartir los bits altos
+    private static long hash(String valor) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001B3L;
+        }
+        return mezclar(hash);
+    }
+
+    private static long mezclar(long valor) {
+        valor ^= valor >>> 33;
+        valor *= 0xFF51AFD7ED558CCDL;
+        valor ^= valor >>> 33;
+        valor *= 0xC4CEB9FE1A85EC53L;
+        valor ^= valor >>> 33;
+        return valor;
+    }
+}
@@ -0,0 +1,293 @@
+package com.crudpractica.finanzastestproyec.Infrastructure;
+
+
+
+/*
+* Propiedades de configuracion de la aplicacion (prefijo "finanzas")
+*
+* agrupa los parametros de los distintos modulos para que puedan
+* ajustarse desde application.properties sin recompilar
+*
+* */
+
+import com.crudpractica.finanzastestproyec.Enums.ModoBloqueoTransferencia;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+@Data
+@ConfigurationProperties(prefix = "finanzas")
+public class FinanzasProperties {
+
+    private Transferencias transferencias = new Transferencias();
+
+    private Ledger ledger = new Ledger();
+
+    private Journal journal = new Journal();
+
+    private Idempotencia idempotencia = new Idempotencia();
+
+    private Ingesta ingesta = new Ingesta();
+
+    private Paginacion paginacion = new Paginacion();
+
+    private Recientes recientes = new Recientes();
+
+    private CacheCuentas cacheCuentas = new CacheCuentas();
+
+    private NumerosCuenta numerosCuenta = new NumerosCuenta();
+
+    private FiltrosUnicidad filtrosUnicidad = new FiltrosUnicidad();
+
+    private Importacion importacion = new Importacion();
+
+    private Gmf gmf = new Gmf();
+
+    private Intereses intereses = new Intereses();
+
+    /*
+    * Parametros de bloqueo y reintentos de las transferencias
+    * */
+    @Data
+    public static class Transferencias {
+
+        //modo en que se protegen las cuentas origen y destino
+        private ModoBloqueoTransferencia modoBloqueo = ModoBloqueoTransferencia.ATOMICO;
+
+        //cantidad maxima de reintentos cuando no se obtiene el bloqueo
+        private int maxReintentos = 3;
+
+        //espera antes del primer reintento, se duplica en cada intento
+        private long backoffInicialMs = 20;
+
+        //espera maxima entre reintentos
+        private long backoffMaximoMs = 200;
+    }
+
+    /*
+    * Parametros del motor de ledger en memoria
+    * */
+    @Data
+    public static class Ledger {
+
+        //si esta activo los saldos viven en memoria y se persisten en lotes
+        private boolean habilitado = false;
+
+        //cantidad de particiones (cada una atendida por un solo hilo)
+        private int shards = 4;
+
+        //cantidad maxima de movimientos escritos por transaccion de base de datos
+        private int tamanoLotePersistencia = 500;
+
+        //espera maxima para completar un lote antes de escribirlo
+        private long intervaloPersistenciaMs = 20;
+
+        //tiempo maximo que una peticion espera la respuesta del motor
+        private long timeoutRespuestaMs = 5000;
+    }
+
+    /*
+    * Parametros del journal de transacciones (solo aplica con el ledger habilitado)
+    * */
+    @Data
+    public static class Journal {
+
+        //si esta activo cada movimiento se escribe en el journal antes de confirmarse
+        private boolean habilitado = false;
+
+        //carpeta donde se guardan los segmentos y el checkpoint
+        private String directorio = "data/journal";
+
+        //tamaño de cada archivo de segmento
+        private int tamanoSegmentoBytes = 64 * 1024 * 1024;
+
+        //cada cuanto se sincronizan con disco los registros pendientes (fsync agrupado)
+        private long intervaloFsyncMs = 2;
+    }
+
+    /*
+    * Parametros de la cache de claves de idempotencia (cabecera Idempotency-Key)
+    * */
+    @Data
+    public static class Idempotencia {
+
+        //cantidad maxima de respuestas guardadas en memoria
+        private long maximoEntradas = 100_000;
+
+        //tiempo que una respuesta permanece en memoria, despues se consulta la tabla
+        private long expiracionMinutos = 60;
+    }
+
+    /*
+    * Parametros de la recepcion asincrona de transacciones (POST /transacciones/async)
+    * */
+    @Data
+    public static class Ingesta {
+
+        //capacidad de la cola, si esta llena se responde 429
+        private int capacidadCola = 10_000;
+
+        //hilos que vacian la cola
+        private int trabajadores = 2;
+
+        //cantidad maxima de transacciones procesadas en un mismo lote
+        private int tamanoMicroLote = 100;
+
+        //cantidad maxima de estados consultables y tiempo que se conservan
+        private long maximoEstados = 100_000;
+        private long retencionEstadosMinutos = 60;
+
+        //espera maxima al apagar la aplicacion para vaciar la cola, lo que quede se marca fallido
+        private long esperaApagadoMs = 30_000;
+    }
+
+    /*
+    * Parametros de los listados paginados por cursor
+    * */
+    @Data
+    public static class Paginacion {
+
+        //filas por pagina cuando la peticion no envia limit
+        private int limitePorDefecto = 50;
+
+        //maximo de filas por pagina aunque la peticion pida mas
+        private int limiteMaximo = 500;
+
+        /*
+        * Limite efectivo de una pagina: sin valor o con valor menor a 1 se usa
+        * el limite por defecto y nunca se supera el maximo
+        * */
+        public int normalizar(Integer limite) {
+            if (limite == null || limite < 1) {
+                return limitePorDefecto;
+            }
+            return Math.min(limite, limiteMaximo);
+        }
+    }
+
+    /*
+    * Parametros de la cache de ultimos movimientos por cuenta
+    * */
+    @Data
+    public static class Recientes {
+
+        //movimientos guardados por cuenta, tambien es el maximo que se puede pedir
+        private int capacidad = 20;
+
+        //movimientos devueltos cuando la peticion no envia n
+        private int cantidadPorDefecto = 10;
+
+        //cantidad maxima de cuentas en memoria
+        private long maximoCuentas = 100_000;
+
+        //una cuenta se descarta y se vuelve a cargar este tiempo despues de cargarla
+        private long expiracionMinutos = 10;
+    }
+
+    /*
+    * Parametros de la cache de datos de cuentas (numero, tipo, estado y cliente)
+    * */
+    @Data
+    public static class CacheCuentas {
+
+        //cantidad maxima de cuentas en memoria; al superarla se descartan las menos usadas
+        private long maximoEntradas = 10_000;
+
+        //tiempo maximo que una cuenta queda en memoria desde que se cargo; acota lo
+        //que tarda en verse un cambio de estado hecho por otra instancia
+        private long expiracionSegundos = 60;
+    }
+
+    /*
+    * Parametros de la asignacion de numeros de cuenta por bloques
+    * */
+    @Data
+    public static class NumerosCuenta {
+
+        //numeros que deben quedar en el bloque actual cuando se pide el siguiente en segundo plano
+        private int umbralRecarga = 200;
+    }
+
+    /*
+    * Parametros de los filtros de Bloom de numero de identificacion, correo y numero de cuenta
+    * */
+    @Data
+    public static class FiltrosUnicidad {
+
+        //filas esperadas por columna; si se superan la tasa de falsos positivos crece
+        private long elementosEsperados = 1_000_000;
+
+        //probabilidad de que un valor nuevo tenga que consultarse en la base de datos
+        private double tasaFalsosPositivos = 0.01;
+    }
+
+    /*
+    * Parametros de la importacion masiva de clientes (POST /api/clientes/importar)
+    * */
+    @Data
+    public static class Importacion {
+
+        //filas del archivo guardadas y confirmadas en cada transaccion; al reenviar
+        //el archivo despues de un fallo se repite como maximo este numero de filas
+        private int filasPorTransaccion = 500;
+
+        //errores por fila que se devuelven en la respuesta; las demas filas con
+        //error solo se cuentan, asi un archivo invalido no llena la memoria
+        private int maximoErrores = 1000;
+    }
+
+    /*
+    * Parametros del gravamen a los movimientos financieros (GMF, 4x1000)
+    * */
+    @Data
+    public static class Gmf {
+
+        //si esta activo los retiros y transferencias pagan el gravamen
+        private boolean habilitado = true;
+
+        //gravamen por peso retirado
+        private BigDecimal tarifa = new BigDecimal("0.004");
+
+        //retiros mensuales de las cuentas exentas de un cliente que no pagan gravamen, en UVT
+        private BigDecimal uvtExentasMensuales = new BigDecimal("350");
+
+        //valor de la UVT del año en pesos
+        private BigDecimal valorUvt = new BigDecimal("49799");
+
+        public BigDecimal montoExentoMensual() {
+            return uvtExentasMensuales.multiply(valorUvt);
+        }
+    }
+
+    /*
+    * Parametros de la liquidacion diaria de intereses de las cuentas de ahorro
+    * */
+    @Data
+    public static class Intereses {
+
+        //expresion cron de la liquidacion, que liquida el dia anterior ("-" la desactiva)
+        private String cron = "-";
+
+        //tasa efectiva anual reconocida sobre el saldo
+        private BigDecimal tasaEfectivaAnual = new BigDecimal("0.01");
+
+        //particiones que se liquidan al mismo tiempo, cada una en su propia transaccion
+        private int trabajadores = 4;
+
+        //ids de cuenta de cada particion; no se puede cambiar con una liquidacion a medias
+        private long idsPorParticion = 10_000;
+
+        //sentencias enviadas en cada lote JDBC
+        private int tamanoLote = 500;
+
+        /*
+        * Tasa diaria equivalente a la efectiva anual: (1 + EA)^(1/365) - 1
+        * */
+        public BigDecimal tasaDiaria() {
+            double diaria = Math.pow(1 + tasaEfectivaAnual.doubleValue(), 1.0 / 365) - 1;
+            return BigDecimal.valueOf(diaria).setScale(12, RoundingMode.HALF_UP);
+        }
+    }
+}
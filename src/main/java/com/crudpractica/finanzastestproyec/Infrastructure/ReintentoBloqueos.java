@@ -0,0 +1,80 @@
+package com.crudpractica.finanzastestproyec.Infrastructure;
+
+
+
+/*
+* Ejecuta operaciones transaccionales reintentandolas cuando fallan por
+* no poder obtener un bloqueo de fila (timeout de bloqueo o deadlock)
+*
+* cada intento debe abrir su propia transaccion, por eso se usa alrededor
+* de la llamada al servicio y no dentro de el
+*
+* */
+
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+@Component
+@Slf4j
+public class ReintentoBloqueos {
+
+    private final FinanzasProperties.Transferencias configuracion;
+    private final Counter timeouts;
+    private final Counter reintentos;
+
+    public ReintentoBloqueos(FinanzasProperties propiedades, MeterRegistry registry) {
+        this.configuracion = propiedades.getTransferencias();
+        this.timeouts = Counter.builder("finanzas.transferencias.bloqueo.timeouts")
+                .description("Intentos que no obtuvieron el bloqueo de las cuentas")
+                .register(registry);
+        this.reintentos = Counter.builder("finanzas.transferencias.bloqueo.reintentos")
+                .description("Reintentos ejecutados tras un timeout de bloqueo")
+                .register(registry);
+    }
+
+    /*
+    * Ejecuta la operacion con reintentos acotados y backoff exponencial
+    *
+    * @param operacion operacion transaccional a ejecutar
+    * @return resultado de la operacion
+    * @throws BuisnessException si se agotan los reintentos
+    * */
+    public <T> T ejecutar(Supplier<T> operacion) {
+        int intento = 0;
+        while (true) {
+            try {
+                return operacion.get();
+            } catch (PessimisticLockingFailureException ex) {
+                timeouts.increment();
+                if (intento >= configuracion.getMaxReintentos()) {
+                    log.error("No se obtuvo el bloqueo de las cuentas tras {} reintentos", intento);
+                    throw new BuisnessException("Las cuentas estan ocupadas por otra operacion, intente nuevamente");
+                }
+                intento++;
+                reintentos.increment();
+                log.warn("Timeout de bloqueo, reintento {} de {}", intento, configuracion.getMaxReintentos());
+                esperar(intento);
+            }
+        }
+    }
+
+    private void esperar(int intento) {
+        long espera = Math.min(configuracion.getBackoffMaximoMs(),
+                configuracion.getBackoffInicialMs() << Math.min(intento - 1, 20));
+        //jitter para que los reintentos en conflicto no vuelvan a coincidir
+        long conJitter = espera / 2 + ThreadLocalRandom.current().nextLong(espera / 2 + 1);
+        try {
+            Thread.sleep(conJitter);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BuisnessException("Operacion interrumpida mientras esperaba el bloqueo de las cuentas");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.crudpractica.finanzastestproyec.Ledger;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/*
+ * Asigna ids de transaccion desde la secuencia trasacciones_seq
+ *
+ * reserva bloques con la misma semantica del optimizador "pooled" que usa
+ * Hibernate para la entidad Transaccion (cada nextval es el limite superior
+ * de un bloque de 50), asi los ids del ledger y los generados por JPA
+ * nunca se repiten
+ * */
+@Component
+public class AsignadorIdsTransaccion {
+
+    private static final String SECUENCIA = "trasacciones_seq";
+    private static final int TAMANO_BLOQUE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private String consultaSiguienteValor;
+    private long siguiente = 1;
+    private long limite = 0;
+
+    public AsignadorIdsTransaccion(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public synchronized long siguiente() {
+        if (siguiente > limite) {
+            reservarBloque();
+        }
+        return siguiente++;
+    }
+
+    private void reservarBloque() {
+        long valor = siguienteValorSecuencia();
+        if (valor == 1) {
+            //igual que Hibernate: el valor inicial no cierra un bloque, se pide el siguiente
+            siguiente = 1;
+            limite = siguienteValorSecuencia();
+        } else {
+            siguiente = valor - TAMANO_BLOQUE + 1;
+            limite = valor;
+        }
+    }
+
+    private long siguienteValorSecuencia() {
+        if (consultaSiguienteValor == null) {
+            consultaSiguienteValor = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect().getSequenceSupport()
+                    .getSequenceNextValString(SECUENCIA);
+        }
+        return jdbcTemplate.queryForObject(consultaSiguienteValor, Long.class);
+    }
+}
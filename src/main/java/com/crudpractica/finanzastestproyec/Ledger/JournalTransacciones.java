@@ -0,0 +1,299 @@
+package com.crudpractica.finanzastestproyec.Ledger;
+
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/*
+ * Journal de solo escritura al final con los movimientos confirmados por el
+ * motor de ledger (opcional, finanzas.journal.habilitado)
+ *
+ * los registros se escriben en archivos de segmento de tamaño fijo mapeados en
+ * memoria. Un hilo hace fsync de todo lo escrito cada pocos milisegundos y solo
+ * entonces se responde a las peticiones, asi muchos movimientos comparten un
+ * mismo fsync (group commit).
+ *
+ * la posicion de un registro es global: segmento * tamaño + desplazamiento.
+ * Cuando PersistidorLedger escribe un lote en la base de datos se guarda esa
+ * posicion como checkpoint y se borran los segmentos anteriores a el, por eso
+ * al arrancar solo se reproducen los registros posteriores al checkpoint.
+ * */
+@Component
+@Slf4j
+public class JournalTransacciones implements Runnable {
+
+    private static final String EXTENSION = ".seg";
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final FinanzasProperties.Journal configuracion;
+    private final Path directorio;
+
+    //estado de escritura, protegido por el monitor de esta instancia
+    private long segmentoActual;
+    private MappedByteBuffer buffer;
+    private int desplazamiento;
+    private List<CompletableFuture<Void>> esperandoFsync = new ArrayList<>();
+
+    //primer error de escritura o fsync; despues de el ya no se acepta ningun registro
+    private volatile RuntimeException falla;
+
+    private long segmentoCheckpoint = -1;
+    private volatile boolean activo;
+    private Thread hilo;
+
+    public JournalTransacciones(FinanzasProperties propiedades) {
+        this.configuracion = propiedades.getJournal();
+        this.directorio = Paths.get(configuracion.getDirectorio());
+    }
+
+    public boolean estaHabilitado() {
+        return configuracion.isHabilitado();
+    }
+
+    /*
+    * Recupera el journal y lo deja listo para escribir
+    *
+    * los registros con CRC invalido al final del ultimo segmento (escritura
+    * interrumpida) se descartan; las escrituras nuevas empiezan siempre en un
+    * segmento nuevo para no mezclarse con esos restos
+    *
+    * @return movimientos registrados despues del ultimo checkpoint, en orden
+    * */
+    public List<MovimientoLedger> abrir() {
+        try {
+            Files.createDirectories(directorio);
+            long checkpoint = leerCheckpoint();
+            long tamano = configuracion.getTamanoSegmentoBytes();
+            List<Long> segmentos = listarSegmentos();
+
+            List<MovimientoLedger> pendientes = new ArrayList<>();
+            for (long segmento : segmentos) {
+                if ((segmento + 1) * tamano <= checkpoint) {
+                    continue;
+                }
+                int inicio = (int) Math.max(0, checkpoint - segmento * tamano);
+                leerSegmento(segmento, inicio, pendientes);
+            }
+            segmentoCheckpoint = checkpoint / tamano;
+
+            long siguiente = segmentos.isEmpty() ? checkpoint / tamano : segmentos.get(segmentos.size() - 1) + 1;
+            synchronized (this) {
+                abrirSegmento(siguiente);
+            }
+            activo = true;
+            hilo = new Thread(this, "journal-fsync");
+            hilo.start();
+            log.info("Journal abierto en {}: {} movimientos posteriores al checkpoint", directorio, pendientes.size());
+            return pendientes;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudo abrir el journal de transacciones", ex);
+        }
+    }
+
+    public CompletableFuture<Void> registrar(MovimientoLedger movimiento, Consumer<MovimientoLedger> alRegistrar) {
+        return registrar(List.of(movimiento), alRegistrar);
+    }
+
+    /*
+    * Agrega movimientos al journal, uno seguido del otro en el mismo segmento
+    *
+    * alRegistrar se ejecuta dentro de la misma seccion critica que la escritura,
+    * asi quien lo use (la cola de persistencia) recibe los movimientos en el
+    * mismo orden en que quedan en el journal
+    *
+    * @return futuro que se completa cuando los registros estan sincronizados en
+    *         disco, o con error si el fsync falla
+    * @throws IllegalStateException si el journal ya fallo o no pudo abrir un
+    *         segmento; en ese caso no se escribio nada ni se llamo alRegistrar
+    * */
+    public CompletableFuture<Void> registrar(List<MovimientoLedger> movimientos,
+                                             Consumer<MovimientoLedger> alRegistrar) {
+        List<byte[]> registros = movimientos.stream().map(RegistroJournal::codificar).toList();
+        int longitud = registros.stream().mapToInt(registro -> registro.length).sum();
+        CompletableFuture<Void> sincronizado = new CompletableFuture<>();
+        synchronized (this) {
+            if (falla != null) {
+                throw new IllegalStateException("El journal de transacciones fallo y no acepta mas registros", falla);
+            }
+            if (desplazamiento + longitud > buffer.capacity()) {
+                try {
+                    rotar();
+                } catch (RuntimeException ex) {
+                    //rotar hace fsync del segmento lleno: sus registros pendientes tampoco quedan confirmados
+                    falla = ex;
+                    esperandoFsync.forEach(futuro -> futuro.completeExceptionally(ex));
+                    esperandoFsync = new ArrayList<>();
+                    throw new IllegalStateException("No se pudo rotar el journal de transacciones", ex);
+                }
+            }
+            for (int i = 0; i < registros.size(); i++) {
+                buffer.put(desplazamiento, registros.get(i));
+                desplazamiento += registros.get(i).length;
+                movimientos.get(i).setPosicionJournal(
+                        segmentoActual * configuracion.getTamanoSegmentoBytes() + desplazamiento);
+            }
+            esperandoFsync.add(sincronizado);
+            movimientos.forEach(alRegistrar);
+        }
+        return sincronizado;
+    }
+
+    /*
+    * Posicion donde se escribira el siguiente registro
+    * */
+    public synchronized long posicionActual() {
+        return segmentoActual * configuracion.getTamanoSegmentoBytes() + desplazamiento;
+    }
+
+    /*
+    * Registra que todo lo anterior a la posicion ya esta en la base de datos
+    * y borra los segmentos que quedaron completamente antes del checkpoint
+    * */
+    public void marcarPersistido(long posicion) {
+        try {
+            Path temporal = directorio.resolve(CHECKPOINT + ".tmp");
+            Files.write(temporal, ByteBuffer.allocate(8).putLong(posicion).array());
+            Files.move(temporal, directorio.resolve(CHECKPOINT),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            long segmento = posicion / configuracion.getTamanoSegmentoBytes();
+            if (segmento > segmentoCheckpoint) {
+                compactar(segmento);
+                segmentoCheckpoint = segmento;
+            }
+        } catch (IOException ex) {
+            //un checkpoint atrasado solo alarga la recuperacion
+            log.warn("No se pudo actualizar el checkpoint del journal", ex);
+        }
+    }
+
+    /*
+    * Hilo de fsync agrupado
+    * */
+    @Override
+    public void run() {
+        long intervalo = configuracion.getIntervaloFsyncMs() * 1_000_000L;
+        while (activo) {
+            LockSupport.parkNanos(this, intervalo);
+            sincronizar();
+        }
+    }
+
+    private void sincronizar() {
+        List<CompletableFuture<Void>> pendientes;
+        MappedByteBuffer aForzar;
+        int hasta;
+        synchronized (this) {
+            if (esperandoFsync.isEmpty()) {
+                return;
+            }
+            pendientes = esperandoFsync;
+            esperandoFsync = new ArrayList<>();
+            aForzar = buffer;
+            hasta = desplazamiento;
+        }
+        //force solo toca la region ya escrita, las escrituras nuevas siguen en paralelo
+        try {
+            aForzar.force(0, hasta);
+        } catch (RuntimeException ex) {
+            //tras un fsync fallido no se sabe que quedo en disco: el journal deja de aceptar registros
+            log.error("Fallo el fsync del journal, {} confirmaciones quedan con error", pendientes.size(), ex);
+            falla = ex;
+            pendientes.forEach(futuro -> futuro.completeExceptionally(ex));
+            return;
+        }
+        pendientes.forEach(futuro -> futuro.complete(null));
+    }
+
+    /*
+    * Sincroniza lo pendiente y detiene el hilo de fsync
+    * */
+    public void cerrar() throws InterruptedException {
+        if (hilo == null) {
+            return;
+        }
+        activo = false;
+        LockSupport.unpark(hilo);
+        hilo.join();
+        sincronizar();
+        log.info("Journal cerrado");
+    }
+
+    //debe llamarse con el monitor tomado
+    private void rotar() {
+        buffer.force(0, desplazamiento);
+        abrirSegmento(segmentoActual + 1);
+    }
+
+    //debe llamarse con el monitor tomado
+    private void abrirSegmento(long numero) {
+        try (FileChannel canal = FileChannel.open(rutaSegmento(numero),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, configuracion.getTamanoSegmentoBytes());
+            segmentoActual = numero;
+            desplazamiento = 0;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudo crear el segmento " + numero + " del journal", ex);
+        }
+    }
+
+    private void leerSegmento(long segmento, int inicio, List<MovimientoLedger> destino) throws IOException {
+        try (FileChannel canal = FileChannel.open(rutaSegmento(segmento), StandardOpenOption.READ)) {
+            ByteBuffer contenido = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            contenido.position(Math.min(inicio, contenido.limit()));
+            MovimientoLedger movimiento;
+            while ((movimiento = RegistroJournal.leer(contenido)) != null) {
+                movimiento.setPosicionJournal(segmento * configuracion.getTamanoSegmentoBytes() + contenido.position());
+                destino.add(movimiento);
+            }
+        }
+    }
+
+    private void compactar(long segmentoCheckpoint) throws IOException {
+        for (long segmento : listarSegmentos()) {
+            if (segmento < segmentoCheckpoint) {
+                Files.deleteIfExists(rutaSegmento(segmento));
+                log.debug("Segmento {} del journal eliminado (ya persistido)", segmento);
+            }
+        }
+    }
+
+    private long leerCheckpoint() throws IOException {
+        Path archivo = directorio.resolve(CHECKPOINT);
+        if (!Files.exists(archivo)) {
+            return 0;
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(archivo)).getLong();
+    }
+
+    private List<Long> listarSegmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.map(archivo -> archivo.getFileName().toString())
+                    .filter(nombre -> nombre.endsWith(EXTENSION))
+                    .map(nombre -> Long.parseLong(nombre.substring(0, nombre.length() - EXTENSION.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path rutaSegmento(long numero) {
+        return directorio.resolve(String.format("%020d%s", numero, EXTENSION));
+    }
+}
@@ -0,0 +1,399 @@
+package com.crudpractica.finanzastestproyec.Ledger;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * Motor de ledger en memoria (opcional, finanzas.ledger.habilitado)
+ *
+ * los saldos de las cuentas se reparten en N shards segun el id de la cuenta;
+ * cada shard tiene un solo hilo que ejecuta los comandos en orden, por lo que
+ * los movimientos de una cuenta nunca compiten por un bloqueo de fila.
+ *
+ * consignaciones, retiros y transferencias dentro del mismo shard se aplican
+ * en un solo comando. Una transferencia entre shards se hace en dos pasos:
+ * el shard origen reserva el monto (sale del disponible), el shard destino lo
+ * acredita y el shard origen confirma la reserva; si el credito falla la
+ * reserva se libera. Los movimientos confirmados se persisten en lotes con
+ * PersistidorLedger.
+ *
+ * el GMF de un debito se descuenta en el mismo comando que el monto (o en la
+ * misma reserva) y se persiste como un retiro aparte de la cuenta origen.
+ * */
+@Component
+@Slf4j
+public class MotorLedger {
+
+    private final FinanzasProperties.Ledger configuracion;
+    private final CuentaRepository cuentaRepository;
+    private final PersistidorLedger persistidor;
+    private final AsignadorIdsTransaccion asignadorIds;
+    private final JournalTransacciones journal;
+    private final Map<Long, BigDecimal> saldosPublicados = new ConcurrentHashMap<>();
+
+    private ShardLedger[] shards = new ShardLedger[0];
+
+    public MotorLedger(FinanzasProperties propiedades, CuentaRepository cuentaRepository,
+                       PersistidorLedger persistidor, AsignadorIdsTransaccion asignadorIds,
+                       JournalTransacciones journal) {
+        this.configuracion = propiedades.getLedger();
+        this.cuentaRepository = cuentaRepository;
+        this.persistidor = persistidor;
+        this.asignadorIds = asignadorIds;
+        this.journal = journal;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (!configuracion.isHabilitado()) {
+            return;
+        }
+        if (journal.estaHabilitado()) {
+            recuperarJournal();
+        }
+        shards = new ShardLedger[configuracion.getShards()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ShardLedger(i, saldosPublicados, this::cargarSaldo);
+            shards[i].iniciar();
+        }
+        persistidor.iniciar();
+        log.info("Motor de ledger iniciado con {} shards", shards.length);
+    }
+
+    /*
+    * Lleva a la base de datos los movimientos del journal que no alcanzaron a
+    * persistirse; debe ejecutarse antes de que los shards carguen saldos
+    * */
+    private void recuperarJournal() {
+        List<MovimientoLedger> recuperados = journal.abrir();
+        int reaplicados = persistidor.reaplicar(recuperados);
+        journal.marcarPersistido(journal.posicionActual());
+        if (reaplicados > 0) {
+            log.warn("Se reaplicaron {} movimientos del journal que no estaban en la base de datos", reaplicados);
+        }
+    }
+
+    public boolean estaHabilitado() {
+        return shards.length > 0;
+    }
+
+    /*
+    * Saldo en memoria de una cuenta, si el motor ya la cargo
+    *
+    * @param cuentaId identificador de la cuenta
+    * @return Optional con el saldo (disponible + reservado)
+    * */
+    public Optional<BigDecimal> saldoEnMemoria(Long cuentaId) {
+        return Optional.ofNullable(saldosPublicados.get(cuentaId));
+    }
+
+    public MovimientoLedger ejecutar(TipoTrasaccion tipo, Long origenId, Long destinoId,
+                                     BigDecimal monto, String descripcion) {
+        return ejecutar(tipo, origenId, destinoId, monto, descripcion, null);
+    }
+
+    /*
+    * Ejecuta un movimiento y espera su confirmacion
+    *
+    * la existencia y el estado de las cuentas deben validarse antes de llamar
+    * a este metodo; el motor solo controla los saldos
+    *
+    * @param gravamen GMF del debito (null si no paga), se descuenta junto con el monto
+    * @return movimiento confirmado con su id y fecha
+    * @throws BuisnessException si el saldo es insuficiente o el motor no responde
+    * */
+    public MovimientoLedger ejecutar(TipoTrasaccion tipo, Long origenId, Long destinoId,
+                                     BigDecimal monto, String descripcion, Gravamen gravamen) {
+        return esperar(enviar(tipo, origenId, destinoId, monto, descripcion, gravamen));
+    }
+
+    /*
+    * Espera la confirmacion de un movimiento enviado
+    *
+    * si se agota el tiempo el movimiento sigue en la cola del shard y todavia
+    * puede aplicarse; el resultado real es el que complete el futuro
+    *
+    * @return movimiento confirmado con su id y fecha
+    * @throws BuisnessException si el saldo es insuficiente o el motor no responde
+    * */
+    public MovimientoLedger esperar(CompletableFuture<MovimientoLedger> envio) {
+        try {
+            return envio.get(configuracion.getTimeoutRespuestaMs(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof BuisnessException) {
+                throw (BuisnessException) ex.getCause();
+            }
+            throw new IllegalStateException("Error ejecutando movimiento en el ledger", ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new BuisnessException("El motor de transacciones no respondio a tiempo, consulte el estado de la cuenta");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BuisnessException("Operacion interrumpida");
+        }
+    }
+
+    public CompletableFuture<MovimientoLedger> enviar(TipoTrasaccion tipo, Long origenId, Long destinoId,
+                                                      BigDecimal monto, String descripcion) {
+        return enviar(tipo, origenId, destinoId, monto, descripcion, null);
+    }
+
+    /*
+    * Encola el movimiento en el shard de la cuenta origen
+    * */
+    public CompletableFuture<MovimientoLedger> enviar(TipoTrasaccion tipo, Long origenId, Long destinoId,
+                                                      BigDecimal monto, String descripcion, Gravamen gravamen) {
+        if (!estaHabilitado()) {
+            throw new IllegalStateException("El motor de ledger no esta habilitado");
+        }
+        MovimientoLedger movimiento = MovimientoLedger.builder()
+                .id(asignadorIds.siguiente())
+                .tipoTransaccion(tipo)
+                .monto(monto)
+                .cuentaOrigenId(origenId)
+                .cuentaDestinoId(destinoId)
+                .fecha(LocalDateTime.now())
+                .descripcion(descripcion)
+                .build();
+        MovimientoLedger cobro = gravamen == null || gravamen.valor().signum() == 0 ? null
+                : MovimientoLedger.builder()
+                        .id(asignadorIds.siguiente())
+                        .tipoTransaccion(TipoTrasaccion.GMF)
+                        .monto(gravamen.valor())
+                        .cuentaOrigenId(origenId)
+                        .fecha(movimiento.getFecha())
+                        .descripcion(gravamen.prefijoDescripcion() + movimiento.getId())
+                        .build();
+        movimiento.setGravamen(cobro);
+        BigDecimal debito = cobro == null ? monto : monto.add(cobro.getMonto());
+        CompletableFuture<MovimientoLedger> resultado = new CompletableFuture<>();
+        ShardLedger shardOrigen = shardDe(origenId);
+
+        switch (tipo) {
+            case CONSIGNACION:
+                shardOrigen.enviar(comando(resultado, () -> {
+                    SaldoLedger saldo = shardOrigen.saldo(origenId);
+                    saldo.acreditar(monto);
+                    shardOrigen.publicar(origenId, saldo);
+                    confirmar(movimiento, null, resultado, () -> {
+                        saldo.debitar(monto);
+                        shardOrigen.publicar(origenId, saldo);
+                    });
+                }));
+                break;
+            case RETIRO:
+                shardOrigen.enviar(comando(resultado, () -> {
+                    SaldoLedger saldo = shardOrigen.saldo(origenId);
+                    if (!saldo.alcanzaPara(debito)) {
+                        throw new BuisnessException("Saldo insuficiente");
+                    }
+                    saldo.debitar(debito);
+                    shardOrigen.publicar(origenId, saldo);
+                    confirmar(movimiento, cobro, resultado, () -> {
+                        saldo.acreditar(debito);
+                        shardOrigen.publicar(origenId, saldo);
+                    });
+                }));
+                break;
+            case TRANSFERENCIA:
+                ShardLedger shardDestino = shardDe(destinoId);
+                if (shardDestino == shardOrigen) {
+                    shardOrigen.enviar(comando(resultado, () -> {
+                        SaldoLedger origen = shardOrigen.saldo(origenId);
+                        SaldoLedger destino = shardOrigen.saldo(destinoId);
+                        if (!origen.alcanzaPara(debito)) {
+                            throw new BuisnessException("Saldo insuficiente en cuenta origen");
+                        }
+                        origen.debitar(debito);
+                        destino.acreditar(monto);
+                        shardOrigen.publicar(origenId, origen);
+                        shardOrigen.publicar(destinoId, destino);
+                        confirmar(movimiento, cobro, resultado, () -> {
+                            origen.acreditar(debito);
+                            destino.debitar(monto);
+                            shardOrigen.publicar(origenId, origen);
+                            shardOrigen.publicar(destinoId, destino);
+                        });
+                    }));
+                } else {
+                    shardOrigen.enviar(comando(resultado, () ->
+                            reservarYTransferir(movimiento, cobro, shardOrigen, shardDestino, resultado)));
+                }
+                break;
+            default:
+                //el GMF solo se descuenta como gravamen de otro movimiento
+                throw new IllegalArgumentException("El motor no ejecuta movimientos de tipo " + tipo);
+        }
+        return resultado;
+    }
+
+    /*
+    * Paso 1 (shard origen): reserva el monto y el GMF y pide el credito al shard destino
+    * */
+    private void reservarYTransferir(MovimientoLedger movimiento, MovimientoLedger cobro, ShardLedger shardOrigen,
+                                     ShardLedger shardDestino, CompletableFuture<MovimientoLedger> resultado) {
+        Long origenId = movimiento.getCuentaOrigenId();
+        Long destinoId = movimiento.getCuentaDestinoId();
+        BigDecimal monto = movimiento.getMonto();
+        BigDecimal debito = cobro == null ? monto : monto.add(cobro.getMonto());
+
+        SaldoLedger origen = shardOrigen.saldo(origenId);
+        if (!origen.alcanzaPara(debito)) {
+            throw new BuisnessException("Saldo insuficiente en cuenta origen");
+        }
+        origen.reservar(debito);
+        shardOrigen.publicar(origenId, origen);
+
+        //paso 2 (shard destino): acredita; paso 3 (shard origen): confirma o libera la reserva
+        shardDestino.enviar(() -> {
+            try {
+                SaldoLedger destino = shardDestino.saldo(destinoId);
+                destino.acreditar(monto);
+                shardDestino.publicar(destinoId, destino);
+            } catch (RuntimeException ex) {
+                log.error("No se pudo acreditar la cuenta {}, se libera la reserva", destinoId, ex);
+                shardOrigen.enviar(() -> {
+                    SaldoLedger saldo = shardOrigen.saldo(origenId);
+                    saldo.liberarReserva(debito);
+                    shardOrigen.publicar(origenId, saldo);
+                    resultado.completeExceptionally(ex);
+                });
+                return;
+            }
+            shardOrigen.enviar(comando(resultado, () -> {
+                SaldoLedger saldo = shardOrigen.saldo(origenId);
+                saldo.confirmarReserva(debito);
+                shardOrigen.publicar(origenId, saldo);
+                //el credito ya se aplico en el otro shard: deshacerlo es un debito compensatorio alla
+                confirmar(movimiento, cobro, resultado, () -> {
+                    saldo.acreditar(debito);
+                    shardOrigen.publicar(origenId, saldo);
+                    shardDestino.enviar(() -> {
+                        SaldoLedger destino = shardDestino.saldo(destinoId);
+                        destino.debitar(monto);
+                        shardDestino.publicar(destinoId, destino);
+                    });
+                });
+            }));
+        });
+    }
+
+    private Runnable comando(CompletableFuture<MovimientoLedger> resultado, Runnable accion) {
+        return () -> {
+            try {
+                accion.run();
+            } catch (RuntimeException ex) {
+                resultado.completeExceptionally(ex);
+            }
+        };
+    }
+
+    /*
+    * Con el journal habilitado se responde solo cuando el registro esta en disco;
+    * el GMF (cobro, null si no hay) se registra junto con el movimiento
+    *
+    * si el journal rechaza el registro nada llego a la cola de persistencia y
+    * deshacer devuelve los saldos en memoria a como estaban. Si lo que falla es
+    * el fsync el movimiento ya va camino de la base de datos y los saldos se
+    * dejan; el journal queda fallido y rechaza los movimientos siguientes
+    * */
+    private void confirmar(MovimientoLedger movimiento, MovimientoLedger cobro,
+                           CompletableFuture<MovimientoLedger> resultado, Runnable deshacer) {
+        if (journal.estaHabilitado()) {
+            CompletableFuture<Void> registrado;
+            try {
+                registrado = journal.registrar(cobro == null ? List.of(movimiento) : List.of(movimiento, cobro),
+                        persistidor::encolar);
+            } catch (RuntimeException ex) {
+                log.error("El journal rechazo el movimiento {}, se deshace en memoria", movimiento.getId(), ex);
+                deshacer.run();
+                throw new BuisnessException("El movimiento no se aplicó: el journal de transacciones no está disponible");
+            }
+            registrado.whenComplete((sincronizado, ex) -> {
+                if (ex == null) {
+                    resultado.complete(movimiento);
+                } else {
+                    log.error("El movimiento {} se aplicó pero no se pudo sincronizar en el journal", movimiento.getId(), ex);
+                    resultado.completeExceptionally(new MovimientoSinSincronizar(movimiento.getId(), ex));
+                }
+            });
+            return;
+        }
+        persistidor.encolar(movimiento);
+        if (cobro != null) {
+            persistidor.encolar(cobro);
+        }
+        resultado.complete(movimiento);
+    }
+
+    /*
+    * Si un movimiento que termino con error alcanzo a aplicarse en los saldos
+    *
+    * solo pasa cuando falla el fsync del journal; cualquier otro error del
+    * futuro de enviar significa que los saldos quedaron como estaban
+    * */
+    public static boolean seAplico(Throwable error) {
+        Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return causa instanceof MovimientoSinSincronizar;
+    }
+
+    /*
+    * El movimiento se aplico en memoria y va camino de la base de datos, pero
+    * su registro no quedo sincronizado en el journal
+    * */
+    public static class MovimientoSinSincronizar extends IllegalStateException {
+
+        public MovimientoSinSincronizar(Long movimientoId, Throwable causa) {
+            super("El movimiento " + movimientoId + " se aplicó pero no quedó sincronizado en el journal", causa);
+        }
+    }
+
+    /*
+    * GMF de un debito: valor a descontar y descripcion del retiro con que se
+    * registra, a la que se agrega el id del movimiento que lo genero
+    * */
+    public record Gravamen(BigDecimal valor, String prefijoDescripcion) {
+    }
+
+    private ShardLedger shardDe(Long cuentaId) {
+        return shards[(int) Math.floorMod(cuentaId, (long) shards.length)];
+    }
+
+    private BigDecimal cargarSaldo(Long cuentaId) {
+        return cuentaRepository.consultarSaldo(cuentaId)
+                .orElseThrow(() -> new BuisnessException("Cuenta no encontrada con ID: " + cuentaId));
+    }
+
+    /*
+    * Vacia las colas de los shards y espera a que se persistan todos los movimientos
+    * */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        if (!estaHabilitado()) {
+            return;
+        }
+        for (ShardLedger shard : shards) {
+            shard.detener();
+        }
+        persistidor.detener();
+        journal.cerrar();
+        log.info("Motor de ledger detenido");
+    }
+}
@@ -0,0 +1,39 @@
+package com.crudpractica.finanzastestproyec.Ledger;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/*
+ * Movimiento aceptado por el motor de ledger
+ *
+ * el id se asigna antes de ejecutar el comando (de la misma secuencia que
+ * usa la entidad Transaccion) para poder responder y persistir el
+ * movimiento sin esperar a la base de datos
+ * */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MovimientoLedger {
+
+    private Long id;
+    private TipoTrasaccion tipoTransaccion;
+    private BigDecimal monto;
+    private Long cuentaOrigenId;
+    private Long cuentaDestinoId;
+    private LocalDateTime fecha;
+    private String descripcion;
+
+    //posicion del journal justo despues del registro (null si el journal esta deshabilitado)
+    private Long posicionJournal;
+
+    //retiro con el GMF de este movimiento (null si no pago); no se guarda en el journal
+    private MovimientoLedger gravamen;
+}
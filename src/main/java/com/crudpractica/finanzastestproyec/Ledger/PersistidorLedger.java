@@ -0,0 +1,191 @@
+package com.crudpractica.finanzastestproyec.Ledger;
+
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Escribe en la base de datos, en lotes y de forma asincrona, los
+ * movimientos confirmados por el motor de ledger
+ *
+ * cada lote se escribe en una sola transaccion: un INSERT por lotes JDBC de
+ * las transacciones y un UPDATE por lotes con el neto de cada cuenta, asi una
+ * cuenta muy usada recibe una sola actualizacion por lote. Si la escritura
+ * falla el lote se reintenta, los movimientos nunca se descartan.
+ * */
+@Component
+@Slf4j
+public class PersistidorLedger implements Runnable {
+
+    private static final String INSERTAR_TRANSACCION = "INSERT INTO trasacciones " +
+            "(id, tipo_transaccion, monto, fecha, descripcion, cuenta_origen_id, cuenta_destino_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String ACTUALIZAR_SALDO =
+            "UPDATE cuentas SET saldo = saldo + ?, fecha_modificacion = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FinanzasProperties.Ledger configuracion;
+    private final JournalTransacciones journal;
+    private final BlockingQueue<MovimientoLedger> pendientes = new LinkedBlockingQueue<>();
+
+    private volatile boolean activo;
+    private Thread hilo;
+
+    public PersistidorLedger(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             FinanzasProperties propiedades, JournalTransacciones journal, MeterRegistry registry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.configuracion = propiedades.getLedger();
+        this.journal = journal;
+        Gauge.builder("finanzas.ledger.pendientes.persistencia", pendientes, BlockingQueue::size)
+                .description("Movimientos confirmados en memoria que aun no se escriben en la base de datos")
+                .register(registry);
+    }
+
+    void iniciar() {
+        activo = true;
+        hilo = new Thread(this, "ledger-persistidor");
+        hilo.start();
+    }
+
+    void encolar(MovimientoLedger movimiento) {
+        pendientes.add(movimiento);
+    }
+
+    @Override
+    public void run() {
+        List<MovimientoLedger> lote = new ArrayList<>(configuracion.getTamanoLotePersistencia());
+        while (activo || !pendientes.isEmpty()) {
+            try {
+                MovimientoLedger primero = pendientes.poll(configuracion.getIntervaloPersistenciaMs(), TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                pendientes.drainTo(lote, configuracion.getTamanoLotePersistencia() - 1);
+                escribirConReintentos(lote);
+                lote.clear();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void escribirConReintentos(List<MovimientoLedger> lote) throws InterruptedException {
+        while (true) {
+            try {
+                escribir(lote);
+                Long posicion = lote.get(lote.size() - 1).getPosicionJournal();
+                if (posicion != null) {
+                    journal.marcarPersistido(posicion);
+                }
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Error persistiendo lote de {} movimientos del ledger, se reintentara", lote.size(), ex);
+                Thread.sleep(1000);
+            }
+        }
+    }
+
+    private void escribir(List<MovimientoLedger> lote) {
+        //neto por cuenta ordenado por id, el mismo orden de bloqueo del resto de la aplicacion
+        Map<Long, BigDecimal> netos = new TreeMap<>();
+        for (MovimientoLedger movimiento : lote) {
+            switch (movimiento.getTipoTransaccion()) {
+                case CONSIGNACION:
+                    netos.merge(movimiento.getCuentaOrigenId(), movimiento.getMonto(), BigDecimal::add);
+                    break;
+                case RETIRO:
+                case GMF:
+                    netos.merge(movimiento.getCuentaOrigenId(), movimiento.getMonto().negate(), BigDecimal::add);
+                    break;
+                case TRANSFERENCIA:
+                    netos.merge(movimiento.getCuentaOrigenId(), movimiento.getMonto().negate(), BigDecimal::add);
+                    netos.merge(movimiento.getCuentaDestinoId(), movimiento.getMonto(), BigDecimal::add);
+                    break;
+            }
+        }
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERTAR_TRANSACCION, lote, lote.size(), (ps, movimiento) -> {
+                ps.setLong(1, movimiento.getId());
+                ps.setString(2, movimiento.getTipoTransaccion().name());
+                ps.setBigDecimal(3, movimiento.getMonto());
+                ps.setTimestamp(4, Timestamp.valueOf(movimiento.getFecha()));
+                ps.setString(5, movimiento.getDescripcion());
+                ps.setLong(6, movimiento.getCuentaOrigenId());
+                if (movimiento.getCuentaDestinoId() != null) {
+                    ps.setLong(7, movimiento.getCuentaDestinoId());
+                } else {
+                    ps.setNull(7, Types.BIGINT);
+                }
+            });
+            List<Map.Entry<Long, BigDecimal>> actualizaciones = new ArrayList<>(netos.entrySet());
+            jdbcTemplate.batchUpdate(ACTUALIZAR_SALDO, actualizaciones, actualizaciones.size(), (ps, neto) -> {
+                ps.setBigDecimal(1, neto.getValue());
+                ps.setTimestamp(2, ahora);
+                ps.setLong(3, neto.getKey());
+            });
+        });
+        log.debug("Lote de {} movimientos del ledger persistido ({} cuentas)", lote.size(), netos.size());
+    }
+
+    /*
+    * Escribe los movimientos recuperados del journal que no alcanzaron a
+    * llegar a la base de datos antes de una caida
+    *
+    * es idempotente: los movimientos cuyo id ya existe en la tabla se omiten,
+    * porque cada lote escribe la transaccion y su efecto en los saldos en la
+    * misma transaccion de base de datos
+    *
+    * @return cantidad de movimientos reaplicados
+    * */
+    int reaplicar(List<MovimientoLedger> recuperados) {
+        if (recuperados.isEmpty()) {
+            return 0;
+        }
+        long minimo = recuperados.stream().mapToLong(MovimientoLedger::getId).min().getAsLong();
+        long maximo = recuperados.stream().mapToLong(MovimientoLedger::getId).max().getAsLong();
+        Set<Long> existentes = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM trasacciones WHERE id BETWEEN ? AND ?", Long.class, minimo, maximo));
+
+        List<MovimientoLedger> faltantes = recuperados.stream()
+                .filter(movimiento -> !existentes.contains(movimiento.getId()))
+                .toList();
+        int tamanoLote = configuracion.getTamanoLotePersistencia();
+        for (int i = 0; i < faltantes.size(); i += tamanoLote) {
+            escribir(faltantes.subList(i, Math.min(i + tamanoLote, faltantes.size())));
+        }
+        return faltantes.size();
+    }
+
+    /*
+    * Espera a que se escriban todos los movimientos pendientes y detiene el hilo
+    * */
+    void detener() throws InterruptedException {
+        activo = false;
+        hilo.join();
+    }
+}
@@ -0,0 +1,112 @@
+package com.crudpractica.finanzastestproyec.Ledger;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+
+/*
+ * Formato binario de un movimiento en el journal
+ *
+ *  int  longitud del cuerpo
+ *  int  CRC32C del cuerpo
+ *  cuerpo:
+ *    byte  tipo (ordinal + 1, un 0 marca el final de los datos del segmento;
+ *          los tipos nuevos se agregan al final del enum para no cambiar los ordinales)
+ *    long  id
+ *    long  monto sin escala, byte escala
+ *    long  cuenta origen, long cuenta destino (0 si no tiene)
+ *    long  segundos epoch (UTC), int nanos
+ *    short longitud descripcion, bytes UTF-8
+ *
+ * un registro con CRC invalido es una escritura incompleta (caida a mitad de
+ * la escritura) y marca el final de los datos validos
+ * */
+final class RegistroJournal {
+
+    static final int CABECERA = 8;
+    private static final int CUERPO_FIJO = 1 + 8 + 8 + 1 + 8 + 8 + 8 + 4 + 2;
+    private static final TipoTrasaccion[] TIPOS = TipoTrasaccion.values();
+
+    private RegistroJournal() {
+    }
+
+    static byte[] codificar(MovimientoLedger movimiento) {
+        byte[] descripcion = movimiento.getDescripcion() == null
+                ? new byte[0] : movimiento.getDescripcion().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer cuerpo = ByteBuffer.allocate(CUERPO_FIJO + descripcion.length);
+        cuerpo.put((byte) (movimiento.getTipoTransaccion().ordinal() + 1));
+        cuerpo.putLong(movimiento.getId());
+        cuerpo.putLong(movimiento.getMonto().unscaledValue().longValueExact());
+        cuerpo.put((byte) movimiento.getMonto().scale());
+        cuerpo.putLong(movimiento.getCuentaOrigenId());
+        cuerpo.putLong(movimiento.getCuentaDestinoId() != null ? movimiento.getCuentaDestinoId() : 0L);
+        cuerpo.putLong(movimiento.getFecha().toEpochSecond(ZoneOffset.UTC));
+        cuerpo.putInt(movimiento.getFecha().getNano());
+        cuerpo.putShort((short) descripcion.length);
+        cuerpo.put(descripcion);
+
+        byte[] cuerpoBytes = cuerpo.array();
+        CRC32C crc = new CRC32C();
+        crc.update(cuerpoBytes);
+        ByteBuffer registro = ByteBuffer.allocate(CABECERA + cuerpoBytes.length);
+        registro.putInt(cuerpoBytes.length);
+        registro.putInt((int) crc.getValue());
+        registro.put(cuerpoBytes);
+        return registro.array();
+    }
+
+    /*
+    * Lee el registro en la posicion actual del buffer y avanza la posicion
+    *
+    * @return movimiento leido o null si no hay mas registros validos
+    * */
+    static MovimientoLedger leer(ByteBuffer buffer) {
+        if (buffer.remaining() < CABECERA) {
+            return null;
+        }
+        int inicio = buffer.position();
+        int longitud = buffer.getInt(inicio);
+        int crcEsperado = buffer.getInt(inicio + 4);
+        if (longitud < CUERPO_FIJO || longitud > buffer.remaining() - CABECERA) {
+            return null;
+        }
+        byte[] cuerpoBytes = new byte[longitud];
+        buffer.get(inicio + CABECERA, cuerpoBytes);
+        CRC32C crc = new CRC32C();
+        crc.update(cuerpoBytes);
+        if ((int) crc.getValue() != crcEsperado) {
+            return null;
+        }
+        ByteBuffer cuerpo = ByteBuffer.wrap(cuerpoBytes);
+        int tipo = cuerpo.get();
+        if (tipo < 1 || tipo > TIPOS.length) {
+            return null;
+        }
+        long id = cuerpo.getLong();
+        long montoSinEscala = cuerpo.getLong();
+        int escala = cuerpo.get();
+        long origen = cuerpo.getLong();
+        long destino = cuerpo.getLong();
+        long segundos = cuerpo.getLong();
+        int nanos = cuerpo.getInt();
+        byte[] descripcion = new byte[cuerpo.getShort()];
+        cuerpo.get(descripcion);
+
+        buffer.position(inicio + CABECERA + longitud);
+        return MovimientoLedger.builder()
+                .id(id)
+                .tipoTransaccion(TIPOS[tipo - 1])
+                .monto(new BigDecimal(BigInteger.valueOf(montoSinEscala), escala))
+                .cuentaOrigenId(origen)
+                .cuentaDestinoId(destino != 0 ? destino : null)
+                .fecha(LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC))
+                .descripcion(descripcion.length > 0 ? new String(descripcion, StandardCharsets.UTF_8) : null)
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+package com.crudpractica.finanzastestproyec.Ledger;
+
+import java.math.BigDecimal;
+
+/*
+ * Saldo en memoria de una cuenta
+ *
+ * solo lo modifica el hilo del shard dueño de la cuenta, por eso no
+ * necesita sincronizacion. "reservado" es el dinero de transferencias
+ * entre shards que ya salio del disponible pero aun no se acredito
+ * en la cuenta destino
+ * */
+class SaldoLedger {
+
+    private BigDecimal disponible;
+    private BigDecimal reservado = BigDecimal.ZERO;
+
+    SaldoLedger(BigDecimal disponible) {
+        this.disponible = disponible;
+    }
+
+    BigDecimal getDisponible() {
+        return disponible;
+    }
+
+    BigDecimal getReservado() {
+        return reservado;
+    }
+
+    boolean alcanzaPara(BigDecimal monto) {
+        return disponible.compareTo(monto) >= 0;
+    }
+
+    void acreditar(BigDecimal monto) {
+        disponible = disponible.add(monto);
+    }
+
+    void debitar(BigDecimal monto) {
+        disponible = disponible.subtract(monto);
+    }
+
+    void reservar(BigDecimal monto) {
+        disponible = disponible.subtract(monto);
+        reservado = reservado.add(monto);
+    }
+
+    void confirmarReserva(BigDecimal monto) {
+        reservado = reservado.subtract(monto);
+    }
+
+    void liberarReserva(BigDecimal monto) {
+        reservado = reservado.subtract(monto);
+        disponible = disponible.add(monto);
+    }
+}
@@ -0,0 +1,103 @@
+package com.crudpractica.finanzastestproyec.Ledger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/*
+ * Particion del ledger atendida por un unico hilo
+ *
+ * los comandos llegan por una cola sin bloqueos (ConcurrentLinkedQueue) y se
+ * ejecutan uno a uno en el hilo del shard, que es el unico que lee y escribe
+ * los saldos de sus cuentas. Los saldos se cargan de la base de datos la
+ * primera vez que se usa la cuenta; a partir de ahi la memoria es la fuente
+ * de verdad.
+ * */
+@Slf4j
+class ShardLedger implements Runnable {
+
+    private final int numero;
+    private final Queue<Runnable> comandos = new ConcurrentLinkedQueue<>();
+    private final Map<Long, SaldoLedger> saldos = new HashMap<>();
+    private final Map<Long, BigDecimal> saldosPublicados;
+    private final Function<Long, BigDecimal> cargadorSaldo;
+
+    private volatile boolean activo = true;
+    private Thread hilo;
+
+    ShardLedger(int numero, Map<Long, BigDecimal> saldosPublicados, Function<Long, BigDecimal> cargadorSaldo) {
+        this.numero = numero;
+        this.saldosPublicados = saldosPublicados;
+        this.cargadorSaldo = cargadorSaldo;
+    }
+
+    void iniciar() {
+        hilo = new Thread(this, "ledger-shard-" + numero);
+        hilo.start();
+    }
+
+    /*
+    * Encola un comando para ejecutarlo en el hilo del shard
+    * */
+    void enviar(Runnable comando) {
+        comandos.offer(comando);
+        LockSupport.unpark(hilo);
+    }
+
+    /*
+    * Devuelve el saldo de una cuenta del shard, cargandolo si es la primera vez
+    * solo debe llamarse desde el hilo del shard
+    * */
+    SaldoLedger saldo(Long cuentaId) {
+        SaldoLedger saldo = saldos.get(cuentaId);
+        if (saldo == null) {
+            saldo = new SaldoLedger(cargadorSaldo.apply(cuentaId));
+            saldos.put(cuentaId, saldo);
+            publicar(cuentaId, saldo);
+        }
+        return saldo;
+    }
+
+    /*
+    * Publica el saldo contable (disponible + reservado) para que otros hilos
+    * puedan consultarlo
+    * */
+    void publicar(Long cuentaId, SaldoLedger saldo) {
+        saldosPublicados.put(cuentaId, saldo.getDisponible().add(saldo.getReservado()));
+    }
+
+    int pendientes() {
+        return comandos.size();
+    }
+
+    @Override
+    public void run() {
+        while (activo || !comandos.isEmpty()) {
+            Runnable comando = comandos.poll();
+            if (comando == null) {
+                LockSupport.parkNanos(this, 1_000_000);
+                continue;
+            }
+            try {
+                comando.run();
+            } catch (RuntimeException ex) {
+                log.error("Error ejecutando comando en shard {}", numero, ex);
+            }
+        }
+    }
+
+    /*
+    * Deja de aceptar trabajo y espera a que se vacie la cola
+    * */
+    void detener() throws InterruptedException {
+        activo = false;
+        LockSupport.unpark(hilo);
+        hilo.join();
+    }
+}
@@ -0,0 +1,69 @@
+package com.crudpractica.finanzastestproyec.Mapper;
+
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.dto.request.ClienteRequest;
+import com.crudpractica.finanzastestproyec.dto.response.DatosCliente;
+import com.crudpractica.finanzastestproyec.dto.response.ClienteResponse;
+
+/*
+ * Conversion entre Cliente y sus DTOs, campo por campo y sin reflexion
+ *
+ * reemplaza al ModelMapper y produce exactamente lo mismo que este: apellidos
+ * y correElectronico de ClienteResponse no coinciden con apellido y
+ * correoElectronico de la entidad, ModelMapper nunca los lleno y la respuesta
+ * de la API los devuelve vacios. Se mantienen asi para no cambiar el contrato.
+ * */
+public final class ClienteMapper {
+
+    private ClienteMapper() {
+    }
+
+    /*
+    * Cliente nuevo con los datos de la solicitud, sin id ni fechas
+    * */
+    public static Cliente aEntidad(ClienteRequest request) {
+        return Cliente.builder()
+                .tipoIdentifiacion(request.getTipoIdentifiacion())
+                .numeroIdentificacion(request.getNumeroIdentificacion())
+                .nombres(request.getNombres())
+                .apellido(request.getApellido())
+                .correoElectronico(request.getCorreoElectronico())
+                .fechaNacimiento(request.getFechaNacimiento())
+                .build();
+    }
+
+    /*
+    * incluye la edad calculada; la cantidad de cuentas se consulta aparte
+    * para no cargar la coleccion LAZY de cuentas del cliente
+    * */
+    public static ClienteResponse aResponse(Cliente cliente, int cantidadCuentas) {
+        return ClienteResponse.builder()
+                .Id(cliente.getId())
+                .tipoIdentifiacion(cliente.getTipoIdentifiacion())
+                .numeroIdentificacion(cliente.getNumeroIdentificacion())
+                .nombres(cliente.getNombres())
+                .fechaNacimiento(cliente.getFechaNacimiento())
+                .Edad(cliente.calcularEdad())
+                .fechaCreacion(cliente.getFechaCreacion())
+                .fechaModificacion(cliente.getFechaModificacion())
+                .cantidadCuentas(cantidadCuentas)
+                .build();
+    }
+
+    /*
+    * misma respuesta a partir de la proyeccion de las consultas de lectura
+    * */
+    public static ClienteResponse aResponse(DatosCliente datos) {
+        return ClienteResponse.builder()
+                .Id(datos.getId())
+                .tipoIdentifiacion(datos.getTipoIdentifiacion())
+                .numeroIdentificacion(datos.getNumeroIdentificacion())
+                .nombres(datos.getNombres())
+                .fechaNacimiento(datos.getFechaNacimiento())
+                .Edad(datos.calcularEdad())
+                .fechaCreacion(datos.getFechaCreacion())
+                .fechaModificacion(datos.getFechaModificacion())
+                .cantidadCuentas(datos.getCantidadCuentas().intValue())
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.crudpractica.finanzastestproyec.Mapper;
+
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.dto.response.CuentaResponse;
+
+import java.math.BigDecimal;
+
+/*
+ * Conversion de Cuenta a CuentaResponse, campo por campo y sin reflexion
+ * */
+public final class CuentaMapper {
+
+    private CuentaMapper() {
+    }
+
+    /*
+    * @param cuenta cuenta con su cliente
+    * @param saldo saldo a mostrar; con el motor ledger activo puede ser mas
+    *              reciente que el de la entidad
+    * */
+    public static CuentaResponse aResponse(Cuenta cuenta, BigDecimal saldo) {
+        return CuentaResponse.builder()
+                .id(cuenta.getId())
+                .tipoCuenta(cuenta.getTipoCuenta())
+                .numeroCuenta(cuenta.getNumeroCuenta())
+                .estado(cuenta.getEstado())
+                .saldo(saldo)
+                .exentaGMF(cuenta.getExentaGMF())
+                .fechaCreacion(cuenta.getFechaCreacion())
+                .fechaModificacion(cuenta.getFechaModificacion())
+                .clienteId(cuenta.getCliente().getId())
+                .nombreCliente(cuenta.getCliente().getNombres() + " " + cuenta.getCliente().getApellido())
+                .build();
+    }
+}
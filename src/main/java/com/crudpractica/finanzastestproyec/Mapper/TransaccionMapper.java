@@ -0,0 +1,29 @@
+package com.crudpractica.finanzastestproyec.Mapper;
+
+import com.crudpractica.finanzastestproyec.Model.Transaccion;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+
+/*
+ * Conversion de Transaccion a TransaccionResponse, campo por campo y sin reflexion
+ * */
+public final class TransaccionMapper {
+
+    private TransaccionMapper() {
+    }
+
+    /*
+    * @param transaccion transaccion con su cuenta origen y, si aplica, la de destino
+    * */
+    public static TransaccionResponse aResponse(Transaccion transaccion) {
+        return TransaccionResponse.builder()
+                .id(transaccion.getId())
+                .tipoTransaccion(transaccion.getTipoTrasaccion())
+                .monto(transaccion.getMonto())
+                .fecha(transaccion.getFecha())
+                .descripcion(transaccion.getDescripcion())
+                .numeroCuentaOrigen(transaccion.getCuentaOrigen().getNumeroCuenta())
+                .numeroCuentaDestino(transaccion.getCuentaDestino() != null
+                        ? transaccion.getCuentaDestino().getNumeroCuenta() : null)
+                .build();
+    }
+}
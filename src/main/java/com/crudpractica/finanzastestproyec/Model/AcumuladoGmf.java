@@ -0,0 +1,60 @@
+package com.crudpractica.finanzastestproyec.Model;
+
+
+
+/*
+ *   Entidad con los retiros del mes de las cuentas exentas de GMF de un cliente
+ *
+ * una fila por cliente que se actualiza con cada retiro o transferencia desde
+ * una cuenta exenta; al cambiar de mes el acumulado vuelve a empezar en la
+ * misma fila. Asi el excedente sobre el monto exento mensual se calcula sin
+ * sumar el historial de transacciones del cliente
+ *
+ * cliente_id no es una llave foranea: la fila se crea en su propia transaccion
+ * y no debe esperar a que se confirme la del cliente
+ *
+ * */
+
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "gmf_acumulados")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AcumuladoGmf {
+
+    @Id
+    @Column(name = "cliente_id")
+    private Long clienteId;
+
+    //mes del acumulado como AAAAMM
+
+    @Column(name = "periodo", nullable = false)
+    private Integer periodo;
+
+    //retiros del periodo desde cuentas exentas, incluido el excedente gravado
+
+    @Column(name = "retiros_exentos", nullable = false, precision = 15, scale = 2)
+    private BigDecimal retirosExentos;
+
+    @Column(name = "fecha_modificacion")
+    private LocalDateTime fechaModificacion;
+
+    /*
+    * Metodo ejecutado antes de persistir el acumulado
+    * */
+    @PrePersist
+    protected void onCreate() {
+        this.fechaModificacion = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,78 @@
+package com.crudpractica.finanzastestproyec.Model;
+
+
+
+/*
+ *   Entidad que guarda el resultado de una transaccion creada con la cabecera
+ * Idempotency-Key, para responder lo mismo cuando el canal reintenta la peticion
+ *
+ * la huella identifica el contenido de la peticion original; una clave
+ * reutilizada con otro contenido se rechaza
+ *
+ * */
+
+
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "claves_idempotencia")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClaveIdempotencia {
+
+    //clave enviada por el cliente en la cabecera Idempotency-Key
+
+    @Id
+    @Column(name = "clave", length = 100)
+    private String clave;
+
+    //SHA-256 de la peticion original (tipo, monto, cuentas y descripcion)
+
+    @Column(name = "huella", nullable = false, length = 64)
+    private String huella;
+
+    //datos de la transaccion creada, suficientes para reconstruir la respuesta
+
+    @Column(name = "transaccion_id", nullable = false)
+    private Long transaccionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo_transaccion", nullable = false, length = 20)
+    private TipoTrasaccion tipoTransaccion;
+
+    @Column(name = "monto", nullable = false, precision = 15, scale = 2)
+    private BigDecimal monto;
+
+    @Column(name = "fecha_transaccion")
+    private LocalDateTime fechaTransaccion;
+
+    @Column(name = "descripcion", length = 255)
+    private String descripcion;
+
+    @Column(name = "numero_cuenta_origen", length = 10)
+    private String numeroCuentaOrigen;
+
+    @Column(name = "numero_cuenta_destino", length = 10)
+    private String numeroCuentaDestino;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    /*
+    * Metodo ejecutado antes de persistir la clave
+    * */
+    @PrePersist
+    protected void onCreate() {
+        this.fechaCreacion = LocalDateTime.now();
+    }
+}
@@ -26,7 +26,10 @@ import java.time.Period;
 import java.util.List;
 
 @Entity
-@Table(name = "clientes")
+@Table(name = "clientes", uniqueConstraints = {
+        @UniqueConstraint(name = Cliente.UK_NUMERO_IDENTIFICACION, columnNames = "numero_identificacion"),
+        @UniqueConstraint(name = Cliente.UK_CORREO_ELECTRONICO, columnNames = "correo_electronico")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -34,10 +37,17 @@ import java.util.List;
 
 public class Cliente {
 
+    //nombres de las restricciones unicas, ClienteService los usa para traducir
+    //la violacion a su mensaje de negocio
+
+    public static final String UK_NUMERO_IDENTIFICACION = "uk_clientes_numero_identificacion";
+    public static final String UK_CORREO_ELECTRONICO = "uk_clientes_correo_electronico";
+
     //identificador unico del cliente
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "clientes_seq")
+    @SequenceGenerator(name = "clientes_seq", sequenceName = "clientes_seq", allocationSize = 50)
         private Long id;
 
 
@@ -54,7 +64,7 @@ public class Cliente {
 
     //Numero de documento  de identicacion  del cliente
 
-    @Column(name = "numero_identificacion", nullable = false, length = 20,  unique = true)
+    @Column(name = "numero_identificacion", nullable = false, length = 20)
     @NotBlank(message = "El numero de identificacion es Obligatrio")
     @Size(min = 5, max =20 ,message = "El numero de identificacion debe terner entre 5 y 20 caracteres")
     private String numeroIdentificacion;
@@ -88,7 +98,7 @@ public class Cliente {
     debe tener formato valido(xxxx@xxxx.xxx)
 
     * */
-    @Column(name = "correo_electronico",  nullable = false, unique = true, length = 100)
+    @Column(name = "correo_electronico",  nullable = false, length = 100)
     @NotBlank(message = "El_correo electronico es obligatorio")
     @Email(message = "El correo electronico debe tener un formato valido")
     private String correoElectronico;
@@ -31,7 +31,7 @@ import java.util.List;
 
 
 @Entity
-@Table(name = "cuentas")
+@Table(name = "cuentas", indexes = @Index(name = "idx_cuentas_cliente", columnList = "cliente_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -40,7 +40,8 @@ import java.util.List;
 public class Cuenta {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cuentas_seq")
+    @SequenceGenerator(name = "cuentas_seq", sequenceName = "cuentas_seq", allocationSize = 50)
 
     private Long id;
 
@@ -0,0 +1,67 @@
+package com.crudpractica.finanzastestproyec.Model;
+
+
+
+/*
+ *   Entidad que guarda el avance de una importacion masiva de clientes desde CSV
+ *
+ * filasConfirmadas es la ultima fila del archivo cuyo lote ya se confirmo; se
+ * actualiza en la misma transaccion que inserta el lote, asi al reenviar el
+ * archivo con el mismo id la importacion continua desde la fila siguiente
+ *
+ * */
+
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "importaciones_clientes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportacionClientes {
+
+    //identificador enviado por el cliente o generado en la primera peticion
+
+    @Id
+    @Column(name = "id", length = 100)
+    private String id;
+
+    //filas de datos del archivo ya procesadas, sin contar el encabezado
+
+    @Column(name = "filas_confirmadas", nullable = false)
+    private long filasConfirmadas;
+
+    @Column(name = "clientes_creados", nullable = false)
+    private long clientesCreados;
+
+    @Column(name = "cuentas_creadas", nullable = false)
+    private long cuentasCreadas;
+
+    //se leyo el archivo completo; un reenvio ya no procesa filas
+
+    @Column(name = "completada", nullable = false)
+    private boolean completada;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_modificacion")
+    private LocalDateTime fechaModificacion;
+
+    /*
+    * Metodo ejecutado antes de persistir la importacion
+    * */
+    @PrePersist
+    protected void onCreate() {
+        this.fechaCreacion = LocalDateTime.now();
+        this.fechaModificacion = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,68 @@
+package com.crudpractica.finanzastestproyec.Model;
+
+
+
+/*
+ *   Entidad que marca una particion de cuentas ya liquidada en una
+ *   liquidacion de intereses
+ *
+ * la fila se inserta en la misma transaccion que acredita los intereses de
+ * las cuentas de la particion, asi existe si y solo si la particion quedo
+ * liquidada; una liquidacion reiniciada para la misma fecha de corte omite
+ * las particiones que ya tienen fila
+ *
+ * */
+
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "intereses_particiones")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ParticionIntereses {
+
+    //fecha de corte y primer id de la particion, por ejemplo 2026-10-17/10001
+
+    @Id
+    @Column(name = "id", length = 40)
+    private String id;
+
+    @Column(name = "fecha_corte", nullable = false)
+    private LocalDate fechaCorte;
+
+    //rango de ids de cuenta, ambos incluidos
+
+    @Column(name = "desde_id", nullable = false)
+    private Long desdeId;
+
+    @Column(name = "hasta_id", nullable = false)
+    private Long hastaId;
+
+    @Column(name = "cuentas", nullable = false)
+    private long cuentas;
+
+    @Column(name = "intereses", nullable = false, precision = 15, scale = 2)
+    private BigDecimal intereses;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    /*
+    * Metodo ejecutado antes de persistir la particion
+    * */
+    @PrePersist
+    protected void onCreate() {
+        this.fechaCreacion = LocalDateTime.now();
+    }
+}
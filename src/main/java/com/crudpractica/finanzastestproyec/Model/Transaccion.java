@@ -4,6 +4,8 @@ package com.crudpractica.finanzastestproyec.Model;
 import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
 import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
 import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.dto.response.MovimientoExtractoResponse;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
@@ -25,11 +27,38 @@ import java.time.LocalDateTime;
 * Retiro : Disminuye  el saldo  de una cuenta
 * Transferencia: mueve  dinero entre cuentas
 *
+* Indices (cuenta, fecha) para cada lado de la transaccion: las consultas por
+* cuenta filtran por origen o destino y ordenan o acotan por fecha
+*
+* Las consultas nativas de TransaccionRepository construyen sus DTO con los
+* mapeos declarados aqui, que indican el tipo Java de cada columna
 *
 * */
 
 @Entity
-@Table(name ="trasacciones")
+@Table(name ="trasacciones", indexes = {
+        @Index(name = "idx_trasacciones_origen_fecha", columnList = "cuenta_origen_id, fecha"),
+        @Index(name = "idx_trasacciones_destino_fecha", columnList = "cuenta_destino_id, fecha")
+})
+@SqlResultSetMapping(name = Transaccion.MAPEO_RESPUESTA, classes = @ConstructorResult(
+        targetClass = TransaccionResponse.class, columns = {
+        @ColumnResult(name = "id", type = Long.class),
+        @ColumnResult(name = "tipo_transaccion", type = TipoTrasaccion.class),
+        @ColumnResult(name = "monto", type = BigDecimal.class),
+        @ColumnResult(name = "fecha", type = LocalDateTime.class),
+        @ColumnResult(name = "descripcion", type = String.class),
+        @ColumnResult(name = "numero_cuenta_origen", type = String.class),
+        @ColumnResult(name = "numero_cuenta_destino", type = String.class)
+}))
+@SqlResultSetMapping(name = Transaccion.MAPEO_MOVIMIENTO_EXTRACTO, classes = @ConstructorResult(
+        targetClass = MovimientoExtractoResponse.class, columns = {
+        @ColumnResult(name = "id", type = Long.class),
+        @ColumnResult(name = "fecha", type = LocalDateTime.class),
+        @ColumnResult(name = "tipo_transaccion", type = TipoTrasaccion.class),
+        @ColumnResult(name = "descripcion", type = String.class),
+        @ColumnResult(name = "numero_cuenta_contraparte", type = String.class),
+        @ColumnResult(name = "valor", type = BigDecimal.class)
+}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -37,8 +66,15 @@ import java.time.LocalDateTime;
 
 public class Transaccion {
 
+    public static final String MAPEO_RESPUESTA = "Transaccion.respuesta";
+    public static final String MAPEO_MOVIMIENTO_EXTRACTO = "Transaccion.movimientoExtracto";
+
+    /*
+    * Identificador generado con secuencia "pooled": cada nextval reserva
+    * 50 ids, lo que permite enviar los INSERT en lotes JDBC*/
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trasacciones_seq")
+    @SequenceGenerator(name = "trasacciones_seq", sequenceName = "trasacciones_seq", allocationSize = 50)
 
     private Long id;
 
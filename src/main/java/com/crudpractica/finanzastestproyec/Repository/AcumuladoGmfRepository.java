@@ -0,0 +1,57 @@
+package com.crudpractica.finanzastestproyec.Repository;
+
+import com.crudpractica.finanzastestproyec.Model.AcumuladoGmf;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/*Repositorio de los acumulados mensuales de GMF por cliente
+*
+* */
+@Repository
+public interface AcumuladoGmfRepository extends JpaRepository<AcumuladoGmf, Long> {
+
+    /*
+    * Suma el retiro al acumulado del periodo; si la fila es de un mes
+    * anterior el acumulado empieza de nuevo con este retiro. La fila queda
+    * bloqueada hasta el commit, asi los retiros concurrentes del mismo
+    * cliente se suman uno despues del otro
+    *
+    * @return 1 si el cliente ya tenia fila, 0 si hay que crearla
+    * */
+    @Modifying
+    @Query("UPDATE AcumuladoGmf a SET a.retirosExentos = " +
+            "CASE WHEN a.periodo = :periodo THEN a.retirosExentos + :monto ELSE :monto END, " +
+            "a.periodo = :periodo, a.fechaModificacion = CURRENT_TIMESTAMP WHERE a.clienteId = :clienteId")
+    int acumular(@Param("clienteId") Long clienteId, @Param("periodo") Integer periodo,
+                 @Param("monto") BigDecimal monto);
+
+    /*
+    * Resta del acumulado un retiro que ya se habia sumado y al final no se
+    * aplico; si el periodo ya cambio no hay nada que restar
+    * */
+    @Modifying
+    @Query("UPDATE AcumuladoGmf a SET a.retirosExentos = a.retirosExentos - :monto, " +
+            "a.fechaModificacion = CURRENT_TIMESTAMP WHERE a.clienteId = :clienteId AND a.periodo = :periodo")
+    int descontar(@Param("clienteId") Long clienteId, @Param("periodo") Integer periodo,
+                  @Param("monto") BigDecimal monto);
+
+    /*
+    * Fila en cero del cliente; es un INSERT y no un merge, asi nunca pisa
+    * el acumulado que otra transaccion ya creo
+    *
+    * @throws org.springframework.dao.DataIntegrityViolationException si el cliente ya tiene fila
+    * */
+    @Modifying
+    @Query(value = "INSERT INTO gmf_acumulados (cliente_id, periodo, retiros_exentos, fecha_modificacion) " +
+            "VALUES (:clienteId, :periodo, 0, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int crear(@Param("clienteId") Long clienteId, @Param("periodo") Integer periodo);
+
+    @Query("SELECT a.retirosExentos FROM AcumuladoGmf a WHERE a.clienteId = :clienteId")
+    Optional<BigDecimal> buscarRetirosExentos(@Param("clienteId") Long clienteId);
+}
@@ -0,0 +1,15 @@
+package com.crudpractica.finanzastestproyec.Repository;
+
+import com.crudpractica.finanzastestproyec.Model.ClaveIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/*Repositorio de las claves de idempotencia de transacciones
+*
+* la clave es el identificador, por eso dos peticiones que intentan
+* registrar la misma clave no pueden quedar guardadas ambas
+*
+* */
+@Repository
+public interface ClaveIdempotenciaRepository extends JpaRepository<ClaveIdempotencia, String> {
+}
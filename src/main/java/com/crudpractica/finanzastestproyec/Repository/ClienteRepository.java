@@ -3,12 +3,21 @@ package com.crudpractica.finanzastestproyec.Repository;
 
 import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
 import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.dto.response.DatosCliente;
+import jakarta.persistence.QueryHint;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import javax.swing.text.html.Option;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /*Repositorio  para  operaciones de persistencias de  la entidad cliente
 *
@@ -59,6 +68,46 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     *
     * */
     boolean existsByCorreoElectronico(String correoElectronico);
-}
 
+    /*
+    * Columnas unicas de todos los clientes, para construir los filtros de
+    * FiltrosUnicidadService. Leen con cursor de a 1000 filas; deben
+    * consumirse dentro de una transaccion y cerrarse al terminar.
+    * */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c.numeroIdentificacion FROM Cliente c")
+    Stream<String> leerNumerosIdentificacion();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c.correoElectronico FROM Cliente c")
+    Stream<String> leerCorreosElectronicos();
 
+    /*
+    * Consultas de lectura: solo las columnas de la respuesta, sin entidades
+    *
+    * la cantidad de cuentas se cuenta en la base de datos con el indice
+    * idx_cuentas_cliente en lugar de cargar la coleccion de cada cliente
+    * */
+    String DATOS_CLIENTE = "SELECT new com.crudpractica.finanzastestproyec.dto.response.DatosCliente(" +
+            "c.id, c.tipoIdentifiacion, c.numeroIdentificacion, c.nombres, c.fechaNacimiento, " +
+            "c.fechaCreacion, c.fechaModificacion, (SELECT COUNT(cu) FROM Cuenta cu WHERE cu.cliente = c)) " +
+            "FROM Cliente c ";
+
+    @Query(DATOS_CLIENTE + "WHERE c.id = :id")
+    Optional<DatosCliente> buscarDatosPorId(@Param("id") Long id);
+
+    /*
+    * Pagina por cursor: clientes con id mayor al ultimo ya entregado
+    *
+    * @param despues id de la ultima fila de la pagina anterior (0 para la primera)
+    * @param limite cantidad maxima de clientes
+    * */
+    @Query(DATOS_CLIENTE + "WHERE c.id > :despues ORDER BY c.id")
+    List<DatosCliente> buscarPaginaDatos(@Param("despues") Long despues, Limit limite);
+}
@@ -14,11 +14,27 @@ package com.crudpractica.finanzastestproyec.Repository;
 
 import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
 import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.dto.response.CuentaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.DatosCuenta;
+import com.crudpractica.finanzastestproyec.dto.response.SaldoCuenta;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CuentaRepository extends JpaRepository<Cuenta, Long> {
@@ -56,15 +72,28 @@ public interface CuentaRepository extends JpaRepository<Cuenta, Long> {
     List<Cuenta>findByClienteIdAndEstado(Long ClienteId, EstadoCuenta estado);
 
     /*
-    * Verifica si existe una cuenta  con el numero  dado
+    * Numeros de la lista que ya tiene alguna cuenta
     *
+    * el asignador de numeros la usa una vez por bloque reservado, solo con
+    * los que el filtro de numeros de cuenta no pudo descartar
     *
-    * @param numeroCuenta, numero de cuenta a verificar
-    * @return true si existe la cuenta, false en caso contrario
-    *
-    *  */
+    * @param numeros numeros candidatos
+    * @return los que ya estan asignados
+    * */
+
+    @Query("SELECT c.numeroCuenta FROM Cuenta c WHERE c.numeroCuenta IN :numeros")
+    List<String> buscarNumerosExistentes(@Param("numeros") Collection<String> numeros);
 
-    boolean existsByNumeroCuenta(String numeroCuenta);
+    /*
+    * Numeros de todas las cuentas, para construir el filtro de
+    * FiltrosUnicidadService; lee con cursor, dentro de una transaccion
+    * */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c.numeroCuenta FROM Cuenta c")
+    Stream<String> leerNumerosCuenta();
 
     /*
     * cuenta el numero  de cuentas activas de un cliente
@@ -75,4 +104,154 @@ public interface CuentaRepository extends JpaRepository<Cuenta, Long> {
 
     Long countByClienteIdAndEstado(Long clienteId, EstadoCuenta estado);
 
+    /*
+    * Verifica si un cliente tiene cuentas, sin cargar la coleccion
+    *
+    * @param clienteId identificador del cliente
+    * @return true si tiene al menos una cuenta
+    * */
+
+    boolean existsByClienteId(Long clienteId);
+
+    /*
+    * Ids de las cuentas de un cliente, sin cargar las cuentas
+    *
+    * @param clienteId identificador del cliente
+    * @return ids de sus cuentas
+    * */
+
+    @Query("SELECT c.id FROM Cuenta c WHERE c.cliente.id = :clienteId")
+    List<Long> buscarIdsPorCliente(@Param("clienteId") Long clienteId);
+
+    /*
+    * Debita el saldo de una cuenta solo si tiene fondos suficientes
+    *
+    * la verificacion "saldo >= monto" y el descuento se ejecutan en una
+    * sola sentencia, por lo que dos debitos concurrentes nunca pierden
+    * actualizaciones ni dejan la cuenta en negativo
+    *
+    * @param cuentaId identificador de la cuenta a debitar
+    * @param monto monto a descontar
+    * @return cantidad de filas afectadas (0 si el saldo es insuficiente)
+    * */
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Cuenta c SET c.saldo = c.saldo - :monto, c.fechaModificacion = CURRENT_TIMESTAMP " +
+            "WHERE c.id = :cuentaId AND c.saldo >= :monto")
+    int debitarSaldo(@Param("cuentaId") Long cuentaId, @Param("monto") BigDecimal monto);
+
+    /*
+    * Acredita el saldo de una cuenta en una sola sentencia
+    *
+    * @param cuentaId identificador de la cuenta a acreditar
+    * @param monto monto a sumar
+    * @return cantidad de filas afectadas
+    * */
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Cuenta c SET c.saldo = c.saldo + :monto, c.fechaModificacion = CURRENT_TIMESTAMP " +
+            "WHERE c.id = :cuentaId")
+    int acreditarSaldo(@Param("cuentaId") Long cuentaId, @Param("monto") BigDecimal monto);
+
+    /*
+    * Busca una cuenta bloqueando su fila (SELECT ... FOR UPDATE)
+    *
+    * si el bloqueo no se obtiene en 3 segundos la consulta falla con
+    * PessimisticLockingFailureException para que el llamador reintente
+    *
+    * @param cuentaId identificador de la cuenta
+    * @return Optional conteniendo la cuenta bloqueada si existe
+    * */
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000"))
+    @Query("SELECT c FROM Cuenta c WHERE c.id = :cuentaId")
+    Optional<Cuenta> bloquearPorId(@Param("cuentaId") Long cuentaId);
+
+    /*
+    * Busca y bloquea varias cuentas en una sola consulta
+    *
+    * las filas se bloquean en orden ascendente de id, el mismo orden que
+    * usan las transferencias individuales, para evitar deadlocks
+    *
+    * @param ids identificadores de las cuentas
+    * @return cuentas encontradas ordenadas por id
+    * */
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000"))
+    @Query("SELECT c FROM Cuenta c WHERE c.id IN :ids ORDER BY c.id")
+    List<Cuenta> bloquearTodasPorId(@Param("ids") Collection<Long> ids);
+
+    /*
+    * Consulta solo el saldo de una cuenta, sin cargar la entidad
+    *
+    * @param cuentaId identificador de la cuenta
+    * @return Optional con el saldo si la cuenta existe
+    * */
+
+    @Query("SELECT c.saldo FROM Cuenta c WHERE c.id = :cuentaId")
+    Optional<BigDecimal> consultarSaldo(@Param("cuentaId") Long cuentaId);
+
+    /*
+    * Consulta el saldo y la fecha de la ultima modificacion, sin cargar la entidad
+    *
+    * @param cuentaId identificador de la cuenta
+    * @return Optional con el saldo si la cuenta existe
+    * */
+
+    @Query("SELECT new com.crudpractica.finanzastestproyec.dto.response.SaldoCuenta(c.saldo, c.fechaModificacion) " +
+            "FROM Cuenta c WHERE c.id = :cuentaId")
+    Optional<SaldoCuenta> consultarSaldoYModificacion(@Param("cuentaId") Long cuentaId);
+
+    /*
+    * Datos que no cambian con las transacciones, para la cache de cuentas
+    *
+    * se devuelve directamente el DTO: la cache no guarda entidades y la
+    * consulta no deja la cuenta ni el cliente en el contexto de persistencia
+    * */
+    String DATOS_CUENTA = "SELECT new com.crudpractica.finanzastestproyec.dto.response.DatosCuenta(" +
+            "c.id, c.numeroCuenta, c.tipoCuenta, c.estado, c.exentaGMF, c.fechaCreacion, cl.id, cl.nombres, cl.apellido) " +
+            "FROM Cuenta c JOIN c.cliente cl ";
+
+    @Query(DATOS_CUENTA + "WHERE c.id = :id")
+    Optional<DatosCuenta> buscarDatosPorId(@Param("id") Long id);
+
+    /*
+    * Resuelve el id de una cuenta a partir de su numero, que nunca cambia
+    * */
+    @Query("SELECT c.id FROM Cuenta c WHERE c.numeroCuenta = :numeroCuenta")
+    Optional<Long> buscarIdPorNumero(@Param("numeroCuenta") String numeroCuenta);
+
+    /*
+    * Cuenta con su cliente en la misma sentencia, para la actualizacion, que
+    * responde con el id y el nombre del cliente
+    * */
+    @EntityGraph(attributePaths = "cliente")
+    @Query("SELECT c FROM Cuenta c WHERE c.id = :id")
+    Optional<Cuenta> buscarPorIdConCliente(@Param("id") Long id);
+
+    /*
+    * Consultas de lectura: la respuesta se arma en el SELECT, con el nombre
+    * del cliente concatenado por la base de datos, sin cargar entidades
+    * */
+    String RESPUESTA = "SELECT new com.crudpractica.finanzastestproyec.dto.response.CuentaResponse(" +
+            "c.id, c.tipoCuenta, c.numeroCuenta, c.estado, c.saldo, c.exentaGMF, c.fechaCreacion, " +
+            "c.fechaModificacion, cl.id, CONCAT(cl.nombres, ' ', cl.apellido)) " +
+            "FROM Cuenta c JOIN c.cliente cl ";
+
+    @Query(RESPUESTA + "WHERE cl.id = :clienteId ORDER BY c.id")
+    List<CuentaResponse> buscarPorCliente(@Param("clienteId") Long clienteId);
+
+    /*
+    * Pagina por cursor: cuentas con id mayor al ultimo ya entregado
+    *
+    * el filtro por id usa la llave primaria, por eso el costo de una pagina
+    * no depende de que tan adelante este el cursor
+    *
+    * @param despues id de la ultima cuenta de la pagina anterior (0 para la primera)
+    * @param limite cantidad maxima de cuentas
+    * */
+    @Query(RESPUESTA + "WHERE c.id > :despues ORDER BY c.id")
+    List<CuentaResponse> buscarPagina(@Param("despues") Long despues, Limit limite);
 }
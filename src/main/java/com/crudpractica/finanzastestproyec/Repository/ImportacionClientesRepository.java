@@ -0,0 +1,46 @@
+package com.crudpractica.finanzastestproyec.Repository;
+
+import com.crudpractica.finanzastestproyec.Model.ImportacionClientes;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/*Repositorio del avance de las importaciones masivas de clientes
+*
+* */
+@Repository
+public interface ImportacionClientesRepository extends JpaRepository<ImportacionClientes, String> {
+
+    /*
+    * Importacion nueva sin filas confirmadas; es un INSERT y no un merge, asi
+    * nunca reinicia el avance de una importacion que otra peticion ya creo
+    *
+    * @throws org.springframework.dao.DataIntegrityViolationException si el id ya existe
+    * */
+    @Modifying
+    @Query(value = "INSERT INTO importaciones_clientes (id, filas_confirmadas, clientes_creados, cuentas_creadas, " +
+            "completada, fecha_creacion, fecha_modificacion) " +
+            "VALUES (:id, 0, 0, 0, false, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int crear(@Param("id") String id);
+
+    /*
+    * Confirma las filas de un lote solo si la importacion sigue en la fila
+    * donde el lote empezo; bloquea la fila de la importacion hasta el commit,
+    * asi dos peticiones con el mismo id no insertan el mismo lote
+    *
+    * @return 1 si avanzo, 0 si otra peticion ya confirmo esas filas
+    * */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ImportacionClientes i SET i.filasConfirmadas = :hasta, " +
+            "i.clientesCreados = i.clientesCreados + :clientes, i.cuentasCreadas = i.cuentasCreadas + :cuentas, " +
+            "i.fechaModificacion = CURRENT_TIMESTAMP WHERE i.id = :id AND i.filasConfirmadas = :desde")
+    int avanzar(@Param("id") String id, @Param("desde") long desde, @Param("hasta") long hasta,
+                @Param("clientes") long clientes, @Param("cuentas") long cuentas);
+
+    @Modifying
+    @Query("UPDATE ImportacionClientes i SET i.completada = true, i.fechaModificacion = CURRENT_TIMESTAMP " +
+            "WHERE i.id = :id AND i.filasConfirmadas = :filas")
+    int completar(@Param("id") String id, @Param("filas") long filas);
+}
@@ -0,0 +1,46 @@
+package com.crudpractica.finanzastestproyec.Repository;
+
+import com.crudpractica.finanzastestproyec.Model.ParticionIntereses;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/*Repositorio de las particiones ya liquidadas de cada liquidacion de intereses
+*
+* */
+@Repository
+public interface ParticionInteresesRepository extends JpaRepository<ParticionIntereses, String> {
+
+    /*
+    * Reserva la particion al empezar a liquidarla; es un INSERT y no un
+    * merge: si otra liquidacion la esta liquidando espera su commit y falla
+    *
+    * @throws org.springframework.dao.DataIntegrityViolationException si la particion ya se liquido
+    * */
+    @Modifying
+    @Query(value = "INSERT INTO intereses_particiones (id, fecha_corte, desde_id, hasta_id, cuentas, intereses, " +
+            "fecha_creacion) VALUES (:id, :fechaCorte, :desde, :hasta, 0, 0, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int crear(@Param("id") String id, @Param("fechaCorte") LocalDate fechaCorte,
+              @Param("desde") Long desde, @Param("hasta") Long hasta);
+
+    @Modifying
+    @Query("UPDATE ParticionIntereses p SET p.cuentas = :cuentas, p.intereses = :intereses WHERE p.id = :id")
+    int registrarTotales(@Param("id") String id, @Param("cuentas") long cuentas,
+                         @Param("intereses") BigDecimal intereses);
+
+    @Query("SELECT p.id FROM ParticionIntereses p WHERE p.fechaCorte = :fechaCorte")
+    Set<String> buscarIdsPorFechaCorte(@Param("fechaCorte") LocalDate fechaCorte);
+
+    /*
+    * Cantidad de ids de las particiones ya liquidadas en la fecha de corte
+    * */
+    @Query("SELECT DISTINCT p.hastaId - p.desdeId + 1 FROM ParticionIntereses p WHERE p.fechaCorte = :fechaCorte")
+    List<Long> buscarIdsPorParticion(@Param("fechaCorte") LocalDate fechaCorte);
+}
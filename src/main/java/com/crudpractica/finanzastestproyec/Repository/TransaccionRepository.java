@@ -9,18 +9,56 @@ package com.crudpractica.finanzastestproyec.Repository;
 import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
 import com.crudpractica.finanzastestproyec.Model.Cuenta;
 import com.crudpractica.finanzastestproyec.Model.Transaccion;
+import com.crudpractica.finanzastestproyec.dto.response.MovimientoExtractoResponse;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.cglib.core.Local;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransaccionRepository extends JpaRepository<Transaccion, Long> {
 
+    /*
+    * Las consultas por cuenta se escriben como UNION ALL de dos ramas, una por
+    * cuenta_origen_id y otra por cuenta_destino_id, en SQL nativo para que la
+    * base de datos reciba exactamente esa forma. Con "origen = :id OR destino = :id"
+    * el planificador no puede usar un solo indice y termina recorriendo toda la
+    * tabla; por separado cada rama usa su indice (cuenta, fecha) de Transaccion.
+    * La rama destino excluye las filas donde la cuenta tambien es origen para
+    * no repetirlas.
+    * */
+    String COLUMNAS_RESPUESTA = "t.id, t.tipo_transaccion, t.monto, t.fecha, t.descripcion, " +
+            "o.numero_cuenta AS numero_cuenta_origen, d.numero_cuenta AS numero_cuenta_destino ";
+
+    String COMO_ORIGEN = "FROM trasacciones t JOIN cuentas o ON o.id = t.cuenta_origen_id " +
+            "LEFT JOIN cuentas d ON d.id = t.cuenta_destino_id WHERE t.cuenta_origen_id = :cuentaId ";
+
+    String COMO_DESTINO = "FROM trasacciones t JOIN cuentas d ON d.id = t.cuenta_destino_id " +
+            "JOIN cuentas o ON o.id = t.cuenta_origen_id " +
+            "WHERE t.cuenta_destino_id = :cuentaId AND t.cuenta_origen_id <> :cuentaId ";
+
+    /*
+    * Efecto de una transaccion t sobre el saldo de la cuenta segun el lado en
+    * que participa: como origen las consignaciones acreditan y los retiros y
+    * transferencias debitan; como destino las transferencias acreditan
+    * */
+    String EFECTO_COMO_ORIGEN = "CASE WHEN t.tipo_transaccion = 'CONSIGNACION' THEN t.monto ELSE -t.monto END";
+
+    String EFECTO_COMO_DESTINO = "CASE WHEN t.tipo_transaccion = 'RETIRO' THEN -t.monto ELSE t.monto END";
+
 
     /*
     * Busca todos as transacciones realizadas desde una cuenta especifica
@@ -39,7 +77,9 @@ public interface TransaccionRepository extends JpaRepository<Transaccion, Long>
     * @return lista de toda las transacciones relacionadas con la cuenta
     * */
 
-    @Query("SELECT t FROM Transaccion t WHERE t.cuentaOrigen.id = :cuentaId OR t.cuentaDestino.id = :cuentaId ORDER BY  t.fecha DESC ")
+    @NativeQuery("SELECT t.* FROM trasacciones t WHERE t.cuenta_origen_id = :cuentaId " +
+            "UNION ALL SELECT t.* FROM trasacciones t " +
+            "WHERE t.cuenta_destino_id = :cuentaId AND t.cuenta_origen_id <> :cuentaId ORDER BY fecha DESC")
     List<Transaccion>findAllByCuentaId(@Param("cuentaId")Long cuentaId);
 
 
@@ -53,7 +93,11 @@ public interface TransaccionRepository extends JpaRepository<Transaccion, Long>
     *
     * */
 
-    @Query("SELECT t FROM  Transaccion t WHERE (t.cuentaOrigen.id = :cuentaId OR t.cuentaDestino.id = :cuentaId)" + "AND  t.fecha BETWEEN  : fechaInicio AND : fechaFin ORDER BY t.fecha DESC ")
+    @NativeQuery("SELECT t.* FROM trasacciones t WHERE t.cuenta_origen_id = :cuentaId " +
+            "AND t.fecha BETWEEN :fechaInicio AND :fechaFin " +
+            "UNION ALL SELECT t.* FROM trasacciones t " +
+            "WHERE t.cuenta_destino_id = :cuentaId AND t.cuenta_origen_id <> :cuentaId " +
+            "AND t.fecha BETWEEN :fechaInicio AND :fechaFin ORDER BY fecha DESC")
 
     List<Transaccion>findByCuentaIdAndFechaBetween(
             @Param("cuentaId")Long CuentId,
@@ -70,13 +114,152 @@ public interface TransaccionRepository extends JpaRepository<Transaccion, Long>
 
     List<Transaccion>findByTipoTrasaccion(TipoTrasaccion tipoTrasaccion);
     /*
-    * busca las ultimas N transacciones de una cuenta
+    * busca las ultimas N transacciones de una cuenta, de la mas reciente a la mas antigua
+    *
+    * cada rama toma a lo sumo N filas recorriendo su indice hacia atras y la
+    * union se vuelve a ordenar y recortar a N; se devuelve directamente el DTO
     * @param cuentaId identificador de la cuenta
+    * @param limite cantidad maxima de transacciones
     * @return lista  de las ultimas transacciones
     *
     **/
 
-    @Query("SELECT t FROM Transaccion  t WHERE t.cuentaOrigen.id = :cuentaId OR t.cuentaDestino.id = :cuentaId" + " ORDER BY t.fecha DESC")
+    @NativeQuery(sqlResultSetMapping = Transaccion.MAPEO_RESPUESTA, value = "SELECT u.* FROM (" +
+            "(SELECT " + COLUMNAS_RESPUESTA + COMO_ORIGEN + "ORDER BY t.fecha DESC, t.id DESC LIMIT :limite) " +
+            "UNION ALL " +
+            "(SELECT " + COLUMNAS_RESPUESTA + COMO_DESTINO + "ORDER BY t.fecha DESC, t.id DESC LIMIT :limite)" +
+            ") u ORDER BY u.fecha DESC, u.id DESC LIMIT :limite")
+
+    List<TransaccionResponse> findUltimasTransaccionesByCuenta(@Param("cuentaId")Long cuentaId, @Param("limite") int limite);
+
+    /*
+    * Consultas de lectura: la respuesta se arma en el SELECT con el numero de
+    * las cuentas origen y destino, sin cargar la transaccion ni las cuentas
+    * */
+    String RESPUESTA = "SELECT new com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse(" +
+            "t.id, t.tipoTrasaccion, t.monto, t.fecha, t.Descripcion, o.numeroCuenta, d.numeroCuenta) " +
+            "FROM Transaccion t JOIN t.cuentaOrigen o LEFT JOIN t.cuentaDestino d ";
+
+    @Query(RESPUESTA + "WHERE t.id = :id")
+    Optional<TransaccionResponse> buscarRespuestaPorId(@Param("id") Long id);
+
+
+    /*
+    * Transacciones de una cuenta (origen o destino), de la mas reciente a la
+    * mas antigua, ya con el numero de ambas cuentas
+    * */
+    @NativeQuery(sqlResultSetMapping = Transaccion.MAPEO_RESPUESTA, value = "SELECT " + COLUMNAS_RESPUESTA + COMO_ORIGEN +
+            "UNION ALL SELECT " + COLUMNAS_RESPUESTA + COMO_DESTINO +
+            "ORDER BY fecha DESC, id DESC")
+    List<TransaccionResponse> buscarPorCuenta(@Param("cuentaId") Long cuentaId);
+
+    /*
+    * Pagina por cursor: transacciones con id mayor al ultimo ya entregado
+    *
+    * @param despues id de la ultima transaccion de la pagina anterior (0 para la primera)
+    * @param limite cantidad maxima de transacciones
+    * */
+    @Query(RESPUESTA + "WHERE t.id > :despues ORDER BY t.id")
+    List<TransaccionResponse> buscarPagina(@Param("despues") Long despues, Limit limite);
+
+    /*
+    * Recorre todas las transacciones para exportarlas, en orden de id
+    *
+    * devuelve directamente el DTO (expresion constructora), asi ninguna fila
+    * queda como entidad en el contexto de persistencia; el stream lee con un
+    * cursor de solo avance y trae las filas del servidor de a 1000. Debe
+    * consumirse dentro de una transaccion y cerrarse al terminar. Con cuenta
+    * se usa exportarPorCuenta. Las fechas llevan CAST porque cuando llegan null
+    * PostgreSQL no puede inferir el tipo del parametro.
+    *
+    * @param tipo tipo de transaccion, null para todos
+    * @param desde fecha minima incluida, null sin limite
+    * @param hasta fecha maxima excluida, null sin limite
+    * */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(RESPUESTA + "WHERE (:tipo IS NULL OR t.tipoTrasaccion = :tipo) " +
+            "AND (CAST(:desde AS LocalDateTime) IS NULL OR t.fecha >= :desde) " +
+            "AND (CAST(:hasta AS LocalDateTime) IS NULL OR t.fecha < :hasta) " +
+            "ORDER BY t.id")
+    Stream<TransaccionResponse> exportar(@Param("tipo") TipoTrasaccion tipo,
+                                         @Param("desde") LocalDateTime desde,
+                                         @Param("hasta") LocalDateTime hasta);
+
+    /*
+    * Filtros opcionales de la exportacion por cuenta, con CAST por la misma razon
+    * */
+    String FILTROS_EXPORTACION = "AND (CAST(:tipo AS VARCHAR(20)) IS NULL OR t.tipo_transaccion = :tipo) " +
+            "AND (CAST(:desde AS TIMESTAMP) IS NULL OR t.fecha >= :desde) " +
+            "AND (CAST(:hasta AS TIMESTAMP) IS NULL OR t.fecha < :hasta) ";
 
-    List<Transaccion> findUltimasTransaccionesByCuenta(@Param("cuentaId")Long cuentaId);
+    /*
+    * Transacciones de una cuenta para exportarlas, en orden de id
+    *
+    * misma forma UNION ALL que las demas consultas por cuenta, asi cada rama
+    * recorre su indice (cuenta, fecha) en lugar de toda la tabla; se lee con
+    * cursor igual que exportar
+    *
+    * @param cuentaId cuenta origen o destino
+    * @param tipo nombre del tipo de transaccion, null para todos
+    * @param desde fecha minima incluida, null sin limite
+    * @param hasta fecha maxima excluida, null sin limite
+    * */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @NativeQuery(sqlResultSetMapping = Transaccion.MAPEO_RESPUESTA, value = "SELECT " + COLUMNAS_RESPUESTA +
+            COMO_ORIGEN + FILTROS_EXPORTACION +
+            "UNION ALL SELECT " + COLUMNAS_RESPUESTA + COMO_DESTINO + FILTROS_EXPORTACION +
+            "ORDER BY id")
+    Stream<TransaccionResponse> exportarPorCuenta(@Param("cuentaId") Long cuentaId,
+                                                  @Param("tipo") String tipo,
+                                                  @Param("desde") LocalDateTime desde,
+                                                  @Param("hasta") LocalDateTime hasta);
+
+    /*
+    * Saldo de una cuenta al inicio de una fecha, en una sola consulta agregada
+    *
+    * es el saldo actual menos el efecto neto de los movimientos desde esa
+    * fecha; no recorre el historial anterior, que puede ser muy grande
+    *
+    * @param cuentaId identificador de la cuenta
+    * @param desde fecha desde la cual se descuentan los movimientos
+    * @return Optional con el saldo si la cuenta existe
+    * */
+    @NativeQuery("SELECT c.saldo - COALESCE((SELECT SUM(u.efecto) FROM (" +
+            "SELECT " + EFECTO_COMO_ORIGEN + " AS efecto FROM trasacciones t " +
+            "WHERE t.cuenta_origen_id = :cuentaId AND t.fecha >= :desde " +
+            "UNION ALL SELECT " + EFECTO_COMO_DESTINO + " FROM trasacciones t " +
+            "WHERE t.cuenta_destino_id = :cuentaId AND t.cuenta_origen_id <> :cuentaId AND t.fecha >= :desde" +
+            ") u), 0) FROM cuentas c WHERE c.id = :cuentaId")
+    Optional<BigDecimal> calcularSaldoAl(@Param("cuentaId") Long cuentaId, @Param("desde") LocalDateTime desde);
+
+    /*
+    * Movimientos de una cuenta en un periodo, en orden cronologico, con el
+    * valor ya firmado para esa cuenta; se leen con cursor igual que la exportacion
+    *
+    * @param cuentaId identificador de la cuenta
+    * @param desde fecha minima incluida
+    * @param hasta fecha maxima excluida
+    * */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @NativeQuery(sqlResultSetMapping = Transaccion.MAPEO_MOVIMIENTO_EXTRACTO, value = "SELECT t.id, t.fecha, t.tipo_transaccion, t.descripcion, " +
+            "d.numero_cuenta AS numero_cuenta_contraparte, " + EFECTO_COMO_ORIGEN + " AS valor " +
+            "FROM trasacciones t LEFT JOIN cuentas d ON d.id = t.cuenta_destino_id " +
+            "WHERE t.cuenta_origen_id = :cuentaId AND t.fecha >= :desde AND t.fecha < :hasta " +
+            "UNION ALL SELECT t.id, t.fecha, t.tipo_transaccion, t.descripcion, o.numero_cuenta, " + EFECTO_COMO_DESTINO + " " +
+            "FROM trasacciones t JOIN cuentas o ON o.id = t.cuenta_origen_id " +
+            "WHERE t.cuenta_destino_id = :cuentaId AND t.cuenta_origen_id <> :cuentaId " +
+            "AND t.fecha >= :desde AND t.fecha < :hasta " +
+            "ORDER BY fecha, id")
+    Stream<MovimientoExtractoResponse> buscarMovimientosExtracto(@Param("cuentaId") Long cuentaId,
+                                                                 @Param("desde") LocalDateTime desde,
+                                                                 @Param("hasta") LocalDateTime hasta);
 }
@@ -0,0 +1,203 @@
+package com.crudpractica.finanzastestproyec.Service;
+
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Repository.TransaccionRepository;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Ultimos movimientos de cada cuenta en memoria
+ *
+ * por cuenta se guarda un buffer circular con los movimientos mas recientes.
+ * La primera consulta de una cuenta lo llena con una consulta limitada a la
+ * capacidad del buffer; desde ahi TransaccionService agrega cada transaccion
+ * confirmada y las consultas se responden sin ir a la base de datos.
+ *
+ * solo se actualizan cuentas que ya estan en memoria: una cuenta que nadie
+ * consulta no ocupa espacio. Las transacciones creadas por otra instancia de
+ * la aplicacion, o las del motor de ledger que aun no estaban persistidas al
+ * llenar el buffer, se ven cuando la cuenta expira y se vuelve a cargar. La
+ * expiracion se cuenta desde la carga: ni las consultas ni los movimientos
+ * agregados la aplazan, asi una cuenta consultada sin pausa tambien se recarga.
+ * */
+@Service
+@Slf4j
+public class ActividadRecienteService {
+
+    private static final Comparator<TransaccionResponse> CRONOLOGICO = Comparator
+            .comparing(TransaccionResponse::getFecha, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(TransaccionResponse::getId);
+
+    private final TransaccionRepository transaccionRepository;
+    private final FinanzasProperties.Recientes configuracion;
+    private final Cache<Long, MovimientosRecientes> porCuenta;
+
+    @Autowired
+    public ActividadRecienteService(TransaccionRepository transaccionRepository, FinanzasProperties propiedades) {
+        this(transaccionRepository, propiedades, Ticker.systemTicker());
+    }
+
+    /*
+    * @param reloj fuente de tiempo de la expiracion, las pruebas la adelantan
+    * */
+    public ActividadRecienteService(TransaccionRepository transaccionRepository, FinanzasProperties propiedades,
+                                    Ticker reloj) {
+        this.transaccionRepository = transaccionRepository;
+        this.configuracion = propiedades.getRecientes();
+        Duration expiracion = Duration.ofMinutes(configuracion.getExpiracionMinutos());
+        this.porCuenta = Caffeine.newBuilder()
+                .maximumSize(configuracion.getMaximoCuentas())
+                .expireAfter(Expiry.creating((Long cuentaId, MovimientosRecientes recientes) -> expiracion))
+                .ticker(reloj)
+                .build();
+    }
+
+    /*
+    * Ultimos movimientos de una cuenta, del mas reciente al mas antiguo
+    *
+    * @param cuentaId identificador de la cuenta
+    * @param cantidad movimientos pedidos; null usa el valor por defecto y nunca supera la capacidad
+    * */
+    public List<TransaccionResponse> ultimas(Long cuentaId, Integer cantidad) {
+        int n = cantidad == null || cantidad < 1
+                ? configuracion.getCantidadPorDefecto()
+                : Math.min(cantidad, configuracion.getCapacidad());
+        return porCuenta.get(cuentaId, this::cargar).ultimos(n);
+    }
+
+    /*
+    * Agrega una transaccion a las cuentas que participan en ella
+    *
+    * dentro de una transaccion de base de datos se aplica solo despues del
+    * commit, asi un lote revertido nunca aparece como movimiento reciente
+    *
+    * @param origenId cuenta origen
+    * @param destinoId cuenta destino, null si no aplica
+    * @param transaccion transaccion creada
+    * */
+    public void registrar(Long origenId, Long destinoId, TransaccionResponse transaccion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            agregar(origenId, destinoId, transaccion);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                agregar(origenId, destinoId, transaccion);
+            }
+        });
+    }
+
+    /*
+    * Descarta de memoria las cuentas cuyos movimientos se escribieron sin
+    * pasar por registrar (procesos masivos); la siguiente consulta las
+    * vuelve a cargar. Dentro de una transaccion se aplica despues del commit
+    *
+    * @param cuentaIds cuentas con movimientos nuevos
+    * */
+    public void descartar(Collection<Long> cuentaIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            porCuenta.invalidateAll(cuentaIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                porCuenta.invalidateAll(cuentaIds);
+            }
+        });
+    }
+
+    private void agregar(Long origenId, Long destinoId, TransaccionResponse transaccion) {
+        //computeIfPresent espera a una carga en curso de la misma cuenta; si esa
+        //carga ya incluia la transaccion el buffer la descarta por id
+        porCuenta.asMap().computeIfPresent(origenId, (id, recientes) -> recientes.agregar(transaccion));
+        if (destinoId != null) {
+            porCuenta.asMap().computeIfPresent(destinoId, (id, recientes) -> recientes.agregar(transaccion));
+        }
+    }
+
+    private MovimientosRecientes cargar(Long cuentaId) {
+        List<TransaccionResponse> ultimas = transaccionRepository
+                .findUltimasTransaccionesByCuenta(cuentaId, configuracion.getCapacidad());
+        MovimientosRecientes recientes = new MovimientosRecientes(configuracion.getCapacidad());
+        for (int i = ultimas.size() - 1; i >= 0; i--) {
+            recientes.agregar(ultimas.get(i));
+        }
+        log.debug("Movimientos recientes de la cuenta {} cargados: {}", cuentaId, ultimas.size());
+        return recientes;
+    }
+
+    /*
+    * Buffer circular ordenado del movimiento mas antiguo al mas reciente
+    * */
+    static final class MovimientosRecientes {
+
+        private final TransaccionResponse[] elementos;
+        private int inicio;
+        private int tamano;
+
+        MovimientosRecientes(int capacidad) {
+            this.elementos = new TransaccionResponse[capacidad];
+        }
+
+        /*
+        * Agrega un movimiento en su posicion cronologica; casi siempre es el
+        * mas reciente y queda al final sin mover nada. Con el buffer lleno se
+        * descarta el mas antiguo.
+        * */
+        synchronized MovimientosRecientes agregar(TransaccionResponse movimiento) {
+            for (int i = 0; i < tamano; i++) {
+                if (obtener(i).getId().equals(movimiento.getId())) {
+                    return this;
+                }
+            }
+            if (tamano == elementos.length) {
+                if (CRONOLOGICO.compare(movimiento, obtener(0)) < 0) {
+                    return this;
+                }
+                inicio = (inicio + 1) % elementos.length;
+                tamano--;
+            }
+            int posicion = tamano++;
+            asignar(posicion, movimiento);
+            while (posicion > 0 && CRONOLOGICO.compare(obtener(posicion - 1), movimiento) > 0) {
+                asignar(posicion, obtener(posicion - 1));
+                asignar(--posicion, movimiento);
+            }
+            return this;
+        }
+
+        synchronized List<TransaccionResponse> ultimos(int cantidad) {
+            int n = Math.min(cantidad, tamano);
+            List<TransaccionResponse> resultado = new ArrayList<>(n);
+            for (int i = tamano - 1; i >= tamano - n; i--) {
+                resultado.add(obtener(i));
+            }
+            return resultado;
+        }
+
+        private TransaccionResponse obtener(int indice) {
+            return elementos[(inicio + indice) % elementos.length];
+        }
+
+        private void asignar(int indice, TransaccionResponse movimiento) {
+            elementos[(inicio + indice) % elementos.length] = movimiento;
+        }
+    }
+}
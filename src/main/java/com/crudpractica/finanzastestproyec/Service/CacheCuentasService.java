@@ -0,0 +1,109 @@
+package com.crudpractica.finanzastestproyec.Service;
+
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
+import com.crudpractica.finanzastestproyec.dto.response.DatosCuenta;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+
+/*
+* Cache de lectura de los datos de cuenta que no cambian con las transacciones
+*
+* las cuentas de nomina y de comercios se consultan una y otra vez al crear
+* transacciones; aqui se guardan por id el numero, el tipo, el estado y el
+* cliente, cargados con una consulta de solo esos campos la primera vez. El
+* numero de cuenta se resuelve a id con una segunda cache: esa relacion nunca
+* cambia.
+*
+* el saldo no se guarda: los movimientos lo validan en la base de datos con
+* las actualizaciones condicionales o en el motor de ledger. Los cambios de
+* estado, la cancelacion y la edicion de la cuenta o del cliente invalidan la
+* entrada al confirmarse; las demas instancias la ven al expirar.
+*
+* aciertos, fallos, expulsiones y tamano se publican en /actuator/metrics
+* (cache.gets, cache.evictions, cache.size con cache=finanzas.cuentas)
+* */
+@Service
+@Slf4j
+public class CacheCuentasService {
+
+    private final CuentaRepository cuentaRepository;
+    private final Cache<Long, DatosCuenta> porId;
+    private final Cache<String, Long> idPorNumero;
+
+    public CacheCuentasService(CuentaRepository cuentaRepository, FinanzasProperties propiedades, MeterRegistry registry) {
+        this.cuentaRepository = cuentaRepository;
+        FinanzasProperties.CacheCuentas configuracion = propiedades.getCacheCuentas();
+        this.porId = Caffeine.newBuilder()
+                .maximumSize(configuracion.getMaximoEntradas())
+                .expireAfterWrite(Duration.ofSeconds(configuracion.getExpiracionSegundos()))
+                .recordStats()
+                .build();
+        this.idPorNumero = Caffeine.newBuilder()
+                .maximumSize(configuracion.getMaximoEntradas())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, porId, "finanzas.cuentas");
+        CaffeineCacheMetrics.monitor(registry, idPorNumero, "finanzas.cuentas.numero");
+    }
+
+    /*
+    * Datos de una cuenta por id, desde memoria o cargados de la base de datos
+    *
+    * @param cuentaId identificador de la cuenta
+    * @return Optional vacio si la cuenta no existe; la ausencia no se guarda
+    * */
+    public Optional<DatosCuenta> buscarPorId(Long cuentaId) {
+        return Optional.ofNullable(porId.get(cuentaId, id -> cuentaRepository.buscarDatosPorId(id).orElse(null)));
+    }
+
+    /*
+    * Datos de una cuenta por numero
+    *
+    * @param numeroCuenta numero de la cuenta
+    * @return Optional vacio si la cuenta no existe
+    * */
+    public Optional<DatosCuenta> buscarPorNumero(String numeroCuenta) {
+        Long id = idPorNumero.get(numeroCuenta, numero -> cuentaRepository.buscarIdPorNumero(numero).orElse(null));
+        return id == null ? Optional.empty() : buscarPorId(id);
+    }
+
+    /*
+    * Descarta los datos de una cuenta que se esta modificando
+    *
+    * se descartan de inmediato y otra vez al confirmar la transaccion: una
+    * lectura concurrente que alcance a cargar el estado anterior al commit
+    * no queda en memoria hasta que expire
+    *
+    * @param cuentaId identificador de la cuenta
+    * */
+    public void invalidar(Long cuentaId) {
+        porId.invalidate(cuentaId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    porId.invalidate(cuentaId);
+                }
+            });
+        }
+        log.debug("Datos de la cuenta {} descartados de la cache", cuentaId);
+    }
+
+    /*
+    * Descarta varias cuentas, por ejemplo las de un cliente cuyo nombre cambio
+    * */
+    public void invalidar(Collection<Long> cuentaIds) {
+        cuentaIds.forEach(this::invalidar);
+    }
+}
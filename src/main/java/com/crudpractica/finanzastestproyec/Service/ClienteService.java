@@ -12,16 +12,25 @@ package com.crudpractica.finanzastestproyec.Service;
 
 import org.springframework.transaction.annotation.Transactional;
 import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.CoalescedorLecturas;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Mapper.ClienteMapper;
 import com.crudpractica.finanzastestproyec.Model.Cliente;
 import com.crudpractica.finanzastestproyec.Repository.ClienteRepository;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
 import com.crudpractica.finanzastestproyec.dto.request.ClienteRequest;
 import com.crudpractica.finanzastestproyec.dto.response.ClienteResponse;
+import com.crudpractica.finanzastestproyec.dto.response.DatosCliente;
+import com.crudpractica.finanzastestproyec.dto.response.PaginaResponse;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,7 +40,11 @@ import java.util.stream.Collectors;
 
 public class ClienteService {
     private final ClienteRepository clienteRepository;
-    private final ModelMapper modelMapper;
+    private final CuentaRepository cuentaRepository;
+    private final FinanzasProperties propiedades;
+    private final CacheCuentasService cacheCuentas;
+    private final CoalescedorLecturas lecturas;
+    private final FiltrosUnicidadService filtros;
 
 
 
@@ -45,6 +58,9 @@ public class ClienteService {
      *   el numero de identificacion no debe  estar  resgistrado
      * el correo electronico no debe estar resgistradd
      *
+     * las dos ultimas las comprueban las restricciones unicas de clientes
+     * al insertar, asi crear un cliente es una sola sentencia
+     *
      *
      * @param  request datos del cliente a crear
      * @return clienteResponse con la información del cliente creado
@@ -56,29 +72,27 @@ public class ClienteService {
 
         //mapear DTO a entidad
 
-        Cliente Cliente = modelMapper.map(request, Cliente.class);
+        Cliente Cliente = ClienteMapper.aEntidad(request);
 
 
         //validación: cliente debe ser mayor  de edad
 
-        if (!Cliente.esMayorDeEdad()) {
-            log.error("Intento de crear cliente menor de edad :{} años", Cliente.calcularEdad());
-            throw new BuisnessException("El cliente debe ser mayor de edad (18 años). Edad actual: " + Cliente.calcularEdad() + " años");        }
+        validarMayorDeEdad(Cliente);
 
-        //validación:número de identificación único
-        if (clienteRepository.existsByNumeroIdentificacion(request.getNumeroIdentificacion())) {
-            throw new BuisnessException("ya existe un cliente con el numero de identificación" + request.getNumeroIdentificacion());
-        }
-        //validación:correo electrónico único
-        if (clienteRepository.existsByCorreoElectronico(request.getCorreoElectronico())) {
-            log.error("correo electrónico ya existe: {}", request.getCorreoElectronico());
-            throw new BuisnessException("ya existe un cliente con el correo electrónico :" + request.getCorreoElectronico());
-        }
-        //Guardar cliente
+        //Guardar cliente: la unicidad del numero de identificación y del correo
+        //la validan las restricciones unicas de la tabla, sin consultas previas
 
-        Cliente clienteGuardado = clienteRepository.save(Cliente);
+        Cliente clienteGuardado;
+        try {
+            clienteGuardado = clienteRepository.saveAndFlush(Cliente);
+        } catch (DataIntegrityViolationException ex) {
+            throw traducirDuplicado(ex, request.getNumeroIdentificacion(), request.getCorreoElectronico(),
+                    mensajeCorreoDuplicado(request.getCorreoElectronico()));
+        }
+        filtros.registrarCliente(clienteGuardado.getNumeroIdentificacion(), clienteGuardado.getCorreoElectronico());
         log.info("cliente creado exitosamente con ID: {} ", clienteGuardado.getId());
-        return convertirAResponse(clienteGuardado);
+        //un cliente nuevo todavia no tiene cuentas
+        return ClienteMapper.aResponse(clienteGuardado, 0);
     }
         /*Actualiza la información  de un cliente existente
         *
@@ -105,16 +119,6 @@ public class ClienteService {
                          return new BuisnessException("Cliente no encontrado  con ID" + id);
                      });
 
-             //validar que el email no este usado por otro cliente
-             clienteRepository.findByCorreoElectronico(request.getCorreoElectronico())
-                     .ifPresent(cliente -> {
-                         if (!cliente.getId().equals(id)) {
-                             log.error("correo electronico ya usado por otro cliente: {}", request.getCorreoElectronico());
-                             throw new BuisnessException("El correo electronico ya esta registrado por otro cliente");
-
-                         }
-                     });
-
              //Actualizar campos (mantenimento el ID)
              ClienteExistente.setTipoIdentifiacion(request.getTipoIdentifiacion());
              ClienteExistente.setNumeroIdentificacion(request.getNumeroIdentificacion());
@@ -125,9 +129,24 @@ public class ClienteService {
 
              //La fecha  de modificacion se  actualiza automaticamente con @PreUpdate
 
-             Cliente clienteActualizado = clienteRepository.save(ClienteExistente);
+             //el correo y el numero de identificacion repetidos los rechazan las
+             //restricciones unicas; el flush las comprueba antes de responder
+             Cliente clienteActualizado;
+             try {
+                 clienteActualizado = clienteRepository.saveAndFlush(ClienteExistente);
+             } catch (DataIntegrityViolationException ex) {
+                 throw traducirDuplicado(ex, request.getNumeroIdentificacion(), request.getCorreoElectronico(),
+                         "El correo electronico ya esta registrado por otro cliente");
+             }
+             filtros.registrarCliente(clienteActualizado.getNumeroIdentificacion(), clienteActualizado.getCorreoElectronico());
+             //la cache de cuentas guarda el nombre del cliente; se consultan
+             //solo los ids, que tambien dan la cantidad de cuentas
+             List<Long> cuentas = cuentaRepository.buscarIdsPorCliente(id);
+             if (!cuentas.isEmpty()) {
+                 cacheCuentas.invalidar(cuentas);
+             }
              log.info("cliente actualizado exitoxamente con ID : {}", id);
-           return  convertirAResponse(clienteActualizado);
+           return  ClienteMapper.aResponse(clienteActualizado, cuentas.size());
 
          }
 
@@ -145,15 +164,15 @@ public class ClienteService {
             log.info("Eliminado cliente con ID: {}", id);
             //validar que el cliente existe
 
-            Cliente cliente = clienteRepository.findById(id)
+            clienteRepository.findById(id)
                     .orElseThrow(()-> {
                         log.error("Cliente no encontrado con ID: {}" , id);
                         return new BuisnessException("cliente no encontrado con ID :" + id);
                     });
 
-            //validar que no tiene cuentas vinculadas
+            //validar que no tiene cuentas vinculadas, sin cargar la coleccion
 
-            if(cliente.tieneCuentasVinculadas()){
+            if(cuentaRepository.existsByClienteId(id)){
                 log.error("Intento eliminar cliente con cuentas vinculadas. ID: {}", id);
                 throw new BuisnessException("no se puede eliminar el cliente porque tiene  productos financieros");
 
@@ -161,55 +180,105 @@ public class ClienteService {
             clienteRepository.deleteById(id);
             log.info("Cliente eliminado exitosamente con ID : {}" , id);
         }
+        /*Reglas de un cliente nuevo que no dependen de la base de datos;
+        * tambien las aplica la importacion masiva
+        *
+        * @throws BuisnessException si el cliente es menor de edad
+        * */
+        static void validarMayorDeEdad(Cliente cliente) {
+            if (!cliente.esMayorDeEdad()) {
+                log.error("Intento de crear cliente menor de edad :{} años", cliente.calcularEdad());
+                throw new BuisnessException("El cliente debe ser mayor de edad (18 años). Edad actual: " + cliente.calcularEdad() + " años");
+            }
+        }
+
+        static BuisnessException identificacionDuplicada(String numeroIdentificacion) {
+            log.error("numero de identificación ya existe: {}", numeroIdentificacion);
+            return new BuisnessException("ya existe un cliente con el numero de identificación" + numeroIdentificacion);
+        }
+
+        static BuisnessException correoDuplicado(String correoElectronico) {
+            log.error("correo electrónico ya existe: {}", correoElectronico);
+            return new BuisnessException(mensajeCorreoDuplicado(correoElectronico));
+        }
+
+        static String mensajeCorreoDuplicado(String correoElectronico) {
+            return "ya existe un cliente con el correo electrónico :" + correoElectronico;
+        }
+
+        /*Convierte la violacion de una restriccion unica de clientes en el
+        * mismo error de negocio que daban las validaciones previas
+        *
+        * @param ex excepcion lanzada al insertar o actualizar
+        * @param numeroIdentificacion numero de identificacion del cliente
+        * @param correoElectronico correo del cliente
+        * @param mensajeCorreo mensaje para el correo repetido, distinto al crear y al actualizar
+        * @return BuisnessException con el mensaje del dato repetido
+        * @throws DataIntegrityViolationException si la violacion no es de numero ni de correo
+        * */
+        static BuisnessException traducirDuplicado(DataIntegrityViolationException ex, String numeroIdentificacion,
+                                                   String correoElectronico, String mensajeCorreo) {
+            String restriccion = nombreRestriccion(ex);
+            if (restriccion.contains(Cliente.UK_NUMERO_IDENTIFICACION)) {
+                return identificacionDuplicada(numeroIdentificacion);
+            }
+            if (restriccion.contains(Cliente.UK_CORREO_ELECTRONICO)) {
+                log.error("correo electrónico ya existe: {}", correoElectronico);
+                return new BuisnessException(mensajeCorreo);
+            }
+            throw ex;
+        }
+
+        //Hibernate extrae el nombre del mensaje del driver; H2 lo da en mayusculas
+        private static String nombreRestriccion(DataIntegrityViolationException ex) {
+            for (Throwable causa = ex; causa != null; causa = causa.getCause()) {
+                if (causa instanceof ConstraintViolationException violacion && violacion.getConstraintName() != null) {
+                    return violacion.getConstraintName().toLowerCase(Locale.ROOT);
+                }
+            }
+            return "";
+        }
+
         /*Busca un cliente por su identificador
         *
         * @param id identificador del cliente
         * @return Cliente response con la informacion del cliente
         * throws Businessexceptoin si cliente no existe
+        *
+        * las consultas simultaneas del mismo cliente comparten una sola carga
         * */
 
-    @Transactional
     public ClienteResponse buscarporId(Long id){
         log.info("Buscando cliente ID:{}", id);
 
-        Cliente cliente = clienteRepository.findById(id)
-                .orElseThrow(()->{
-                    log.error("Cliente no encotrado con ID: {}", id);
-                    return new BuisnessException("Cliente no encontrado con ID : " + id);
+        return lecturas.ejecutar("cliente.id", id, () -> {
+            DatosCliente cliente = clienteRepository.buscarDatosPorId(id)
+                    .orElseThrow(()->{
+                        log.error("Cliente no encotrado con ID: {}", id);
+                        return new BuisnessException("Cliente no encontrado con ID : " + id);
 
-                });
-        return convertirAResponse(cliente);
+                    });
+            return ClienteMapper.aResponse(cliente);
+        });
         }
 
         /*
-        * Lista todos los clientes resgistrados  en el sistema
-        * @ return lista de clientes con todos los clientes
-        * /
+        * Lista los clientes registrados en el sistema, una pagina a la vez
+        *
+        * @param despues id del ultimo cliente de la pagina anterior, null para la primera
+        * @param limite cantidad de clientes por pagina
+        * @return pagina de clientes con el cursor de la siguiente
          */
 
     @Transactional(readOnly = true)
-    public List<ClienteResponse> listarTodos(){
-            log.info("Listado todos los clientes");
+    public PaginaResponse<ClienteResponse> listarTodos(Long despues, Integer limite){
+            log.info("Listado clientes despues del ID: {}", despues);
 
-            return clienteRepository.findAll().stream()
-                    .map(this::convertirAResponse)
+            int tamano = propiedades.getPaginacion().normalizar(limite);
+            List<ClienteResponse> clientes = clienteRepository
+                    .buscarPaginaDatos(despues == null ? 0L : despues, Limit.of(tamano + 1)).stream()
+                    .map(ClienteMapper::aResponse)
                     .collect(Collectors.toList());
-    }
-    /*
-    * convierte una  entidad Cliente a ClienteResponse
-    * incluye calculo de edad y cantidad de cuentas
-    *
-    * @param cliente entidad a convertir
-    * @return clienteresponsecon datos mapeados
-    *
-
-     */
-    private ClienteResponse  convertirAResponse(Cliente cliente){
-        ClienteResponse response = modelMapper.map(cliente, ClienteResponse.class);
-        response.setEdad(cliente.calcularEdad());
-        response.setCantidadCuentas(cliente.getCuentas() != null ? cliente.getCuentas().size() : 0 );
-        return response;
-
+            return PaginaResponse.de(clientes, tamano, ClienteResponse::getId);
     }
 }
-
@@ -2,21 +2,28 @@ package com.crudpractica.finanzastestproyec.Service;
 
 import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
 import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.AsignadorNumerosCuenta;
+import com.crudpractica.finanzastestproyec.Infrastructure.CoalescedorLecturas;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Ledger.MotorLedger;
+import com.crudpractica.finanzastestproyec.Mapper.CuentaMapper;
 import com.crudpractica.finanzastestproyec.Model.Cliente;
 import com.crudpractica.finanzastestproyec.Model.Cuenta;
 import com.crudpractica.finanzastestproyec.Repository.ClienteRepository;
 import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
 import com.crudpractica.finanzastestproyec.dto.request.CuentaRequest;
 import com.crudpractica.finanzastestproyec.dto.response.CuentaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.DatosCuenta;
+import com.crudpractica.finanzastestproyec.dto.response.PaginaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.SaldoCuenta;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -25,7 +32,12 @@ public class CuentaService {
 
     private final CuentaRepository cuentaRepository;
     private final ClienteRepository clienteRepository;
-    private final ModelMapper modelMapper;
+    private final MotorLedger motorLedger;
+    private final FinanzasProperties propiedades;
+    private final CacheCuentasService cacheCuentas;
+    private final CoalescedorLecturas lecturas;
+    private final AsignadorNumerosCuenta asignadorNumeros;
+    private final FiltrosUnicidadService filtros;
 
     @Transactional
     public CuentaResponse crear(CuentaRequest request) {
@@ -36,18 +48,15 @@ public class CuentaService {
 
         Cuenta cuenta = Cuenta.builder()
                 .tipoCuenta(request.getTipoCuenta())
-                .numeroCuenta(generarNumeroCuenta(request.getTipoCuenta()))
+                .numeroCuenta(asignadorNumeros.siguiente(request.getTipoCuenta()))
                 .estado(EstadoCuenta.ACTIVA)
-                .saldo(request.getSaldo() != null ? request.getSaldo() : java.math.BigDecimal.ZERO)
+                .saldo(request.getSaldo() != null ? request.getSaldo() : BigDecimal.ZERO)
                 .exentaGMF(request.getExentaGMF() != null ? request.getExentaGMF() : false)
                 .cliente(cliente)
                 .build();
 
-        if (cuentaRepository.existsByNumeroCuenta(cuenta.getNumeroCuenta())) {
-            cuenta.setNumeroCuenta(generarNumeroCuenta(request.getTipoCuenta()));
-        }
-
         Cuenta cuentaGuardada = cuentaRepository.save(cuenta);
+        filtros.registrarNumeroCuenta(cuentaGuardada.getNumeroCuenta());
         log.info("Cuenta creada: {}", cuentaGuardada.getNumeroCuenta());
 
         return convertirAResponse(cuentaGuardada);
@@ -57,17 +66,23 @@ public class CuentaService {
     public CuentaResponse actualizar(Long id, CuentaRequest request) {
         log.info("Actualizando cuenta ID: {}", id);
 
-        Cuenta cuenta = cuentaRepository.findById(id)
+        Cuenta cuenta = cuentaRepository.buscarPorIdConCliente(id)
                 .orElseThrow(() -> new BuisnessException("Cuenta no encontrada con ID: " + id));
 
-        if (request.getSaldo() != null) {
-            cuenta.setSaldo(request.getSaldo());
+        //el saldo solo cambia con transacciones: con el motor de ledger vive en memoria,
+        //y sin el los extractos reconstruyen el saldo inicial restando los movimientos,
+        //asi que un saldo editado aqui descuadraria todos los extractos anteriores.
+        //La peticion siempre trae el saldo, por eso se acepta si no lo cambia
+        if (request.getSaldo() != null
+                && (motorLedger.estaHabilitado() || request.getSaldo().compareTo(cuenta.getSaldo()) != 0)) {
+            throw new BuisnessException("El saldo solo puede modificarse con transacciones");
         }
         if (request.getExentaGMF() != null) {
             cuenta.setExentaGMF(request.getExentaGMF());
         }
 
         Cuenta cuentaActualizada = cuentaRepository.save(cuenta);
+        cacheCuentas.invalidar(id);
         return convertirAResponse(cuentaActualizada);
     }
 
@@ -78,12 +93,13 @@ public class CuentaService {
         Cuenta cuenta = cuentaRepository.findById(id)
                 .orElseThrow(() -> new BuisnessException("Cuenta no encontrada con ID: " + id));
 
-        if (!cuenta.puedeCancelase()) {
+        if (!puedeCancelarse(cuenta)) {
             throw new BuisnessException("No se puede cancelar la cuenta. El saldo debe ser $0");
         }
 
         cuenta.setEstado(EstadoCuenta.CANCELADA);
         cuentaRepository.save(cuenta);
+        cacheCuentas.invalidar(id);
         log.info("Cuenta cancelada: {}", cuenta.getNumeroCuenta());
     }
 
@@ -94,56 +110,101 @@ public class CuentaService {
         Cuenta cuenta = cuentaRepository.findById(id)
                 .orElseThrow(() -> new BuisnessException("Cuenta no encontrada con ID: " + id));
 
-        if (nuevoEstado == EstadoCuenta.CANCELADA && !cuenta.puedeCancelase()) {
+        if (nuevoEstado == EstadoCuenta.CANCELADA && !puedeCancelarse(cuenta)) {
             throw new BuisnessException("No se puede cancelar. El saldo debe ser $0");
         }
 
         cuenta.setEstado(nuevoEstado);
         cuentaRepository.save(cuenta);
+        cacheCuentas.invalidar(id);
     }
 
-    @Transactional(readOnly = true)
+    /*
+    * Busca una cuenta con los datos de la cache y el saldo actual
+    *
+    * las consultas simultaneas de la misma cuenta comparten una sola carga; la
+    * transaccion de solo lectura la abre CoalescedorLecturas para esa carga
+    * */
     public CuentaResponse buscarPorId(Long id) {
-        Cuenta cuenta = cuentaRepository.findById(id)
-                .orElseThrow(() -> new BuisnessException("Cuenta no encontrada con ID: " + id));
-        return convertirAResponse(cuenta);
+        return lecturas.ejecutar("cuenta.id", id, () -> {
+            DatosCuenta datos = cacheCuentas.buscarPorId(id)
+                    .orElseThrow(() -> new BuisnessException("Cuenta no encontrada con ID: " + id));
+            return convertirAResponse(datos);
+        });
     }
 
-    @Transactional(readOnly = true)
     public CuentaResponse buscarPorNumeroCuenta(String numeroCuenta) {
-        Cuenta cuenta = cuentaRepository.findByNumeroCuenta(numeroCuenta)
-                .orElseThrow(() -> new BuisnessException("Cuenta no encontrada: " + numeroCuenta));
-        return convertirAResponse(cuenta);
+        return lecturas.ejecutar("cuenta.numero", numeroCuenta, () -> {
+            DatosCuenta datos = cacheCuentas.buscarPorNumero(numeroCuenta)
+                    .orElseThrow(() -> new BuisnessException("Cuenta no encontrada: " + numeroCuenta));
+            return convertirAResponse(datos);
+        });
     }
 
+    /*
+    * Lista las cuentas una pagina a la vez
+    *
+    * @param despues id de la ultima cuenta de la pagina anterior, null para la primera
+    * @param limite cantidad de cuentas por pagina
+    * */
     @Transactional(readOnly = true)
-    public List<CuentaResponse> listarTodas() {
-        return cuentaRepository.findAll().stream()
-                .map(this::convertirAResponse)
-                .collect(Collectors.toList());
+    public PaginaResponse<CuentaResponse> listarTodas(Long despues, Integer limite) {
+        int tamano = propiedades.getPaginacion().normalizar(limite);
+        List<CuentaResponse> cuentas = cuentaRepository
+                .buscarPagina(despues == null ? 0L : despues, Limit.of(tamano + 1));
+        cuentas.forEach(this::aplicarSaldoEnMemoria);
+        return PaginaResponse.de(cuentas, tamano, CuentaResponse::getId);
     }
 
     @Transactional(readOnly = true)
     public List<CuentaResponse> listarPorCliente(Long clienteId) {
-        return cuentaRepository.findByClienteId(clienteId).stream()
-                .map(this::convertirAResponse)
-                .collect(Collectors.toList());
+        List<CuentaResponse> cuentas = cuentaRepository.buscarPorCliente(clienteId);
+        cuentas.forEach(this::aplicarSaldoEnMemoria);
+        return cuentas;
     }
 
-    private String generarNumeroCuenta(com.crudpractica.finanzastestproyec.Enums.TipoCuenta tipo) {
-        String prefijo = tipo.getPrefijo();
-        Random random = new Random();
-        StringBuilder numero = new StringBuilder(prefijo);
-        for (int i = 0; i < 8; i++) {
-            numero.append(random.nextInt(10));
-        }
-        return numero.toString();
+    /*
+    * Con el motor de ledger habilitado el saldo en memoria puede ir por delante
+    * del persistido, por eso se usa cuando la cuenta ya fue cargada en el motor
+    * */
+    private BigDecimal saldoActual(Cuenta cuenta) {
+        return motorLedger.saldoEnMemoria(cuenta.getId()).orElse(cuenta.getSaldo());
+    }
+
+    /*
+    * las consultas de lectura traen el saldo persistido; con el motor ledger
+    * activo se reemplaza por el saldo en memoria de las cuentas ya cargadas
+    * */
+    private void aplicarSaldoEnMemoria(CuentaResponse cuenta) {
+        motorLedger.saldoEnMemoria(cuenta.getId()).ifPresent(cuenta::setSaldo);
+    }
+
+    private boolean puedeCancelarse(Cuenta cuenta) {
+        return saldoActual(cuenta).compareTo(BigDecimal.ZERO) == 0;
     }
 
     private CuentaResponse convertirAResponse(Cuenta cuenta) {
-        CuentaResponse response = modelMapper.map(cuenta, CuentaResponse.class);
-        response.setClienteId(cuenta.getCliente().getId());
-        response.setNombreCliente(cuenta.getCliente().getNombres() + " " + cuenta.getCliente().getApellido());
-        return response;
+        return CuentaMapper.aResponse(cuenta, saldoActual(cuenta));
+    }
+
+    /*
+    * el saldo y la fecha de modificacion no estan en la cache, se leen con
+    * una consulta por llave primaria que no carga la entidad ni el cliente
+    * */
+    private CuentaResponse convertirAResponse(DatosCuenta datos) {
+        SaldoCuenta actual = cuentaRepository.consultarSaldoYModificacion(datos.getId())
+                .orElseThrow(() -> new BuisnessException("Cuenta no encontrada con ID: " + datos.getId()));
+        return CuentaResponse.builder()
+                .id(datos.getId())
+                .tipoCuenta(datos.getTipoCuenta())
+                .numeroCuenta(datos.getNumeroCuenta())
+                .estado(datos.getEstado())
+                .saldo(motorLedger.saldoEnMemoria(datos.getId()).orElse(actual.getSaldo()))
+                .exentaGMF(datos.getExentaGMF())
+                .fechaCreacion(datos.getFechaCreacion())
+                .fechaModificacion(actual.getFechaModificacion())
+                .clienteId(datos.getClienteId())
+                .nombreCliente(datos.getNombreCliente())
+                .build();
     }
 }
\ No newline at end of file
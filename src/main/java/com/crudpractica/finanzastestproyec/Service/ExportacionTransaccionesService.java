@@ -0,0 +1,116 @@
+package com.crudpractica.finanzastestproyec.Service;
+
+import com.crudpractica.finanzastestproyec.Enums.FormatoExportacion;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Repository.TransaccionRepository;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/*
+ * Exportacion del historial de transacciones en NDJSON o CSV
+ *
+ * las filas se leen con un cursor de la base de datos y se escriben en la
+ * salida a medida que llegan; nunca se arma la lista completa, por eso la
+ * memoria usada no depende de cuantas transacciones se exporten.
+ * */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportacionTransaccionesService {
+
+    private static final String ENCABEZADO_CSV =
+            "id,tipoTransaccion,monto,fecha,descripcion,numeroCuentaOrigen,numeroCuentaDestino";
+
+    private final TransaccionRepository transaccionRepository;
+    private final JsonMapper jsonMapper;
+
+    /*
+    * Escribe las transacciones que cumplen los filtros en la salida
+    *
+    * @param formato NDJSON o CSV
+    * @param cuentaId cuenta origen o destino, null para todas
+    * @param tipo tipo de transaccion, null para todos
+    * @param desde primer dia incluido, null sin limite
+    * @param hasta ultimo dia incluido, null sin limite
+    * @param salida stream de la respuesta, no se cierra
+    * @return cantidad de transacciones exportadas
+    * */
+    @Transactional(readOnly = true)
+    public long exportar(FormatoExportacion formato, Long cuentaId, TipoTrasaccion tipo,
+                         LocalDate desde, LocalDate hasta, OutputStream salida) throws IOException {
+        LocalDateTime inicio = desde == null ? null : desde.atStartOfDay();
+        LocalDateTime fin = hasta == null ? null : hasta.plusDays(1).atStartOfDay();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024);
+        long exportadas = 0;
+        //con cuenta la consulta va por los indices de cuenta; sin ella se recorre toda la tabla
+        Stream<TransaccionResponse> consulta = cuentaId == null
+                ? transaccionRepository.exportar(tipo, inicio, fin)
+                : transaccionRepository.exportarPorCuenta(cuentaId, tipo == null ? null : tipo.name(), inicio, fin);
+        try (Stream<TransaccionResponse> filas = consulta) {
+            if (formato == FormatoExportacion.CSV) {
+                writer.write(ENCABEZADO_CSV);
+                writer.write('\n');
+            }
+            Iterator<TransaccionResponse> iterador = filas.iterator();
+            while (iterador.hasNext()) {
+                TransaccionResponse fila = iterador.next();
+                if (formato == FormatoExportacion.CSV) {
+                    escribirCsv(writer, fila);
+                } else {
+                    writer.write(jsonMapper.writeValueAsString(fila));
+                    writer.write('\n');
+                }
+                exportadas++;
+            }
+        }
+        writer.flush();
+        log.info("Exportadas {} transacciones en formato {}", exportadas, formato);
+        return exportadas;
+    }
+
+    private void escribirCsv(Writer writer, TransaccionResponse fila) throws IOException {
+        writer.write(String.valueOf(fila.getId()));
+        writer.write(',');
+        writer.write(fila.getTipoTransaccion().name());
+        writer.write(',');
+        writer.write(fila.getMonto().toPlainString());
+        writer.write(',');
+        writer.write(fila.getFecha().toString());
+        writer.write(',');
+        writer.write(campoCsv(fila.getDescripcion()));
+        writer.write(',');
+        writer.write(fila.getNumeroCuentaOrigen());
+        writer.write(',');
+        writer.write(campoCsv(fila.getNumeroCuentaDestino()));
+        writer.write('\n');
+    }
+
+    /*
+    * Texto libre: se encierra entre comillas si tiene separadores o comillas
+    * */
+    private String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,103 @@
+package com.crudpractica.finanzastestproyec.Service;
+
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
+import com.crudpractica.finanzastestproyec.Repository.TransaccionRepository;
+import com.crudpractica.finanzastestproyec.dto.response.MovimientoExtractoResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/*
+ * Extracto de una cuenta con saldo despues de cada movimiento
+ *
+ * el saldo inicial del periodo sale de una consulta agregada (saldo actual
+ * menos lo movido desde la fecha inicial) y luego se recorren solo los
+ * movimientos del periodo sumando cada valor al saldo. El JSON se escribe
+ * a medida que se leen las filas, asi una cuenta con millones de movimientos
+ * no se carga en memoria.
+ *
+ * depende de que el saldo solo cambie con transacciones; por eso
+ * CuentaService.actualizar rechaza un saldo distinto al actual
+ * */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExtractoService {
+
+    private final TransaccionRepository transaccionRepository;
+    private final CuentaRepository cuentaRepository;
+    private final JsonMapper jsonMapper;
+
+    /*
+    * Valida la peticion antes de empezar a escribir la respuesta
+    *
+    * @throws BuisnessException si el rango es invalido o la cuenta no existe
+    * */
+    @Transactional(readOnly = true)
+    public void validar(Long cuentaId, LocalDate desde, LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            throw new BuisnessException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        if (!cuentaRepository.existsById(cuentaId)) {
+            throw new BuisnessException("Cuenta no encontrada con ID: " + cuentaId);
+        }
+    }
+
+    /*
+    * Escribe el extracto en formato JSON
+    *
+    * el saldo inicial y los movimientos se leen en la misma transaccion
+    * REPEATABLE_READ para que una transaccion confirmada entre ambas
+    * consultas no descuadre los saldos
+    *
+    * @param cuentaId identificador de la cuenta
+    * @param desde primer dia incluido
+    * @param hasta ultimo dia incluido
+    * @param salida stream de la respuesta
+    * */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void escribir(Long cuentaId, LocalDate desde, LocalDate hasta, OutputStream salida) {
+        LocalDateTime inicio = desde.atStartOfDay();
+        LocalDateTime fin = hasta.plusDays(1).atStartOfDay();
+        BigDecimal saldo = transaccionRepository.calcularSaldoAl(cuentaId, inicio)
+                .orElseThrow(() -> new BuisnessException("Cuenta no encontrada con ID: " + cuentaId));
+
+        long cantidad = 0;
+        try (JsonGenerator generador = jsonMapper.createGenerator(salida);
+             Stream<MovimientoExtractoResponse> movimientos =
+                     transaccionRepository.buscarMovimientosExtracto(cuentaId, inicio, fin)) {
+            generador.writeStartObject();
+            generador.writeNumberProperty("cuentaId", cuentaId);
+            generador.writePOJOProperty("desde", desde);
+            generador.writePOJOProperty("hasta", hasta);
+            generador.writeNumberProperty("saldoInicial", saldo);
+            generador.writeName("movimientos");
+            generador.writeStartArray();
+            Iterator<MovimientoExtractoResponse> iterador = movimientos.iterator();
+            while (iterador.hasNext()) {
+                MovimientoExtractoResponse movimiento = iterador.next();
+                saldo = saldo.add(movimiento.getValor());
+                movimiento.setSaldo(saldo);
+                generador.writePOJO(movimiento);
+                cantidad++;
+            }
+            generador.writeEndArray();
+            generador.writeNumberProperty("cantidadMovimientos", cantidad);
+            generador.writeNumberProperty("saldoFinal", saldo);
+            generador.writeEndObject();
+        }
+        log.info("Extracto de la cuenta {} del {} al {}: {} movimientos", cuentaId, desde, hasta, cantidad);
+    }
+}
@@ -0,0 +1,223 @@
+package com.crudpractica.finanzastestproyec.Service;
+
+import com.crudpractica.finanzastestproyec.Infrastructure.FiltroBloom;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Repository.ClienteRepository;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/*
+* Verificaciones previas de unicidad con filtros de Bloom en memoria
+*
+* hay un filtro por numero de identificacion, correo electronico y numero de
+* cuenta. Si el filtro dice que el valor no esta, se responde sin consultar
+* la base de datos; solo los posibles positivos llegan al repositorio. Los
+* filtros nunca dan falsos negativos para lo que leyeron o se les registro,
+* pero no son la garantia de unicidad: esa sigue siendo la restriccion unica
+* de cada columna.
+*
+* se construyen al arrancar, en segundo plano, leyendo las columnas con un
+* cursor; mientras tanto todas las consultas van a la base de datos. Lo que
+* se inserta despues se registra aqui. Los valores borrados o cambiados
+* siguen en el filtro hasta la siguiente reconstruccion y solo cuestan una
+* consulta.
+*
+* metricas por filtro: finanzas.filtros.consultas (resultado negativo,
+* positivo o falso-positivo), finanzas.filtros.falsos-positivos (tasa
+* observada), finanzas.filtros.tasa-estimada (segun los bits encendidos) y
+* finanzas.filtros.reconstruccion (tiempo de construccion)
+* */
+@Service
+@Slf4j
+public class FiltrosUnicidadService {
+
+    private final ClienteRepository clienteRepository;
+    private final CuentaRepository cuentaRepository;
+    private final FinanzasProperties propiedades;
+    private final TransactionTemplate lectura;
+    private final Filtro identificaciones;
+    private final Filtro correos;
+    private final Filtro numerosCuenta;
+
+    public FiltrosUnicidadService(ClienteRepository clienteRepository, CuentaRepository cuentaRepository,
+                                  FinanzasProperties propiedades, MeterRegistry registry,
+                                  PlatformTransactionManager transactionManager) {
+        this.clienteRepository = clienteRepository;
+        this.cuentaRepository = cuentaRepository;
+        this.propiedades = propiedades;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.identificaciones = new Filtro("numero-identificacion", registry);
+        this.correos = new Filtro("correo-electronico", registry);
+        this.numerosCuenta = new Filtro("numero-cuenta", registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        Thread hilo = new Thread(() -> {
+            try {
+                reconstruir();
+            } catch (RuntimeException ex) {
+                log.error("No se pudieron construir los filtros de unicidad, se consulta la base de datos", ex);
+            }
+        }, "filtros-unicidad");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /*
+    * Vuelve a leer las tres columnas y reemplaza los filtros; lo que se
+    * registra mientras tanto entra en el filtro actual y en el nuevo
+    * */
+    public void reconstruir() {
+        construir(identificaciones, clienteRepository::leerNumerosIdentificacion);
+        construir(correos, clienteRepository::leerCorreosElectronicos);
+        construir(numerosCuenta, cuentaRepository::leerNumerosCuenta);
+    }
+
+    public boolean existeNumeroIdentificacion(String numeroIdentificacion) {
+        return existe(identificaciones, numeroIdentificacion, clienteRepository::existsByNumeroIdentificacion);
+    }
+
+    public boolean existeCorreoElectronico(String correoElectronico) {
+        return existe(correos, correoElectronico, clienteRepository::existsByCorreoElectronico);
+    }
+
+    /*
+    * Numeros de la lista que ya tiene alguna cuenta
+    *
+    * @param numeros numeros candidatos
+    * @return los que existen; vacio sin consultar si el filtro los descarta todos
+    * */
+    public Set<String> numerosCuentaExistentes(Collection<String> numeros) {
+        FiltroBloom filtro = numerosCuenta.actual;
+        List<String> posibles = filtro == null ? List.copyOf(numeros)
+                : numeros.stream().filter(filtro::puedeContener).toList();
+        if (filtro != null) {
+            numerosCuenta.negativos.increment(numeros.size() - posibles.size());
+        }
+        if (posibles.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> existentes = new HashSet<>(cuentaRepository.buscarNumerosExistentes(posibles));
+        if (filtro != null) {
+            numerosCuenta.positivos.increment(existentes.size());
+            numerosCuenta.falsosPositivos.increment(posibles.size() - existentes.size());
+        }
+        return existentes;
+    }
+
+    public void registrarCliente(String numeroIdentificacion, String correoElectronico) {
+        identificaciones.agregar(numeroIdentificacion);
+        correos.agregar(correoElectronico);
+    }
+
+    public void registrarNumeroCuenta(String numeroCuenta) {
+        numerosCuenta.agregar(numeroCuenta);
+    }
+
+    private boolean existe(Filtro filtro, String valor, Function<String, Boolean> consulta) {
+        FiltroBloom bloom = filtro.actual;
+        if (bloom != null && !bloom.puedeContener(valor)) {
+            filtro.negativos.increment();
+            return false;
+        }
+        boolean existe = consulta.apply(valor);
+        if (bloom != null) {
+            (existe ? filtro.positivos : filtro.falsosPositivos).increment();
+        }
+        return existe;
+    }
+
+    private void construir(Filtro filtro, Supplier<Stream<String>> columna) {
+        FinanzasProperties.FiltrosUnicidad configuracion = propiedades.getFiltrosUnicidad();
+        FiltroBloom nuevo = new FiltroBloom(configuracion.getElementosEsperados(), configuracion.getTasaFalsosPositivos());
+        filtro.enConstruccion = nuevo;
+        filtro.reconstruccion.record(() -> lectura.executeWithoutResult(status -> {
+            try (Stream<String> valores = columna.get()) {
+                valores.forEach(nuevo::agregar);
+            }
+        }));
+        filtro.actual = nuevo;
+        filtro.enConstruccion = null;
+        log.info("Filtro de unicidad {} construido, tasa estimada de falsos positivos {}",
+                filtro.nombre, nuevo.tasaEstimada());
+    }
+
+    /*
+    * Filtro de una columna con sus metricas
+    * */
+    private static final class Filtro {
+
+        private final String nombre;
+        private final Counter negativos;
+        private final Counter positivos;
+        private final Counter falsosPositivos;
+        private final Timer reconstruccion;
+        private volatile FiltroBloom actual;
+        private volatile FiltroBloom enConstruccion;
+
+        private Filtro(String nombre, MeterRegistry registry) {
+            this.nombre = nombre;
+            this.negativos = consultas(registry, "negativo");
+            this.positivos = consultas(registry, "positivo");
+            this.falsosPositivos = consultas(registry, "falso-positivo");
+            this.reconstruccion = Timer.builder("finanzas.filtros.reconstruccion")
+                    .description("Tiempo de lectura de la columna para construir el filtro")
+                    .tag("filtro", nombre)
+                    .register(registry);
+            //de las consultas cuyo valor no existia, las que el filtro no pudo descartar
+            Gauge.builder("finanzas.filtros.falsos-positivos", () -> {
+                        double falsos = falsosPositivos.count();
+                        double ausentes = negativos.count() + falsos;
+                        return ausentes == 0 ? 0 : falsos / ausentes;
+                    })
+                    .description("Tasa observada de falsos positivos")
+                    .tag("filtro", nombre)
+                    .register(registry);
+            Gauge.builder("finanzas.filtros.tasa-estimada", () -> actual == null ? Double.NaN : actual.tasaEstimada())
+                    .description("Tasa de falsos positivos estimada por los bits encendidos")
+                    .tag("filtro", nombre)
+                    .register(registry);
+        }
+
+        private Counter consultas(MeterRegistry registry, String resultado) {
+            return Counter.builder("finanzas.filtros.consultas")
+                    .description("Verificaciones de unicidad por resultado del filtro")
+                    .tags("filtro", nombre, "resultado", resultado)
+                    .register(registry);
+        }
+
+        /*
+        * se lee primero el filtro en construccion: construir() publica el
+        * nuevo como actual antes de soltarlo, asi el valor siempre llega a el
+        * */
+        private void agregar(String valor) {
+            FiltroBloom nuevo = enConstruccion;
+            FiltroBloom filtro = actual;
+            if (nuevo != null) {
+                nuevo.agregar(valor);
+            }
+            if (filtro != null && filtro != nuevo) {
+                filtro.agregar(valor);
+            }
+        }
+    }
+}
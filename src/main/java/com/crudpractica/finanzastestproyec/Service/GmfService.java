@@ -0,0 +1,131 @@
+package com.crudpractica.finanzastestproyec.Service;
+
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Repository.AcumuladoGmfRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/*
+* Liquidacion del gravamen a los movimientos financieros (GMF, 4x1000)
+*
+* los retiros y las transferencias de una cuenta no exenta pagan la tarifa
+* sobre todo el monto. Los de una cuenta exenta solo pagan sobre lo que el
+* cliente supere en el mes del monto exento mensual; lo retirado en el mes se
+* lleva en un acumulado por cliente que se actualiza con cada movimiento, asi
+* el costo por transaccion no depende del historial.
+*
+* se ejecuta dentro de la transaccion del movimiento: si el debito falla, el
+* acumulado tambien se revierte. Con el motor de ledger el debito no esta en
+* esa transaccion, por eso el acumulado se confirma aparte y solo se revierte
+* cuando el motor rechaza el movimiento
+* */
+@Service
+@Slf4j
+public class GmfService {
+
+    private final AcumuladoGmfRepository acumuladoRepository;
+    private final FinanzasProperties propiedades;
+    private final TransactionTemplate nuevaTransaccion;
+
+    public GmfService(AcumuladoGmfRepository acumuladoRepository, FinanzasProperties propiedades,
+                      PlatformTransactionManager transactionManager) {
+        this.acumuladoRepository = acumuladoRepository;
+        this.propiedades = propiedades;
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /*
+    * Gravamen de un debito de la cuenta
+    *
+    * @param clienteId titular de la cuenta, lleva el acumulado de las cuentas exentas
+    * @param exenta si la cuenta esta marcada como exenta de GMF
+    * @param monto valor debitado de la cuenta
+    * @return gravamen a cobrar con dos decimales, cero si no aplica
+    * */
+    public BigDecimal liquidar(Long clienteId, Boolean exenta, BigDecimal monto) {
+        FinanzasProperties.Gmf configuracion = propiedades.getGmf();
+        if (!configuracion.isHabilitado()) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal gravable = Boolean.TRUE.equals(exenta) ? excedente(clienteId, monto, configuracion) : monto;
+        return gravable.multiply(configuracion.getTarifa()).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /*
+    * Deshace lo que liquidar sumo al acumulado de una cuenta exenta cuando el
+    * debito se rechaza despues de liquidarlo (saldo insuficiente en un lote o
+    * en el motor de ledger); la transaccion del lote sigue y no lo revierte
+    *
+    * @param clienteId titular de la cuenta
+    * @param exenta si la cuenta esta marcada como exenta de GMF
+    * @param monto valor que se habia liquidado
+    * */
+    public void revertir(Long clienteId, Boolean exenta, BigDecimal monto) {
+        if (!propiedades.getGmf().isHabilitado() || !Boolean.TRUE.equals(exenta)) {
+            return;
+        }
+        acumuladoRepository.descontar(clienteId, periodo(LocalDate.now()), monto);
+    }
+
+    /*
+    * liquidar en su propia transaccion, para debitos que no se confirman con
+    * la transaccion del llamador (motor de ledger)
+    * */
+    public BigDecimal liquidarEnTransaccionPropia(Long clienteId, Boolean exenta, BigDecimal monto) {
+        if (!Boolean.TRUE.equals(exenta)) {
+            //sin acumulado que actualizar
+            return liquidar(clienteId, exenta, monto);
+        }
+        return nuevaTransaccion.execute(status -> liquidar(clienteId, exenta, monto));
+    }
+
+    /*
+    * revertir en su propia transaccion; deshace un liquidarEnTransaccionPropia
+    * */
+    public void revertirEnTransaccionPropia(Long clienteId, Boolean exenta, BigDecimal monto) {
+        if (!Boolean.TRUE.equals(exenta)) {
+            return;
+        }
+        nuevaTransaccion.executeWithoutResult(status -> revertir(clienteId, exenta, monto));
+    }
+
+    /*
+    * Parte del monto que supera el exento mensual una vez sumada al acumulado
+    * */
+    private BigDecimal excedente(Long clienteId, BigDecimal monto, FinanzasProperties.Gmf configuracion) {
+        Integer periodo = periodo(LocalDate.now());
+        if (acumuladoRepository.acumular(clienteId, periodo, monto) == 0) {
+            crearAcumulado(clienteId, periodo);
+            acumuladoRepository.acumular(clienteId, periodo, monto);
+        }
+        BigDecimal acumulado = acumuladoRepository.buscarRetirosExentos(clienteId).orElseThrow();
+        return acumulado.subtract(configuracion.montoExentoMensual()).max(BigDecimal.ZERO).min(monto);
+    }
+
+    /*
+    * Primera vez que el cliente retira de una cuenta exenta: la fila se crea
+    * en cero en su propia transaccion, asi si otro retiro la crea al mismo
+    * tiempo el duplicado no aborta la transaccion del movimiento
+    * */
+    private void crearAcumulado(Long clienteId, Integer periodo) {
+        try {
+            nuevaTransaccion.executeWithoutResult(status -> acumuladoRepository.crear(clienteId, periodo));
+            log.info("Acumulado de GMF creado para el cliente {}", clienteId);
+        } catch (DataIntegrityViolationException ex) {
+            log.debug("El acumulado de GMF del cliente {} ya lo creo otra transaccion", clienteId);
+        }
+    }
+
+    static Integer periodo(LocalDate fecha) {
+        return fecha.getYear() * 100 + fecha.getMonthValue();
+    }
+}
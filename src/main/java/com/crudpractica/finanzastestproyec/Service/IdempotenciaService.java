@@ -0,0 +1,158 @@
+package com.crudpractica.finanzastestproyec.Service;
+
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Model.ClaveIdempotencia;
+import com.crudpractica.finanzastestproyec.Repository.ClaveIdempotenciaRepository;
+import com.crudpractica.finanzastestproyec.dto.request.TransaccionRequest;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/*
+ * Idempotencia de la creacion de transacciones (cabecera Idempotency-Key)
+ *
+ * las respuestas se guardan en una cache en memoria acotada y con expiracion;
+ * si la clave ya no esta en memoria se busca en la tabla claves_idempotencia.
+ * Una clave repetida devuelve la respuesta guardada sin volver a ejecutar la
+ * transaccion ni consultar las cuentas.
+ *
+ * la cache guarda futuros: la primera peticion con una clave ejecuta la
+ * transaccion y las que llegan con la misma clave mientras tanto esperan ese
+ * mismo resultado. Si la ejecucion falla el futuro se descarta y la clave
+ * puede reintentarse.
+ * */
+@Service
+@Slf4j
+public class IdempotenciaService {
+
+    private final ClaveIdempotenciaRepository claveIdempotenciaRepository;
+    private final AsyncCache<String, ClaveIdempotencia> registros;
+
+    public IdempotenciaService(ClaveIdempotenciaRepository claveIdempotenciaRepository,
+                               FinanzasProperties propiedades) {
+        this.claveIdempotenciaRepository = claveIdempotenciaRepository;
+        FinanzasProperties.Idempotencia configuracion = propiedades.getIdempotencia();
+        this.registros = Caffeine.newBuilder()
+                .maximumSize(configuracion.getMaximoEntradas())
+                .expireAfterWrite(Duration.ofMinutes(configuracion.getExpiracionMinutos()))
+                .buildAsync();
+    }
+
+    /*
+    * Ejecuta la creacion de la transaccion una sola vez por clave
+    *
+    * @param clave valor de la cabecera Idempotency-Key
+    * @param request peticion recibida
+    * @param operacion creacion de la transaccion, debe registrar la clave con registrar()
+    * @return respuesta de la primera ejecucion con esa clave
+    * @throws BuisnessException si la clave ya se uso con una peticion diferente
+    * */
+    public TransaccionResponse ejecutar(String clave, TransaccionRequest request, Supplier<TransaccionResponse> operacion) {
+        String huella = calcularHuella(request);
+        CompletableFuture<ClaveIdempotencia> propio = new CompletableFuture<>();
+        CompletableFuture<ClaveIdempotencia> existente = registros.asMap().putIfAbsent(clave, propio);
+        if (existente != null) {
+            log.info("Petición repetida con Idempotency-Key {}", clave);
+            return responder(esperar(existente), huella);
+        }
+
+        ClaveIdempotencia registro;
+        try {
+            registro = claveIdempotenciaRepository.findById(clave)
+                    .orElseGet(() -> ejecutarUnaVez(clave, huella, operacion));
+            propio.complete(registro);
+        } catch (RuntimeException ex) {
+            propio.completeExceptionally(ex);
+            throw ex;
+        }
+        return responder(registro, huella);
+    }
+
+    /*
+    * Guarda la clave junto con la respuesta; debe llamarse dentro de la misma
+    * transaccion de base de datos que crea la transaccion
+    * */
+    public void registrar(String clave, TransaccionRequest request, TransaccionResponse response) {
+        claveIdempotenciaRepository.saveAndFlush(aRegistro(clave, calcularHuella(request), response));
+    }
+
+    private ClaveIdempotencia ejecutarUnaVez(String clave, String huella, Supplier<TransaccionResponse> operacion) {
+        try {
+            return aRegistro(clave, huella, operacion.get());
+        } catch (DataIntegrityViolationException ex) {
+            //otra instancia registro la misma clave primero; su transaccion es la valida
+            log.warn("Idempotency-Key {} registrada por otra petición concurrente", clave);
+            return claveIdempotenciaRepository.findById(clave).orElseThrow(() -> ex);
+        }
+    }
+
+    private ClaveIdempotencia esperar(CompletableFuture<ClaveIdempotencia> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private TransaccionResponse responder(ClaveIdempotencia registro, String huella) {
+        if (!registro.getHuella().equals(huella)) {
+            throw new BuisnessException("La Idempotency-Key ya fue usada con una solicitud diferente");
+        }
+        return TransaccionResponse.builder()
+                .id(registro.getTransaccionId())
+                .tipoTransaccion(registro.getTipoTransaccion())
+                .monto(registro.getMonto())
+                .fecha(registro.getFechaTransaccion())
+                .descripcion(registro.getDescripcion())
+                .numeroCuentaOrigen(registro.getNumeroCuentaOrigen())
+                .numeroCuentaDestino(registro.getNumeroCuentaDestino())
+                .build();
+    }
+
+    private ClaveIdempotencia aRegistro(String clave, String huella, TransaccionResponse response) {
+        return ClaveIdempotencia.builder()
+                .clave(clave)
+                .huella(huella)
+                .transaccionId(response.getId())
+                .tipoTransaccion(response.getTipoTransaccion())
+                .monto(response.getMonto())
+                .fechaTransaccion(response.getFecha())
+                .descripcion(response.getDescripcion())
+                .numeroCuentaOrigen(response.getNumeroCuentaOrigen())
+                .numeroCuentaDestino(response.getNumeroCuentaDestino())
+                .build();
+    }
+
+    /*
+    * SHA-256 de los campos que definen la transaccion
+    * */
+    private String calcularHuella(TransaccionRequest request) {
+        String contenido = request.getTipoTransaccion() + "|"
+                + request.getMonto().stripTrailingZeros().toPlainString() + "|"
+                + request.getCuentaOrigenId() + "|"
+                + request.getCuentaDestinoId() + "|"
+                + request.getDescripcion();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(contenido.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
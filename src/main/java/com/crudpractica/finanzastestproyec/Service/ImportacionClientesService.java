@@ -0,0 +1,482 @@
+package com.crudpractica.finanzastestproyec.Service;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.AsignadorNumerosCuenta;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Mapper.ClienteMapper;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Model.ImportacionClientes;
+import com.crudpractica.finanzastestproyec.Repository.ClienteRepository;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
+import com.crudpractica.finanzastestproyec.Repository.ImportacionClientesRepository;
+import com.crudpractica.finanzastestproyec.dto.request.ClienteRequest;
+import com.crudpractica.finanzastestproyec.dto.response.ErrorFilaImportacion;
+import com.crudpractica.finanzastestproyec.dto.response.ImportacionClientesResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/*
+* Importacion masiva de clientes, y opcionalmente de una cuenta por cliente,
+* desde un archivo CSV
+*
+* el archivo se lee linea por linea mientras llega, sin guardarlo completo en
+* memoria. Cada fila se valida con las mismas reglas de ClienteService.crear:
+* las anotaciones de ClienteRequest, la mayoria de edad y la unicidad del
+* numero de identificacion y del correo, esta ultima con los filtros de
+* unicidad y contra las filas del mismo lote. Las filas invalidas no detienen
+* la importacion, quedan en el reporte de errores; el reporte guarda solo las
+* primeras maximo-errores y cuenta las demas.
+*
+* cada filas-por-transaccion filas leidas se guardan las validas en una
+* transaccion; Hibernate agrupa los INSERT en lotes JDBC de
+* hibernate.jdbc.batch_size, y el contexto de persistencia se limpia al final
+* de cada lote, asi la memoria no crece con el archivo. En la misma
+* transaccion se avanza la fila confirmada de la importacion, asi si la
+* peticion falla basta reenviar el archivo con el mismo id: las filas ya
+* confirmadas se saltan sin validarlas.
+* Si la base de datos rechaza un lote por un dato repetido que otra peticion
+* guardo mientras tanto, ese lote se guarda fila por fila; las filas que
+* rechace por cualquier motivo quedan en el reporte y las demas se guardan.
+*
+* metricas: finanzas.importacion.filas por resultado (creada, fallida u omitida)
+* */
+@Service
+@Slf4j
+public class ImportacionClientesService {
+
+    static final List<String> COLUMNAS_CLIENTE = List.of("tipo_identificacion", "numero_identificacion",
+            "nombres", "apellido", "correo_electronico", "fecha_nacimiento");
+
+    static final List<String> COLUMNAS_CUENTA = List.of("tipo_cuenta", "exenta_gmf");
+
+    private final ClienteRepository clienteRepository;
+    private final CuentaRepository cuentaRepository;
+    private final ImportacionClientesRepository importacionRepository;
+    private final AsignadorNumerosCuenta asignadorNumeros;
+    private final FiltrosUnicidadService filtros;
+    private final Validator validator;
+    private final FinanzasProperties propiedades;
+    private final EntityManager entityManager;
+    private final TransactionTemplate escritura;
+    private final Counter creadas;
+    private final Counter fallidas;
+    private final Counter omitidas;
+
+    public ImportacionClientesService(ClienteRepository clienteRepository, CuentaRepository cuentaRepository,
+                                      ImportacionClientesRepository importacionRepository,
+                                      AsignadorNumerosCuenta asignadorNumeros, FiltrosUnicidadService filtros,
+                                      Validator validator, FinanzasProperties propiedades, MeterRegistry registry,
+                                      PlatformTransactionManager transactionManager, EntityManager entityManager) {
+        this.clienteRepository = clienteRepository;
+        this.cuentaRepository = cuentaRepository;
+        this.importacionRepository = importacionRepository;
+        this.asignadorNumeros = asignadorNumeros;
+        this.filtros = filtros;
+        this.validator = validator;
+        this.propiedades = propiedades;
+        this.entityManager = entityManager;
+        this.escritura = new TransactionTemplate(transactionManager);
+        this.creadas = filas(registry, "creada");
+        this.fallidas = filas(registry, "fallida");
+        this.omitidas = filas(registry, "omitida");
+    }
+
+    /*
+    * Importa las filas del archivo que aun no se confirmaron
+    *
+    * @param importacionId id de la importacion; sin valor se crea una nueva
+    * @param csv archivo con encabezado, separado por comas y en UTF-8
+    * @return filas procesadas y errores por fila de esta peticion
+    * @throws BuisnessException si el encabezado no es valido o la importacion
+    *         la esta procesando otra peticion
+    * */
+    public ImportacionClientesResponse importar(String importacionId, InputStream csv) throws IOException {
+        String id = importacionId == null || importacionId.isBlank() ? UUID.randomUUID().toString()
+                : importacionId.trim();
+        ImportacionClientes importacion = buscarOCrear(id);
+        if (importacion.isCompletada()) {
+            log.info("La importacion {} ya se completo, no se procesan filas", id);
+            return ImportacionClientesResponse.builder()
+                    .importacion(id)
+                    .completada(true)
+                    .filasOmitidas(importacion.getFilasConfirmadas())
+                    .filasProcesadas(0L)
+                    .clientesCreados(0L)
+                    .cuentasCreadas(0L)
+                    .fallidas(0L)
+                    .errores(List.of())
+                    .build();
+        }
+
+        Avance avance = new Avance(id, importacion.getFilasConfirmadas(),
+                propiedades.getImportacion().getMaximoErrores());
+        int filasPorTransaccion = propiedades.getImportacion().getFilasPorTransaccion();
+        log.info("Importacion {} desde la fila {}", id, avance.confirmadas + 1);
+
+        BufferedReader lector = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        int columnas = leerEncabezado(lector.readLine());
+        long fila = 0;
+        String linea;
+        while ((linea = lector.readLine()) != null) {
+            fila++;
+            if (fila <= avance.confirmadas) {
+                avance.omitidas++;
+                continue;
+            }
+            if (!linea.isBlank()) {
+                procesarFila(avance, fila, linea, columnas);
+            }
+            if (fila - avance.confirmadas >= filasPorTransaccion) {
+                confirmar(avance, fila, false);
+            }
+        }
+        confirmar(avance, Math.max(fila, avance.confirmadas), true);
+        omitidas.increment(avance.omitidas);
+
+        log.info("Importacion {} completada: {} clientes, {} cuentas y {} filas con error",
+                id, avance.clientes, avance.cuentas, avance.conError);
+        return ImportacionClientesResponse.builder()
+                .importacion(id)
+                .completada(true)
+                .filasOmitidas(avance.omitidas)
+                .filasProcesadas(fila - avance.omitidas)
+                .clientesCreados(avance.clientes)
+                .cuentasCreadas(avance.cuentas)
+                .fallidas(avance.conError)
+                .errores(avance.errores)
+                .build();
+    }
+
+    private ImportacionClientes buscarOCrear(String id) {
+        return importacionRepository.findById(id).orElseGet(() -> {
+            try {
+                escritura.executeWithoutResult(status -> importacionRepository.crear(id));
+            } catch (DataIntegrityViolationException ex) {
+                //otra peticion la creo al mismo tiempo
+                log.debug("La importacion {} ya la creo otra peticion", id);
+            }
+            return importacionRepository.findById(id).orElseThrow();
+        });
+    }
+
+    /*
+    * El encabezado lleva las columnas del cliente y, si se crean cuentas,
+    * tambien las de la cuenta
+    *
+    * @return cantidad de columnas que debe tener cada fila
+    * */
+    private int leerEncabezado(String encabezado) {
+        if (encabezado == null) {
+            throw new BuisnessException("El archivo esta vacio");
+        }
+        List<String> columnas = separar(encabezado.replace("\uFEFF", "")).stream()
+                .map(columna -> columna.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        List<String> conCuenta = new ArrayList<>(COLUMNAS_CLIENTE);
+        conCuenta.addAll(COLUMNAS_CUENTA);
+        if (!columnas.equals(COLUMNAS_CLIENTE) && !columnas.equals(conCuenta)) {
+            throw new BuisnessException("El encabezado debe ser " + String.join(",", COLUMNAS_CLIENTE)
+                    + " seguido opcionalmente de " + String.join(",", COLUMNAS_CUENTA));
+        }
+        return columnas.size();
+    }
+
+    private void procesarFila(Avance avance, long fila, String linea, int columnas) {
+        try {
+            avance.pendientes.add(validar(avance, fila, separar(linea), columnas));
+        } catch (BuisnessException ex) {
+            avance.error(fila, ex.getMessage());
+        }
+    }
+
+    /*
+    * Mismas validaciones que ClienteService.crear, en el mismo orden
+    *
+    * @throws BuisnessException con el motivo por el que la fila no se importa
+    * */
+    private FilaValida validar(Avance avance, long fila, List<String> campos, int columnas) {
+        if (campos.size() != columnas) {
+            throw new BuisnessException("La fila debe tener " + columnas + " columnas y tiene " + campos.size());
+        }
+        ClienteRequest request = ClienteRequest.builder()
+                .tipoIdentifiacion(tipoIdentificacion(valor(campos.get(0))))
+                .numeroIdentificacion(valor(campos.get(1)))
+                .nombres(valor(campos.get(2)))
+                .apellido(valor(campos.get(3)))
+                .correoElectronico(valor(campos.get(4)))
+                .fechaNacimiento(fechaNacimiento(valor(campos.get(5))))
+                .build();
+
+        Set<ConstraintViolation<ClienteRequest>> violaciones = validator.validate(request);
+        if (!violaciones.isEmpty()) {
+            throw new BuisnessException(violaciones.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        ClienteService.validarMayorDeEdad(ClienteMapper.aEntidad(request));
+
+        String numero = request.getNumeroIdentificacion();
+        String correo = request.getCorreoElectronico();
+        if (avance.identificaciones.contains(numero) || filtros.existeNumeroIdentificacion(numero)) {
+            throw ClienteService.identificacionDuplicada(numero);
+        }
+        if (avance.correos.contains(correo) || filtros.existeCorreoElectronico(correo)) {
+            throw ClienteService.correoDuplicado(correo);
+        }
+
+        TipoCuenta tipoCuenta = null;
+        boolean exentaGMF = false;
+        if (columnas > COLUMNAS_CLIENTE.size()) {
+            tipoCuenta = tipoCuenta(valor(campos.get(6)));
+            exentaGMF = exentaGMF(valor(campos.get(7)));
+        }
+        avance.identificaciones.add(numero);
+        avance.correos.add(correo);
+        return new FilaValida(fila, request, tipoCuenta, exentaGMF);
+    }
+
+    /*
+    * Guarda las filas validas pendientes y confirma hasta la fila indicada
+    *
+    * si la base de datos rechaza el lote, cada fila se guarda en su propia
+    * transaccion y las que rechace pasan al reporte de errores
+    * */
+    private void confirmar(Avance avance, long hasta, boolean ultima) {
+        List<FilaValida> filas = List.copyOf(avance.pendientes);
+        avance.pendientes.clear();
+        avance.identificaciones.clear();
+        avance.correos.clear();
+        try {
+            guardar(avance, hasta, filas, ultima);
+            return;
+        } catch (DataIntegrityViolationException ex) {
+            log.warn("La base de datos rechazo el lote de la importacion {} hasta la fila {}, se guarda fila por fila",
+                    avance.id, hasta);
+        }
+        for (FilaValida fila : filas) {
+            try {
+                guardar(avance, fila.numero(), List.of(fila), false);
+            } catch (DataIntegrityViolationException ex) {
+                avance.error(fila.numero(), motivoRechazo(avance, fila, ex));
+            }
+        }
+        guardar(avance, hasta, List.of(), ultima);
+    }
+
+    /*
+    * Mensaje de una fila que la base de datos rechazo; si no es un numero o un
+    * correo repetido el detalle solo va al log, no a la respuesta
+    * */
+    private static String motivoRechazo(Avance avance, FilaValida fila, DataIntegrityViolationException ex) {
+        String numero = fila.request().getNumeroIdentificacion();
+        String correo = fila.request().getCorreoElectronico();
+        try {
+            return ClienteService.traducirDuplicado(ex, numero, correo,
+                    ClienteService.mensajeCorreoDuplicado(correo)).getMessage();
+        } catch (DataIntegrityViolationException otra) {
+            log.warn("La base de datos rechazo la fila {} de la importacion {}", fila.numero(), avance.id,
+                    otra.getMostSpecificCause());
+            return "La base de datos rechazo la fila";
+        }
+    }
+
+    private void guardar(Avance avance, long hasta, List<FilaValida> filas, boolean ultima) {
+        long desde = avance.confirmadas;
+        long conCuenta = filas.stream().filter(fila -> fila.tipoCuenta() != null).count();
+        List<Cuenta> cuentas = escritura.execute(status -> {
+            if (importacionRepository.avanzar(avance.id, desde, hasta, filas.size(), conCuenta) == 0) {
+                throw new BuisnessException("La importacion " + avance.id + " la esta procesando otra peticion");
+            }
+            List<Cliente> clientes = new ArrayList<>(filas.size());
+            List<Cuenta> nuevas = new ArrayList<>();
+            for (FilaValida fila : filas) {
+                //entidades nuevas en cada intento: las de un lote revertido ya tienen id
+                Cliente cliente = ClienteMapper.aEntidad(fila.request());
+                clientes.add(cliente);
+                if (fila.tipoCuenta() != null) {
+                    nuevas.add(Cuenta.builder()
+                            .tipoCuenta(fila.tipoCuenta())
+                            .numeroCuenta(asignadorNumeros.siguiente(fila.tipoCuenta()))
+                            .estado(EstadoCuenta.ACTIVA)
+                            .saldo(BigDecimal.ZERO)
+                            .exentaGMF(fila.exentaGMF())
+                            .cliente(cliente)
+                            .build());
+                }
+            }
+            clienteRepository.saveAll(clientes);
+            cuentaRepository.saveAll(nuevas);
+            clienteRepository.flush();
+            if (ultima) {
+                importacionRepository.completar(avance.id, hasta);
+            }
+            //con open in view todos los lotes comparten el EntityManager de la
+            //peticion; sin limpiarlo cada flush revisaria los lotes anteriores
+            entityManager.clear();
+            return nuevas;
+        });
+
+        for (FilaValida fila : filas) {
+            filtros.registrarCliente(fila.request().getNumeroIdentificacion(), fila.request().getCorreoElectronico());
+        }
+        cuentas.forEach(cuenta -> filtros.registrarNumeroCuenta(cuenta.getNumeroCuenta()));
+        avance.confirmadas = hasta;
+        avance.clientes += filas.size();
+        avance.cuentas += cuentas.size();
+        creadas.increment(filas.size());
+    }
+
+    /*
+    * Separa una linea en campos; un campo entre comillas puede tener comas y
+    * comillas dobles escritas como "". No admite saltos de linea dentro de un campo
+    * */
+    static List<String> separar(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private static String valor(String campo) {
+        String valor = campo.trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    //acepta el nombre (CEDULA_CIUDADANIA) o el codigo (CC)
+    private static TipoIdentifiacion tipoIdentificacion(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        for (TipoIdentifiacion tipo : TipoIdentifiacion.values()) {
+            if (tipo.name().equalsIgnoreCase(valor) || tipo.getCodigo().equalsIgnoreCase(valor)) {
+                return tipo;
+            }
+        }
+        throw new BuisnessException("Tipo de identificacion invalido: " + valor);
+    }
+
+    private static LocalDate fechaNacimiento(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(valor);
+        } catch (DateTimeParseException ex) {
+            throw new BuisnessException("Fecha de nacimiento invalida, se espera AAAA-MM-DD: " + valor);
+        }
+    }
+
+    //sin valor la fila crea solo el cliente
+    private static TipoCuenta tipoCuenta(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return TipoCuenta.valueOf(valor.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new BuisnessException("Tipo de cuenta invalido: " + valor);
+        }
+    }
+
+    private static boolean exentaGMF(String valor) {
+        if (valor == null || valor.equalsIgnoreCase("false")) {
+            return false;
+        }
+        if (valor.equalsIgnoreCase("true")) {
+            return true;
+        }
+        throw new BuisnessException("exenta_gmf debe ser true o false: " + valor);
+    }
+
+    private static Counter filas(MeterRegistry registry, String resultado) {
+        return Counter.builder("finanzas.importacion.filas")
+                .description("Filas de importaciones de clientes por resultado")
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+
+    private record FilaValida(long numero, ClienteRequest request, TipoCuenta tipoCuenta, boolean exentaGMF) {
+    }
+
+    /*
+    * Estado de una peticion: filas confirmadas, lote pendiente y reporte
+    * */
+    private final class Avance {
+
+        private final String id;
+        private long confirmadas;
+        private long omitidas;
+        private long clientes;
+        private long cuentas;
+        private long conError;
+        private final int maximoErrores;
+        private final List<FilaValida> pendientes = new ArrayList<>();
+        private final Set<String> identificaciones = new HashSet<>();
+        private final Set<String> correos = new HashSet<>();
+        private final List<ErrorFilaImportacion> errores = new ArrayList<>();
+
+        private Avance(String id, long confirmadas, int maximoErrores) {
+            this.id = id;
+            this.confirmadas = confirmadas;
+            this.maximoErrores = maximoErrores;
+        }
+
+        private void error(long fila, String mensaje) {
+            if (errores.size() < maximoErrores) {
+                errores.add(new ErrorFilaImportacion(fila, mensaje));
+            }
+            conError++;
+            fallidas.increment();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.crudpractica.finanzastestproyec.Service;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoIngesta;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Infrastructure.ReintentoBloqueos;
+import com.crudpractica.finanzastestproyec.dto.request.LoteTransaccionRequest;
+import com.crudpractica.finanzastestproyec.dto.request.TransaccionRequest;
+import com.crudpractica.finanzastestproyec.dto.response.EstadoTransaccionAsincronaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.LoteTransaccionResponse;
+import com.crudpractica.finanzastestproyec.dto.response.ResultadoTransaccionLote;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Recepcion asincrona de transacciones
+ *
+ * las transacciones validadas se guardan en una cola acotada y se responde de
+ * inmediato con un id de seguimiento; un grupo pequeño de hilos vacia la cola
+ * en micro-lotes con TransaccionService.procesarLote (modo individual, cada
+ * transaccion se acepta o se rechaza por separado). Asi los picos se absorben
+ * en la cola y no en hilos de Tomcat esperando la base de datos.
+ *
+ * con la cola llena la transaccion no se acepta (el controlador responde 429).
+ * Al apagar la aplicacion se deja de recibir y se procesa lo que ya estaba en la cola;
+ * lo que no alcanza a procesarse en espera-apagado-ms queda FALLIDA con el motivo,
+ * para que el seguimiento no se quede en PENDIENTE una transaccion ya aceptada.
+ * */
+@Service
+@Slf4j
+public class IngestaAsincronaService {
+
+    private static final String ERROR_APAGADO = "La aplicacion se apago antes de procesar la transaccion";
+
+    private final TransaccionService transaccionService;
+    private final ReintentoBloqueos reintentoBloqueos;
+    private final FinanzasProperties.Ingesta configuracion;
+    private final BlockingQueue<SolicitudEncolada> cola;
+    private final Cache<String, EstadoTransaccionAsincronaResponse> estados;
+    private final Counter rechazadas;
+
+    private final List<Thread> trabajadores = new ArrayList<>();
+    private volatile boolean activo;
+
+    public IngestaAsincronaService(TransaccionService transaccionService, ReintentoBloqueos reintentoBloqueos,
+                                   FinanzasProperties propiedades, MeterRegistry registry) {
+        this.transaccionService = transaccionService;
+        this.reintentoBloqueos = reintentoBloqueos;
+        this.configuracion = propiedades.getIngesta();
+        this.cola = new ArrayBlockingQueue<>(configuracion.getCapacidadCola());
+        this.estados = Caffeine.newBuilder()
+                .maximumSize(configuracion.getMaximoEstados())
+                .expireAfterWrite(Duration.ofMinutes(configuracion.getRetencionEstadosMinutos()))
+                .build();
+        Gauge.builder("finanzas.ingesta.cola.pendientes", cola, BlockingQueue::size)
+                .description("Transacciones recibidas de forma asincrona que esperan ser procesadas")
+                .register(registry);
+        this.rechazadas = Counter.builder("finanzas.ingesta.cola.rechazadas")
+                .description("Transacciones no aceptadas porque la cola estaba llena")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        activo = true;
+        for (int i = 0; i < configuracion.getTrabajadores(); i++) {
+            Thread hilo = new Thread(this::vaciarCola, "ingesta-trabajador-" + i);
+            hilo.start();
+            trabajadores.add(hilo);
+        }
+    }
+
+    /*
+    * Encola una transaccion validada
+    *
+    * @param request transaccion a procesar
+    * @return estado PENDIENTE con el id de seguimiento, vacio si la cola esta llena
+    * */
+    public Optional<EstadoTransaccionAsincronaResponse> encolar(TransaccionRequest request) {
+        if (!activo) {
+            return Optional.empty();
+        }
+        EstadoTransaccionAsincronaResponse estado = EstadoTransaccionAsincronaResponse.builder()
+                .seguimientoId(UUID.randomUUID().toString())
+                .estado(EstadoIngesta.PENDIENTE)
+                .fechaRecepcion(LocalDateTime.now())
+                .build();
+        estados.put(estado.getSeguimientoId(), estado);
+        SolicitudEncolada solicitud = new SolicitudEncolada(estado, request);
+        if (!cola.offer(solicitud)) {
+            estados.invalidate(estado.getSeguimientoId());
+            rechazadas.increment();
+            return Optional.empty();
+        }
+        //si se apago mientras se encolaba puede que nadie la procese; se retira
+        //mientras siga en la cola, si ya no esta la tomo un trabajador o el apagado
+        if (!activo && cola.remove(solicitud)) {
+            estados.invalidate(estado.getSeguimientoId());
+            return Optional.empty();
+        }
+        return Optional.of(estado);
+    }
+
+    /*
+    * Consulta el estado de una transaccion recibida de forma asincrona
+    *
+    * @throws BuisnessException si el id no existe o su estado ya expiro
+    * */
+    public EstadoTransaccionAsincronaResponse consultarEstado(String seguimientoId) {
+        EstadoTransaccionAsincronaResponse estado = estados.getIfPresent(seguimientoId);
+        if (estado == null) {
+            throw new BuisnessException("Seguimiento no encontrado: " + seguimientoId);
+        }
+        return estado;
+    }
+
+    private void vaciarCola() {
+        List<SolicitudEncolada> lote = new ArrayList<>(configuracion.getTamanoMicroLote());
+        while (activo || !cola.isEmpty()) {
+            try {
+                SolicitudEncolada primera = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+                cola.drainTo(lote, configuracion.getTamanoMicroLote() - 1);
+                procesar(lote);
+                lote.clear();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void procesar(List<SolicitudEncolada> lote) {
+        LoteTransaccionRequest request = LoteTransaccionRequest.builder()
+                .todoONada(false)
+                .transacciones(lote.stream().map(SolicitudEncolada::request).toList())
+                .build();
+        LocalDateTime ahora;
+        try {
+            LoteTransaccionResponse response = reintentoBloqueos.ejecutar(() -> transaccionService.procesarLote(request));
+            ahora = LocalDateTime.now();
+            for (ResultadoTransaccionLote resultado : response.getResultados()) {
+                EstadoTransaccionAsincronaResponse recibido = lote.get(resultado.getIndice()).estado();
+                actualizar(recibido, resultado.getExitosa() ? EstadoIngesta.PROCESADA : EstadoIngesta.FALLIDA,
+                        resultado.getTransaccion(), resultado.getError(), ahora);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Error procesando micro-lote de {} transacciones asincronas", lote.size(), ex);
+            ahora = LocalDateTime.now();
+            for (SolicitudEncolada solicitud : lote) {
+                actualizar(solicitud.estado(), EstadoIngesta.FALLIDA, null, ex.getMessage(), ahora);
+            }
+        }
+    }
+
+    private void actualizar(EstadoTransaccionAsincronaResponse recibido, EstadoIngesta estado,
+                            TransaccionResponse transaccion,
+                            String error, LocalDateTime fechaProceso) {
+        estados.put(recibido.getSeguimientoId(), EstadoTransaccionAsincronaResponse.builder()
+                .seguimientoId(recibido.getSeguimientoId())
+                .estado(estado)
+                .fechaRecepcion(recibido.getFechaRecepcion())
+                .fechaProceso(fechaProceso)
+                .transaccion(transaccion)
+                .error(error)
+                .build());
+    }
+
+    /*
+    * Deja de recibir transacciones y espera a que los trabajadores vacien la cola
+    *
+    * las que siguen en la cola al terminar la espera se retiran y quedan FALLIDA,
+    * ya se habian aceptado con 202 y el cliente consulta su resultado por el id
+    * */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        activo = false;
+        long limite = System.currentTimeMillis() + configuracion.getEsperaApagadoMs();
+        for (Thread hilo : trabajadores) {
+            hilo.join(Math.max(1, limite - System.currentTimeMillis()));
+        }
+        List<SolicitudEncolada> sinProcesar = new ArrayList<>();
+        cola.drainTo(sinProcesar);
+        if (!sinProcesar.isEmpty()) {
+            log.warn("Se apago la recepcion asincrona con {} transacciones sin procesar, quedan fallidas", sinProcesar.size());
+            LocalDateTime ahora = LocalDateTime.now();
+            for (SolicitudEncolada solicitud : sinProcesar) {
+                actualizar(solicitud.estado(), EstadoIngesta.FALLIDA, null, ERROR_APAGADO, ahora);
+            }
+        }
+    }
+
+    private record SolicitudEncolada(EstadoTransaccionAsincronaResponse estado, TransaccionRequest request) {
+    }
+}
@@ -0,0 +1,284 @@
+package com.crudpractica.finanzastestproyec.Service;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Ledger.AsignadorIdsTransaccion;
+import com.crudpractica.finanzastestproyec.Repository.ParticionInteresesRepository;
+import com.crudpractica.finanzastestproyec.dto.response.LiquidacionInteresesResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+* Liquidacion diaria de intereses de las cuentas de ahorro activas
+*
+* las cuentas se dividen en particiones por rango de id (ids-por-particion
+* ids cada una) y un grupo de trabajadores liquida varias particiones al
+* mismo tiempo. Cada particion se liquida en una sola transaccion: se leen
+* los saldos, los intereses se acreditan con un UPDATE por lotes JDBC
+* (saldo = saldo + interes, asi un debito concurrente nunca se pierde) y las
+* consignaciones se insertan por lotes con ids de AsignadorIdsTransaccion.
+* Las cuentas se actualizan en orden ascendente de id, el mismo orden de
+* bloqueo del resto de la aplicacion.
+*
+* en la misma transaccion se inserta la fila de la particion en
+* intereses_particiones: si la liquidacion se interrumpe basta repetirla con
+* la misma fecha de corte, las particiones confirmadas se omiten y nunca se
+* acreditan dos veces.
+*
+* con el motor de ledger habilitado los saldos viven en memoria y no se
+* pueden actualizar con SQL, por eso la liquidacion no esta disponible
+*
+* metricas: finanzas.intereses.particion (tiempo por particion) y finanzas.intereses.cuentas
+* */
+@Service
+@Slf4j
+public class LiquidacionInteresesService {
+
+    static final String DESCRIPCION = "Intereses cuenta de ahorro ";
+
+    private static final String RANGO_IDS = "SELECT MIN(id), MAX(id) FROM cuentas " +
+            "WHERE tipo_cuenta = ? AND estado = ?";
+    private static final String SALDOS_PARTICION = "SELECT id, saldo FROM cuentas " +
+            "WHERE id BETWEEN ? AND ? AND tipo_cuenta = ? AND estado = ? AND saldo > 0 ORDER BY id";
+    private static final String ACREDITAR = "UPDATE cuentas SET saldo = saldo + ?, fecha_modificacion = ? WHERE id = ?";
+    private static final String INSERTAR_TRANSACCION = "INSERT INTO trasacciones " +
+            "(id, tipo_transaccion, monto, fecha, descripcion, cuenta_origen_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ParticionInteresesRepository particionRepository;
+    private final AsignadorIdsTransaccion asignadorIds;
+    private final ActividadRecienteService actividadReciente;
+    private final FinanzasProperties propiedades;
+    private final TransactionTemplate escritura;
+    private final Timer tiempoParticion;
+    private final Counter cuentasAcreditadas;
+
+    public LiquidacionInteresesService(JdbcTemplate jdbcTemplate, ParticionInteresesRepository particionRepository,
+                                       AsignadorIdsTransaccion asignadorIds,
+                                       ActividadRecienteService actividadReciente, FinanzasProperties propiedades,
+                                       MeterRegistry registry, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.particionRepository = particionRepository;
+        this.asignadorIds = asignadorIds;
+        this.actividadReciente = actividadReciente;
+        this.propiedades = propiedades;
+        this.escritura = new TransactionTemplate(transactionManager);
+        this.tiempoParticion = Timer.builder("finanzas.intereses.particion")
+                .description("Tiempo de liquidacion de una particion de cuentas de ahorro")
+                .register(registry);
+        this.cuentasAcreditadas = Counter.builder("finanzas.intereses.cuentas")
+                .description("Cuentas de ahorro con intereses acreditados")
+                .register(registry);
+    }
+
+    /*
+    * Liquidacion programada (finanzas.intereses.cron) de los intereses del dia anterior
+    * */
+    @Scheduled(cron = "${finanzas.intereses.cron:-}")
+    public void liquidarDiaAnterior() {
+        LiquidacionInteresesResponse resultado = liquidar(LocalDate.now().minusDays(1));
+        if (resultado.getParticionesFallidas() > 0) {
+            log.error("Liquidacion de intereses del {} con {} particiones fallidas, se deben liquidar de nuevo",
+                    resultado.getFechaCorte(), resultado.getParticionesFallidas());
+        }
+    }
+
+    /*
+    * Liquida un dia de intereses sobre el saldo de las cuentas de ahorro activas
+    *
+    * @param fechaCorte dia liquidado; repetir la fecha solo liquida las particiones pendientes
+    * @return particiones liquidadas, omitidas y fallidas, cuentas e intereses acreditados
+    * @throws BuisnessException si la fecha es futura, el ledger esta habilitado o la
+    *         fecha ya se liquido a medias con otro tamaño de particion
+    * */
+    public LiquidacionInteresesResponse liquidar(LocalDate fechaCorte) {
+        if (propiedades.getLedger().isHabilitado()) {
+            throw new BuisnessException("La liquidación de intereses no está disponible con el motor de ledger habilitado");
+        }
+        if (fechaCorte.isAfter(LocalDate.now())) {
+            throw new BuisnessException("La fecha de corte no puede ser futura");
+        }
+        FinanzasProperties.Intereses configuracion = propiedades.getIntereses();
+        long idsPorParticion = configuracion.getIdsPorParticion();
+        //con otro tamaño los rangos se cruzarian con los ya liquidados
+        for (Long anterior : particionRepository.buscarIdsPorParticion(fechaCorte)) {
+            if (anterior != idsPorParticion) {
+                throw new BuisnessException("La liquidación del " + fechaCorte + " se inició con particiones de "
+                        + anterior + " ids, no se puede continuar con " + idsPorParticion);
+            }
+        }
+
+        List<Particion> particiones = particionar(fechaCorte, idsPorParticion);
+        Set<String> liquidadas = particionRepository.buscarIdsPorFechaCorte(fechaCorte);
+        List<Particion> pendientes = particiones.stream()
+                .filter(particion -> !liquidadas.contains(particion.id()))
+                .toList();
+        log.info("Liquidacion de intereses del {}: {} particiones, {} ya liquidadas",
+                fechaCorte, particiones.size(), particiones.size() - pendientes.size());
+
+        BigDecimal tasaDiaria = configuracion.tasaDiaria();
+        Totales totales = new Totales();
+        totales.omitidas = particiones.size() - pendientes.size();
+        if (!pendientes.isEmpty()) {
+            ejecutar(pendientes, tasaDiaria, Math.min(configuracion.getTrabajadores(), pendientes.size()), totales);
+        }
+        log.info("Liquidacion de intereses del {} terminada: {} cuentas, ${}, {} particiones fallidas",
+                fechaCorte, totales.cuentas, totales.intereses, totales.fallidas);
+
+        return LiquidacionInteresesResponse.builder()
+                .fechaCorte(fechaCorte)
+                .particiones(particiones.size())
+                .particionesOmitidas(totales.omitidas)
+                .particionesFallidas(totales.fallidas)
+                .cuentasAcreditadas(totales.cuentas)
+                .intereses(totales.intereses)
+                .build();
+    }
+
+    /*
+    * Rangos de ids alineados a multiplos de idsPorParticion, iguales en cada
+    * ejecucion, entre el menor y el mayor id de las cuentas a liquidar
+    * */
+    private List<Particion> particionar(LocalDate fechaCorte, long idsPorParticion) {
+        Long[] rango = jdbcTemplate.queryForObject(RANGO_IDS,
+                (rs, fila) -> new Long[]{rs.getObject(1, Long.class), rs.getObject(2, Long.class)},
+                TipoCuenta.AHORRO.name(), EstadoCuenta.ACTIVA.name());
+        List<Particion> particiones = new ArrayList<>();
+        if (rango == null || rango[0] == null) {
+            return particiones;
+        }
+        for (long indice = (rango[0] - 1) / idsPorParticion; indice <= (rango[1] - 1) / idsPorParticion; indice++) {
+            long desde = indice * idsPorParticion + 1;
+            particiones.add(new Particion(fechaCorte + "/" + desde, fechaCorte, desde, desde + idsPorParticion - 1));
+        }
+        return particiones;
+    }
+
+    private void ejecutar(List<Particion> pendientes, BigDecimal tasaDiaria, int hilos, Totales totales) {
+        AtomicInteger numero = new AtomicInteger();
+        ExecutorService trabajadores = Executors.newFixedThreadPool(hilos,
+                tarea -> new Thread(tarea, "intereses-trabajador-" + numero.getAndIncrement()));
+        try {
+            List<Future<Resultado>> resultados = new ArrayList<>(pendientes.size());
+            for (Particion particion : pendientes) {
+                resultados.add(trabajadores.submit(() -> tiempoParticion.recordCallable(
+                        () -> liquidarParticion(particion, tasaDiaria))));
+            }
+            for (int i = 0; i < resultados.size(); i++) {
+                try {
+                    Resultado resultado = resultados.get(i).get();
+                    if (resultado == null) {
+                        totales.omitidas++;
+                    } else {
+                        totales.cuentas += resultado.cuentas();
+                        cuentasAcreditadas.increment(resultado.cuentas());
+                        totales.intereses = totales.intereses.add(resultado.intereses());
+                    }
+                } catch (ExecutionException ex) {
+                    //la particion no quedo marcada, se liquida al repetir la fecha
+                    log.error("Error liquidando intereses de la particion {}", pendientes.get(i).id(), ex.getCause());
+                    totales.fallidas++;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Liquidacion de intereses interrumpida", ex);
+        } finally {
+            trabajadores.shutdownNow();
+        }
+    }
+
+    /*
+    * Liquida una particion en una transaccion
+    *
+    * @return cuentas e intereses acreditados, null si otra liquidacion ya la liquido
+    * */
+    private Resultado liquidarParticion(Particion particion, BigDecimal tasaDiaria) {
+        return escritura.execute(status -> {
+            try {
+                particionRepository.crear(particion.id(), particion.fechaCorte(), particion.desde(), particion.hasta());
+            } catch (DataIntegrityViolationException ex) {
+                log.debug("La particion {} ya la liquido otra ejecucion", particion.id());
+                status.setRollbackOnly();
+                return null;
+            }
+
+            List<Acreditacion> acreditaciones = jdbcTemplate.query(SALDOS_PARTICION,
+                            (rs, fila) -> new Acreditacion(rs.getLong(1),
+                                    rs.getBigDecimal(2).multiply(tasaDiaria).setScale(2, RoundingMode.HALF_UP)),
+                            particion.desde(), particion.hasta(), TipoCuenta.AHORRO.name(), EstadoCuenta.ACTIVA.name())
+                    .stream()
+                    .filter(acreditacion -> acreditacion.interes().signum() > 0)
+                    .toList();
+
+            int tamanoLote = propiedades.getIntereses().getTamanoLote();
+            Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+            String descripcion = DESCRIPCION + particion.fechaCorte();
+            jdbcTemplate.batchUpdate(ACREDITAR, acreditaciones, tamanoLote, (ps, acreditacion) -> {
+                ps.setBigDecimal(1, acreditacion.interes());
+                ps.setTimestamp(2, ahora);
+                ps.setLong(3, acreditacion.cuentaId());
+            });
+            jdbcTemplate.batchUpdate(INSERTAR_TRANSACCION, acreditaciones, tamanoLote, (ps, acreditacion) -> {
+                ps.setLong(1, asignadorIds.siguiente());
+                ps.setString(2, TipoTrasaccion.CONSIGNACION.name());
+                ps.setBigDecimal(3, acreditacion.interes());
+                ps.setTimestamp(4, ahora);
+                ps.setString(5, descripcion);
+                ps.setLong(6, acreditacion.cuentaId());
+            });
+
+            BigDecimal intereses = acreditaciones.stream()
+                    .map(Acreditacion::interes)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            particionRepository.registrarTotales(particion.id(), acreditaciones.size(), intereses);
+            actividadReciente.descartar(acreditaciones.stream().map(Acreditacion::cuentaId).toList());
+            log.debug("Particion {} liquidada: {} cuentas, ${}", particion.id(), acreditaciones.size(), intereses);
+            return new Resultado(acreditaciones.size(), intereses);
+        });
+    }
+
+    private record Particion(String id, LocalDate fechaCorte, long desde, long hasta) {
+    }
+
+    private record Acreditacion(long cuentaId, BigDecimal interes) {
+    }
+
+    private record Resultado(long cuentas, BigDecimal intereses) {
+    }
+
+    /*
+    * Totales de la ejecucion, solo los modifica el hilo que la inicio
+    * */
+    private static final class Totales {
+        private int omitidas;
+        private int fallidas;
+        private long cuentas;
+        private BigDecimal intereses = BigDecimal.ZERO;
+    }
+}
@@ -1,21 +1,37 @@
 package com.crudpractica.finanzastestproyec.Service;
 
+import com.crudpractica.finanzastestproyec.Enums.ModoBloqueoTransferencia;
 import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
 import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Ledger.MotorLedger;
+import com.crudpractica.finanzastestproyec.Ledger.MovimientoLedger;
+import com.crudpractica.finanzastestproyec.Mapper.TransaccionMapper;
 import com.crudpractica.finanzastestproyec.Model.Cuenta;
 import com.crudpractica.finanzastestproyec.Model.Transaccion;
 import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
 import com.crudpractica.finanzastestproyec.Repository.TransaccionRepository;
+import com.crudpractica.finanzastestproyec.dto.request.LoteTransaccionRequest;
 import com.crudpractica.finanzastestproyec.dto.request.TransaccionRequest;
+import com.crudpractica.finanzastestproyec.dto.response.DatosCuenta;
+import com.crudpractica.finanzastestproyec.dto.response.LoteTransaccionResponse;
+import com.crudpractica.finanzastestproyec.dto.response.PaginaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.ResultadoTransaccionLote;
 import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,113 +39,583 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TransaccionService {
 
+    //descripcion del movimiento con el que se cobra el GMF de una transaccion
+    static final String DESCRIPCION_GMF = "GMF 4x1000 transaccion ";
+
     private final TransaccionRepository transaccionRepository;
     private final CuentaRepository cuentaRepository;
-    private final ModelMapper modelMapper;
+    private final FinanzasProperties propiedades;
+    private final MotorLedger motorLedger;
+    private final IdempotenciaService idempotenciaService;
+    private final ActividadRecienteService actividadReciente;
+    private final CacheCuentasService cacheCuentas;
+    private final GmfService gmfService;
 
     @Transactional
     public TransaccionResponse crear(TransaccionRequest request) {
         log.info("Creando transacción tipo: {}", request.getTipoTransaccion());
 
-        Cuenta cuentaOrigen = cuentaRepository.findById(request.getCuentaOrigenId())
+        if (motorLedger.estaHabilitado()) {
+            return crearEnLedger(request);
+        }
+
+        if (request.getTipoTransaccion() == TipoTrasaccion.TRANSFERENCIA
+                && propiedades.getTransferencias().getModoBloqueo() == ModoBloqueoTransferencia.ORDENADO) {
+            return crearTransferenciaConBloqueoOrdenado(request);
+        }
+
+        //numero, estado y existencia salen de la cache de cuentas; el saldo lo
+        //validan las actualizaciones condicionales contra la base de datos
+        DatosCuenta cuentaOrigen = cacheCuentas.buscarPorId(request.getCuentaOrigenId())
                 .orElseThrow(() -> new BuisnessException("Cuenta origen no encontrada"));
 
         if (!cuentaOrigen.estaActiva()) {
             throw new BuisnessException("La cuenta origen no está activa");
         }
 
-        Transaccion transaccion = new Transaccion();
-        transaccion.setTipoTrasaccion(request.getTipoTransaccion());
-        transaccion.setMonto(request.getMonto());
-        transaccion.setDescripcion(request.getDescripcion());
-        transaccion.setCuentaOrigen(cuentaOrigen);
+        //los debitos pagan el GMF de la cuenta origen; se liquida despues de las
+        //validaciones y se cobra en el mismo UPDATE condicional del monto
+        DatosCuenta cuentaDestino = null;
+        BigDecimal gmf = BigDecimal.ZERO;
 
         switch (request.getTipoTransaccion()) {
             case CONSIGNACION:
                 procesarConsignacion(cuentaOrigen, request.getMonto());
                 break;
             case RETIRO:
-                procesarRetiro(cuentaOrigen, request.getMonto());
+                gmf = gmfService.liquidar(cuentaOrigen.getClienteId(), cuentaOrigen.getExentaGMF(), request.getMonto());
+                procesarRetiro(cuentaOrigen, request.getMonto(), gmf);
                 break;
             case TRANSFERENCIA:
                 if (request.getCuentaDestinoId() == null) {
                     throw new BuisnessException("Se requiere cuenta destino para transferencias");
                 }
-                Cuenta cuentaDestino = cuentaRepository.findById(request.getCuentaDestinoId())
+                cuentaDestino = cacheCuentas.buscarPorId(request.getCuentaDestinoId())
                         .orElseThrow(() -> new BuisnessException("Cuenta destino no encontrada"));
-                procesarTransferencia(cuentaOrigen, cuentaDestino, request.getMonto());
-                transaccion.setCuentaDestino(cuentaDestino);
+                if (cuentaOrigen.getId().equals(cuentaDestino.getId())) {
+                    throw new BuisnessException("No se puede transferir a la misma cuenta");
+                }
+                if (!cuentaDestino.estaActiva()) {
+                    throw new BuisnessException("La cuenta destino no está activa");
+                }
+                gmf = gmfService.liquidar(cuentaOrigen.getClienteId(), cuentaOrigen.getExentaGMF(), request.getMonto());
+                procesarTransferencia(cuentaOrigen, cuentaDestino, request.getMonto(), gmf);
                 break;
+            case GMF:
+                throw gmfNoSolicitable();
+        }
+
+        TransaccionResponse response = guardarTransaccion(request, cuentaOrigen, cuentaDestino);
+        registrarGmf(response.getId(), cuentaOrigen.getId(), cuentaOrigen.getNumeroCuenta(), gmf);
+        return response;
+    }
+
+    /*
+    * Crea la transaccion y guarda la clave de idempotencia en la misma
+    * transaccion de base de datos, asi no puede quedar una sin la otra
+    *
+    * @param request datos de la transaccion
+    * @param claveIdempotencia valor de la cabecera Idempotency-Key
+    * @return transaccion creada
+    * */
+    @Transactional
+    public TransaccionResponse crear(TransaccionRequest request, String claveIdempotencia) {
+        TransaccionResponse response = crear(request);
+        idempotenciaService.registrar(claveIdempotencia, request, response);
+        return response;
+    }
+
+    /*
+    * Transferencia en modo de bloqueo ORDENADO
+    *
+    * ambas cuentas se bloquean con SELECT ... FOR UPDATE siempre en orden
+    * ascendente de id, asi dos transferencias opuestas (A->B y B->A) piden
+    * los bloqueos en el mismo orden y nunca quedan en deadlock. Con las filas
+    * bloqueadas el saldo se valida y modifica sobre las entidades.
+    * */
+    private TransaccionResponse crearTransferenciaConBloqueoOrdenado(TransaccionRequest request) {
+        Long origenId = request.getCuentaOrigenId();
+        Long destinoId = request.getCuentaDestinoId();
+        if (destinoId == null) {
+            throw new BuisnessException("Se requiere cuenta destino para transferencias");
+        }
+        if (origenId.equals(destinoId)) {
+            throw new BuisnessException("No se puede transferir a la misma cuenta");
+        }
+
+        Cuenta primera = bloquearCuenta(Math.min(origenId, destinoId));
+        Cuenta segunda = bloquearCuenta(Math.max(origenId, destinoId));
+        Cuenta origen = primera.getId().equals(origenId) ? primera : segunda;
+        Cuenta destino = origen == primera ? segunda : primera;
+
+        if (!origen.estaActiva()) {
+            throw new BuisnessException("La cuenta origen no está activa");
+        }
+        if (!destino.estaActiva()) {
+            throw new BuisnessException("La cuenta destino no está activa");
+        }
+        BigDecimal gmf = gmfService.liquidar(origen.getCliente().getId(), origen.getExentaGMF(), request.getMonto());
+        if (origen.getSaldo().compareTo(request.getMonto().add(gmf)) < 0) {
+            throw new BuisnessException("Saldo insuficiente en cuenta origen");
+        }
+        origen.disminuirSaldo(request.getMonto().add(gmf));
+        destino.incrementarSaldo(request.getMonto());
+        cuentaRepository.save(origen);
+        cuentaRepository.save(destino);
+        log.info("Transferencia exitosa (bloqueo ordenado): ${} de {} a {}",
+                request.getMonto(), origen.getNumeroCuenta(), destino.getNumeroCuenta());
+
+        TransaccionResponse response = guardarTransaccion(request, origen, destino);
+        registrarGmf(response.getId(), origen.getId(), origen.getNumeroCuenta(), gmf);
+        return response;
+    }
+
+    /*
+    * Transaccion con el motor de ledger habilitado
+    *
+    * las cuentas se validan contra la base de datos (existencia y estado) y el
+    * saldo lo controla el motor en memoria; la transaccion y los saldos se
+    * persisten de forma asincrona en lotes. El GMF se liquida aqui y el motor
+    * lo descuenta en el mismo comando que el monto.
+    *
+    * el debito no se confirma con la transaccion de esta peticion, por eso el
+    * acumulado del GMF se confirma aparte y se ajusta con el resultado del
+    * motor: se revierte solo si el motor rechaza el movimiento, aunque la
+    * respuesta llegue despues de agotar la espera, y no si falla el fsync
+    * del journal despues de aplicarlo
+    * */
+    private TransaccionResponse crearEnLedger(TransaccionRequest request) {
+        if (request.getTipoTransaccion() == TipoTrasaccion.GMF) {
+            throw gmfNoSolicitable();
+        }
+        DatosCuenta cuentaOrigen = cacheCuentas.buscarPorId(request.getCuentaOrigenId())
+                .orElseThrow(() -> new BuisnessException("Cuenta origen no encontrada"));
+        if (!cuentaOrigen.estaActiva()) {
+            throw new BuisnessException("La cuenta origen no está activa");
+        }
+
+        DatosCuenta cuentaDestino = null;
+        if (request.getTipoTransaccion() == TipoTrasaccion.TRANSFERENCIA) {
+            if (request.getCuentaDestinoId() == null) {
+                throw new BuisnessException("Se requiere cuenta destino para transferencias");
+            }
+            if (request.getCuentaOrigenId().equals(request.getCuentaDestinoId())) {
+                throw new BuisnessException("No se puede transferir a la misma cuenta");
+            }
+            cuentaDestino = cacheCuentas.buscarPorId(request.getCuentaDestinoId())
+                    .orElseThrow(() -> new BuisnessException("Cuenta destino no encontrada"));
+            if (!cuentaDestino.estaActiva()) {
+                throw new BuisnessException("La cuenta destino no está activa");
+            }
+        }
+
+        boolean debito = request.getTipoTransaccion() != TipoTrasaccion.CONSIGNACION;
+        BigDecimal gmf = debito ? gmfService.liquidarEnTransaccionPropia(cuentaOrigen.getClienteId(),
+                cuentaOrigen.getExentaGMF(), request.getMonto()) : BigDecimal.ZERO;
+        CompletableFuture<MovimientoLedger> envio = motorLedger.enviar(request.getTipoTransaccion(),
+                cuentaOrigen.getId(), cuentaDestino != null ? cuentaDestino.getId() : null,
+                request.getMonto(), request.getDescripcion(), new MotorLedger.Gravamen(gmf, DESCRIPCION_GMF));
+        MovimientoLedger movimiento;
+        try {
+            movimiento = motorLedger.esperar(envio);
+        } finally {
+            if (debito) {
+                revertirGmfSiSeRechaza(envio, cuentaOrigen, request.getMonto());
+            }
+        }
+        log.info("Transacción registrada en ledger ID: {}", movimiento.getId());
+
+        TransaccionResponse response = TransaccionResponse.builder()
+                .id(movimiento.getId())
+                .tipoTransaccion(movimiento.getTipoTransaccion())
+                .monto(movimiento.getMonto())
+                .fecha(movimiento.getFecha())
+                .descripcion(movimiento.getDescripcion())
+                .numeroCuentaOrigen(cuentaOrigen.getNumeroCuenta())
+                .numeroCuentaDestino(cuentaDestino != null ? cuentaDestino.getNumeroCuenta() : null)
+                .build();
+        actividadReciente.registrar(movimiento.getCuentaOrigenId(), movimiento.getCuentaDestinoId(), response);
+
+        MovimientoLedger gravamen = movimiento.getGravamen();
+        if (gravamen != null) {
+            log.info("GMF de ${} cobrado a la cuenta {} por la transaccion {}",
+                    gravamen.getMonto(), cuentaOrigen.getNumeroCuenta(), movimiento.getId());
+            actividadReciente.registrar(gravamen.getCuentaOrigenId(), null, TransaccionResponse.builder()
+                    .id(gravamen.getId())
+                    .tipoTransaccion(gravamen.getTipoTransaccion())
+                    .monto(gravamen.getMonto())
+                    .fecha(gravamen.getFecha())
+                    .descripcion(gravamen.getDescripcion())
+                    .numeroCuentaOrigen(cuentaOrigen.getNumeroCuenta())
+                    .build());
+        }
+        return response;
+    }
+
+    /*
+    * Revierte el acumulado del GMF cuando el motor termina sin aplicar el
+    * movimiento; si todavia no termino se hace al terminar, fuera del hilo
+    * del shard que completa el futuro
+    * */
+    private void revertirGmfSiSeRechaza(CompletableFuture<MovimientoLedger> envio, DatosCuenta cuentaOrigen,
+                                        BigDecimal monto) {
+        BiConsumer<MovimientoLedger, Throwable> ajuste = (movimiento, error) -> {
+            if (error == null || MotorLedger.seAplico(error)) {
+                return;
+            }
+            try {
+                gmfService.revertirEnTransaccionPropia(cuentaOrigen.getClienteId(), cuentaOrigen.getExentaGMF(), monto);
+            } catch (RuntimeException ex) {
+                log.error("No se pudo revertir el acumulado de GMF del cliente {} por ${}",
+                        cuentaOrigen.getClienteId(), monto, ex);
+            }
+        };
+        if (envio.isDone()) {
+            envio.whenComplete(ajuste);
+        } else {
+            envio.whenCompleteAsync(ajuste);
+        }
+    }
+
+    //el GMF lo genera el sistema con cada debito
+    private static BuisnessException gmfNoSolicitable() {
+        return new BuisnessException("Las transacciones de tipo GMF las genera el sistema, no se pueden solicitar");
+    }
+
+    private Cuenta bloquearCuenta(Long cuentaId) {
+        return cuentaRepository.bloquearPorId(cuentaId)
+                .orElseThrow(() -> new BuisnessException("Cuenta no encontrada con ID: " + cuentaId));
+    }
+
+    /*
+    * Guarda la transaccion de una cuenta tomada de la cache
+    *
+    * las cuentas se asignan como referencias (getReferenceById) y la
+    * respuesta se arma con los numeros de la cache, asi no se consulta la
+    * tabla de cuentas para guardar la transaccion
+    * */
+    private TransaccionResponse guardarTransaccion(TransaccionRequest request, DatosCuenta cuentaOrigen, DatosCuenta cuentaDestino) {
+        Transaccion transaccion = new Transaccion();
+        transaccion.setTipoTrasaccion(request.getTipoTransaccion());
+        transaccion.setMonto(request.getMonto());
+        transaccion.setDescripcion(request.getDescripcion());
+        transaccion.setCuentaOrigen(cuentaRepository.getReferenceById(cuentaOrigen.getId()));
+        if (cuentaDestino != null) {
+            transaccion.setCuentaDestino(cuentaRepository.getReferenceById(cuentaDestino.getId()));
         }
 
         Transaccion transaccionGuardada = transaccionRepository.save(transaccion);
         log.info("Transacción creada ID: {}", transaccionGuardada.getId());
 
-        return convertirAResponse(transaccionGuardada);
+        TransaccionResponse response = TransaccionResponse.builder()
+                .id(transaccionGuardada.getId())
+                .tipoTransaccion(transaccionGuardada.getTipoTrasaccion())
+                .monto(transaccionGuardada.getMonto())
+                .fecha(transaccionGuardada.getFecha())
+                .descripcion(transaccionGuardada.getDescripcion())
+                .numeroCuentaOrigen(cuentaOrigen.getNumeroCuenta())
+                .numeroCuentaDestino(cuentaDestino != null ? cuentaDestino.getNumeroCuenta() : null)
+                .build();
+        actividadReciente.registrar(cuentaOrigen.getId(), cuentaDestino != null ? cuentaDestino.getId() : null, response);
+        return response;
     }
 
-    private void procesarConsignacion(Cuenta cuenta, BigDecimal monto) {
-        cuenta.incrementarSaldo(monto);
-        cuentaRepository.save(cuenta);
-        log.info("Consignación exitosa: ${} a cuenta {}", monto, cuenta.getNumeroCuenta());
+    private TransaccionResponse guardarTransaccion(TransaccionRequest request, Cuenta cuentaOrigen, Cuenta cuentaDestino) {
+        Transaccion transaccion = new Transaccion();
+        transaccion.setTipoTrasaccion(request.getTipoTransaccion());
+        transaccion.setMonto(request.getMonto());
+        transaccion.setDescripcion(request.getDescripcion());
+        transaccion.setCuentaOrigen(cuentaOrigen);
+        transaccion.setCuentaDestino(cuentaDestino);
+
+        Transaccion transaccionGuardada = transaccionRepository.save(transaccion);
+        log.info("Transacción creada ID: {}", transaccionGuardada.getId());
+
+        return registrarActividad(transaccionGuardada, convertirAResponse(transaccionGuardada));
     }
 
-    private void procesarRetiro(Cuenta cuenta, BigDecimal monto) {
-        if (!cuenta.estaActiva()) {
-            throw new BuisnessException("No se puede retirar de una cuenta inactiva");
+    /*
+    * Registra el GMF cobrado como una transaccion de tipo GMF de la cuenta
+    * origen, con la transaccion que lo genero en la descripcion; el saldo ya
+    * se debito junto con el monto
+    * */
+    private void registrarGmf(Long transaccionId, Long cuentaOrigenId, String numeroCuentaOrigen, BigDecimal gmf) {
+        if (gmf.signum() == 0) {
+            return;
         }
-        if (cuenta.getSaldo().compareTo(monto) < 0) {
+        Transaccion gravamen = new Transaccion();
+        gravamen.setTipoTrasaccion(TipoTrasaccion.GMF);
+        gravamen.setMonto(gmf);
+        gravamen.setDescripcion(DESCRIPCION_GMF + transaccionId);
+        gravamen.setCuentaOrigen(cuentaRepository.getReferenceById(cuentaOrigenId));
+
+        Transaccion gravamenGuardado = transaccionRepository.save(gravamen);
+        log.info("GMF de ${} cobrado a la cuenta {} por la transaccion {}", gmf, numeroCuentaOrigen, transaccionId);
+
+        actividadReciente.registrar(cuentaOrigenId, null, TransaccionResponse.builder()
+                .id(gravamenGuardado.getId())
+                .tipoTransaccion(gravamenGuardado.getTipoTrasaccion())
+                .monto(gravamenGuardado.getMonto())
+                .fecha(gravamenGuardado.getFecha())
+                .descripcion(gravamenGuardado.getDescripcion())
+                .numeroCuentaOrigen(numeroCuentaOrigen)
+                .build());
+    }
+
+    private TransaccionResponse registrarActividad(Transaccion transaccion, TransaccionResponse response) {
+        actividadReciente.registrar(transaccion.getCuentaOrigen().getId(),
+                transaccion.getCuentaDestino() != null ? transaccion.getCuentaDestino().getId() : null, response);
+        return response;
+    }
+
+    /*
+    * Los saldos se modifican con sentencias UPDATE condicionales en lugar de
+    * leer, modificar y guardar la entidad, asi los movimientos concurrentes
+    * sobre la misma cuenta no se pisan entre si
+    * */
+    private void procesarConsignacion(DatosCuenta cuenta, BigDecimal monto) {
+        cuentaRepository.acreditarSaldo(cuenta.getId(), monto);
+        log.info("Consignación exitosa: ${} a cuenta {}", monto, cuenta.getNumeroCuenta());
+    }
+
+    /*
+    * el monto y el GMF se debitan con la misma sentencia: si el saldo no
+    * alcanza para ambos el retiro se rechaza
+    * */
+    private void procesarRetiro(DatosCuenta cuenta, BigDecimal monto, BigDecimal gmf) {
+        if (cuentaRepository.debitarSaldo(cuenta.getId(), monto.add(gmf)) == 0) {
             throw new BuisnessException("Saldo insuficiente");
         }
-        cuenta.disminuirSaldo(monto);
-        cuentaRepository.save(cuenta);
         log.info("Retiro exitoso: ${} de cuenta {}", monto, cuenta.getNumeroCuenta());
     }
 
-    private void procesarTransferencia(Cuenta origen, Cuenta destino, BigDecimal monto) {
-        if (origen.getId().equals(destino.getId())) {
-            throw new BuisnessException("No se puede transferir a la misma cuenta");
-        }
-        if (!destino.estaActiva()) {
-            throw new BuisnessException("La cuenta destino no está activa");
+    private void procesarTransferencia(DatosCuenta origen, DatosCuenta destino, BigDecimal monto, BigDecimal gmf) {
+        //las filas se actualizan en orden ascendente de id para no provocar
+        //deadlocks con una transferencia en sentido contrario; si el debito
+        //falla la excepcion revierte el credito ya aplicado
+        boolean destinoPrimero = destino.getId() < origen.getId();
+        if (destinoPrimero) {
+            cuentaRepository.acreditarSaldo(destino.getId(), monto);
         }
-        if (origen.getSaldo().compareTo(monto) < 0) {
+        if (cuentaRepository.debitarSaldo(origen.getId(), monto.add(gmf)) == 0) {
             throw new BuisnessException("Saldo insuficiente en cuenta origen");
         }
-        origen.disminuirSaldo(monto);
-        destino.incrementarSaldo(monto);
-        cuentaRepository.save(origen);
-        cuentaRepository.save(destino);
+        if (!destinoPrimero) {
+            cuentaRepository.acreditarSaldo(destino.getId(), monto);
+        }
         log.info("Transferencia exitosa: ${} de {} a {}", monto, origen.getNumeroCuenta(), destino.getNumeroCuenta());
     }
 
+    /*
+    * Procesa un lote de transacciones en una sola transaccion de base de datos
+    *
+    * todas las cuentas referenciadas se cargan y bloquean con una sola consulta,
+    * los movimientos se validan y aplican en memoria en el orden recibido y
+    * al final los saldos y las transacciones se escriben con batching JDBC.
+    * Los retiros y transferencias pagan el GMF igual que en crear
+    *
+    * @param request lote de transacciones y modo (todo o nada / individual)
+    * @return resultado por cada transaccion del lote
+    * @throws BuisnessException si el lote es todo o nada y alguna transaccion falla
+    * */
+    @Transactional
+    public LoteTransaccionResponse procesarLote(LoteTransaccionRequest request) {
+        List<TransaccionRequest> items = request.getTransacciones();
+        boolean todoONada = !Boolean.FALSE.equals(request.getTodoONada());
+        log.info("Procesando lote de {} transacciones (todo o nada: {})", items.size(), todoONada);
+
+        if (motorLedger.estaHabilitado()) {
+            return procesarLoteEnLedger(items, todoONada);
+        }
+
+        TreeSet<Long> ids = new TreeSet<>();
+        for (TransaccionRequest item : items) {
+            ids.add(item.getCuentaOrigenId());
+            if (item.getCuentaDestinoId() != null) {
+                ids.add(item.getCuentaDestinoId());
+            }
+        }
+        Map<Long, Cuenta> cuentas = cuentaRepository.bloquearTodasPorId(ids).stream()
+                .collect(Collectors.toMap(Cuenta::getId, Function.identity()));
+
+        List<ResultadoTransaccionLote> resultados = new ArrayList<>(items.size());
+        List<Transaccion> nuevas = new ArrayList<>(items.size());
+        List<BigDecimal> gravamenes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                MovimientoLote movimiento = aplicarEnMemoria(items.get(i), cuentas);
+                nuevas.add(movimiento.transaccion());
+                gravamenes.add(movimiento.gmf());
+                resultados.add(ResultadoTransaccionLote.builder().indice(i).exitosa(true).build());
+            } catch (BuisnessException ex) {
+                if (todoONada) {
+                    throw new BuisnessException("Lote rechazado, transacción " + i + ": " + ex.getMessage());
+                }
+                resultados.add(ResultadoTransaccionLote.builder().indice(i).exitosa(false).error(ex.getMessage()).build());
+            }
+        }
+
+        //los saldos de las cuentas modificadas se escriben al hacer flush
+        List<Transaccion> guardadas = transaccionRepository.saveAll(nuevas);
+        int siguiente = 0;
+        for (ResultadoTransaccionLote resultado : resultados) {
+            if (resultado.getExitosa()) {
+                BigDecimal gmf = gravamenes.get(siguiente);
+                Transaccion guardada = guardadas.get(siguiente++);
+                resultado.setTransaccion(registrarActividad(guardada, convertirAResponse(guardada)));
+                Cuenta origen = guardada.getCuentaOrigen();
+                registrarGmf(guardada.getId(), origen.getId(), origen.getNumeroCuenta(), gmf);
+            }
+        }
+        log.info("Lote procesado: {} exitosas de {}", guardadas.size(), items.size());
+
+        return LoteTransaccionResponse.builder()
+                .total(items.size())
+                .exitosas(guardadas.size())
+                .fallidas(items.size() - guardadas.size())
+                .resultados(resultados)
+                .build();
+    }
+
+    /*
+    * Con el motor de ledger cada transaccion del lote se confirma por separado,
+    * por eso solo se admite el modo individual
+    * */
+    private LoteTransaccionResponse procesarLoteEnLedger(List<TransaccionRequest> items, boolean todoONada) {
+        if (todoONada) {
+            throw new BuisnessException("El modo todo o nada no está disponible con el motor de ledger habilitado");
+        }
+        List<ResultadoTransaccionLote> resultados = new ArrayList<>(items.size());
+        int exitosas = 0;
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                TransaccionResponse transaccion = crearEnLedger(items.get(i));
+                resultados.add(ResultadoTransaccionLote.builder().indice(i).exitosa(true).transaccion(transaccion).build());
+                exitosas++;
+            } catch (BuisnessException ex) {
+                resultados.add(ResultadoTransaccionLote.builder().indice(i).exitosa(false).error(ex.getMessage()).build());
+            }
+        }
+        return LoteTransaccionResponse.builder()
+                .total(items.size())
+                .exitosas(exitosas)
+                .fallidas(items.size() - exitosas)
+                .resultados(resultados)
+                .build();
+    }
+
+    /*
+    * Valida un movimiento del lote contra las cuentas ya bloqueadas y lo aplica
+    * sobre las entidades; no modifica nada si alguna validacion falla
+    * */
+    private MovimientoLote aplicarEnMemoria(TransaccionRequest item, Map<Long, Cuenta> cuentas) {
+        Cuenta origen = cuentas.get(item.getCuentaOrigenId());
+        if (origen == null) {
+            throw new BuisnessException("Cuenta origen no encontrada");
+        }
+        if (!origen.estaActiva()) {
+            throw new BuisnessException("La cuenta origen no está activa");
+        }
+        BigDecimal monto = item.getMonto();
+        Cuenta destino = null;
+        BigDecimal gmf = BigDecimal.ZERO;
+
+        switch (item.getTipoTransaccion()) {
+            case CONSIGNACION:
+                origen.incrementarSaldo(monto);
+                break;
+            case RETIRO:
+                gmf = liquidarGmf(origen, monto, "Saldo insuficiente");
+                origen.disminuirSaldo(monto.add(gmf));
+                break;
+            case TRANSFERENCIA:
+                if (item.getCuentaDestinoId() == null) {
+                    throw new BuisnessException("Se requiere cuenta destino para transferencias");
+                }
+                destino = cuentas.get(item.getCuentaDestinoId());
+                if (destino == null) {
+                    throw new BuisnessException("Cuenta destino no encontrada");
+                }
+                if (origen.getId().equals(destino.getId())) {
+                    throw new BuisnessException("No se puede transferir a la misma cuenta");
+                }
+                if (!destino.estaActiva()) {
+                    throw new BuisnessException("La cuenta destino no está activa");
+                }
+                gmf = liquidarGmf(origen, monto, "Saldo insuficiente en cuenta origen");
+                origen.disminuirSaldo(monto.add(gmf));
+                destino.incrementarSaldo(monto);
+                break;
+            case GMF:
+                throw gmfNoSolicitable();
+        }
+
+        Transaccion transaccion = new Transaccion();
+        transaccion.setTipoTrasaccion(item.getTipoTransaccion());
+        transaccion.setMonto(monto);
+        transaccion.setDescripcion(item.getDescripcion());
+        transaccion.setCuentaOrigen(origen);
+        transaccion.setCuentaDestino(destino);
+        return new MovimientoLote(transaccion, gmf);
+    }
+
+    /*
+    * GMF de un debito del lote; si el saldo no alcanza para el monto mas el
+    * gravamen se deshace lo sumado al acumulado, porque el lote sigue con
+    * las demas transacciones
+    * */
+    private BigDecimal liquidarGmf(Cuenta origen, BigDecimal monto, String saldoInsuficiente) {
+        if (origen.getSaldo().compareTo(monto) < 0) {
+            throw new BuisnessException(saldoInsuficiente);
+        }
+        Long clienteId = origen.getCliente().getId();
+        BigDecimal gmf = gmfService.liquidar(clienteId, origen.getExentaGMF(), monto);
+        if (origen.getSaldo().compareTo(monto.add(gmf)) < 0) {
+            gmfService.revertir(clienteId, origen.getExentaGMF(), monto);
+            throw new BuisnessException(saldoInsuficiente);
+        }
+        return gmf;
+    }
+
     @Transactional(readOnly = true)
     public TransaccionResponse buscarPorId(Long id) {
-        Transaccion transaccion = transaccionRepository.findById(id)
+        return transaccionRepository.buscarRespuestaPorId(id)
                 .orElseThrow(() -> new BuisnessException("Transacción no encontrada"));
-        return convertirAResponse(transaccion);
     }
 
+    /*
+    * Lista las transacciones una pagina a la vez
+    *
+    * @param despues id de la ultima transaccion de la pagina anterior, null para la primera
+    * @param limite cantidad de transacciones por pagina
+    * */
     @Transactional(readOnly = true)
-    public List<TransaccionResponse> listarTodas() {
-        return transaccionRepository.findAll().stream()
-                .map(this::convertirAResponse)
-                .collect(Collectors.toList());
+    public PaginaResponse<TransaccionResponse> listarTodas(Long despues, Integer limite) {
+        int tamano = propiedades.getPaginacion().normalizar(limite);
+        List<TransaccionResponse> transacciones = transaccionRepository
+                .buscarPagina(despues == null ? 0L : despues, Limit.of(tamano + 1));
+        return PaginaResponse.de(transacciones, tamano, TransaccionResponse::getId);
+    }
+
+    /*
+    * Ultimas transacciones de una cuenta, respondidas desde memoria
+    *
+    * @param cuentaId identificador de la cuenta
+    * @param cantidad cantidad de transacciones, limitada a finanzas.recientes.capacidad
+    * */
+    public List<TransaccionResponse> listarRecientes(Long cuentaId, Integer cantidad) {
+        return actividadReciente.ultimas(cuentaId, cantidad);
     }
 
     @Transactional(readOnly = true)
     public List<TransaccionResponse> listarPorCuenta(Long cuentaId) {
-        return transaccionRepository.findAllByCuentaId(cuentaId).stream()
-                .map(this::convertirAResponse)
-                .collect(Collectors.toList());
+        return transaccionRepository.buscarPorCuenta(cuentaId);
     }
 
     private TransaccionResponse convertirAResponse(Transaccion transaccion) {
-        TransaccionResponse response = modelMapper.map(transaccion, TransaccionResponse.class);
-        response.setNumeroCuentaOrigen(transaccion.getCuentaOrigen().getNumeroCuenta());
-        if (transaccion.getCuentaDestino() != null) {
-            response.setNumeroCuentaDestino(transaccion.getCuentaDestino().getNumeroCuenta());
-        }
-        return response;
+        return TransaccionMapper.aResponse(transaccion);
+    }
+
+    private record MovimientoLote(Transaccion transaccion, BigDecimal gmf) {
     }
 }
\ No newline at end of file
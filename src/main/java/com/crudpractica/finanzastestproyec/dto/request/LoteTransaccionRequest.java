@@ -0,0 +1,31 @@
+package com.crudpractica.finanzastestproyec.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/*
+ * DTO para enviar un lote de transacciones en una sola peticion
+ *
+ * todoONada = true: si una transaccion falla se rechaza el lote completo
+ * todoONada = false: cada transaccion se aplica o se rechaza por separado
+ * */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoteTransaccionRequest {
+
+    @NotEmpty(message = "El lote debe contener al menos una transacción")
+    @Size(max = 1000, message = "El lote no puede tener más de 1000 transacciones")
+    private List<@Valid TransaccionRequest> transacciones;
+
+    private Boolean todoONada;
+}
@@ -0,0 +1,38 @@
+package com.crudpractica.finanzastestproyec.dto.response;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+
+/*
+* Columnas de un cliente que usa ClienteResponse
+*
+* resultado de las consultas de lectura: se arma directamente desde el
+* SELECT, sin entidad ni coleccion de cuentas en el contexto de persistencia;
+* la cantidad de cuentas viene contada por la base de datos
+* */
+@Value
+public class DatosCliente {
+
+    Long id;
+    TipoIdentifiacion tipoIdentifiacion;
+    String numeroIdentificacion;
+    String nombres;
+    LocalDate fechaNacimiento;
+    LocalDateTime fechaCreacion;
+    LocalDateTime fechaModificacion;
+    Long cantidadCuentas;
+
+    /*
+    * misma regla que Cliente.calcularEdad
+    * */
+    public int calcularEdad() {
+        if (fechaNacimiento == null) {
+            return 0;
+        }
+        return Period.between(fechaNacimiento, LocalDate.now()).getYears();
+    }
+}
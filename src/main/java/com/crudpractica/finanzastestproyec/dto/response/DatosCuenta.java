@@ -0,0 +1,36 @@
+package com.crudpractica.finanzastestproyec.dto.response;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/*
+* Datos de una cuenta que no cambian con las transacciones
+*
+* es el valor guardado en la cache de cuentas: no incluye el saldo ni la
+* fecha de modificacion, que cambian con cada movimiento y siempre se leen
+* de la base de datos o del motor de ledger
+* */
+@Value
+public class DatosCuenta {
+
+    Long id;
+    String numeroCuenta;
+    TipoCuenta tipoCuenta;
+    EstadoCuenta estado;
+    Boolean exentaGMF;
+    LocalDateTime fechaCreacion;
+    Long clienteId;
+    String nombres;
+    String apellido;
+
+    public boolean estaActiva() {
+        return EstadoCuenta.ACTIVA.equals(estado);
+    }
+
+    public String getNombreCliente() {
+        return nombres + " " + apellido;
+    }
+}
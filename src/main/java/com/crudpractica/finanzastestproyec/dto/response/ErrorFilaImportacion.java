@@ -0,0 +1,21 @@
+package com.crudpractica.finanzastestproyec.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Fila del archivo que no se importo
+ * fila es el numero de la fila de datos, sin contar el encabezado
+ * */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ErrorFilaImportacion {
+
+    private Long fila;
+    private String error;
+}
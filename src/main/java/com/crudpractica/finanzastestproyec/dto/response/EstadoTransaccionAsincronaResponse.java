@@ -0,0 +1,29 @@
+package com.crudpractica.finanzastestproyec.dto.response;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoIngesta;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/*
+ * Estado de una transaccion recibida por POST /transacciones/async
+ * transaccion solo tiene valor cuando el estado es PROCESADA y error
+ * cuando es FALLIDA
+ * */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EstadoTransaccionAsincronaResponse {
+
+    private String seguimientoId;
+    private EstadoIngesta estado;
+    private LocalDateTime fechaRecepcion;
+    private LocalDateTime fechaProceso;
+    private TransaccionResponse transaccion;
+    private String error;
+}
@@ -0,0 +1,33 @@
+package com.crudpractica.finanzastestproyec.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/*
+ * Resultado de una peticion de importacion masiva de clientes
+ *
+ * filasOmitidas son las filas que una peticion anterior con el mismo id ya
+ * confirmo; las demas cantidades y los errores son solo de esta peticion.
+ * errores trae como maximo las primeras maximo-errores filas con error,
+ * fallidas las cuenta todas
+ * */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportacionClientesResponse {
+
+    private String importacion;
+    private Boolean completada;
+    private Long filasOmitidas;
+    private Long filasProcesadas;
+    private Long clientesCreados;
+    private Long cuentasCreadas;
+    private Long fallidas;
+    private List<ErrorFilaImportacion> errores;
+}
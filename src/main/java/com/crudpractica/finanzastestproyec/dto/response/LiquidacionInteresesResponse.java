@@ -0,0 +1,31 @@
+package com.crudpractica.finanzastestproyec.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/*
+ * Resultado de una liquidacion de intereses
+ *
+ * particionesOmitidas son las que una liquidacion anterior de la misma fecha
+ * ya confirmo; las fallidas no quedan marcadas y se liquidan al repetirla.
+ * Las cuentas y los intereses son solo de esta ejecucion
+ * */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LiquidacionInteresesResponse {
+
+    private LocalDate fechaCorte;
+    private Integer particiones;
+    private Integer particionesOmitidas;
+    private Integer particionesFallidas;
+    private Long cuentasAcreditadas;
+    private BigDecimal intereses;
+}
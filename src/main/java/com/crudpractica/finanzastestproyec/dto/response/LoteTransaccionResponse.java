@@ -0,0 +1,20 @@
+package com.crudpractica.finanzastestproyec.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoteTransaccionResponse {
+
+    private Integer total;
+    private Integer exitosas;
+    private Integer fallidas;
+    private List<ResultadoTransaccionLote> resultados;
+}
@@ -0,0 +1,41 @@
+package com.crudpractica.finanzastestproyec.dto.response;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/*
+ * Linea del extracto de una cuenta
+ *
+ * valor es positivo para los creditos y negativo para los debitos de la
+ * cuenta; saldo es el saldo de la cuenta despues de aplicar el movimiento
+ * */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonPropertyOrder({"transaccionId", "fecha", "tipoTransaccion", "descripcion", "numeroCuentaContraparte", "valor", "saldo"})
+public class MovimientoExtractoResponse {
+
+    private Long transaccionId;
+    private LocalDateTime fecha;
+    private TipoTrasaccion tipoTransaccion;
+    private String descripcion;
+    private String numeroCuentaContraparte;
+    private BigDecimal valor;
+    private BigDecimal saldo;
+
+    /*
+    * Usado por la consulta del extracto; el saldo se calcula al recorrer las filas
+    * */
+    public MovimientoExtractoResponse(Long transaccionId, LocalDateTime fecha, TipoTrasaccion tipoTransaccion,
+                                      String descripcion, String numeroCuentaContraparte, BigDecimal valor) {
+        this(transaccionId, fecha, tipoTransaccion, descripcion, numeroCuentaContraparte, valor, null);
+    }
+}
@@ -0,0 +1,41 @@
+package com.crudpractica.finanzastestproyec.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * Pagina de un listado paginado por cursor
+ *
+ * siguienteCursor es el id de la ultima fila de la pagina; se envia como
+ * ?after= para pedir la siguiente. Es null cuando ya no hay mas filas.
+ * */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaginaResponse<T> {
+
+    private List<T> contenido;
+    private Long siguienteCursor;
+
+    /*
+    * Arma la pagina a partir de una consulta que pidio limite + 1 filas; la
+    * fila sobrante solo indica que existe una pagina siguiente
+    *
+    * @param filas resultado ordenado por id ascendente
+    * @param limite tamaño de la pagina
+    * @param id obtiene el id (cursor) de una fila
+    * */
+    public static <T> PaginaResponse<T> de(List<T> filas, int limite, Function<T, Long> id) {
+        if (filas.size() <= limite) {
+            return new PaginaResponse<>(filas, null);
+        }
+        List<T> contenido = filas.subList(0, limite);
+        return new PaginaResponse<>(contenido, id.apply(contenido.get(limite - 1)));
+    }
+}
@@ -0,0 +1,23 @@
+package com.crudpractica.finanzastestproyec.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Resultado de una transaccion dentro de un lote
+ * indice corresponde a la posicion de la transaccion en la peticion
+ * */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResultadoTransaccionLote {
+
+    private Integer indice;
+    private Boolean exitosa;
+    private TransaccionResponse transaccion;
+    private String error;
+}
@@ -0,0 +1,16 @@
+package com.crudpractica.finanzastestproyec.dto.response;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/*
+* Parte de una cuenta que cambia con cada movimiento, leida sin cargar la entidad
+* */
+@Value
+public class SaldoCuenta {
+
+    BigDecimal saldo;
+    LocalDateTime fechaModificacion;
+}
@@ -0,0 +1,35 @@
+-- =====================================================================
+-- Migracion de ids IDENTITY a secuencias "pooled" (allocationSize = 50)
+--
+-- Aplica a bases de datos creadas cuando Cliente, Cuenta y Transaccion
+-- usaban GenerationType.IDENTITY. Ejecutar UNA sola vez, con la aplicacion
+-- detenida y ANTES de desplegar la version que usa las secuencias: con
+-- ddl-auto=update Hibernate crearia las secuencias desde 1 y los nuevos
+-- ids chocarian con los existentes.
+--
+-- El optimizador pooled toma cada nextval como el limite superior del
+-- bloque reservado [valor - 49, valor]. Por eso la secuencia se deja en
+-- MAX(id) + 50: el primer bloque empieza justo despues del ultimo id.
+--
+-- DROP IDENTITY va antes de DROP DEFAULT: PostgreSQL rechaza DROP DEFAULT
+-- sobre una columna identity; el DROP DEFAULT queda para columnas serial.
+-- =====================================================================
+
+BEGIN;
+
+CREATE SEQUENCE IF NOT EXISTS clientes_seq INCREMENT BY 50;
+SELECT setval('clientes_seq', COALESCE((SELECT MAX(id) FROM clientes), 0) + 50, false);
+ALTER TABLE clientes ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE clientes ALTER COLUMN id DROP DEFAULT;
+
+CREATE SEQUENCE IF NOT EXISTS cuentas_seq INCREMENT BY 50;
+SELECT setval('cuentas_seq', COALESCE((SELECT MAX(id) FROM cuentas), 0) + 50, false);
+ALTER TABLE cuentas ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE cuentas ALTER COLUMN id DROP DEFAULT;
+
+CREATE SEQUENCE IF NOT EXISTS trasacciones_seq INCREMENT BY 50;
+SELECT setval('trasacciones_seq', COALESCE((SELECT MAX(id) FROM trasacciones), 0) + 50, false);
+ALTER TABLE trasacciones ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE trasacciones ALTER COLUMN id DROP DEFAULT;
+
+COMMIT;
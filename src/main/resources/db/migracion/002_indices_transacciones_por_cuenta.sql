@@ -0,0 +1,22 @@
+-- =====================================================================
+-- Indices (cuenta, fecha) de la tabla trasacciones
+--
+-- Transaccion los declara en @Table(indexes = ...) y con ddl-auto=update
+-- Hibernate los crearia al arrancar, pero con un CREATE INDEX normal que
+-- bloquea las escrituras en la tabla mientras la recorre. En una base con
+-- millones de transacciones se crean antes del despliegue con CONCURRENTLY,
+-- que no bloquea; al arrancar Hibernate los encuentra por nombre y no hace nada.
+--
+-- CREATE INDEX CONCURRENTLY no puede ejecutarse dentro de una transaccion:
+-- correr el archivo con psql sin BEGIN/COMMIT ni --single-transaction. Si
+-- una creacion se interrumpe el indice queda INVALID; borrarlo con
+-- DROP INDEX CONCURRENTLY y volver a ejecutar.
+-- =====================================================================
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_trasacciones_origen_fecha
+    ON trasacciones (cuenta_origen_id, fecha);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_trasacciones_destino_fecha
+    ON trasacciones (cuenta_destino_id, fecha);
+
+ANALYZE trasacciones;
@@ -0,0 +1,16 @@
+-- =====================================================================
+-- Indice cliente_id de la tabla cuentas
+--
+-- las consultas de lectura de clientes cuentan las cuentas de cada cliente
+-- en SQL y el listado de cuentas de un cliente filtra por cliente_id;
+-- PostgreSQL no indexa las llaves foraneas por si solo. Cuenta lo declara en
+-- @Table(indexes = ...); se crea antes del despliegue con CONCURRENTLY por
+-- las mismas razones que 002_indices_transacciones_por_cuenta.sql.
+--
+-- correr el archivo con psql fuera de una transaccion.
+-- =====================================================================
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cuentas_cliente
+    ON cuentas (cliente_id);
+
+ANALYZE cuentas;
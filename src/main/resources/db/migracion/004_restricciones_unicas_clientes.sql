@@ -0,0 +1,37 @@
+-- =====================================================================
+-- Nombres fijos para las restricciones unicas de clientes
+--
+-- ClienteService ya no consulta si el numero de identificacion o el correo
+-- existen antes de guardar: deja que el INSERT/UPDATE falle y reconoce el
+-- dato repetido por el nombre de la restriccion violada. Las bases creadas
+-- con ddl-auto=update tienen esas restricciones con el nombre generado por
+-- Hibernate (uk_xxxx); aqui se renombran a los que declara Cliente en
+-- @Table(uniqueConstraints = ...). Renombrar no recorre la tabla ni vuelve
+-- a crear el indice.
+--
+-- Si una columna no tiene restriccion se crea; si el script ya se ejecuto
+-- no hace nada.
+-- =====================================================================
+
+DO $$
+DECLARE
+    columnas  TEXT[] := ARRAY['numero_identificacion', 'correo_electronico'];
+    nombres   TEXT[] := ARRAY['uk_clientes_numero_identificacion', 'uk_clientes_correo_electronico'];
+    actual    TEXT;
+BEGIN
+    FOR i IN 1 .. array_length(columnas, 1) LOOP
+        SELECT con.conname INTO actual
+        FROM pg_constraint con
+        JOIN pg_attribute att ON att.attrelid = con.conrelid AND att.attnum = ANY (con.conkey)
+        WHERE con.conrelid = 'clientes'::regclass
+          AND con.contype = 'u'
+          AND array_length(con.conkey, 1) = 1
+          AND att.attname = columnas[i];
+
+        IF actual IS NULL THEN
+            EXECUTE format('ALTER TABLE clientes ADD CONSTRAINT %I UNIQUE (%I)', nombres[i], columnas[i]);
+        ELSIF actual <> nombres[i] THEN
+            EXECUTE format('ALTER TABLE clientes RENAME CONSTRAINT %I TO %I', actual, nombres[i]);
+        END IF;
+    END LOOP;
+END $$;
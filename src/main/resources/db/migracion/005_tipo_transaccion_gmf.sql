@@ -0,0 +1,29 @@
+-- =====================================================================
+-- Tipo de transaccion GMF
+--
+-- El gravamen (4x1000) de cada retiro o transferencia se guarda con
+-- tipo_transaccion = 'GMF'. Hibernate crea la columna con una restriccion
+-- CHECK que lista los valores del enum, y ddl-auto=update no la actualiza
+-- en las bases que ya existen. Aqui se reemplaza por una que incluye GMF.
+--
+-- Si el script ya se ejecuto vuelve a dejar la misma restriccion.
+-- =====================================================================
+
+DO $$
+DECLARE
+    restriccion TEXT;
+BEGIN
+    FOR restriccion IN
+        SELECT con.conname
+        FROM pg_constraint con
+        JOIN pg_attribute att ON att.attrelid = con.conrelid AND att.attnum = ANY (con.conkey)
+        WHERE con.conrelid = 'trasacciones'::regclass
+          AND con.contype = 'c'
+          AND att.attname = 'tipo_transaccion'
+    LOOP
+        EXECUTE format('ALTER TABLE trasacciones DROP CONSTRAINT %I', restriccion);
+    END LOOP;
+
+    ALTER TABLE trasacciones ADD CONSTRAINT trasacciones_tipo_transaccion_check
+        CHECK (tipo_transaccion IN ('CONSIGNACION', 'RETIRO', 'TRANSFERENCIA', 'GMF'));
+END $$;
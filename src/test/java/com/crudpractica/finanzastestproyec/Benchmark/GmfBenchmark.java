@@ -0,0 +1,173 @@
+package com.crudpractica.finanzastestproyec.Benchmark;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.FinanzasTestProyecApplication;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Repository.ClienteRepository;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
+import com.crudpractica.finanzastestproyec.Service.TransaccionService;
+import com.crudpractica.finanzastestproyec.dto.request.TransaccionRequest;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Costo por retiro con la liquidacion del GMF a medida que crece el historial
+ *
+ * levanta la aplicacion en un puerto libre sobre H2 en memoria, carga
+ * "historial" retiros del mes en la cuenta exenta y mide un retiro de una
+ * cuenta exenta (acumulado mensual por cliente) y de una no exenta:
+ *
+ *   mvn -B -Pbenchmark test-compile exec:exec -Dbenchmark.filtro=GmfBenchmark
+ *
+ * sumarRetirosDelMes es lo que costaria calcular el exento sumando los
+ * retiros del mes en cada movimiento; su tiempo crece con el historial
+ * mientras el de los retiros se mantiene. H2 no reutiliza resultados
+ * (OPTIMIZE_REUSE_RESULTS) para que cada operacion recorra las filas
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GmfBenchmark {
+
+    private static final long PRIMER_ID_HISTORIAL = 1_000_000_000L;
+    private static final int FILAS_POR_LOTE = 10_000;
+
+    @Param({"0", "10000", "100000"})
+    private int historial;
+
+    private ConfigurableApplicationContext contexto;
+    private TransaccionService transaccionService;
+    private JdbcTemplate jdbcTemplate;
+    private TransaccionRequest retiroExenta;
+    private TransaccionRequest retiroGravada;
+    private Long cuentaExentaId;
+    private Timestamp inicioMes;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = new SpringApplicationBuilder(FinanzasTestProyecApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:gmf" + historial + ";DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+        transaccionService = contexto.getBean(TransaccionService.class);
+        jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+
+        Cliente cliente = contexto.getBean(ClienteRepository.class).save(Cliente.builder()
+                .tipoIdentifiacion(TipoIdentifiacion.CEDULA_CIUDADANIA)
+                .numeroIdentificacion("123456789")
+                .nombres("Juan")
+                .apellido("Pérez")
+                .correoElectronico("juan.perez@example.com")
+                .fechaNacimiento(LocalDate.of(1990, 1, 1))
+                .build());
+        CuentaRepository cuentaRepository = contexto.getBean(CuentaRepository.class);
+        Cuenta exenta = cuentaRepository.save(cuenta(cliente, "5390000001", true));
+        Cuenta gravada = cuentaRepository.save(cuenta(cliente, "5390000002", false));
+        cuentaExentaId = exenta.getId();
+        inicioMes = Timestamp.valueOf(LocalDate.now().withDayOfMonth(1).atStartOfDay());
+
+        cargarHistorial();
+
+        retiroExenta = retiro(exenta.getId());
+        retiroGravada = retiro(gravada.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public TransaccionResponse retiroCuentaExenta() {
+        return transaccionService.crear(retiroExenta);
+    }
+
+    @Benchmark
+    public TransaccionResponse retiroCuentaGravada() {
+        return transaccionService.crear(retiroGravada);
+    }
+
+    @Benchmark
+    public BigDecimal sumarRetirosDelMes() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(monto), 0) FROM trasacciones " +
+                        "WHERE cuenta_origen_id = ? AND fecha >= ? AND tipo_transaccion IN ('RETIRO', 'TRANSFERENCIA')",
+                BigDecimal.class, cuentaExentaId, inicioMes);
+    }
+
+    /*
+     * Los retiros del historial se insertan directo en la tabla con ids fuera
+     * del rango de la secuencia; no pasan por el acumulado
+     */
+    private void cargarHistorial() {
+        List<Object[]> lote = new ArrayList<>(FILAS_POR_LOTE);
+        Timestamp fecha = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < historial; i++) {
+            lote.add(new Object[]{PRIMER_ID_HISTORIAL + i, fecha, cuentaExentaId});
+            if (lote.size() == FILAS_POR_LOTE || i == historial - 1) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO trasacciones (id, tipo_transaccion, monto, fecha, descripcion, cuenta_origen_id) " +
+                                "VALUES (?, 'RETIRO', 1.00, ?, 'historial', ?)", lote);
+                lote.clear();
+            }
+        }
+    }
+
+    private static Cuenta cuenta(Cliente cliente, String numeroCuenta, boolean exenta) {
+        return Cuenta.builder()
+                .tipoCuenta(TipoCuenta.AHORRO)
+                .numeroCuenta(numeroCuenta)
+                .estado(EstadoCuenta.ACTIVA)
+                .exentaGMF(exenta)
+                .saldo(new BigDecimal("1000000000.00"))
+                .cliente(cliente)
+                .build();
+    }
+
+    private static TransaccionRequest retiro(Long cuentaId) {
+        return TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.RETIRO)
+                .monto(new BigDecimal("1.00"))
+                .cuentaOrigenId(cuentaId)
+                .build();
+    }
+}
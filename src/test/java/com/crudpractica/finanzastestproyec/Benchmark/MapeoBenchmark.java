@@ -0,0 +1,137 @@
+package com.crudpractica.finanzastestproyec.Benchmark;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Mapper.ClienteMapper;
+import com.crudpractica.finanzastestproyec.Mapper.CuentaMapper;
+import com.crudpractica.finanzastestproyec.Mapper.TransaccionMapper;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Model.Transaccion;
+import com.crudpractica.finanzastestproyec.dto.response.ClienteResponse;
+import com.crudpractica.finanzastestproyec.dto.response.CuentaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Costo por objeto de convertir entidades a DTOs con ModelMapper y con los mappers
+ *
+ * se ejecuta con el perfil benchmark, que agrega el profiler gc de JMH para
+ * medir la asignacion por operacion (gc.alloc.rate.norm) ademas del tiempo:
+ *
+ *   mvn -B -Pbenchmark test-compile exec:exec -Dbenchmark.filtro=MapeoBenchmark
+ *
+ * la variante modelMapper repite los ajustes que hacian los servicios despues
+ * de map(), asi ambas producen la misma respuesta (ver MapeoParidadTest)
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapeoBenchmark {
+
+    private ModelMapper modelMapper;
+    private Cliente cliente;
+    private Cuenta cuenta;
+    private Transaccion transaccion;
+
+    @Setup
+    public void preparar() {
+        modelMapper = new ModelMapper();
+        modelMapper.getConfiguration()
+                .setSkipNullEnabled(true)
+                .setAmbiguityIgnored(true);
+
+        cliente = Cliente.builder()
+                .id(7L)
+                .tipoIdentifiacion(TipoIdentifiacion.CEDULA_CIUDADANIA)
+                .numeroIdentificacion("123456789")
+                .nombres("Juan")
+                .apellido("Pérez")
+                .correoElectronico("juan.perez@example.com")
+                .fechaNacimiento(LocalDate.of(1990, 1, 1))
+                .fechaCreacion(LocalDateTime.of(2026, 1, 1, 8, 0))
+                .fechaModificacion(LocalDateTime.of(2026, 1, 2, 8, 0))
+                .build();
+        cuenta = Cuenta.builder()
+                .id(3L)
+                .tipoCuenta(TipoCuenta.AHORRO)
+                .numeroCuenta("5300000001")
+                .estado(EstadoCuenta.ACTIVA)
+                .exentaGMF(false)
+                .saldo(new BigDecimal("1500.25"))
+                .fechaCreacion(LocalDateTime.of(2026, 2, 1, 9, 30))
+                .cliente(cliente)
+                .build();
+        Cuenta destino = Cuenta.builder().id(4L).numeroCuenta("3300000002").cliente(cliente).build();
+        cliente.setCuentas(List.of(cuenta, destino));
+
+        transaccion = new Transaccion();
+        transaccion.setId(9L);
+        transaccion.setTipoTrasaccion(TipoTrasaccion.TRANSFERENCIA);
+        transaccion.setMonto(new BigDecimal("250.50"));
+        transaccion.setFecha(LocalDateTime.of(2026, 3, 1, 12, 0));
+        transaccion.setDescripcion("pago");
+        transaccion.setCuentaOrigen(cuenta);
+        transaccion.setCuentaDestino(destino);
+    }
+
+    @Benchmark
+    public ClienteResponse clienteModelMapper() {
+        ClienteResponse response = modelMapper.map(cliente, ClienteResponse.class);
+        response.setEdad(cliente.calcularEdad());
+        response.setCantidadCuentas(cliente.getCuentas().size());
+        return response;
+    }
+
+    @Benchmark
+    public ClienteResponse clienteMapper() {
+        return ClienteMapper.aResponse(cliente, cliente.getCuentas().size());
+    }
+
+    @Benchmark
+    public CuentaResponse cuentaModelMapper() {
+        CuentaResponse response = modelMapper.map(cuenta, CuentaResponse.class);
+        response.setClienteId(cliente.getId());
+        response.setNombreCliente(cliente.getNombres() + " " + cliente.getApellido());
+        return response;
+    }
+
+    @Benchmark
+    public CuentaResponse cuentaMapper() {
+        return CuentaMapper.aResponse(cuenta, cuenta.getSaldo());
+    }
+
+    @Benchmark
+    public TransaccionResponse transaccionModelMapper() {
+        TransaccionResponse response = modelMapper.map(transaccion, TransaccionResponse.class);
+        response.setNumeroCuentaOrigen(transaccion.getCuentaOrigen().getNumeroCuenta());
+        response.setNumeroCuentaDestino(transaccion.getCuentaDestino().getNumeroCuenta());
+        return response;
+    }
+
+    @Benchmark
+    public TransaccionResponse transaccionMapper() {
+        return TransaccionMapper.aResponse(transaccion);
+    }
+}
@@ -5,6 +5,7 @@ import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
 import com.crudpractica.finanzastestproyec.Service.ClienteService;
 import com.crudpractica.finanzastestproyec.dto.request.ClienteRequest;
 import com.crudpractica.finanzastestproyec.dto.response.ClienteResponse;
+import com.crudpractica.finanzastestproyec.dto.response.PaginaResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,7 +17,6 @@ import org.springframework.http.ResponseEntity;
 
 import java.time.LocalDate;
 import java.util.Arrays;
-import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -98,28 +98,29 @@ class ClienteControllerTest {
     /*
      * Verifica que el endpoint de listado devuelva código HTTP 200 OK.
      * <p>
-     * El endpoint debe devolver una lista con todos los clientes
-     * registrados en el sistema junto con código de éxito 200.
+     * El endpoint devuelve una página de clientes junto con el cursor
+     * para pedir la siguiente y código de éxito 200.
      *
      */
     @Test
     void testListarClientes_Retorna200() {
-        // Preparar lista de clientes
-        List<ClienteResponse> clientes = Arrays.asList(clienteResponse);
-        when(clienteService.listarTodos()).thenReturn(clientes);
+        // Preparar página de clientes
+        PaginaResponse<ClienteResponse> pagina = new PaginaResponse<>(Arrays.asList(clienteResponse), 1L);
+        when(clienteService.listarTodos(null, 20)).thenReturn(pagina);
 
         // Ejecutar el método del controlador
-        ResponseEntity<List<ClienteResponse>> response = clienteController.listarTodos();
+        ResponseEntity<PaginaResponse<ClienteResponse>> response = clienteController.listarTodos(null, 20);
 
         // Verificaciones
         assertNotNull(response, "La respuesta no debe ser nula");
         assertEquals(HttpStatus.OK, response.getStatusCode(), "Debe devolver código 200");
         assertNotNull(response.getBody(), "El body no debe ser nulo");
-        assertEquals(1, response.getBody().size(), "Debe haber 1 cliente en la lista");
-        assertEquals("Juan", response.getBody().get(0).getNombres(), "El nombre debe ser Juan");
+        assertEquals(1, response.getBody().getContenido().size(), "Debe haber 1 cliente en la página");
+        assertEquals("Juan", response.getBody().getContenido().get(0).getNombres(), "El nombre debe ser Juan");
+        assertEquals(1L, response.getBody().getSiguienteCursor(), "El cursor debe ser el ID del último cliente");
 
         // Verificar que se llamó al servicio
-        verify(clienteService, times(1)).listarTodos();
+        verify(clienteService, times(1)).listarTodos(null, 20);
     }
 
     /*
@@ -0,0 +1,135 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Repository.TransaccionRepository;
+import com.crudpractica.finanzastestproyec.Service.ActividadRecienteService;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+/*
+ * Pruebas de la cache de ultimos movimientos por cuenta.
+ *
+ * Verifica que la base de datos solo se consulte la primera vez, que las
+ * transacciones nuevas se agreguen a las cuentas origen y destino y que el
+ * buffer conserve solo los movimientos mas recientes, y que una cuenta se
+ * recargue al expirar aunque se consulte sin pausa.
+ */
+@ExtendWith(MockitoExtension.class)
+class ActividadRecienteServiceTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 1, 1, 8, 0);
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+
+    private FinanzasProperties propiedades;
+    private ActividadRecienteService actividadReciente;
+    private final AtomicLong reloj = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        propiedades = new FinanzasProperties();
+        propiedades.getRecientes().setCapacidad(3);
+        propiedades.getRecientes().setCantidadPorDefecto(2);
+        propiedades.getRecientes().setExpiracionMinutos(10);
+        actividadReciente = new ActividadRecienteService(transaccionRepository, propiedades, reloj::get);
+    }
+
+    /*
+     * Un cliente consulta la cuenta cada minuto y registra movimientos propios;
+     * otra instancia inserta un movimiento que esta no ve. A los 10 minutos de
+     * la carga la cuenta expira y la consulta siguiente lo trae.
+     */
+    @Test
+    void testUltimas_ConsultadaSinPausa_SeRecargaAlExpirar() {
+        when(transaccionRepository.findUltimasTransaccionesByCuenta(1L, 3))
+                .thenReturn(List.of(movimiento(1L, 1)))
+                .thenReturn(List.of(movimiento(3L, 3), movimiento(2L, 2), movimiento(1L, 1)));
+
+        actividadReciente.ultimas(1L, null);
+        actividadReciente.registrar(1L, null, movimiento(2L, 2));
+        for (int minuto = 1; minuto < 10; minuto++) {
+            reloj.addAndGet(Duration.ofMinutes(1).toNanos());
+            assertEquals(List.of(2L, 1L), ids(actividadReciente.ultimas(1L, null)));
+        }
+
+        reloj.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        assertEquals(List.of(3L, 2L, 1L), ids(actividadReciente.ultimas(1L, 3)));
+        verify(transaccionRepository, times(2)).findUltimasTransaccionesByCuenta(1L, 3);
+    }
+
+    /*
+     * La primera consulta carga desde la base de datos con el limite de la
+     * capacidad; las siguientes y las transacciones nuevas se atienden en memoria.
+     */
+    @Test
+    void testUltimas_CargaUnaVezYLuegoRespondeDesdeMemoria() {
+        when(transaccionRepository.findUltimasTransaccionesByCuenta(eq(1L), anyInt()))
+                .thenReturn(List.of(movimiento(2L, 2), movimiento(1L, 1)));
+
+        assertEquals(List.of(2L, 1L), ids(actividadReciente.ultimas(1L, null)));
+
+        actividadReciente.registrar(1L, 2L, movimiento(3L, 3));
+        actividadReciente.registrar(1L, null, movimiento(4L, 4));
+
+        assertEquals(List.of(4L, 3L, 2L), ids(actividadReciente.ultimas(1L, 10)),
+                "Se devuelven como maximo tantos movimientos como la capacidad");
+        assertEquals(List.of(4L), ids(actividadReciente.ultimas(1L, 1)));
+        verify(transaccionRepository, times(1)).findUltimasTransaccionesByCuenta(1L, 3);
+    }
+
+    /*
+     * Una transaccion repetida o mas antigua que todo el buffer lleno no se agrega,
+     * y una que llega fuera de orden queda en su posicion cronologica.
+     */
+    @Test
+    void testRegistrar_DescartaRepetidasYOrdenaPorFecha() {
+        when(transaccionRepository.findUltimasTransaccionesByCuenta(eq(1L), anyInt()))
+                .thenReturn(List.of(movimiento(5L, 5), movimiento(3L, 3)));
+        actividadReciente.ultimas(1L, null);
+
+        actividadReciente.registrar(1L, null, movimiento(5L, 5));
+        actividadReciente.registrar(1L, null, movimiento(4L, 4));
+        actividadReciente.registrar(1L, null, movimiento(1L, 1));
+
+        assertEquals(List.of(5L, 4L, 3L), ids(actividadReciente.ultimas(1L, 3)));
+    }
+
+    /*
+     * Una cuenta que nadie ha consultado no se guarda en memoria.
+     */
+    @Test
+    void testRegistrar_CuentaNoConsultada_NoSeCarga() {
+        actividadReciente.registrar(7L, 8L, movimiento(1L, 1));
+
+        verifyNoInteractions(transaccionRepository);
+    }
+
+    private TransaccionResponse movimiento(Long id, int minuto) {
+        return TransaccionResponse.builder()
+                .id(id)
+                .tipoTransaccion(TipoTrasaccion.CONSIGNACION)
+                .monto(BigDecimal.TEN)
+                .fecha(INICIO.plusMinutes(minuto))
+                .build();
+    }
+
+    private List<Long> ids(List<TransaccionResponse> movimientos) {
+        return movimientos.stream().map(TransaccionResponse::getId).toList();
+    }
+}
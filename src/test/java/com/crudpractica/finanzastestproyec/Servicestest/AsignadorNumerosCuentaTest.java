@@ -0,0 +1,158 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.AsignadorNumerosCuenta;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Service.FiltrosUnicidadService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/*
+ * Pruebas del asignador de numeros de cuenta por bloques.
+ *
+ * La secuencia de cada tipo se simula con un contador. Verifica que los
+ * numeros tengan el formato de la cuenta, que no se repitan entre hilos ni
+ * entre bloques, que se descarten los que ya tiene otra cuenta y que el
+ * siguiente bloque se reserve antes de agotar el actual.
+ */
+@ExtendWith(MockitoExtension.class)
+class AsignadorNumerosCuentaTest {
+
+    private static final int HILOS = 8;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private SessionFactoryImplementor sessionFactory;
+
+    @Mock
+    private FiltrosUnicidadService filtros;
+
+    private final ConcurrentHashMap<String, AtomicLong> secuencias = new ConcurrentHashMap<>();
+    private SimpleMeterRegistry registry;
+    private AsignadorNumerosCuenta asignador;
+
+    @BeforeEach
+    void setUp() {
+        when(entityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString(anyString()))
+                .thenAnswer(inv -> inv.getArgument(0));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+                .thenAnswer(inv -> secuencias.computeIfAbsent(inv.getArgument(0), s -> new AtomicLong()).incrementAndGet());
+
+        registry = new SimpleMeterRegistry();
+        asignador = new AsignadorNumerosCuenta(jdbcTemplate, entityManagerFactory, filtros,
+                new FinanzasProperties(), registry);
+        asignador.iniciar();
+    }
+
+    @AfterEach
+    void tearDown() {
+        asignador.detener();
+    }
+
+    @Test
+    void testSiguiente_FormatoPorTipoYSinConsultasPorCuenta() {
+        when(filtros.numerosCuentaExistentes(anyCollection())).thenReturn(Set.of());
+
+        String ahorro = asignador.siguiente(TipoCuenta.AHORRO);
+        String corriente = asignador.siguiente(TipoCuenta.CORRIENTE);
+        for (int i = 0; i < 100; i++) {
+            asignador.siguiente(TipoCuenta.AHORRO);
+        }
+
+        assertTrue(ahorro.matches("^53\\d{8}$"), ahorro);
+        assertTrue(corriente.matches("^33\\d{8}$"), corriente);
+        verify(jdbcTemplate).execute("CREATE SEQUENCE IF NOT EXISTS numeros_cuenta_ahorro_seq");
+        //un nextval y una verificacion por bloque, ninguna por cuenta
+        assertEquals(1, secuencias.get("numeros_cuenta_ahorro_seq").get());
+        verify(filtros, times(2)).numerosCuentaExistentes(anyCollection());
+    }
+
+    /*
+     * Los hilos consumen varios bloques a la vez; el umbral hace que el
+     * siguiente bloque se pida en segundo plano antes de agotar el actual
+     */
+    @Test
+    void testSiguiente_HilosConcurrentes_NumerosUnicosEntreBloques() throws Exception {
+        when(filtros.numerosCuentaExistentes(anyCollection())).thenReturn(Set.of());
+        int porHilo = 500;
+
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        List<Future<List<String>>> resultados = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            resultados.add(hilos.submit(() -> {
+                List<String> numeros = new ArrayList<>();
+                for (int i = 0; i < porHilo; i++) {
+                    numeros.add(asignador.siguiente(TipoCuenta.AHORRO));
+                }
+                return numeros;
+            }));
+        }
+        Set<String> unicos = new HashSet<>();
+        for (Future<List<String>> resultado : resultados) {
+            unicos.addAll(resultado.get(10, TimeUnit.SECONDS));
+        }
+        hilos.shutdown();
+
+        assertEquals(HILOS * porHilo, unicos.size(), "Ningun numero se entrega dos veces");
+        assertTrue(registry.get("finanzas.numeros-cuenta.bloques").tag("tipo", "AHORRO").counter().count() >= 4);
+    }
+
+    @Test
+    void testSiguiente_DescartaNumerosQueYaExisten() {
+        List<String> yaAsignados = new ArrayList<>();
+        when(filtros.numerosCuentaExistentes(anyCollection())).thenAnswer(inv -> {
+            List<String> candidatos = new ArrayList<>(inv.getArgument(0));
+            yaAsignados.add(candidatos.get(0));
+            return Set.of(candidatos.get(0));
+        });
+
+        String primero = asignador.siguiente(TipoCuenta.CORRIENTE);
+
+        assertNotEquals(yaAsignados.get(0), primero);
+        assertEquals(1, registry.get("finanzas.numeros-cuenta.descartados").tag("tipo", "CORRIENTE")
+                .counter().count());
+    }
+
+    /*
+     * 10^8 numeros por tipo en bloques de 1000: el bloque 100000 ya no cabe
+     */
+    @Test
+    void testSiguiente_SecuenciaAgotada_LanzaExcepcion() {
+        secuencias.put("numeros_cuenta_ahorro_seq", new AtomicLong(99_999));
+
+        BuisnessException exception = assertThrows(BuisnessException.class,
+                () -> asignador.siguiente(TipoCuenta.AHORRO));
+        assertTrue(exception.getMessage().contains("Cuenta de Ahorros"));
+    }
+}
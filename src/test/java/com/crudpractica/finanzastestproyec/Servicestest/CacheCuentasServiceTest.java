@@ -0,0 +1,103 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
+import com.crudpractica.finanzastestproyec.Service.CacheCuentasService;
+import com.crudpractica.finanzastestproyec.dto.response.DatosCuenta;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+/*
+ * Pruebas de la cache de datos de cuentas.
+ *
+ * Verifica que una cuenta se cargue de la base de datos una sola vez, que el
+ * numero se resuelva a id sin repetir la consulta, que la invalidacion obligue
+ * a recargar el estado y que aciertos y fallos se publiquen como metricas.
+ */
+@ExtendWith(MockitoExtension.class)
+class CacheCuentasServiceTest {
+
+    @Mock
+    private CuentaRepository cuentaRepository;
+
+    private SimpleMeterRegistry registry;
+    private CacheCuentasService cacheCuentas;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cacheCuentas = new CacheCuentasService(cuentaRepository, new FinanzasProperties(), registry);
+    }
+
+    @Test
+    void testBuscarPorId_CargaUnaVezYPublicaMetricas() {
+        when(cuentaRepository.buscarDatosPorId(1L)).thenReturn(Optional.of(datos(EstadoCuenta.ACTIVA)));
+
+        cacheCuentas.buscarPorId(1L);
+        cacheCuentas.buscarPorId(1L);
+        cacheCuentas.buscarPorId(1L);
+
+        verify(cuentaRepository, times(1)).buscarDatosPorId(1L);
+        assertEquals(2, registry.get("cache.gets").tag("cache", "finanzas.cuentas").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tag("cache", "finanzas.cuentas").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testBuscarPorNumero_ResuelveElIdUnaVez() {
+        when(cuentaRepository.buscarIdPorNumero("5300000001")).thenReturn(Optional.of(1L));
+        when(cuentaRepository.buscarDatosPorId(1L)).thenReturn(Optional.of(datos(EstadoCuenta.ACTIVA)));
+
+        assertEquals(1L, cacheCuentas.buscarPorNumero("5300000001").orElseThrow().getId());
+        assertEquals(1L, cacheCuentas.buscarPorId(1L).orElseThrow().getId());
+        assertEquals(1L, cacheCuentas.buscarPorNumero("5300000001").orElseThrow().getId());
+
+        verify(cuentaRepository, times(1)).buscarIdPorNumero("5300000001");
+        verify(cuentaRepository, times(1)).buscarDatosPorId(1L);
+    }
+
+    /*
+     * Un cambio de estado invalida la entrada y la siguiente consulta ve el nuevo estado.
+     */
+    @Test
+    void testInvalidar_RecargaElEstado() {
+        when(cuentaRepository.buscarDatosPorId(1L))
+                .thenReturn(Optional.of(datos(EstadoCuenta.ACTIVA)))
+                .thenReturn(Optional.of(datos(EstadoCuenta.INACTIVA)));
+
+        assertTrue(cacheCuentas.buscarPorId(1L).orElseThrow().estaActiva());
+        cacheCuentas.invalidar(1L);
+
+        assertEquals(EstadoCuenta.INACTIVA, cacheCuentas.buscarPorId(1L).orElseThrow().getEstado());
+    }
+
+    /*
+     * Una cuenta inexistente no se guarda: si se crea despues, se encuentra.
+     */
+    @Test
+    void testBuscarPorId_NoGuardaCuentasInexistentes() {
+        when(cuentaRepository.buscarDatosPorId(9L))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(datos(EstadoCuenta.ACTIVA)));
+
+        assertTrue(cacheCuentas.buscarPorId(9L).isEmpty());
+        assertTrue(cacheCuentas.buscarPorId(9L).isPresent());
+    }
+
+    private DatosCuenta datos(EstadoCuenta estado) {
+        return new DatosCuenta(1L, "5300000001", TipoCuenta.AHORRO, estado, false, null, 10L, "Juan", "Pérez");
+    }
+}
@@ -2,21 +2,28 @@ package com.crudpractica.finanzastestproyec.Servicestest;
 
 import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
 import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.CoalescedorLecturas;
 import com.crudpractica.finanzastestproyec.Model.Cliente;
 import com.crudpractica.finanzastestproyec.Repository.ClienteRepository;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
 import com.crudpractica.finanzastestproyec.Service.ClienteService;
+import com.crudpractica.finanzastestproyec.Service.FiltrosUnicidadService;
 import com.crudpractica.finanzastestproyec.dto.request.ClienteRequest;
 import com.crudpractica.finanzastestproyec.dto.response.ClienteResponse;
+import com.crudpractica.finanzastestproyec.dto.response.DatosCliente;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -46,10 +53,23 @@ class ClienteServiceTest {
     private ClienteRepository clienteRepository;
 
     /*
-     * Mock del ModelMapper para conversiones entre entidades y DTOs.
+     * Mock del repositorio de cuentas, usado para contar y verificar las
+     * cuentas del cliente sin cargar la colección.
      */
     @Mock
-    private ModelMapper modelMapper;
+    private CuentaRepository cuentaRepository;
+
+    /*
+     * Mock del agrupador de lecturas; en las busquedas ejecuta la carga directamente.
+     */
+    @Mock
+    private CoalescedorLecturas lecturas;
+
+    /*
+     * Mock de los filtros de unicidad, solo registran los valores guardados.
+     */
+    @Mock
+    private FiltrosUnicidadService filtros;
 
     /*
      * Instancia del servicio bajo pruebas.
@@ -112,19 +132,17 @@ class ClienteServiceTest {
     @Test
     void testCrearCliente_MayorDeEdad_Exitoso() {
         // Configurar el comportamiento de los mocks
-        when(modelMapper.map(any(ClienteRequest.class), eq(Cliente.class))).thenReturn(cliente);
-        when(clienteRepository.existsByNumeroIdentificacion(anyString())).thenReturn(false);
-        when(clienteRepository.existsByCorreoElectronico(anyString())).thenReturn(false);
-        when(clienteRepository.save(any(Cliente.class))).thenReturn(cliente);
-        when(modelMapper.map(any(Cliente.class), eq(ClienteResponse.class))).thenReturn(new ClienteResponse());
+        when(clienteRepository.saveAndFlush(any(Cliente.class))).thenReturn(cliente);
 
         // Ejecutar el método bajo prueba
         ClienteResponse response = clienteService.crear(clienteRequest);
 
         // Verificar que la respuesta no sea nula
         assertNotNull(response, "La respuesta no debe ser nula");
-        // Verificar que se haya llamado al método save exactamente una vez
-        verify(clienteRepository, times(1)).save(any(Cliente.class));
+        // Verificar que se haya guardado exactamente una vez, sin consultas previas de duplicados
+        verify(clienteRepository, times(1)).saveAndFlush(any(Cliente.class));
+        verify(clienteRepository, never()).existsByNumeroIdentificacion(anyString());
+        verify(clienteRepository, never()).existsByCorreoElectronico(anyString());
     }
 
     /*
@@ -143,9 +161,6 @@ class ClienteServiceTest {
         clienteRequest.setFechaNacimiento(LocalDate.now().minusYears(15));
         cliente.setFechaNacimiento(LocalDate.now().minusYears(15));
 
-        // Configurar el mock para devolver el cliente menor de edad
-        when(modelMapper.map(any(ClienteRequest.class), eq(Cliente.class))).thenReturn(cliente);
-
         // Verificar que se lance la excepción esperada
         BuisnessException exception = assertThrows(BuisnessException.class,
                 () -> clienteService.crear(clienteRequest),
@@ -155,26 +170,24 @@ class ClienteServiceTest {
         assertTrue(exception.getMessage().contains("mayor de edad"),
                 "El mensaje debe indicar que se requiere ser mayor de edad");
         // Verificar que nunca se intentó guardar en la BD
-        verify(clienteRepository, never()).save(any(Cliente.class));
+        verify(clienteRepository, never()).saveAndFlush(any(Cliente.class));
     }
 
     /*
      * Prueba que el sistema rechace correos electrónicos duplicados.
      *
      * Cada cliente debe tener un correo electrónico único en el sistema.
-     * Esta prueba verifica que si ya existe un cliente con el mismo correo,
-     * se lance una excepción y no se permita el registro duplicado.
+     * La restricción única de la tabla rechaza el INSERT; esta prueba verifica
+     * que esa violación se convierta en la excepción de negocio de siempre.
      *
      *
      * @throws BusinessException cuando el correo ya está registrado
      */
     @Test
     void testCrearCliente_CorreoDuplicado_LanzaExcepcion() {
-        // Configurar los mocks
-        when(modelMapper.map(any(ClienteRequest.class), eq(Cliente.class))).thenReturn(cliente);
-        when(clienteRepository.existsByNumeroIdentificacion(anyString())).thenReturn(false);
-        // Simular que el correo ya existe
-        when(clienteRepository.existsByCorreoElectronico(anyString())).thenReturn(true);
+        // Simular que la base de datos rechaza el correo repetido
+        when(clienteRepository.saveAndFlush(any(Cliente.class)))
+                .thenThrow(violacion(Cliente.UK_CORREO_ELECTRONICO));
 
         // Verificar que se lance la excepción esperada
         BuisnessException exception = assertThrows(BuisnessException.class,
@@ -184,8 +197,23 @@ class ClienteServiceTest {
         // Verificar que el mensaje mencione el correo electrónico
         assertTrue(exception.getMessage().contains("correo electrónico"),
                 "El mensaje debe mencionar el correo electrónico duplicado");
-        // Verificar que no se guardó nada en la BD
-        verify(clienteRepository, never()).save(any(Cliente.class));
+    }
+
+    /*
+     * Prueba que el número de identificación repetido dé su propio mensaje
+     * y que otras violaciones de integridad no se oculten como duplicados.
+     */
+    @Test
+    void testCrearCliente_IdentificacionDuplicada_LanzaExcepcion() {
+        when(clienteRepository.saveAndFlush(any(Cliente.class)))
+                .thenThrow(violacion("PUBLIC." + Cliente.UK_NUMERO_IDENTIFICACION.toUpperCase() + "_INDEX_1"))
+                .thenThrow(violacion("fk_cuentas_cliente"));
+
+        BuisnessException exception = assertThrows(BuisnessException.class,
+                () -> clienteService.crear(clienteRequest));
+        assertEquals("ya existe un cliente con el numero de identificación123456789", exception.getMessage());
+
+        assertThrows(DataIntegrityViolationException.class, () -> clienteService.crear(clienteRequest));
     }
 
     /*
@@ -202,6 +230,7 @@ class ClienteServiceTest {
     void testEliminarCliente_SinCuentas_Exitoso() {
         // Configurar el mock para devolver un cliente sin cuentas
         when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
+        when(cuentaRepository.existsByClienteId(1L)).thenReturn(false);
 
         // Verificar que no se lance ninguna excepción
         assertDoesNotThrow(() -> clienteService.eliminar(1L),
@@ -211,6 +240,23 @@ class ClienteServiceTest {
         verify(clienteRepository, times(1)).deleteById(1L);
     }
 
+    /*
+     * Prueba que no se elimine un cliente con cuentas vinculadas.
+     *
+     * La verificación se hace con una consulta de existencia sobre las
+     * cuentas; la colección de cuentas del cliente nunca se carga.
+     */
+    @Test
+    void testEliminarCliente_ConCuentas_LanzaExcepcion() {
+        when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
+        when(cuentaRepository.existsByClienteId(1L)).thenReturn(true);
+
+        assertThrows(BuisnessException.class, () -> clienteService.eliminar(1L),
+                "Debe lanzar BusinessException si el cliente tiene cuentas");
+
+        verify(clienteRepository, never()).deleteById(anyLong());
+    }
+
     /*
      * Prueba la búsqueda de un cliente por su ID.
      *
@@ -224,8 +270,11 @@ class ClienteServiceTest {
     @Test
     void testBuscarPorId_Exitoso() {
         // Configurar los mocks para simular la búsqueda exitosa
-        when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
-        when(modelMapper.map(any(Cliente.class), eq(ClienteResponse.class))).thenReturn(new ClienteResponse());
+        when(lecturas.ejecutar(eq("cliente.id"), eq(1L), any()))
+                .thenAnswer(invocacion -> invocacion.<Supplier<?>>getArgument(2).get());
+        when(clienteRepository.buscarDatosPorId(1L)).thenReturn(Optional.of(new DatosCliente(1L,
+                TipoIdentifiacion.CEDULA_CIUDADANIA, "123456789", "Juan", LocalDate.of(1990, 1, 1),
+                null, null, 2L)));
 
         // Ejecutar la búsqueda
         ClienteResponse response = clienteService.buscarporId(1L);
@@ -233,6 +282,15 @@ class ClienteServiceTest {
         // Verificar que la respuesta no sea nula
         assertNotNull(response, "La respuesta no debe ser nula");
         // Verificar que se haya llamado al repositorio
-        verify(clienteRepository, times(1)).findById(1L);
+        assertEquals(2, response.getCantidadCuentas());
+        verify(clienteRepository, times(1)).buscarDatosPorId(1L);
+    }
+
+    /*
+     * Excepción como la que traduce Spring cuando el driver rechaza el INSERT
+     */
+    private DataIntegrityViolationException violacion(String restriccion) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key", new SQLException("duplicate key"), restriccion));
     }
 }
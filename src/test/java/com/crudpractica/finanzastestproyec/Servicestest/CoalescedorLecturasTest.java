@@ -0,0 +1,132 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.CoalescedorLecturas;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/*
+ * Pruebas de la agrupacion de lecturas concurrentes.
+ *
+ * Verifica que peticiones simultaneas de la misma clave ejecuten una sola
+ * carga y reciban el mismo resultado, que solo esa carga abra transaccion,
+ * que un error llegue a todas y que las metricas reflejen el fan-in.
+ */
+@ExtendWith(MockitoExtension.class)
+class CoalescedorLecturasTest {
+
+    private static final int PETICIONES = 8;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry registry;
+    private CoalescedorLecturas lecturas;
+    private ExecutorService hilos;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        lecturas = new CoalescedorLecturas(registry, transactionManager);
+        hilos = Executors.newFixedThreadPool(PETICIONES);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hilos.shutdownNow();
+    }
+
+    /*
+     * La carga espera a que todas las peticiones hayan llegado antes de
+     * responder, asi las demas siempre la encuentran en curso.
+     */
+    @Test
+    void testEjecutar_PeticionesSimultaneas_UnaSolaCarga() throws Exception {
+        AtomicInteger cargas = new AtomicInteger();
+        Object resultado = new Object();
+
+        List<Future<Object>> respuestas = lanzar("cuenta.id", 1L, () -> {
+            cargas.incrementAndGet();
+            esperarSolicitudes("cuenta.id");
+            return resultado;
+        });
+
+        for (Future<Object> respuesta : respuestas) {
+            assertSame(resultado, respuesta.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, cargas.get());
+        verify(transactionManager, times(1)).getTransaction(any());
+        assertEquals(PETICIONES, registry.get("finanzas.lecturas.fan-in").tag("operacion", "cuenta.id")
+                .gauge().value());
+
+        //terminada la carga la clave se libera y la siguiente peticion vuelve a cargar
+        lecturas.ejecutar("cuenta.id", 1L, () -> cargas.incrementAndGet());
+        assertEquals(2, cargas.get());
+    }
+
+    @Test
+    void testEjecutar_ErrorEnLaCarga_LlegaATodas() throws Exception {
+        List<Future<Object>> respuestas = lanzar("cliente.id", 9L, () -> {
+            esperarSolicitudes("cliente.id");
+            throw new BuisnessException("Cliente no encontrado con ID : 9");
+        });
+
+        for (Future<Object> respuesta : respuestas) {
+            Exception ex = assertThrows(Exception.class, () -> respuesta.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(BuisnessException.class, ex.getCause());
+        }
+        assertEquals(1, registry.get("finanzas.lecturas.cargas").tag("operacion", "cliente.id")
+                .counter().count());
+    }
+
+    /*
+     * Claves u operaciones distintas no se agrupan entre si
+     */
+    @Test
+    void testEjecutar_ClavesDistintas_CargasSeparadas() {
+        assertEquals("1", lecturas.ejecutar("cuenta.id", 1L, () -> "1"));
+        assertEquals("2", lecturas.ejecutar("cuenta.id", 2L, () -> "2"));
+        assertEquals("3", lecturas.ejecutar("cliente.id", 1L, () -> "3"));
+
+        assertEquals(2, registry.get("finanzas.lecturas.cargas").tag("operacion", "cuenta.id")
+                .counter().count());
+        assertEquals(1.0, registry.get("finanzas.lecturas.fan-in").tag("operacion", "cuenta.id")
+                .gauge().value());
+    }
+
+    private List<Future<Object>> lanzar(String operacion, Object clave, Supplier<Object> carga) {
+        List<Future<Object>> respuestas = new ArrayList<>();
+        for (int i = 0; i < PETICIONES; i++) {
+            respuestas.add(hilos.submit(() -> lecturas.ejecutar(operacion, clave, carga)));
+        }
+        return respuestas;
+    }
+
+    private void esperarSolicitudes(String operacion) {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("finanzas.lecturas.solicitudes").tag("operacion", operacion).counter().count() < PETICIONES
+                && System.nanoTime() < limite) {
+            Thread.onSpinWait();
+        }
+    }
+}
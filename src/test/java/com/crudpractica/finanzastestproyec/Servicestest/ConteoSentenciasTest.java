@@ -0,0 +1,314 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.AsignadorNumerosCuenta;
+import com.crudpractica.finanzastestproyec.Infrastructure.CoalescedorLecturas;
+import com.crudpractica.finanzastestproyec.Infrastructure.Config;
+import com.crudpractica.finanzastestproyec.Ledger.MotorLedger;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Model.Transaccion;
+import com.crudpractica.finanzastestproyec.Service.ActividadRecienteService;
+import com.crudpractica.finanzastestproyec.Service.CacheCuentasService;
+import com.crudpractica.finanzastestproyec.Service.ClienteService;
+import com.crudpractica.finanzastestproyec.Service.CuentaService;
+import com.crudpractica.finanzastestproyec.Service.FiltrosUnicidadService;
+import com.crudpractica.finanzastestproyec.Service.GmfService;
+import com.crudpractica.finanzastestproyec.Service.IdempotenciaService;
+import com.crudpractica.finanzastestproyec.Service.TransaccionService;
+import com.crudpractica.finanzastestproyec.dto.request.ClienteRequest;
+import com.crudpractica.finanzastestproyec.dto.request.CuentaRequest;
+import com.crudpractica.finanzastestproyec.dto.response.ClienteResponse;
+import com.crudpractica.finanzastestproyec.dto.response.CuentaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.PaginaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Cuenta las sentencias SQL que ejecuta cada consulta de lectura
+ *
+ * con varios clientes, cuentas y transacciones cargados, cada listado y cada
+ * busqueda debe resolverse con una cantidad fija de sentencias sin importar
+ * cuantas filas devuelva; si una relacion LAZY se vuelve a cargar por fila
+ * (N+1) el conteo de Hibernate lo delata.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({Config.class, ClienteService.class, CuentaService.class, TransaccionService.class,
+        CacheCuentasService.class, CoalescedorLecturas.class, AsignadorNumerosCuenta.class, FiltrosUnicidadService.class,
+        GmfService.class, SimpleMeterRegistry.class})
+class ConteoSentenciasTest {
+
+    private static final int CLIENTES = 4;
+    private static final int CUENTAS_POR_CLIENTE = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private CuentaService cuentaService;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @MockitoBean
+    private MotorLedger motorLedger;
+
+    @MockitoBean
+    private IdempotenciaService idempotenciaService;
+
+    @MockitoBean
+    private ActividadRecienteService actividadReciente;
+
+    private Statistics estadisticas;
+    private Long clienteId;
+    private Cuenta cuenta;
+    private Long transaccionId;
+
+    @BeforeEach
+    void setUp() {
+        List<Cuenta> cuentas = new ArrayList<>();
+        for (int i = 0; i < CLIENTES; i++) {
+            Cliente cliente = entityManager.persist(Cliente.builder()
+                    .tipoIdentifiacion(TipoIdentifiacion.CEDULA_CIUDADANIA)
+                    .numeroIdentificacion("10000" + i)
+                    .nombres("Cliente" + i)
+                    .apellido("Prueba")
+                    .correoElectronico("cliente" + i + "@correo.com")
+                    .fechaNacimiento(LocalDate.of(1990, 1, 1))
+                    .build());
+            clienteId = cliente.getId();
+            for (int j = 0; j < CUENTAS_POR_CLIENTE; j++) {
+                cuentas.add(entityManager.persist(Cuenta.builder()
+                        .tipoCuenta(TipoCuenta.AHORRO)
+                        .numeroCuenta("53" + String.format("%08d", i * 10 + j))
+                        .estado(EstadoCuenta.ACTIVA)
+                        .exentaGMF(false)
+                        .saldo(new BigDecimal("1000.00"))
+                        .cliente(cliente)
+                        .build()));
+            }
+        }
+        for (int i = 0; i < cuentas.size(); i++) {
+            Transaccion transaccion = new Transaccion();
+            transaccion.setTipoTrasaccion(TipoTrasaccion.TRANSFERENCIA);
+            transaccion.setMonto(BigDecimal.TEN);
+            transaccion.setDescripcion("Transferencia " + i);
+            transaccion.setCuentaOrigen(cuentas.get(i));
+            transaccion.setCuentaDestino(cuentas.get((i + 1) % cuentas.size()));
+            transaccionId = entityManager.persist(transaccion).getId();
+
+            Transaccion consignacion = new Transaccion();
+            consignacion.setTipoTrasaccion(TipoTrasaccion.CONSIGNACION);
+            consignacion.setMonto(BigDecimal.ONE);
+            consignacion.setDescripcion("Consignacion " + i);
+            consignacion.setCuentaOrigen(cuentas.get(i));
+            entityManager.persist(consignacion);
+        }
+        cuenta = cuentas.get(0);
+        entityManager.flush();
+        entityManager.clear();
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+
+    @Test
+    void testListadosDeClientes_UnaSentencia() {
+        //la cantidad de cuentas se cuenta en la misma sentencia
+        PaginaResponse<ClienteResponse> pagina = clienteService.listarTodos(null, CLIENTES - 1);
+        assertEquals(CLIENTES - 1, pagina.getContenido().size());
+        assertEquals(CUENTAS_POR_CLIENTE, pagina.getContenido().get(0).getCantidadCuentas());
+        assertSentencias(1, "listar clientes");
+
+        pagina = clienteService.listarTodos(pagina.getSiguienteCursor(), CLIENTES - 1);
+        assertEquals(1, pagina.getContenido().size());
+        assertNull(pagina.getSiguienteCursor());
+        assertSentencias(1, "listar la ultima pagina de clientes");
+
+        assertEquals(CUENTAS_POR_CLIENTE, clienteService.buscarporId(clienteId).getCantidadCuentas());
+        assertSentencias(1, "buscar cliente por id");
+    }
+
+    @Test
+    void testListadosDeCuentas_UnaSentencia() {
+        PaginaResponse<CuentaResponse> pagina = cuentaService.listarTodas(null, CUENTAS_POR_CLIENTE);
+        assertEquals(CUENTAS_POR_CLIENTE, pagina.getContenido().size());
+        assertEquals("Cliente0 Prueba", pagina.getContenido().get(0).getNombreCliente());
+        assertSentencias(1, "listar cuentas");
+
+        pagina = cuentaService.listarTodas(pagina.getSiguienteCursor(), CLIENTES * CUENTAS_POR_CLIENTE);
+        assertEquals((CLIENTES - 1) * CUENTAS_POR_CLIENTE, pagina.getContenido().size());
+        assertNull(pagina.getSiguienteCursor());
+        assertSentencias(1, "listar la ultima pagina de cuentas");
+
+        assertEquals(CUENTAS_POR_CLIENTE, cuentaService.listarPorCliente(clienteId).size());
+        assertSentencias(1, "listar cuentas por cliente");
+
+        //la primera busqueda carga los datos de la cuenta en la cache y lee el
+        //saldo; las siguientes solo leen el saldo
+        cuentaService.buscarPorId(cuenta.getId());
+        assertSentencias(2, "buscar cuenta por id sin cache");
+
+        cuentaService.buscarPorId(cuenta.getId());
+        assertSentencias(1, "buscar cuenta por id en cache");
+
+        cuentaService.buscarPorNumeroCuenta(cuenta.getNumeroCuenta());
+        assertSentencias(2, "buscar cuenta por numero sin resolver el id");
+
+        cuentaService.buscarPorNumeroCuenta(cuenta.getNumeroCuenta());
+        assertSentencias(1, "buscar cuenta por numero en cache");
+    }
+
+    @Test
+    void testListadosDeTransacciones_UnaSentencia() {
+        PaginaResponse<TransaccionResponse> pagina = transaccionService.listarTodas(null, 5);
+        assertEquals(5, pagina.getContenido().size());
+        assertEquals(pagina.getContenido().get(4).getId(), pagina.getSiguienteCursor());
+        assertEquals(cuenta.getNumeroCuenta(), pagina.getContenido().get(0).getNumeroCuentaOrigen());
+        assertSentencias(1, "listar transacciones");
+
+        assertEquals(3, transaccionService.listarPorCuenta(cuenta.getId()).size());
+        assertSentencias(1, "listar transacciones por cuenta");
+
+        transaccionService.buscarPorId(transaccionId);
+        assertSentencias(1, "buscar transaccion por id");
+    }
+
+    /*
+     * La eliminacion y la actualizacion de un cliente con miles de cuentas no
+     * deben cargar la coleccion: se verifica con exists y con los ids.
+     */
+    @Test
+    void testValidacionesDeClientes_SinCargarCuentas() {
+        assertThrows(BuisnessException.class, () -> clienteService.eliminar(clienteId));
+        assertEquals(2, estadisticas.getPrepareStatementCount(), "cliente y verificacion de cuentas");
+        assertEquals(0, estadisticas.getCollectionLoadCount(), "Colecciones cargadas al eliminar");
+        assertEquals(1, estadisticas.getEntityLoadCount(), "Solo se carga el cliente");
+        entityManager.clear();
+        estadisticas.clear();
+
+        ClienteResponse actualizado = clienteService.actualizar(clienteId, ClienteRequest.builder()
+                .tipoIdentifiacion(TipoIdentifiacion.CEDULA_CIUDADANIA)
+                .numeroIdentificacion("100003")
+                .nombres("Cliente3")
+                .apellido("Actualizado")
+                .correoElectronico("cliente3@correo.com")
+                .fechaNacimiento(LocalDate.of(1990, 1, 1))
+                .build());
+        entityManager.flush();
+        assertEquals(CUENTAS_POR_CLIENTE, actualizado.getCantidadCuentas());
+        assertEquals(0, estadisticas.getCollectionLoadCount(), "Colecciones cargadas al actualizar");
+        assertEquals(1, estadisticas.getEntityLoadCount(), "Solo se carga el cliente");
+    }
+
+    /*
+     * Crear un cliente es un solo INSERT: los duplicados los detectan las
+     * restricciones unicas y se traducen al mismo mensaje de negocio.
+     * Despues de una violacion se limpia el contexto, la entidad rechazada
+     * quedaria pendiente para el siguiente flush.
+     */
+    @Test
+    void testCrearCliente_UnaSentenciaSinConsultasPrevias() {
+        ClienteResponse creado = clienteService.crear(solicitud("200000", "nuevo@correo.com"));
+        assertEquals(0, creado.getCantidadCuentas());
+        assertEquals(1, estadisticas.getPrepareStatementCount(), "Sentencias al crear cliente");
+        entityManager.clear();
+        estadisticas.clear();
+
+        BuisnessException identificacion = assertThrows(BuisnessException.class,
+                () -> clienteService.crear(solicitud("100000", "otro@correo.com")));
+        assertEquals("ya existe un cliente con el numero de identificación100000", identificacion.getMessage());
+        assertEquals(1, estadisticas.getPrepareStatementCount(), "Sentencias al rechazar identificacion");
+        entityManager.clear();
+
+        BuisnessException correo = assertThrows(BuisnessException.class,
+                () -> clienteService.crear(solicitud("300000", "cliente0@correo.com")));
+        assertEquals("ya existe un cliente con el correo electrónico :cliente0@correo.com", correo.getMessage());
+        entityManager.clear();
+
+        BuisnessException actualizado = assertThrows(BuisnessException.class,
+                () -> clienteService.actualizar(clienteId, solicitud("100003", "cliente0@correo.com")));
+        assertEquals("El correo electronico ya esta registrado por otro cliente", actualizado.getMessage());
+    }
+
+    /*
+     * Con el bloque de numeros ya reservado, crear una cuenta solo busca el
+     * cliente e inserta: no se comprueba si el numero existe
+     */
+    @Test
+    void testCrearCuenta_SinVerificarNumero() {
+        CuentaRequest request = CuentaRequest.builder()
+                .tipoCuenta(TipoCuenta.CORRIENTE)
+                .clienteId(clienteId)
+                .build();
+        String primera = cuentaService.crear(request).getNumeroCuenta();
+        entityManager.flush();
+        entityManager.clear();
+        estadisticas.clear();
+
+        String segunda = cuentaService.crear(request).getNumeroCuenta();
+        entityManager.flush();
+        assertEquals(2, estadisticas.getPrepareStatementCount(), "cliente e insert de la cuenta");
+        assertNotEquals(primera, segunda);
+        assertTrue(segunda.matches("^33\\d{8}$"), segunda);
+    }
+
+    private ClienteRequest solicitud(String numeroIdentificacion, String correo) {
+        return ClienteRequest.builder()
+                .tipoIdentifiacion(TipoIdentifiacion.CEDULA_CIUDADANIA)
+                .numeroIdentificacion(numeroIdentificacion)
+                .nombres("Cliente")
+                .apellido("Nuevo")
+                .correoElectronico(correo)
+                .fechaNacimiento(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    /*
+     * cada consulta corre en una transaccion nueva, se limpia el contexto de
+     * persistencia para que la siguiente no reutilice entidades ya cargadas.
+     * Las lecturas devuelven proyecciones: ninguna debe cargar entidades.
+     */
+    private void assertSentencias(long esperadas, String consulta) {
+        assertEquals(esperadas, estadisticas.getPrepareStatementCount(),
+                "Sentencias ejecutadas al " + consulta);
+        assertEquals(0, estadisticas.getEntityLoadCount(),
+                "Entidades cargadas al " + consulta);
+        entityManager.clear();
+        estadisticas.clear();
+    }
+}
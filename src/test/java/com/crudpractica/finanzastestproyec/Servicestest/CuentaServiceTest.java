@@ -3,11 +3,15 @@ import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
 import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
 
 import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.AsignadorNumerosCuenta;
+import com.crudpractica.finanzastestproyec.Ledger.MotorLedger;
 import com.crudpractica.finanzastestproyec.Model.Cliente;
 import com.crudpractica.finanzastestproyec.Model.Cuenta;
 import com.crudpractica.finanzastestproyec.Repository.ClienteRepository;
 import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
+import com.crudpractica.finanzastestproyec.Service.CacheCuentasService;
 import com.crudpractica.finanzastestproyec.Service.CuentaService;
+import com.crudpractica.finanzastestproyec.Service.FiltrosUnicidadService;
 import com.crudpractica.finanzastestproyec.dto.request.CuentaRequest;
 import com.crudpractica.finanzastestproyec.dto.response.CuentaResponse;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,7 +20,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import java.math.BigDecimal;
 import java.util.Optional;
@@ -52,10 +55,28 @@ class CuentaServiceTest {
     private ClienteRepository clienteRepository;
 
     /*
-     * Mock del ModelMapper para conversiones.
+     * Mock del motor de ledger (deshabilitado, sin saldos en memoria).
      */
     @Mock
-    private ModelMapper modelMapper;
+    private MotorLedger motorLedger;
+
+    /*
+     * Mock de la cache de datos de cuentas.
+     */
+    @Mock
+    private CacheCuentasService cacheCuentas;
+
+    /*
+     * Mock del asignador de numeros de cuenta.
+     */
+    @Mock
+    private AsignadorNumerosCuenta asignadorNumeros;
+
+    /*
+     * Mock de los filtros de unicidad, solo registran los valores guardados.
+     */
+    @Mock
+    private FiltrosUnicidadService filtros;
 
     /*
      * Instancia del servicio bajo prueba con mocks inyectados.
@@ -123,12 +144,8 @@ class CuentaServiceTest {
     void testCrearCuenta_Valida_Exitoso() {
         // Configurar mocks con lenient para evitar "unnecessary stubbing"
         lenient().when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
-        lenient().when(modelMapper.map(any(CuentaRequest.class), eq(Cuenta.class))).thenReturn(cuenta);
         lenient().when(cuentaRepository.save(any(Cuenta.class))).thenReturn(cuenta);
-
-        CuentaResponse cuentaResponse = new CuentaResponse();
-        cuentaResponse.setNumeroCuenta("5312345678");
-        lenient().when(modelMapper.map(any(Cuenta.class), eq(CuentaResponse.class))).thenReturn(cuentaResponse);
+        when(asignadorNumeros.siguiente(TipoCuenta.AHORRO)).thenReturn("5312345678");
 
         // Ejecutar
         CuentaResponse resultado = cuentaService.crear(cuentaRequest);
@@ -148,7 +165,7 @@ class CuentaServiceTest {
     void testCrearCuenta_TipoAhorro_NumeroCuentaEmpiezaCon53() {
         // Configurar mocks con lenient
         lenient().when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
-        lenient().when(modelMapper.map(any(CuentaRequest.class), eq(Cuenta.class))).thenReturn(cuenta);
+        when(asignadorNumeros.siguiente(TipoCuenta.AHORRO)).thenReturn("5300481216");
 
         lenient().when(cuentaRepository.save(any(Cuenta.class))).thenAnswer(invocation -> {
             Cuenta cuentaGuardada = invocation.getArgument(0);
@@ -162,10 +179,6 @@ class CuentaServiceTest {
             return cuentaGuardada;
         });
 
-        CuentaResponse cuentaResponse = new CuentaResponse();
-        cuentaResponse.setNumeroCuenta("5312345678");
-        lenient().when(modelMapper.map(any(Cuenta.class), eq(CuentaResponse.class))).thenReturn(cuentaResponse);
-
         // Ejecutar
         CuentaResponse resultado = cuentaService.crear(cuentaRequest);
 
@@ -197,6 +210,8 @@ class CuentaServiceTest {
         verify(cuentaRepository).save(argThat(c ->
                 c.getEstado() == EstadoCuenta.CANCELADA
         ));
+        // Verificar que la cache de cuentas no siga mostrando la cuenta activa
+        verify(cacheCuentas).invalidar(1L);
     }
 
     /*
@@ -227,4 +242,43 @@ class CuentaServiceTest {
         // Verificar que NO se guardó ningún cambio
         verify(cuentaRepository, never()).save(any(Cuenta.class));
     }
-}
\ No newline at end of file
+
+    /*
+     * Verifica que el PUT no pueda cambiar el saldo de la cuenta.
+     *
+     * Los extractos calculan el saldo inicial restando al saldo actual los
+     * movimientos del periodo; un saldo editado sin transaccion los descuadraria.
+     *
+     * @throws BuisnessException cuando el saldo de la solicitud es distinto al actual
+     */
+    @Test
+    void testActualizarCuenta_CambiaSaldo_LanzaExcepcion() {
+        cuentaRequest.setSaldo(new BigDecimal("5000.00"));
+        when(cuentaRepository.buscarPorIdConCliente(1L)).thenReturn(Optional.of(cuenta));
+
+        BuisnessException exception = assertThrows(
+                BuisnessException.class,
+                () -> cuentaService.actualizar(1L, cuentaRequest)
+        );
+
+        assertTrue(exception.getMessage().contains("transacciones"));
+        verify(cuentaRepository, never()).save(any(Cuenta.class));
+    }
+
+    /*
+     * Verifica que el PUT con el mismo saldo actualice los demas campos.
+     */
+    @Test
+    void testActualizarCuenta_MismoSaldo_ActualizaExencion() {
+        cuentaRequest.setSaldo(new BigDecimal("0.00"));
+        cuentaRequest.setExentaGMF(true);
+        when(cuentaRepository.buscarPorIdConCliente(1L)).thenReturn(Optional.of(cuenta));
+        when(cuentaRepository.save(cuenta)).thenReturn(cuenta);
+
+        CuentaResponse response = cuentaService.actualizar(1L, cuentaRequest);
+
+        assertTrue(response.getExentaGMF());
+        assertEquals(BigDecimal.ZERO, response.getSaldo());
+        verify(cacheCuentas).invalidar(1L);
+    }
+}
@@ -0,0 +1,79 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Model.Transaccion;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/*
+ * Datos comunes de las pruebas @DataJpaTest sobre transacciones.
+ *
+ * Persiste el cliente, las cuentas y las transacciones con el TestEntityManager
+ * de la prueba; cada prueba solo define los montos y cuentas de su escenario.
+ */
+final class DatosTransacciones {
+
+    private final TestEntityManager entityManager;
+
+    DatosTransacciones(TestEntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    Cliente cliente() {
+        return entityManager.persist(Cliente.builder()
+                .tipoIdentifiacion(TipoIdentifiacion.CEDULA_CIUDADANIA)
+                .numeroIdentificacion("123456789")
+                .nombres("Juan")
+                .apellido("Pérez")
+                .correoElectronico("juan.perez@example.com")
+                .fechaNacimiento(LocalDate.of(1990, 1, 1))
+                .build());
+    }
+
+    Cuenta cuenta(Cliente cliente, String numero) {
+        return cuenta(cliente, numero, "1000.00");
+    }
+
+    Cuenta cuenta(Cliente cliente, String numero, String saldo) {
+        return entityManager.persist(Cuenta.builder()
+                .tipoCuenta(TipoCuenta.AHORRO)
+                .numeroCuenta(numero)
+                .estado(EstadoCuenta.ACTIVA)
+                .exentaGMF(false)
+                .saldo(new BigDecimal(saldo))
+                .cliente(cliente)
+                .build());
+    }
+
+    Transaccion transaccion(TipoTrasaccion tipo, String monto, String descripcion, Cuenta origen, Cuenta destino) {
+        Transaccion transaccion = new Transaccion();
+        transaccion.setTipoTrasaccion(tipo);
+        transaccion.setMonto(new BigDecimal(monto));
+        transaccion.setDescripcion(descripcion);
+        transaccion.setCuentaOrigen(origen);
+        transaccion.setCuentaDestino(destino);
+        return entityManager.persistAndFlush(transaccion);
+    }
+
+    /*
+     * la fecha se asigna al persistir, se corrige despues con una actualizacion directa
+     */
+    Transaccion transaccionConFecha(TipoTrasaccion tipo, String monto, Cuenta origen, Cuenta destino,
+                                    LocalDateTime fecha) {
+        Transaccion transaccion = transaccion(tipo, monto, null, origen, destino);
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Transaccion t SET t.fecha = :fecha WHERE t.id = :id")
+                .setParameter("fecha", fecha)
+                .setParameter("id", transaccion.getId())
+                .executeUpdate();
+        return transaccion;
+    }
+}
@@ -0,0 +1,114 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.FormatoExportacion;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Service.ExportacionTransaccionesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jackson.autoconfigure.JacksonAutoConfiguration;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Pruebas de la exportacion del historial de transacciones.
+ *
+ * Se ejecutan contra una base H2 en memoria para verificar la consulta con
+ * filtros, el formato CSV (incluido el escape de descripciones) y NDJSON.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(ExportacionTransaccionesService.class)
+class ExportacionTransaccionesServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ExportacionTransaccionesService exportacionTransaccionesService;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    private Cuenta origen;
+    private Cuenta destino;
+
+    @BeforeEach
+    void setUp() {
+        DatosTransacciones datos = new DatosTransacciones(entityManager);
+        Cliente cliente = datos.cliente();
+        origen = datos.cuenta(cliente, "5300000001");
+        destino = datos.cuenta(cliente, "5300000002");
+
+        datos.transaccion(TipoTrasaccion.CONSIGNACION, "100.00", "Nomina, quincena", origen, null);
+        datos.transaccion(TipoTrasaccion.TRANSFERENCIA, "40.00", "Pago \"arriendo\"", origen, destino);
+        datos.transaccion(TipoTrasaccion.RETIRO, "10.00", null, destino, null);
+        entityManager.clear();
+    }
+
+    /*
+     * Verifica el encabezado y el escape de comas y comillas en CSV.
+     */
+    @Test
+    void testExportarCsv_EscapaDescripciones() throws Exception {
+        String csv = exportar(FormatoExportacion.CSV, null, null, null, null);
+        String[] lineas = csv.split("\n");
+
+        assertEquals(4, lineas.length, "Encabezado más tres transacciones");
+        assertTrue(lineas[0].startsWith("id,tipoTransaccion,monto"));
+        assertTrue(lineas[1].contains(",CONSIGNACION,100.00,"));
+        assertTrue(lineas[1].endsWith(",\"Nomina, quincena\",5300000001,"));
+        assertTrue(lineas[2].endsWith(",\"Pago \"\"arriendo\"\"\",5300000001,5300000002"));
+    }
+
+    /*
+     * Verifica que NDJSON tenga un objeto por línea y que se apliquen los filtros
+     * de cuenta (origen o destino), tipo y rango de fechas.
+     */
+    @Test
+    void testExportarNdjson_AplicaFiltros() throws Exception {
+        String porCuenta = exportar(FormatoExportacion.NDJSON, destino.getId(), null, null, null);
+        String[] lineas = porCuenta.split("\n");
+        assertEquals(2, lineas.length, "La cuenta destino participa en dos transacciones");
+        JsonNode primera = jsonMapper.readTree(lineas[0]);
+        assertEquals("TRANSFERENCIA", primera.get("tipoTransaccion").asString());
+        assertEquals("5300000002", primera.get("numeroCuentaDestino").asString());
+
+        String porCuentaYTipo = exportar(FormatoExportacion.NDJSON, destino.getId(), TipoTrasaccion.RETIRO,
+                LocalDate.now(), LocalDate.now());
+        assertEquals(1, porCuentaYTipo.split("\n").length);
+        assertEquals("RETIRO", jsonMapper.readTree(porCuentaYTipo).get("tipoTransaccion").asString());
+        assertEquals("", exportar(FormatoExportacion.NDJSON, origen.getId(), null,
+                LocalDate.now().plusDays(1), null));
+
+        String porTipo = exportar(FormatoExportacion.NDJSON, null, TipoTrasaccion.RETIRO, null, null);
+        assertEquals(1, porTipo.split("\n").length);
+
+        String fueraDeRango = exportar(FormatoExportacion.NDJSON, null, null,
+                LocalDate.now().plusDays(1), LocalDate.now().plusDays(2));
+        assertEquals("", fueraDeRango);
+
+        String deHoy = exportar(FormatoExportacion.NDJSON, null, null, LocalDate.now(), LocalDate.now());
+        assertEquals(3, deHoy.split("\n").length);
+    }
+
+    private String exportar(FormatoExportacion formato, Long cuentaId, TipoTrasaccion tipo,
+                            LocalDate desde, LocalDate hasta) throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        exportacionTransaccionesService.exportar(formato, cuentaId, tipo, desde, hasta, salida);
+        return salida.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,111 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Service.ExtractoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jackson.autoconfigure.JacksonAutoConfiguration;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/*
+ * Pruebas del extracto de cuenta.
+ *
+ * Verifica que el saldo inicial del periodo descuente los movimientos
+ * posteriores a la fecha inicial y que cada línea lleve el saldo acumulado.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(ExtractoService.class)
+class ExtractoServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ExtractoService extractoService;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    private Cuenta cuenta;
+    private Cuenta otra;
+
+    /*
+     * La cuenta abrió con 1000: +100 (05/ene), -30 (10/ene), +50 (15/ene), -20 (01/feb),
+     * por eso su saldo actual es 1100.
+     */
+    @BeforeEach
+    void setUp() {
+        DatosTransacciones datos = new DatosTransacciones(entityManager);
+        Cliente cliente = datos.cliente();
+        cuenta = datos.cuenta(cliente, "5300000001", "1100.00");
+        otra = datos.cuenta(cliente, "5300000002", "500.00");
+
+        datos.transaccionConFecha(TipoTrasaccion.CONSIGNACION, "100.00", cuenta, null, LocalDateTime.of(2026, 1, 5, 9, 0));
+        datos.transaccionConFecha(TipoTrasaccion.TRANSFERENCIA, "30.00", cuenta, otra, LocalDateTime.of(2026, 1, 10, 9, 0));
+        datos.transaccionConFecha(TipoTrasaccion.TRANSFERENCIA, "50.00", otra, cuenta, LocalDateTime.of(2026, 1, 15, 9, 0));
+        datos.transaccionConFecha(TipoTrasaccion.RETIRO, "20.00", cuenta, null, LocalDateTime.of(2026, 2, 1, 9, 0));
+        entityManager.clear();
+    }
+
+    @Test
+    void testExtracto_SaldoInicialYSaldoPorMovimiento() throws Exception {
+        JsonNode extracto = escribir(LocalDate.of(2026, 1, 8), LocalDate.of(2026, 1, 31));
+
+        assertEquals(0, new BigDecimal("1100.00").compareTo(extracto.get("saldoInicial").decimalValue()));
+        assertEquals(2, extracto.get("movimientos").size());
+
+        JsonNode salida = extracto.get("movimientos").get(0);
+        assertEquals("TRANSFERENCIA", salida.get("tipoTransaccion").asString());
+        assertEquals("5300000002", salida.get("numeroCuentaContraparte").asString());
+        assertEquals(0, new BigDecimal("-30.00").compareTo(salida.get("valor").decimalValue()));
+        assertEquals(0, new BigDecimal("1070.00").compareTo(salida.get("saldo").decimalValue()));
+
+        JsonNode entrada = extracto.get("movimientos").get(1);
+        assertEquals(0, new BigDecimal("50.00").compareTo(entrada.get("valor").decimalValue()));
+        assertEquals(0, new BigDecimal("1120.00").compareTo(entrada.get("saldo").decimalValue()));
+
+        assertEquals(2, extracto.get("cantidadMovimientos").asInt());
+        assertEquals(0, new BigDecimal("1120.00").compareTo(extracto.get("saldoFinal").decimalValue()));
+    }
+
+    @Test
+    void testExtracto_PeriodoSinMovimientos() throws Exception {
+        JsonNode extracto = escribir(LocalDate.of(2025, 12, 1), LocalDate.of(2025, 12, 31));
+
+        assertEquals(0, new BigDecimal("1000.00").compareTo(extracto.get("saldoInicial").decimalValue()));
+        assertEquals(0, extracto.get("movimientos").size());
+        assertEquals(0, new BigDecimal("1000.00").compareTo(extracto.get("saldoFinal").decimalValue()));
+    }
+
+    @Test
+    void testValidar_RangoInvalido_LanzaExcepcion() {
+        assertThrows(BuisnessException.class, () ->
+                extractoService.validar(cuenta.getId(), LocalDate.of(2026, 2, 1), LocalDate.of(2026, 1, 1)));
+        assertThrows(BuisnessException.class, () ->
+                extractoService.validar(-1L, LocalDate.of(2026, 1, 1), LocalDate.of(2026, 2, 1)));
+    }
+
+    private JsonNode escribir(LocalDate desde, LocalDate hasta) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        extractoService.escribir(cuenta.getId(), desde, hasta, salida);
+        return jsonMapper.readTree(salida.toByteArray());
+    }
+}
@@ -0,0 +1,159 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
+import com.crudpractica.finanzastestproyec.Infrastructure.Config;
+import com.crudpractica.finanzastestproyec.Infrastructure.FiltroBloom;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Service.FiltrosUnicidadService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Pruebas de los filtros de Bloom de unicidad.
+ *
+ * Verifica que un valor descartado por el filtro no consulte la base de
+ * datos, que los posibles positivos si lleguen al repositorio, que lo
+ * registrado despues de construir se tenga en cuenta y que las metricas
+ * reflejen los falsos positivos.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({Config.class, FiltrosUnicidadService.class, SimpleMeterRegistry.class})
+class FiltrosUnicidadTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private FiltrosUnicidadService filtros;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        Cliente cliente = entityManager.persist(Cliente.builder()
+                .tipoIdentifiacion(TipoIdentifiacion.CEDULA_CIUDADANIA)
+                .numeroIdentificacion("123456789")
+                .nombres("Juan")
+                .apellido("Pérez")
+                .correoElectronico("juan.perez@example.com")
+                .fechaNacimiento(LocalDate.of(1990, 1, 1))
+                .build());
+        entityManager.persist(Cuenta.builder()
+                .tipoCuenta(TipoCuenta.AHORRO)
+                .numeroCuenta("5300000001")
+                .estado(EstadoCuenta.ACTIVA)
+                .exentaGMF(false)
+                .saldo(BigDecimal.ZERO)
+                .cliente(cliente)
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+
+    /*
+     * El contexto se comparte entre pruebas: las metricas se comparan contra
+     * su valor antes de la prueba
+     */
+    @Test
+    void testConstruido_NegativosSinConsultaYPositivosAlRepositorio() {
+        long reconstrucciones = registry.get("finanzas.filtros.reconstruccion").tag("filtro", "numero-cuenta")
+                .timer().count();
+        double negativos = negativosNumeroCuenta();
+        filtros.reconstruir();
+        estadisticas.clear();
+
+        assertFalse(filtros.existeNumeroIdentificacion("987654321"));
+        assertFalse(filtros.existeCorreoElectronico("otro@example.com"));
+        assertEquals(Set.of(), filtros.numerosCuentaExistentes(List.of("5300000002", "3300000001")));
+        assertEquals(0, estadisticas.getPrepareStatementCount(), "Los negativos no consultan la base de datos");
+
+        assertTrue(filtros.existeNumeroIdentificacion("123456789"));
+        assertTrue(filtros.existeCorreoElectronico("juan.perez@example.com"));
+        assertEquals(Set.of("5300000001"), filtros.numerosCuentaExistentes(List.of("5300000001", "5300000002")));
+        assertEquals(3, estadisticas.getPrepareStatementCount(), "Una consulta por posible positivo");
+
+        assertEquals(reconstrucciones + 1, registry.get("finanzas.filtros.reconstruccion")
+                .tag("filtro", "numero-cuenta").timer().count());
+        assertEquals(negativos + 3, negativosNumeroCuenta());
+    }
+
+    /*
+     * Un valor registrado que no llego a guardarse es un falso positivo:
+     * se consulta la base de datos y se cuenta en la tasa observada
+     */
+    @Test
+    void testRegistrado_PasaAlRepositorioYCuentaFalsoPositivo() {
+        filtros.reconstruir();
+        filtros.registrarCliente("555555555", "nuevo@example.com");
+        estadisticas.clear();
+        double falsosPositivos = registry.get("finanzas.filtros.consultas")
+                .tags("filtro", "correo-electronico", "resultado", "falso-positivo").counter().count();
+
+        assertFalse(filtros.existeCorreoElectronico("nuevo@example.com"));
+        assertFalse(filtros.existeCorreoElectronico("otro@example.com"));
+
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(falsosPositivos + 1, registry.get("finanzas.filtros.consultas")
+                .tags("filtro", "correo-electronico", "resultado", "falso-positivo").counter().count());
+        assertTrue(registry.get("finanzas.filtros.falsos-positivos").tag("filtro", "correo-electronico")
+                .gauge().value() > 0);
+    }
+
+    private double negativosNumeroCuenta() {
+        return registry.get("finanzas.filtros.consultas")
+                .tags("filtro", "numero-cuenta", "resultado", "negativo").counter().count();
+    }
+
+    /*
+     * Dimensionado para 10000 elementos al 1%: ninguno agregado se pierde y
+     * la tasa de falsos positivos queda cerca de la pedida
+     */
+    @Test
+    void testFiltroBloom_SinFalsosNegativosYTasaCercanaALaPedida() {
+        FiltroBloom filtro = new FiltroBloom(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filtro.agregar("cliente" + i + "@correo.com");
+        }
+
+        int falsosPositivos = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filtro.puedeContener("cliente" + i + "@correo.com"));
+            if (filtro.puedeContener("otro" + i + "@correo.com")) {
+                falsosPositivos++;
+            }
+        }
+        assertTrue(falsosPositivos < 200, "Falsos positivos: " + falsosPositivos);
+        assertEquals(0.01, filtro.tasaEstimada(), 0.005);
+    }
+}
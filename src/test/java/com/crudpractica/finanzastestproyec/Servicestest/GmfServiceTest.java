@@ -0,0 +1,168 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.CoalescedorLecturas;
+import com.crudpractica.finanzastestproyec.Infrastructure.Config;
+import com.crudpractica.finanzastestproyec.Ledger.MotorLedger;
+import com.crudpractica.finanzastestproyec.Model.AcumuladoGmf;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Repository.AcumuladoGmfRepository;
+import com.crudpractica.finanzastestproyec.Repository.TransaccionRepository;
+import com.crudpractica.finanzastestproyec.Service.ActividadRecienteService;
+import com.crudpractica.finanzastestproyec.Service.CacheCuentasService;
+import com.crudpractica.finanzastestproyec.Service.GmfService;
+import com.crudpractica.finanzastestproyec.Service.IdempotenciaService;
+import com.crudpractica.finanzastestproyec.Service.TransaccionService;
+import com.crudpractica.finanzastestproyec.dto.request.TransaccionRequest;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Pruebas de la liquidacion del GMF (4x1000).
+ *
+ * El monto exento mensual se reduce a 1000 pesos (1000 UVT de 1 peso) para
+ * cruzarlo con pocos retiros. Verifica que las cuentas exentas solo paguen
+ * el excedente del mes, que el acumulado empiece de nuevo al cambiar de mes
+ * y que un retiro de una cuenta no exenta debite el gravamen y lo registre
+ * como otra transaccion.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "finanzas.gmf.uvt-exentas-mensuales=1000",
+        "finanzas.gmf.valor-uvt=1"
+})
+@Import({Config.class, GmfService.class, TransaccionService.class, CacheCuentasService.class,
+        CoalescedorLecturas.class, SimpleMeterRegistry.class})
+class GmfServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private GmfService gmfService;
+
+    @Autowired
+    private TransaccionService transaccionService;
+
+    @Autowired
+    private AcumuladoGmfRepository acumuladoRepository;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @MockitoBean
+    private MotorLedger motorLedger;
+
+    @MockitoBean
+    private IdempotenciaService idempotenciaService;
+
+    @MockitoBean
+    private ActividadRecienteService actividadReciente;
+
+    @Test
+    void testCuentaExenta_SoloPagaElExcedenteDelMes() {
+        Long clienteId = 9001L;
+
+        assertEquals(new BigDecimal("0.00"), gmfService.liquidar(clienteId, true, new BigDecimal("600")));
+        //600 + 600 supera el exento en 200
+        assertEquals(new BigDecimal("0.80"), gmfService.liquidar(clienteId, true, new BigDecimal("600")));
+        assertEquals(new BigDecimal("0.40"), gmfService.liquidar(clienteId, true, new BigDecimal("100")));
+
+        assertEquals(0, new BigDecimal("1300").compareTo(
+                acumuladoRepository.buscarRetirosExentos(clienteId).orElseThrow()));
+    }
+
+    @Test
+    void testCuentaExenta_NuevoMes_ReiniciaElAcumulado() {
+        Long clienteId = 9002L;
+        acumuladoRepository.saveAndFlush(AcumuladoGmf.builder()
+                .clienteId(clienteId)
+                .periodo(LocalDate.now().minusMonths(1).getYear() * 100 + LocalDate.now().minusMonths(1).getMonthValue())
+                .retirosExentos(new BigDecimal("5000"))
+                .build());
+        entityManager.clear();
+
+        assertEquals(new BigDecimal("0.00"), gmfService.liquidar(clienteId, true, new BigDecimal("600")));
+        assertEquals(0, new BigDecimal("600").compareTo(
+                acumuladoRepository.buscarRetirosExentos(clienteId).orElseThrow()));
+    }
+
+    @Test
+    void testRetiro_CuentaNoExenta_DebitaGmfYRegistraTransaccion() {
+        Cuenta cuenta = cuenta(false, "1000.00");
+
+        TransaccionResponse retiro = transaccionService.crear(TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.RETIRO)
+                .monto(new BigDecimal("500.00"))
+                .cuentaOrigenId(cuenta.getId())
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(new BigDecimal("498.00"), entityManager.find(Cuenta.class, cuenta.getId()).getSaldo());
+        List<TransaccionResponse> transacciones = transaccionRepository.buscarPorCuenta(cuenta.getId());
+        assertEquals(2, transacciones.size());
+        TransaccionResponse gravamen = transacciones.stream()
+                .filter(t -> !t.getId().equals(retiro.getId()))
+                .findFirst().orElseThrow();
+        assertEquals(TipoTrasaccion.GMF, gravamen.getTipoTransaccion());
+        assertEquals(new BigDecimal("2.00"), gravamen.getMonto());
+        assertEquals("GMF 4x1000 transaccion " + retiro.getId(), gravamen.getDescripcion());
+        //las cuentas no exentas no llevan acumulado
+        assertTrue(acumuladoRepository.findById(cuenta.getCliente().getId()).isEmpty());
+    }
+
+    @Test
+    void testRetiro_SaldoNoAlcanzaParaElGmf_LanzaExcepcion() {
+        Cuenta cuenta = cuenta(false, "1000.00");
+
+        BuisnessException exception = assertThrows(BuisnessException.class,
+                () -> transaccionService.crear(TransaccionRequest.builder()
+                        .tipoTransaccion(TipoTrasaccion.RETIRO)
+                        .monto(new BigDecimal("1000.00"))
+                        .cuentaOrigenId(cuenta.getId())
+                        .build()));
+
+        assertTrue(exception.getMessage().contains("Saldo insuficiente"));
+        entityManager.clear();
+        assertEquals(new BigDecimal("1000.00"), entityManager.find(Cuenta.class, cuenta.getId()).getSaldo());
+    }
+
+    private Cuenta cuenta(boolean exenta, String saldo) {
+        Cliente cliente = entityManager.persist(Cliente.builder()
+                .tipoIdentifiacion(TipoIdentifiacion.CEDULA_CIUDADANIA)
+                .numeroIdentificacion("700000" + System.nanoTime() % 1000)
+                .nombres("Gmf")
+                .apellido("Prueba")
+                .correoElectronico("gmf" + System.nanoTime() + "@correo.com")
+                .fechaNacimiento(LocalDate.of(1990, 1, 1))
+                .build());
+        Cuenta cuenta = entityManager.persist(Cuenta.builder()
+                .tipoCuenta(TipoCuenta.AHORRO)
+                .numeroCuenta("53" + String.format("%08d", System.nanoTime() % 100_000_000))
+                .estado(EstadoCuenta.ACTIVA)
+                .exentaGMF(exenta)
+                .saldo(new BigDecimal(saldo))
+                .cliente(cliente)
+                .build());
+        entityManager.flush();
+        return cuenta;
+    }
+}
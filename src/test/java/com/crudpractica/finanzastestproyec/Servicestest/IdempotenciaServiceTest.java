@@ -0,0 +1,152 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Model.ClaveIdempotencia;
+import com.crudpractica.finanzastestproyec.Repository.ClaveIdempotenciaRepository;
+import com.crudpractica.finanzastestproyec.Service.IdempotenciaService;
+import com.crudpractica.finanzastestproyec.dto.request.TransaccionRequest;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/*
+ * Pruebas del servicio de idempotencia de transacciones.
+ *
+ * Se verifica que una clave repetida no vuelva a ejecutar la transaccion,
+ * que las peticiones concurrentes con la misma clave se unan en una sola
+ * ejecucion y que la tabla de claves se use cuando la clave no esta en memoria.
+ *
+ * @author Equipo de Desarrollo
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class IdempotenciaServiceTest {
+
+    @Mock
+    private ClaveIdempotenciaRepository claveIdempotenciaRepository;
+
+    private IdempotenciaService idempotenciaService;
+
+    private TransaccionRequest request;
+
+    @BeforeEach
+    void setUp() {
+        idempotenciaService = new IdempotenciaService(claveIdempotenciaRepository, new FinanzasProperties());
+        request = TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.RETIRO)
+                .monto(new BigDecimal("100.00"))
+                .cuentaOrigenId(1L)
+                .build();
+    }
+
+    /*
+     * Verifica que la segunda peticion con la misma clave devuelva la misma
+     * respuesta sin ejecutar de nuevo la operacion.
+     */
+    @Test
+    void testClaveRepetida_DevuelveRespuestaGuardada() {
+        AtomicInteger ejecuciones = new AtomicInteger();
+        Supplier<TransaccionResponse> operacion = () -> respuesta(ejecuciones.incrementAndGet());
+        when(claveIdempotenciaRepository.findById("clave-1")).thenReturn(Optional.empty());
+
+        TransaccionResponse primera = idempotenciaService.ejecutar("clave-1", request, operacion);
+        TransaccionResponse segunda = idempotenciaService.ejecutar("clave-1", request, operacion);
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(primera, segunda);
+    }
+
+    /*
+     * Verifica que reutilizar una clave con otra peticion se rechace.
+     */
+    @Test
+    void testClaveRepetida_OtraPeticion_LanzaExcepcion() {
+        when(claveIdempotenciaRepository.findById("clave-1")).thenReturn(Optional.empty());
+        idempotenciaService.ejecutar("clave-1", request, () -> respuesta(1));
+
+        TransaccionRequest otra = TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.RETIRO)
+                .monto(new BigDecimal("200.00"))
+                .cuentaOrigenId(1L)
+                .build();
+
+        assertThrows(BuisnessException.class,
+                () -> idempotenciaService.ejecutar("clave-1", otra, () -> respuesta(2)));
+    }
+
+    /*
+     * Verifica que una clave guardada en la tabla (ya fuera de la cache)
+     * se responda sin ejecutar la operacion.
+     */
+    @Test
+    void testClavePersistida_NoEjecutaLaOperacion() {
+        ArgumentCaptor<ClaveIdempotencia> registro = ArgumentCaptor.forClass(ClaveIdempotencia.class);
+        idempotenciaService.registrar("clave-1", request, respuesta(7));
+        verify(claveIdempotenciaRepository).saveAndFlush(registro.capture());
+        when(claveIdempotenciaRepository.findById("clave-1")).thenReturn(Optional.of(registro.getValue()));
+
+        TransaccionResponse resultado = idempotenciaService.ejecutar("clave-1", request,
+                () -> fail("La operación no debe ejecutarse"));
+
+        assertEquals(7L, resultado.getId());
+        assertEquals("5312345678", resultado.getNumeroCuentaOrigen());
+    }
+
+    /*
+     * Verifica que dos peticiones simultaneas con la misma clave ejecuten
+     * la operacion una sola vez.
+     */
+    @Test
+    void testPeticionesConcurrentes_SeEjecutanUnaVez() throws Exception {
+        AtomicInteger ejecuciones = new AtomicInteger();
+        CountDownLatch enEjecucion = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(claveIdempotenciaRepository.findById(anyString())).thenReturn(Optional.empty());
+
+        CompletableFuture<TransaccionResponse> primera = CompletableFuture.supplyAsync(() ->
+                idempotenciaService.ejecutar("clave-1", request, () -> {
+                    ejecuciones.incrementAndGet();
+                    enEjecucion.countDown();
+                    try {
+                        liberar.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return respuesta(1);
+                }));
+        assertTrue(enEjecucion.await(5, TimeUnit.SECONDS));
+        CompletableFuture<TransaccionResponse> segunda = CompletableFuture.supplyAsync(() ->
+                idempotenciaService.ejecutar("clave-1", request, () -> respuesta(ejecuciones.incrementAndGet())));
+        liberar.countDown();
+
+        assertEquals(primera.get(5, TimeUnit.SECONDS), segunda.get(5, TimeUnit.SECONDS));
+        assertEquals(1, ejecuciones.get());
+    }
+
+    private TransaccionResponse respuesta(long id) {
+        return TransaccionResponse.builder()
+                .id(id)
+                .tipoTransaccion(TipoTrasaccion.RETIRO)
+                .monto(new BigDecimal("100.00"))
+                .numeroCuentaOrigen("5312345678")
+                .build();
+    }
+}
@@ -0,0 +1,272 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Controller.ClienteController;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.AsignadorNumerosCuenta;
+import com.crudpractica.finanzastestproyec.Infrastructure.Config;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Model.ImportacionClientes;
+import com.crudpractica.finanzastestproyec.Repository.ClienteRepository;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
+import com.crudpractica.finanzastestproyec.Repository.ImportacionClientesRepository;
+import com.crudpractica.finanzastestproyec.Service.FiltrosUnicidadService;
+import com.crudpractica.finanzastestproyec.Service.ImportacionClientesService;
+import com.crudpractica.finanzastestproyec.dto.response.ErrorFilaImportacion;
+import com.crudpractica.finanzastestproyec.dto.response.ImportacionClientesResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.WebRequestHandlerInterceptorAdapter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * Pruebas de la importacion masiva de clientes desde CSV.
+ *
+ * Con lotes de 2 filas verifica el reporte de errores por fila (mismas
+ * reglas que la creacion de un cliente, tambien entre filas de lotes
+ * distintos) y que al reenviar el archivo despues de un fallo se continue
+ * desde la ultima fila confirmada sin repetir clientes. El reporte guarda
+ * como maximo 5 errores.
+ *
+ * Cada lote se confirma en su propia transaccion, por eso la prueba no
+ * corre dentro de una transaccion y limpia las tablas al terminar.
+ *
+ * La peticion HTTP corre con el EntityManager de la peticion abierto (open
+ * in view, activo por defecto): los lotes confirmados no deben quedarse en el.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "finanzas.importacion.filas-por-transaccion=2",
+        "finanzas.importacion.maximo-errores=5"
+})
+@Import({Config.class, ImportacionClientesService.class, AsignadorNumerosCuenta.class, FiltrosUnicidadService.class,
+        SimpleMeterRegistry.class, LocalValidatorFactoryBean.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImportacionClientesTest {
+
+    private static final String ENCABEZADO =
+            "tipo_identificacion,numero_identificacion,nombres,apellido,correo_electronico,fecha_nacimiento," +
+                    "tipo_cuenta,exenta_gmf\n";
+
+    @Autowired
+    private ImportacionClientesService importacionService;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private ImportacionClientesRepository importacionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        cuentaRepository.deleteAllInBatch();
+        clienteRepository.deleteAllInBatch();
+        importacionRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testImportar_CreaFilasValidasYReportaErroresPorFila() throws IOException {
+        String csv = ENCABEZADO +
+                "CC,100001,Ana,Gomez,ana@correo.com,1990-01-01,AHORRO,true\n" +
+                "CEDULA_CIUDADANIA,100002,\"Luis, Jr\",Diaz,luis@correo.com,1985-05-05,,\n" +
+                "CC,100003,Menor,Edad,menor@correo.com," + LocalDate.now().minusYears(10) + ",,\n" +
+                "CC,100004,Otra,Ana,ana@correo.com,1990-01-01,,\n" +
+                "PA,100005,Pedro,Ruiz,pedro@correo.com,1970-03-03,CORRIENTE,false\n" +
+                "PA,100005,Pedro,Repetido,pedro2@correo.com,1970-03-03,,\n" +
+                "CC,100007,Sin,Correo,no-es-correo,1990-01-01,,\n" +
+                "CC,100008,Faltan,Columnas\n";
+
+        ImportacionClientesResponse respuesta = importacionService.importar("importacion-1", csv(csv));
+
+        assertTrue(respuesta.getCompletada());
+        assertEquals(8, respuesta.getFilasProcesadas());
+        assertEquals(3, respuesta.getClientesCreados());
+        assertEquals(2, respuesta.getCuentasCreadas());
+        assertEquals(List.of(3L, 4L, 6L, 7L, 8L),
+                respuesta.getErrores().stream().map(ErrorFilaImportacion::getFila).toList());
+        assertTrue(respuesta.getErrores().get(0).getError().contains("mayor de edad"));
+        //la fila 4 repite el correo de un lote ya confirmado, la 6 el numero de una fila del mismo lote
+        assertEquals("ya existe un cliente con el correo electrónico :ana@correo.com",
+                respuesta.getErrores().get(1).getError());
+        assertTrue(respuesta.getErrores().get(2).getError().contains("100005"));
+
+        assertEquals(3, clienteRepository.count());
+        assertEquals("Luis, Jr", clienteRepository.findByCorreoElectronico("luis@correo.com")
+                .orElseThrow().getNombres());
+        List<Cuenta> cuentas = cuentaRepository.findAll();
+        assertEquals(2, cuentas.size());
+        assertTrue(cuentas.stream().anyMatch(c -> c.getNumeroCuenta().startsWith("53") && c.getExentaGMF()));
+
+        ImportacionClientes importacion = importacionRepository.findById("importacion-1").orElseThrow();
+        assertEquals(8, importacion.getFilasConfirmadas());
+        assertTrue(importacion.isCompletada());
+    }
+
+    /*
+     * La conexion se corta al leer la fila 4: se confirmaron las filas 1 y 2,
+     * la 3 estaba pendiente y se pierde; el reenvio la vuelve a procesar
+     */
+    @Test
+    void testImportar_Reenvio_ContinuaDesdeUltimaFilaConfirmada() throws IOException {
+        String filas = "CC,200001,Ana,Uno,uno@correo.com,1990-01-01,AHORRO,false\n" +
+                "CC,200002,Ana,Dos,dos@correo.com,1990-01-01,AHORRO,false\n" +
+                "CC,200003,Ana,Tres,tres@correo.com,1990-01-01,AHORRO,false\n" +
+                "CC,200004,Ana,Cuatro,cuatro@correo.com,1990-01-01,AHORRO,false\n" +
+                "CC,200005,Ana,Cinco,cinco@correo.com,1990-01-01,AHORRO,false\n";
+        String hastaFila3 = ENCABEZADO + filas.substring(0, filas.indexOf("CC,200004"));
+
+        InputStream cortado = new SequenceInputStream(csv(hastaFila3), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("conexion cerrada");
+            }
+        });
+        assertThrows(IOException.class, () -> importacionService.importar("importacion-2", cortado));
+        assertEquals(2, clienteRepository.count());
+        assertEquals(2, importacionRepository.findById("importacion-2").orElseThrow().getFilasConfirmadas());
+
+        ImportacionClientesResponse reenvio = importacionService.importar("importacion-2", csv(ENCABEZADO + filas));
+
+        assertEquals(2, reenvio.getFilasOmitidas());
+        assertEquals(3, reenvio.getFilasProcesadas());
+        assertEquals(3, reenvio.getClientesCreados());
+        assertEquals(List.of(), reenvio.getErrores());
+        assertEquals(5, clienteRepository.count());
+        assertEquals(5, cuentaRepository.count());
+
+        ImportacionClientesResponse completada = importacionService.importar("importacion-2", csv(ENCABEZADO + filas));
+        assertEquals(0, completada.getFilasProcesadas());
+        assertEquals(5, completada.getFilasOmitidas());
+        assertEquals(5, clienteRepository.count());
+    }
+
+    @Test
+    void testImportar_MasErroresQueElMaximo_ReportaLosPrimerosYCuentaTodos() throws IOException {
+        StringBuilder csv = new StringBuilder(ENCABEZADO);
+        for (int i = 1; i <= 7; i++) {
+            csv.append("CC,30000").append(i).append(",Faltan,Columnas\n");
+        }
+        csv.append("CC,300008,Ana,Ocho,ocho@correo.com,1990-01-01,,\n");
+
+        ImportacionClientesResponse respuesta = importacionService.importar(null, csv(csv.toString()));
+
+        assertEquals(8, respuesta.getFilasProcesadas());
+        assertEquals(1, respuesta.getClientesCreados());
+        assertEquals(7, respuesta.getFallidas());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L),
+                respuesta.getErrores().stream().map(ErrorFilaImportacion::getFila).toList());
+    }
+
+    /*
+     * El correo de la fila 3 pasa la validacion pero no cabe en la columna:
+     * la base de datos rechaza su lote, que se guarda fila por fila, y la
+     * importacion sigue con las demas filas
+     */
+    @Test
+    void testImportar_FilaRechazadaPorLaBaseDeDatos_SeReportaYContinua() throws IOException {
+        String correoLargo = "largo@" + "a".repeat(60) + "." + "b".repeat(60) + ".com";
+        String csv = ENCABEZADO +
+                "CC,400001,Ana,Uno,uno@correo.com,1990-01-01,,\n" +
+                "CC,400002,Ana,Dos,dos@correo.com,1990-01-01,AHORRO,false\n" +
+                "CC,400003,Ana,Tres," + correoLargo + ",1990-01-01,AHORRO,false\n" +
+                "CC,400004,Ana,Cuatro,cuatro@correo.com,1990-01-01,,\n" +
+                "CC,400005,Ana,Cinco,cinco@correo.com,1990-01-01,,\n";
+
+        ImportacionClientesResponse respuesta = importacionService.importar("importacion-3", csv(csv));
+
+        assertTrue(respuesta.getCompletada());
+        assertEquals(4, respuesta.getClientesCreados());
+        assertEquals(1, respuesta.getCuentasCreadas());
+        assertEquals(1, respuesta.getFallidas());
+        assertEquals(List.of(new ErrorFilaImportacion(3L, "La base de datos rechazo la fila")),
+                respuesta.getErrores());
+        assertEquals(4, clienteRepository.count());
+        assertEquals(5, importacionRepository.findById("importacion-3").orElseThrow().getFilasConfirmadas());
+    }
+
+    /*
+     * Con open in view todos los lotes usan el EntityManager de la peticion;
+     * al terminar el controlador no debe tener administrado ningun cliente o
+     * cuenta de los lotes ya confirmados
+     */
+    @Test
+    void testImportarPorHttp_ConOpenInView_NoAcumulaEntidadesEnElContexto() throws Exception {
+        OpenEntityManagerInViewInterceptor openInView = new OpenEntityManagerInViewInterceptor();
+        openInView.setEntityManagerFactory(entityManagerFactory);
+        AtomicInteger entidades = new AtomicInteger(-1);
+        HandlerInterceptor contexto = new HandlerInterceptor() {
+            @Override
+            public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                   ModelAndView modelAndView) {
+                EntityManagerHolder peticion =
+                        (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+                entidades.set(peticion.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+            }
+        };
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ClienteController(null, null, importacionService))
+                .addInterceptors(new WebRequestHandlerInterceptorAdapter(openInView), contexto)
+                .build();
+        StringBuilder csv = new StringBuilder(ENCABEZADO);
+        for (int i = 1; i <= 20; i++) {
+            csv.append("CC,50").append(String.format("%04d", i)).append(",Ana,Http,http").append(i)
+                    .append("@correo.com,1990-01-01,AHORRO,false\n");
+        }
+
+        mockMvc.perform(post("/api/clientes/importar").contentType("text/csv").content(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.clientesCreados").value(20))
+                .andExpect(jsonPath("$.cuentasCreadas").value(20));
+
+        assertEquals(0, entidades.get());
+        assertEquals(20, clienteRepository.count());
+    }
+
+    @Test
+    void testImportar_EncabezadoInvalido_LanzaExcepcion() {
+        BuisnessException exception = assertThrows(BuisnessException.class,
+                () -> importacionService.importar(null, csv("numero,nombre\n100001,Ana\n")));
+
+        assertTrue(exception.getMessage().contains("tipo_identificacion"));
+        assertEquals(0, clienteRepository.count());
+    }
+
+    private static InputStream csv(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+}
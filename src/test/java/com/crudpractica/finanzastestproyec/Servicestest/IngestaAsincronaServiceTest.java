@@ -0,0 +1,151 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoIngesta;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Infrastructure.ReintentoBloqueos;
+import com.crudpractica.finanzastestproyec.Service.IngestaAsincronaService;
+import com.crudpractica.finanzastestproyec.Service.TransaccionService;
+import com.crudpractica.finanzastestproyec.dto.request.LoteTransaccionRequest;
+import com.crudpractica.finanzastestproyec.dto.request.TransaccionRequest;
+import com.crudpractica.finanzastestproyec.dto.response.EstadoTransaccionAsincronaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.LoteTransaccionResponse;
+import com.crudpractica.finanzastestproyec.dto.response.ResultadoTransaccionLote;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/*
+ * Pruebas de la recepcion asincrona de transacciones.
+ *
+ * Se verifica que la cola acotada rechace cuando esta llena, que los
+ * trabajadores procesen lo encolado en micro-lotes y que al apagar se
+ * procese lo que quedaba pendiente o quede fallido si no alcanza el tiempo.
+ *
+ * @author Equipo de Desarrollo
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class IngestaAsincronaServiceTest {
+
+    @Mock
+    private TransaccionService transaccionService;
+
+    @Mock
+    private ReintentoBloqueos reintentoBloqueos;
+
+    private FinanzasProperties propiedades;
+
+    private TransaccionRequest request;
+
+    @BeforeEach
+    void setUp() {
+        propiedades = new FinanzasProperties();
+        request = TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.CONSIGNACION)
+                .monto(new BigDecimal("50.00"))
+                .cuentaOrigenId(1L)
+                .build();
+    }
+
+    /*
+     * Verifica que con la cola llena la transaccion no se acepte.
+     */
+    @Test
+    void testEncolar_ColaLlena_NoAcepta() {
+        propiedades.getIngesta().setCapacidadCola(1);
+        propiedades.getIngesta().setTrabajadores(0);
+        IngestaAsincronaService servicio = crearServicio();
+
+        Optional<EstadoTransaccionAsincronaResponse> primera = servicio.encolar(request);
+        Optional<EstadoTransaccionAsincronaResponse> segunda = servicio.encolar(request);
+
+        assertTrue(primera.isPresent());
+        assertEquals(EstadoIngesta.PENDIENTE, primera.get().getEstado());
+        assertTrue(segunda.isEmpty());
+        verifyNoInteractions(transaccionService);
+    }
+
+    /*
+     * Verifica que al apagar se procese todo lo encolado y que cada
+     * transaccion quede con el resultado de su posicion en el lote.
+     */
+    @Test
+    void testDetener_ProcesaLoPendiente() throws InterruptedException {
+        propiedades.getIngesta().setTrabajadores(1);
+        when(reintentoBloqueos.ejecutar(any())).thenAnswer(invocacion -> ((Supplier<?>) invocacion.getArgument(0)).get());
+        when(transaccionService.procesarLote(any(LoteTransaccionRequest.class))).thenAnswer(invocacion -> {
+            LoteTransaccionRequest lote = invocacion.getArgument(0);
+            assertFalse(lote.getTodoONada());
+            List<ResultadoTransaccionLote> resultados = new ArrayList<>();
+            for (int i = 0; i < lote.getTransacciones().size(); i++) {
+                resultados.add(ResultadoTransaccionLote.builder().indice(i).exitosa(true)
+                        .transaccion(TransaccionResponse.builder().monto(lote.getTransacciones().get(i).getMonto()).build())
+                        .build());
+            }
+            return LoteTransaccionResponse.builder().resultados(resultados).build();
+        });
+        IngestaAsincronaService servicio = crearServicio();
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(servicio.encolar(request).orElseThrow().getSeguimientoId());
+        }
+        servicio.detener();
+
+        for (String id : ids) {
+            EstadoTransaccionAsincronaResponse estado = servicio.consultarEstado(id);
+            assertEquals(EstadoIngesta.PROCESADA, estado.getEstado());
+            assertNotNull(estado.getFechaProceso());
+            assertEquals(new BigDecimal("50.00"), estado.getTransaccion().getMonto());
+        }
+        assertTrue(servicio.encolar(request).isEmpty(), "Despues de apagar no se aceptan transacciones");
+    }
+
+    /*
+     * Verifica que lo que sigue en la cola al terminar la espera del apagado
+     * quede FALLIDA con el motivo en vez de quedarse PENDIENTE.
+     */
+    @Test
+    void testDetener_SinTiempoParaProcesar_MarcaLoPendienteComoFallido() throws InterruptedException {
+        propiedades.getIngesta().setTrabajadores(0);
+        propiedades.getIngesta().setEsperaApagadoMs(1);
+        IngestaAsincronaService servicio = crearServicio();
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(servicio.encolar(request).orElseThrow().getSeguimientoId());
+        }
+        servicio.detener();
+
+        for (String id : ids) {
+            EstadoTransaccionAsincronaResponse estado = servicio.consultarEstado(id);
+            assertEquals(EstadoIngesta.FALLIDA, estado.getEstado());
+            assertNotNull(estado.getFechaProceso());
+            assertNotNull(estado.getError());
+            assertNull(estado.getTransaccion());
+        }
+        verifyNoInteractions(transaccionService);
+    }
+
+    private IngestaAsincronaService crearServicio() {
+        IngestaAsincronaService servicio = new IngestaAsincronaService(transaccionService, reintentoBloqueos,
+                propiedades, new SimpleMeterRegistry());
+        servicio.iniciar();
+        return servicio;
+    }
+}
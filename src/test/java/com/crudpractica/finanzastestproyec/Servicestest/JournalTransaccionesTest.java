@@ -0,0 +1,137 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Ledger.JournalTransacciones;
+import com.crudpractica.finanzastestproyec.Ledger.MovimientoLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Pruebas del journal de transacciones sobre una carpeta temporal.
+ *
+ * Se usan segmentos pequeños para forzar la rotacion y se verifica que al
+ * reabrir el journal solo se recuperen los movimientos posteriores al
+ * checkpoint, con todos sus campos.
+ *
+ * @author Equipo de Desarrollo
+ * @version 1.0
+ */
+class JournalTransaccionesTest {
+
+    @TempDir
+    Path carpeta;
+
+    private FinanzasProperties propiedades;
+
+    @BeforeEach
+    void setUp() {
+        propiedades = new FinanzasProperties();
+        propiedades.getJournal().setHabilitado(true);
+        propiedades.getJournal().setDirectorio(carpeta.toString());
+        propiedades.getJournal().setTamanoSegmentoBytes(1024);
+    }
+
+    /*
+     * Verifica que los movimientos escritos se recuperen completos y en orden
+     * al reabrir el journal, aunque ocupen varios segmentos.
+     */
+    @Test
+    void testReabrir_RecuperaMovimientosEnOrden() throws Exception {
+        JournalTransacciones journal = new JournalTransacciones(propiedades);
+        journal.abrir();
+        List<CompletableFuture<Void>> sincronizados = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            sincronizados.add(journal.registrar(movimiento(id), movimiento -> { }));
+        }
+        CompletableFuture.allOf(sincronizados.toArray(new CompletableFuture[0])).join();
+        journal.cerrar();
+
+        List<MovimientoLedger> recuperados = new JournalTransacciones(propiedades).abrir();
+
+        assertEquals(40, recuperados.size());
+        assertTrue(contarSegmentos() > 2, "Los registros deben repartirse en varios segmentos");
+        MovimientoLedger primero = recuperados.get(0);
+        assertEquals(1L, primero.getId());
+        assertEquals(TipoTrasaccion.TRANSFERENCIA, primero.getTipoTransaccion());
+        assertEquals(new BigDecimal("10.50"), primero.getMonto());
+        assertEquals(2L, primero.getCuentaDestinoId());
+        assertEquals(LocalDateTime.of(2026, 2, 11, 10, 30, 0, 123456000), primero.getFecha());
+        assertEquals("pago 1", primero.getDescripcion());
+        assertEquals(40L, recuperados.get(39).getId());
+    }
+
+    /*
+     * Verifica que varios movimientos registrados juntos (un movimiento y su
+     * GMF) se escriban seguidos, se entreguen en orden y se recuperen.
+     */
+    @Test
+    void testRegistrarVarios_LosEscribeSeguidosYEnOrden() throws Exception {
+        JournalTransacciones journal = new JournalTransacciones(propiedades);
+        journal.abrir();
+        List<Long> entregados = new ArrayList<>();
+        journal.registrar(List.of(movimiento(1L), movimiento(2L)), movimiento -> entregados.add(movimiento.getId()))
+                .join();
+        journal.cerrar();
+
+        List<MovimientoLedger> recuperados = new JournalTransacciones(propiedades).abrir();
+
+        assertEquals(List.of(1L, 2L), entregados);
+        assertEquals(List.of(1L, 2L), recuperados.stream().map(MovimientoLedger::getId).toList());
+    }
+
+    /*
+     * Verifica que el checkpoint limite lo que se reproduce y que los
+     * segmentos anteriores a el se eliminen.
+     */
+    @Test
+    void testCheckpoint_CompactaYSoloReproducePendientes() throws Exception {
+        JournalTransacciones journal = new JournalTransacciones(propiedades);
+        journal.abrir();
+        List<MovimientoLedger> escritos = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            MovimientoLedger movimiento = movimiento(id);
+            journal.registrar(movimiento, escritos::add);
+        }
+        journal.marcarPersistido(escritos.get(29).getPosicionJournal());
+        journal.cerrar();
+
+        List<MovimientoLedger> recuperados = new JournalTransacciones(propiedades).abrir();
+
+        assertEquals(10, recuperados.size());
+        assertEquals(31L, recuperados.get(0).getId());
+        assertFalse(Files.exists(carpeta.resolve(String.format("%020d.seg", 0))),
+                "Los segmentos ya persistidos deben eliminarse");
+    }
+
+    private MovimientoLedger movimiento(long id) {
+        return MovimientoLedger.builder()
+                .id(id)
+                .tipoTransaccion(TipoTrasaccion.TRANSFERENCIA)
+                .monto(new BigDecimal("10.50"))
+                .cuentaOrigenId(1L)
+                .cuentaDestinoId(2L)
+                .fecha(LocalDateTime.of(2026, 2, 11, 10, 30, 0, 123456000))
+                .descripcion("pago " + id)
+                .build();
+    }
+
+    private int contarSegmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(carpeta)) {
+            return (int) archivos.filter(archivo -> archivo.toString().endsWith(".seg")).count();
+        }
+    }
+}
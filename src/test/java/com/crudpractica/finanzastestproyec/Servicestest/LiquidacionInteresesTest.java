@@ -0,0 +1,198 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.Config;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Ledger.AsignadorIdsTransaccion;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Model.Transaccion;
+import com.crudpractica.finanzastestproyec.Repository.ClienteRepository;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
+import com.crudpractica.finanzastestproyec.Repository.ParticionInteresesRepository;
+import com.crudpractica.finanzastestproyec.Repository.TransaccionRepository;
+import com.crudpractica.finanzastestproyec.Service.ActividadRecienteService;
+import com.crudpractica.finanzastestproyec.Service.LiquidacionInteresesService;
+import com.crudpractica.finanzastestproyec.dto.response.LiquidacionInteresesResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Pruebas de la liquidacion de intereses de las cuentas de ahorro.
+ *
+ * Con particiones de 2 ids y 2 trabajadores verifica que solo se acrediten
+ * las cuentas de ahorro activas, cada una con su consignacion, y que al
+ * repetir una fecha de corte las particiones ya confirmadas se omitan.
+ *
+ * Cada particion se confirma en su propia transaccion, por eso la prueba no
+ * corre dentro de una transaccion y limpia las tablas al terminar.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "finanzas.intereses.ids-por-particion=2",
+        "finanzas.intereses.trabajadores=2",
+        "finanzas.intereses.tasa-efectiva-anual=0.10"
+})
+@Import({Config.class, LiquidacionInteresesService.class, AsignadorIdsTransaccion.class,
+        ActividadRecienteService.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LiquidacionInteresesTest {
+
+    private static final LocalDate AYER = LocalDate.now().minusDays(1);
+
+    @Autowired
+    private LiquidacionInteresesService liquidacionService;
+
+    @Autowired
+    private FinanzasProperties propiedades;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private CuentaRepository cuentaRepository;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @Autowired
+    private ParticionInteresesRepository particionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        transaccionRepository.deleteAllInBatch();
+        cuentaRepository.deleteAllInBatch();
+        clienteRepository.deleteAllInBatch();
+        particionRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testLiquidar_AcreditaAhorrosActivasConSuConsignacion() {
+        List<Cuenta> cuentas = cuentas(
+                cuenta(TipoCuenta.AHORRO, EstadoCuenta.ACTIVA, "1000000.00"),
+                cuenta(TipoCuenta.AHORRO, EstadoCuenta.ACTIVA, "250000.00"),
+                cuenta(TipoCuenta.AHORRO, EstadoCuenta.INACTIVA, "1000000.00"),
+                cuenta(TipoCuenta.CORRIENTE, EstadoCuenta.ACTIVA, "1000000.00"),
+                cuenta(TipoCuenta.AHORRO, EstadoCuenta.ACTIVA, "0.00"));
+
+        LiquidacionInteresesResponse respuesta = liquidacionService.liquidar(AYER);
+
+        BigDecimal primera = interes("1000000.00");
+        BigDecimal segunda = interes("250000.00");
+        assertEquals(2L, respuesta.getCuentasAcreditadas());
+        assertEquals(primera.add(segunda), respuesta.getIntereses());
+        assertEquals(0, respuesta.getParticionesOmitidas());
+        assertEquals(0, respuesta.getParticionesFallidas());
+
+        assertEquals(new BigDecimal("1000000.00").add(primera), saldo(cuentas.get(0)));
+        assertEquals(new BigDecimal("250000.00").add(segunda), saldo(cuentas.get(1)));
+        assertEquals(new BigDecimal("1000000.00"), saldo(cuentas.get(2)));
+        assertEquals(new BigDecimal("1000000.00"), saldo(cuentas.get(3)));
+        assertEquals(new BigDecimal("0.00"), saldo(cuentas.get(4)));
+
+        List<Transaccion> consignaciones = transaccionRepository.findByTipoTrasaccion(TipoTrasaccion.CONSIGNACION);
+        assertEquals(2, consignaciones.size());
+        Transaccion consignacion = transaccionRepository.findByCuentaOrigenId(cuentas.get(0).getId()).get(0);
+        assertEquals(primera, consignacion.getMonto());
+        assertEquals("Intereses cuenta de ahorro " + AYER, consignacion.getDescripcion());
+    }
+
+    /*
+     * Una ejecucion anterior alcanzo a confirmar la particion de la primera
+     * cuenta: solo se liquida la otra, y una tercera ejecucion no acredita nada
+     */
+    @Test
+    void testLiquidar_Reinicio_OmiteParticionesConfirmadas() {
+        List<Cuenta> cuentas = cuentas(
+                cuenta(TipoCuenta.AHORRO, EstadoCuenta.ACTIVA, "1000000.00"),
+                cuenta(TipoCuenta.CORRIENTE, EstadoCuenta.ACTIVA, "1000000.00"),
+                cuenta(TipoCuenta.AHORRO, EstadoCuenta.ACTIVA, "1000000.00"));
+        long desde = (cuentas.get(0).getId() - 1) / 2 * 2 + 1;
+        particionLiquidada(desde, desde + 1);
+
+        LiquidacionInteresesResponse reinicio = liquidacionService.liquidar(AYER);
+
+        assertEquals(1, reinicio.getParticionesOmitidas());
+        assertEquals(1L, reinicio.getCuentasAcreditadas());
+        assertEquals(new BigDecimal("1000000.00"), saldo(cuentas.get(0)));
+        BigDecimal liquidada = saldo(cuentas.get(2));
+        assertEquals(new BigDecimal("1000000.00").add(interes("1000000.00")), liquidada);
+
+        LiquidacionInteresesResponse repetida = liquidacionService.liquidar(AYER);
+
+        assertEquals(repetida.getParticiones(), repetida.getParticionesOmitidas());
+        assertEquals(0L, repetida.getCuentasAcreditadas());
+        assertEquals(liquidada, saldo(cuentas.get(2)));
+        assertEquals(1, transaccionRepository.count());
+    }
+
+    @Test
+    void testLiquidar_OtroTamanoDeParticion_LanzaExcepcion() {
+        particionLiquidada(1L, 10L);
+
+        BuisnessException exception = assertThrows(BuisnessException.class, () -> liquidacionService.liquidar(AYER));
+
+        assertTrue(exception.getMessage().contains("particiones de 10 ids"));
+    }
+
+    private void particionLiquidada(long desde, long hasta) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> particionRepository.crear(AYER + "/" + desde, AYER, desde, hasta));
+    }
+
+    private BigDecimal interes(String saldo) {
+        return new BigDecimal(saldo).multiply(propiedades.getIntereses().tasaDiaria()).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal saldo(Cuenta cuenta) {
+        return cuentaRepository.consultarSaldo(cuenta.getId()).orElseThrow();
+    }
+
+    private List<Cuenta> cuentas(Cuenta... cuentas) {
+        Cliente cliente = clienteRepository.save(Cliente.builder()
+                .tipoIdentifiacion(TipoIdentifiacion.CEDULA_CIUDADANIA)
+                .numeroIdentificacion("800000001")
+                .nombres("Ana")
+                .apellido("Ahorro")
+                .correoElectronico("ana.ahorro@correo.com")
+                .fechaNacimiento(LocalDate.of(1990, 1, 1))
+                .build());
+        for (int i = 0; i < cuentas.length; i++) {
+            cuentas[i].setCliente(cliente);
+            cuentas[i].setNumeroCuenta((cuentas[i].getTipoCuenta() == TipoCuenta.AHORRO ? "53" : "33")
+                    + String.format("%08d", i + 1));
+        }
+        return cuentaRepository.saveAll(List.of(cuentas));
+    }
+
+    private static Cuenta cuenta(TipoCuenta tipo, EstadoCuenta estado, String saldo) {
+        return Cuenta.builder()
+                .tipoCuenta(tipo)
+                .estado(estado)
+                .exentaGMF(false)
+                .saldo(new BigDecimal(saldo))
+                .build();
+    }
+}
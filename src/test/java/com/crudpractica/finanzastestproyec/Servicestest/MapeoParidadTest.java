@@ -0,0 +1,164 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.TipoIdentifiacion;
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Mapper.ClienteMapper;
+import com.crudpractica.finanzastestproyec.Mapper.CuentaMapper;
+import com.crudpractica.finanzastestproyec.Mapper.TransaccionMapper;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Model.Transaccion;
+import com.crudpractica.finanzastestproyec.dto.request.ClienteRequest;
+import com.crudpractica.finanzastestproyec.dto.response.ClienteResponse;
+import com.crudpractica.finanzastestproyec.dto.response.CuentaResponse;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/*
+ * Paridad de los mappers con la conversion anterior basada en ModelMapper.
+ *
+ * Cada caso convierte la misma entidad con ModelMapper, configurado como lo
+ * estaba el bean de Config, mas los ajustes que hacian los servicios, y con
+ * el mapper nuevo; las respuestas deben ser iguales campo por campo.
+ */
+class MapeoParidadTest {
+
+    private ModelMapper modelMapper;
+    private Cliente cliente;
+    private Cuenta ahorro;
+    private Cuenta corriente;
+
+    @BeforeEach
+    void setUp() {
+        modelMapper = new ModelMapper();
+        modelMapper.getConfiguration()
+                .setSkipNullEnabled(true)
+                .setAmbiguityIgnored(true);
+
+        cliente = Cliente.builder()
+                .id(7L)
+                .tipoIdentifiacion(TipoIdentifiacion.CEDULA_CIUDADANIA)
+                .numeroIdentificacion("123456789")
+                .nombres("Juan")
+                .apellido("Pérez")
+                .correoElectronico("juan.perez@example.com")
+                .fechaNacimiento(LocalDate.of(1990, 1, 1))
+                .fechaCreacion(LocalDateTime.of(2026, 1, 1, 8, 0))
+                .fechaModificacion(LocalDateTime.of(2026, 1, 2, 8, 0))
+                .build();
+        ahorro = cuenta(3L, TipoCuenta.AHORRO, "5300000001", "1500.25");
+        corriente = cuenta(4L, TipoCuenta.CORRIENTE, "3300000002", "0.00");
+        cliente.setCuentas(new ArrayList<>(List.of(ahorro, corriente)));
+    }
+
+    @Test
+    void testClienteResponse_IgualQueModelMapper() {
+        assertEquals(clienteAnterior(cliente), ClienteMapper.aResponse(cliente, 2));
+
+        ClienteResponse respuesta = ClienteMapper.aResponse(cliente, 2);
+        assertNull(respuesta.getApellidos(), "ModelMapper nunca lleno apellidos");
+        assertNull(respuesta.getCorreElectronico(), "ModelMapper nunca lleno correElectronico");
+
+        cliente.setCuentas(null);
+        cliente.setFechaModificacion(null);
+        assertEquals(clienteAnterior(cliente), ClienteMapper.aResponse(cliente, 0));
+    }
+
+    @Test
+    void testClienteRequest_IgualQueModelMapper() {
+        ClienteRequest request = ClienteRequest.builder()
+                .tipoIdentifiacion(TipoIdentifiacion.PASAPORTE)
+                .numeroIdentificacion("AB12345")
+                .nombres("Ana")
+                .apellido("Gómez")
+                .correoElectronico("ana@example.com")
+                .fechaNacimiento(LocalDate.of(1985, 6, 15))
+                .build();
+
+        assertEquals(modelMapper.map(request, Cliente.class), ClienteMapper.aEntidad(request));
+    }
+
+    @Test
+    void testCuentaResponse_IgualQueModelMapper() {
+        BigDecimal saldoLedger = new BigDecimal("1499.25");
+
+        assertEquals(cuentaAnterior(ahorro, saldoLedger), CuentaMapper.aResponse(ahorro, saldoLedger));
+        assertEquals(cuentaAnterior(corriente, corriente.getSaldo()),
+                CuentaMapper.aResponse(corriente, corriente.getSaldo()));
+    }
+
+    @Test
+    void testTransaccionResponse_IgualQueModelMapper() {
+        Transaccion transferencia = transaccion(9L, TipoTrasaccion.TRANSFERENCIA, ahorro, corriente, "pago");
+        Transaccion retiro = transaccion(10L, TipoTrasaccion.RETIRO, ahorro, null, null);
+
+        assertEquals(transaccionAnterior(transferencia), TransaccionMapper.aResponse(transferencia));
+        assertEquals(transaccionAnterior(retiro), TransaccionMapper.aResponse(retiro));
+    }
+
+    /*
+     * conversiones como las hacian ClienteService, CuentaService y TransaccionService
+     */
+    private ClienteResponse clienteAnterior(Cliente cliente) {
+        ClienteResponse response = modelMapper.map(cliente, ClienteResponse.class);
+        response.setEdad(cliente.calcularEdad());
+        response.setCantidadCuentas(cliente.getCuentas() != null ? cliente.getCuentas().size() : 0);
+        return response;
+    }
+
+    private CuentaResponse cuentaAnterior(Cuenta cuenta, BigDecimal saldo) {
+        CuentaResponse response = modelMapper.map(cuenta, CuentaResponse.class);
+        response.setSaldo(saldo);
+        response.setClienteId(cuenta.getCliente().getId());
+        response.setNombreCliente(cuenta.getCliente().getNombres() + " " + cuenta.getCliente().getApellido());
+        return response;
+    }
+
+    private TransaccionResponse transaccionAnterior(Transaccion transaccion) {
+        TransaccionResponse response = modelMapper.map(transaccion, TransaccionResponse.class);
+        response.setNumeroCuentaOrigen(transaccion.getCuentaOrigen().getNumeroCuenta());
+        if (transaccion.getCuentaDestino() != null) {
+            response.setNumeroCuentaDestino(transaccion.getCuentaDestino().getNumeroCuenta());
+        }
+        return response;
+    }
+
+    private Cuenta cuenta(Long id, TipoCuenta tipo, String numero, String saldo) {
+        return Cuenta.builder()
+                .id(id)
+                .tipoCuenta(tipo)
+                .numeroCuenta(numero)
+                .estado(EstadoCuenta.ACTIVA)
+                .exentaGMF(true)
+                .saldo(new BigDecimal(saldo))
+                .fechaCreacion(LocalDateTime.of(2026, 2, 1, 9, 30))
+                .fechaModificacion(LocalDateTime.of(2026, 2, 3, 10, 0))
+                .cliente(cliente)
+                .build();
+    }
+
+    private Transaccion transaccion(Long id, TipoTrasaccion tipo, Cuenta origen, Cuenta destino, String descripcion) {
+        Transaccion transaccion = new Transaccion();
+        transaccion.setId(id);
+        transaccion.setTipoTrasaccion(tipo);
+        transaccion.setMonto(new BigDecimal("250.50"));
+        transaccion.setFecha(LocalDateTime.of(2026, 3, 1, 12, 0));
+        transaccion.setDescripcion(descripcion);
+        transaccion.setCuentaOrigen(origen);
+        transaccion.setCuentaDestino(destino);
+        return transaccion;
+    }
+}
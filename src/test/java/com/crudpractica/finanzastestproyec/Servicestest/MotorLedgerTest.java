@@ -0,0 +1,193 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Ledger.AsignadorIdsTransaccion;
+import com.crudpractica.finanzastestproyec.Ledger.JournalTransacciones;
+import com.crudpractica.finanzastestproyec.Ledger.MotorLedger;
+import com.crudpractica.finanzastestproyec.Ledger.MovimientoLedger;
+import com.crudpractica.finanzastestproyec.Ledger.PersistidorLedger;
+import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/*
+ * Pruebas del motor de ledger en memoria.
+ *
+ * Se ejecuta el motor real con dos shards (las cuentas pares e impares caen
+ * en shards distintos) y se simulan la carga de saldos, la persistencia y
+ * la asignacion de ids.
+ *
+ * @author Equipo de Desarrollo
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class MotorLedgerTest {
+
+    @Mock
+    private CuentaRepository cuentaRepository;
+
+    @Mock
+    private PersistidorLedger persistidor;
+
+    @Mock
+    private AsignadorIdsTransaccion asignadorIds;
+
+    @Mock
+    private JournalTransacciones journal;
+
+    private MotorLedger motorLedger;
+
+    @BeforeEach
+    void setUp() {
+        FinanzasProperties propiedades = new FinanzasProperties();
+        propiedades.getLedger().setHabilitado(true);
+        propiedades.getLedger().setShards(2);
+
+        AtomicLong ids = new AtomicLong();
+        lenient().when(asignadorIds.siguiente()).thenAnswer(invocacion -> ids.incrementAndGet());
+        lenient().when(cuentaRepository.consultarSaldo(1L)).thenReturn(Optional.of(new BigDecimal("1000.00")));
+        lenient().when(cuentaRepository.consultarSaldo(2L)).thenReturn(Optional.of(new BigDecimal("500.00")));
+
+        motorLedger = new MotorLedger(propiedades, cuentaRepository, persistidor, asignadorIds, journal);
+        motorLedger.iniciar();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        motorLedger.detener();
+    }
+
+    /*
+     * Verifica una transferencia entre shards: el origen reserva, el destino
+     * acredita y al confirmar ambos saldos quedan actualizados.
+     */
+    @Test
+    void testTransferenciaEntreShards_ActualizaAmbosSaldos() {
+        MovimientoLedger movimiento = motorLedger.ejecutar(TipoTrasaccion.TRANSFERENCIA, 1L, 2L,
+                new BigDecimal("300.00"), "pago");
+
+        assertEquals(1L, movimiento.getId());
+        assertNotNull(movimiento.getFecha());
+        assertEquals(0, new BigDecimal("700.00").compareTo(motorLedger.saldoEnMemoria(1L).orElseThrow()));
+        assertEquals(0, new BigDecimal("800.00").compareTo(motorLedger.saldoEnMemoria(2L).orElseThrow()));
+    }
+
+    /*
+     * Verifica que el GMF de una transferencia entre shards se reserve y
+     * descuente con el monto y quede como un retiro aparte de la cuenta origen.
+     */
+    @Test
+    void testTransferenciaEntreShards_ConGmf_DescuentaYPersisteElGravamen() {
+        MovimientoLedger movimiento = motorLedger.ejecutar(TipoTrasaccion.TRANSFERENCIA, 1L, 2L,
+                new BigDecimal("300.00"), "pago", new MotorLedger.Gravamen(new BigDecimal("1.20"), "GMF "));
+
+        assertEquals(0, new BigDecimal("698.80").compareTo(motorLedger.saldoEnMemoria(1L).orElseThrow()));
+        assertEquals(0, new BigDecimal("800.00").compareTo(motorLedger.saldoEnMemoria(2L).orElseThrow()));
+        MovimientoLedger gravamen = movimiento.getGravamen();
+        assertEquals(TipoTrasaccion.GMF, gravamen.getTipoTransaccion());
+        assertEquals(1L, gravamen.getCuentaOrigenId());
+        assertEquals(new BigDecimal("1.20"), gravamen.getMonto());
+        assertEquals("GMF " + movimiento.getId(), gravamen.getDescripcion());
+    }
+
+    /*
+     * Verifica que un retiro que alcanza para el monto pero no para el GMF se
+     * rechace sin modificar el saldo.
+     */
+    @Test
+    void testRetiro_NoAlcanzaParaElGmf_LanzaExcepcion() {
+        assertThrows(BuisnessException.class, () -> motorLedger.ejecutar(TipoTrasaccion.RETIRO, 2L, null,
+                new BigDecimal("500.00"), null, new MotorLedger.Gravamen(new BigDecimal("2.00"), "GMF ")));
+
+        assertEquals(0, new BigDecimal("500.00").compareTo(motorLedger.saldoEnMemoria(2L).orElseThrow()));
+    }
+
+    /*
+     * Verifica que un retiro mayor al saldo en memoria se rechace sin
+     * modificar el saldo.
+     */
+    @Test
+    void testRetiro_SaldoInsuficiente_LanzaExcepcion() {
+        BuisnessException exception = assertThrows(BuisnessException.class,
+                () -> motorLedger.ejecutar(TipoTrasaccion.RETIRO, 2L, null, new BigDecimal("600.00"), null));
+
+        assertEquals("Saldo insuficiente", exception.getMessage());
+        assertEquals(0, new BigDecimal("500.00").compareTo(motorLedger.saldoEnMemoria(2L).orElseThrow()));
+    }
+
+    /*
+     * Verifica que si el journal rechaza el registro el retiro se deshaga en
+     * memoria y el llamador reciba el error en lugar de esperar el timeout.
+     */
+    @Test
+    void testRetiro_JournalRechazaElRegistro_DeshaceElSaldo() {
+        when(journal.estaHabilitado()).thenReturn(true);
+        when(journal.registrar(anyList(), any())).thenThrow(new IllegalStateException("disco lleno"));
+
+        BuisnessException exception = assertThrows(BuisnessException.class,
+                () -> motorLedger.ejecutar(TipoTrasaccion.RETIRO, 1L, null, new BigDecimal("100.00"), null));
+
+        assertTrue(exception.getMessage().contains("no se aplicó"));
+        assertEquals(0, new BigDecimal("1000.00").compareTo(motorLedger.saldoEnMemoria(1L).orElseThrow()));
+    }
+
+    /*
+     * Verifica que un fsync fallido del journal llegue al llamador como error
+     * inmediato; el movimiento ya se encolo para persistir, el saldo se deja.
+     */
+    @Test
+    void testTransferenciaEntreShards_FsyncFallido_CompletaConError() {
+        when(journal.estaHabilitado()).thenReturn(true);
+        when(journal.registrar(anyList(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new UncheckedIOException(new IOException("fsync"))));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> motorLedger.ejecutar(TipoTrasaccion.TRANSFERENCIA, 1L, 2L, new BigDecimal("300.00"), null));
+
+        assertTrue(exception.getCause().getMessage().contains("se aplicó"));
+        assertEquals(0, new BigDecimal("700.00").compareTo(motorLedger.saldoEnMemoria(1L).orElseThrow()));
+        assertEquals(0, new BigDecimal("800.00").compareTo(motorLedger.saldoEnMemoria(2L).orElseThrow()));
+    }
+
+    /*
+     * Verifica que transferencias concurrentes en ambos sentidos no pierdan
+     * dinero ni dejen saldos negativos: el total de las dos cuentas se conserva.
+     */
+    @Test
+    void testTransferenciasConcurrentes_ConservanElTotal() {
+        List<CompletableFuture<MovimientoLedger>> resultados = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long origen = i % 2 == 0 ? 1L : 2L;
+            long destino = origen == 1L ? 2L : 1L;
+            resultados.add(motorLedger.enviar(TipoTrasaccion.TRANSFERENCIA, origen, destino, new BigDecimal("40.00"), null));
+        }
+        long exitosas = resultados.stream()
+                .map(resultado -> resultado.handle((movimiento, error) -> error == null))
+                .filter(CompletableFuture::join)
+                .count();
+
+        BigDecimal saldo1 = motorLedger.saldoEnMemoria(1L).orElseThrow();
+        BigDecimal saldo2 = motorLedger.saldoEnMemoria(2L).orElseThrow();
+        assertEquals(0, new BigDecimal("1500.00").compareTo(saldo1.add(saldo2)));
+        assertTrue(saldo1.signum() >= 0 && saldo2.signum() >= 0);
+        assertTrue(exitosas > 0);
+    }
+}
@@ -0,0 +1,107 @@
+package com.crudpractica.finanzastestproyec.Servicestest;
+
+import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
+import com.crudpractica.finanzastestproyec.Model.Cuenta;
+import com.crudpractica.finanzastestproyec.Model.Transaccion;
+import com.crudpractica.finanzastestproyec.Repository.TransaccionRepository;
+import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/*
+ * Pruebas de las consultas por cuenta escritas como UNION ALL.
+ *
+ * Verifica que cada transaccion aparezca una sola vez aunque la cuenta sea
+ * origen y destino, que se respete el orden por fecha y el limite, y que el
+ * SQL nativo se convierta correctamente en TransaccionResponse.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class TransaccionesPorCuentaTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 3, 1, 8, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    private DatosTransacciones datos;
+    private Cuenta cuenta;
+    private Long consignacion;
+    private Long enviada;
+    private Long recibida;
+    private Long propia;
+
+    /*
+     * La cuenta participa en cuatro transacciones: una consignacion, una
+     * transferencia enviada, una recibida y una hacia si misma. La de otra
+     * cuenta con un tercero no debe aparecer.
+     */
+    @BeforeEach
+    void setUp() {
+        datos = new DatosTransacciones(entityManager);
+        Cliente cliente = datos.cliente();
+        cuenta = datos.cuenta(cliente, "5300000001");
+        Cuenta otra = datos.cuenta(cliente, "5300000002");
+        Cuenta tercera = datos.cuenta(cliente, "5300000003");
+
+        consignacion = persistir(TipoTrasaccion.CONSIGNACION, "100.00", cuenta, null, 1);
+        enviada = persistir(TipoTrasaccion.TRANSFERENCIA, "30.00", cuenta, otra, 2);
+        recibida = persistir(TipoTrasaccion.TRANSFERENCIA, "50.00", otra, cuenta, 3);
+        persistir(TipoTrasaccion.TRANSFERENCIA, "70.00", otra, tercera, 4);
+        propia = persistir(TipoTrasaccion.TRANSFERENCIA, "10.00", cuenta, cuenta, 5);
+        entityManager.clear();
+    }
+
+    @Test
+    void testBuscarPorCuenta_AmbosLadosSinRepetidos() {
+        List<TransaccionResponse> transacciones = transaccionRepository.buscarPorCuenta(cuenta.getId());
+
+        assertEquals(List.of(propia, recibida, enviada, consignacion), ids(transacciones));
+
+        TransaccionResponse entrada = transacciones.get(1);
+        assertEquals(TipoTrasaccion.TRANSFERENCIA, entrada.getTipoTransaccion());
+        assertEquals(0, new BigDecimal("50.00").compareTo(entrada.getMonto()));
+        assertEquals(INICIO.plusMinutes(3), entrada.getFecha());
+        assertEquals("5300000002", entrada.getNumeroCuentaOrigen());
+        assertEquals("5300000001", entrada.getNumeroCuentaDestino());
+        assertNull(transacciones.get(3).getNumeroCuentaDestino());
+    }
+
+    @Test
+    void testUltimasTransacciones_AplicaLimiteSobreLaUnion() {
+        assertEquals(List.of(propia, recibida),
+                ids(transaccionRepository.findUltimasTransaccionesByCuenta(cuenta.getId(), 2)));
+        assertEquals(List.of(propia, recibida, enviada, consignacion),
+                ids(transaccionRepository.findUltimasTransaccionesByCuenta(cuenta.getId(), 10)));
+    }
+
+    @Test
+    void testConsultasDeEntidades_FiltranPorCuentaYFecha() {
+        assertEquals(List.of(propia, recibida, enviada, consignacion),
+                transaccionRepository.findAllByCuentaId(cuenta.getId()).stream().map(Transaccion::getId).toList());
+        assertEquals(List.of(recibida, enviada),
+                transaccionRepository.findByCuentaIdAndFechaBetween(cuenta.getId(),
+                        INICIO.plusMinutes(2), INICIO.plusMinutes(3)).stream().map(Transaccion::getId).toList());
+    }
+
+    private Long persistir(TipoTrasaccion tipo, String monto, Cuenta origen, Cuenta destino, int minuto) {
+        return datos.transaccionConFecha(tipo, monto, origen, destino, INICIO.plusMinutes(minuto)).getId();
+    }
+
+    private List<Long> ids(List<TransaccionResponse> transacciones) {
+        return transacciones.stream().map(TransaccionResponse::getId).toList();
+    }
+}
@@ -1,26 +1,43 @@
 package com.crudpractica.finanzastestproyec.Servicestest;
 
 import com.crudpractica.finanzastestproyec.Enums.EstadoCuenta;
+import com.crudpractica.finanzastestproyec.Enums.ModoBloqueoTransferencia;
 import com.crudpractica.finanzastestproyec.Enums.TipoCuenta;
 import com.crudpractica.finanzastestproyec.Enums.TipoTrasaccion;
 import com.crudpractica.finanzastestproyec.Excepcion.BuisnessException;
+import com.crudpractica.finanzastestproyec.Infrastructure.FinanzasProperties;
+import com.crudpractica.finanzastestproyec.Ledger.MotorLedger;
+import com.crudpractica.finanzastestproyec.Ledger.MovimientoLedger;
+import com.crudpractica.finanzastestproyec.Model.Cliente;
 import com.crudpractica.finanzastestproyec.Model.Cuenta;
 import com.crudpractica.finanzastestproyec.Model.Transaccion;
 import com.crudpractica.finanzastestproyec.Repository.CuentaRepository;
 import com.crudpractica.finanzastestproyec.Repository.TransaccionRepository;
+import com.crudpractica.finanzastestproyec.Service.ActividadRecienteService;
+import com.crudpractica.finanzastestproyec.Service.CacheCuentasService;
+import com.crudpractica.finanzastestproyec.Service.GmfService;
+import com.crudpractica.finanzastestproyec.Service.IdempotenciaService;
 import com.crudpractica.finanzastestproyec.Service.TransaccionService;
+import com.crudpractica.finanzastestproyec.dto.request.LoteTransaccionRequest;
 import com.crudpractica.finanzastestproyec.dto.request.TransaccionRequest;
+import com.crudpractica.finanzastestproyec.dto.response.DatosCuenta;
+import com.crudpractica.finanzastestproyec.dto.response.LoteTransaccionResponse;
 import com.crudpractica.finanzastestproyec.dto.response.TransaccionResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -54,10 +71,40 @@ class TransaccionServiceTest {
     private CuentaRepository cuentaRepository;
 
     /*
-     * Mock del ModelMapper para conversiones entre DTOs y entidades.
+     * Propiedades reales con la configuración por defecto (modo ATOMICO).
+     */
+    @Spy
+    private FinanzasProperties propiedades = new FinanzasProperties();
+
+    /*
+     * Mock del motor de ledger (deshabilitado salvo que la prueba lo indique).
+     */
+    @Mock
+    private MotorLedger motorLedger;
+
+    /*
+     * Mock del servicio de idempotencia.
+     */
+    @Mock
+    private IdempotenciaService idempotenciaService;
+
+    /*
+     * Mock de la cache de ultimos movimientos por cuenta.
+     */
+    @Mock
+    private ActividadRecienteService actividadReciente;
+
+    /*
+     * Mock de la cache de datos de cuentas (numero, estado y cliente).
+     */
+    @Mock
+    private CacheCuentasService cacheCuentas;
+
+    /*
+     * Mock de la liquidacion del GMF (sin gravamen salvo que la prueba lo indique).
      */
     @Mock
-    private ModelMapper modelMapper;
+    private GmfService gmfService;
 
     /*
      * Instancia del servicio bajo prueba con mocks inyectados.
@@ -97,6 +144,8 @@ class TransaccionServiceTest {
         cuentaOrigen.setTipoCuenta(TipoCuenta.AHORRO);
         cuentaOrigen.setEstado(EstadoCuenta.ACTIVA);
         cuentaOrigen.setSaldo(new BigDecimal("1000.00"));
+        cuentaOrigen.setExentaGMF(false);
+        cuentaOrigen.setCliente(Cliente.builder().id(10L).build());
 
         // Crear cuenta de destino (Corriente con $500)
         cuentaDestino = new Cuenta();
@@ -105,6 +154,15 @@ class TransaccionServiceTest {
         cuentaDestino.setTipoCuenta(TipoCuenta.CORRIENTE);
         cuentaDestino.setEstado(EstadoCuenta.ACTIVA);
         cuentaDestino.setSaldo(new BigDecimal("500.00"));
+        cuentaDestino.setExentaGMF(false);
+        cuentaDestino.setCliente(Cliente.builder().id(20L).build());
+
+        lenient().when(gmfService.liquidar(any(), any(), any())).thenReturn(BigDecimal.ZERO);
+        lenient().when(gmfService.liquidarEnTransaccionPropia(any(), any(), any())).thenReturn(BigDecimal.ZERO);
+        lenient().when(motorLedger.esperar(any())).thenAnswer(invocation -> {
+            CompletableFuture<MovimientoLedger> envio = invocation.getArgument(0);
+            return envio.join();
+        });
     }
 
     /*
@@ -112,8 +170,8 @@ class TransaccionServiceTest {
      *
      * La consignación es un depósito de dinero a una cuenta. Esta operación
      * es la más simple ya que solo incrementa el saldo sin validaciones
-     * complejas. Se verifica que el saldo final sea la suma del saldo
-     * inicial más el monto consignado.
+     * complejas. Se verifica que el saldo se acredite con una sola sentencia
+     * de actualización sobre la cuenta, sin guardar la entidad completa.
      *
      */
     @Test
@@ -126,24 +184,20 @@ class TransaccionServiceTest {
                 .build();
 
         // Configurar los mocks
-        when(cuentaRepository.findById(1L)).thenReturn(Optional.of(cuentaOrigen));
+        when(cacheCuentas.buscarPorId(1L)).thenReturn(Optional.of(datos(cuentaOrigen)));
         when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(invocation -> {
             Transaccion t = invocation.getArgument(0);
             t.setId(1L);
-            t.setCuentaOrigen(cuentaOrigen);
             return t;
         });
-        when(modelMapper.map(any(Transaccion.class), eq(TransaccionResponse.class)))
-                .thenReturn(new TransaccionResponse());
 
         // Ejecutar la consignación
         TransaccionResponse response = transaccionService.crear(transaccionRequest);
 
         // Verificaciones
         assertNotNull(response, "La respuesta no debe ser nula");
-        assertEquals(new BigDecimal("1500.00"), cuentaOrigen.getSaldo(),
-                "El saldo debe incrementarse en $500");
-        verify(cuentaRepository, times(1)).save(cuentaOrigen);
+        verify(cuentaRepository, times(1)).acreditarSaldo(1L, new BigDecimal("500.00"));
+        verify(cuentaRepository, never()).save(any(Cuenta.class));
     }
 
     /*
@@ -166,8 +220,9 @@ class TransaccionServiceTest {
                 .cuentaOrigenId(1L)
                 .build();
 
-        // Configurar el mock
-        when(cuentaRepository.findById(1L)).thenReturn(Optional.of(cuentaOrigen));
+        // Configurar los mocks: la actualizacion condicional no afecta filas
+        when(cacheCuentas.buscarPorId(1L)).thenReturn(Optional.of(datos(cuentaOrigen)));
+        when(cuentaRepository.debitarSaldo(1L, new BigDecimal("1500.00"))).thenReturn(0);
 
         // Verificar que se lance la excepción esperada
         BuisnessException exception = assertThrows(BuisnessException.class,
@@ -204,7 +259,7 @@ class TransaccionServiceTest {
                 .build();
 
         // Configurar el mock
-        when(cuentaRepository.findById(1L)).thenReturn(Optional.of(cuentaOrigen));
+        when(cacheCuentas.buscarPorId(1L)).thenReturn(Optional.of(datos(cuentaOrigen)));
 
         // Verificar que se lance la excepción
         BuisnessException exception = assertThrows(BuisnessException.class,
@@ -221,8 +276,8 @@ class TransaccionServiceTest {
      *
      * La transferencia es la operación más compleja porque involucra dos cuentas.
      * Se debe restar el monto de la cuenta origen y sumarlo a la cuenta destino
-     * de forma atómica. Este test valida que ambos saldos se actualicen
-     * correctamente y que se guarden ambas cuentas en la base de datos.
+     * de forma atómica. Este test valida que el débito condicional se haga
+     * sobre la cuenta origen y el crédito sobre la cuenta destino.
      *
      */
     @Test
@@ -236,29 +291,28 @@ class TransaccionServiceTest {
                 .build();
 
         // Configurar los mocks
-        when(cuentaRepository.findById(1L)).thenReturn(Optional.of(cuentaOrigen));
-        when(cuentaRepository.findById(2L)).thenReturn(Optional.of(cuentaDestino));
+        when(cacheCuentas.buscarPorId(1L)).thenReturn(Optional.of(datos(cuentaOrigen)));
+        when(cacheCuentas.buscarPorId(2L)).thenReturn(Optional.of(datos(cuentaDestino)));
+        when(cuentaRepository.debitarSaldo(1L, new BigDecimal("300.00"))).thenReturn(1);
         when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(invocation -> {
             Transaccion t = invocation.getArgument(0);
             t.setId(1L);
-            t.setCuentaOrigen(cuentaOrigen);
-            t.setCuentaDestino(cuentaDestino);
             return t;
         });
-        when(modelMapper.map(any(Transaccion.class), eq(TransaccionResponse.class)))
-                .thenReturn(new TransaccionResponse());
 
         // Ejecutar la transferencia
         TransaccionResponse response = transaccionService.crear(transaccionRequest);
 
         // Verificaciones
         assertNotNull(response, "La respuesta no debe ser nula");
-        assertEquals(new BigDecimal("700.00"), cuentaOrigen.getSaldo(),
-                "El saldo origen debe disminuir a $700 ($1000 - $300)");
-        assertEquals(new BigDecimal("800.00"), cuentaDestino.getSaldo(),
-                "El saldo destino debe aumentar a $800 ($500 + $300)");
-        // Verificar que se guardaron ambas cuentas
-        verify(cuentaRepository, times(2)).save(any(Cuenta.class));
+        verify(cuentaRepository, times(1)).debitarSaldo(1L, new BigDecimal("300.00"));
+        verify(cuentaRepository, times(1)).acreditarSaldo(2L, new BigDecimal("300.00"));
+        // Verificar que ninguna cuenta se guardó como entidad completa
+        verify(cuentaRepository, never()).save(any(Cuenta.class));
+        // Los numeros de cuenta de la respuesta salen de la cache, sin cargar las entidades
+        assertEquals("5312345678", response.getNumeroCuentaOrigen());
+        assertEquals("3387654321", response.getNumeroCuentaDestino());
+        verify(cuentaRepository, never()).findById(anyLong());
     }
 
     /*
@@ -282,7 +336,7 @@ class TransaccionServiceTest {
                 .build();
 
         // Configurar el mock
-        when(cuentaRepository.findById(1L)).thenReturn(Optional.of(cuentaOrigen));
+        when(cacheCuentas.buscarPorId(1L)).thenReturn(Optional.of(datos(cuentaOrigen)));
 
         // Verificar que se lance la excepción
         BuisnessException exception = assertThrows(BuisnessException.class,
@@ -293,4 +347,330 @@ class TransaccionServiceTest {
         assertTrue(exception.getMessage().contains("misma cuenta"),
                 "El mensaje debe indicar que no se puede transferir a la misma cuenta");
     }
-}
\ No newline at end of file
+
+    /*
+     * Verifica que en modo ORDENADO las cuentas se bloqueen por id ascendente.
+     *
+     * Una transferencia de la cuenta 2 a la cuenta 1 debe bloquear primero
+     * la cuenta 1, igual que una transferencia en sentido contrario, para que
+     * dos transferencias opuestas no queden esperándose entre sí (deadlock).
+     */
+    @Test
+    void testProcesarTransferencia_BloqueoOrdenado_BloqueaPorIdAscendente() {
+        propiedades.getTransferencias().setModoBloqueo(ModoBloqueoTransferencia.ORDENADO);
+
+        // Transferir $200 de la cuenta 2 a la cuenta 1
+        transaccionRequest = TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.TRANSFERENCIA)
+                .monto(new BigDecimal("200.00"))
+                .cuentaOrigenId(2L)
+                .cuentaDestinoId(1L)
+                .build();
+
+        when(cuentaRepository.bloquearPorId(1L)).thenReturn(Optional.of(cuentaOrigen));
+        when(cuentaRepository.bloquearPorId(2L)).thenReturn(Optional.of(cuentaDestino));
+        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        transaccionService.crear(transaccionRequest);
+
+        // Verificar el orden de los bloqueos
+        InOrder orden = inOrder(cuentaRepository);
+        orden.verify(cuentaRepository).bloquearPorId(1L);
+        orden.verify(cuentaRepository).bloquearPorId(2L);
+        // Con las filas bloqueadas los saldos se modifican sobre las entidades
+        assertEquals(new BigDecimal("300.00"), cuentaDestino.getSaldo(),
+                "La cuenta 2 (origen) debe quedar con $300 ($500 - $200)");
+        assertEquals(new BigDecimal("1200.00"), cuentaOrigen.getSaldo(),
+                "La cuenta 1 (destino) debe quedar con $1200 ($1000 + $200)");
+        verify(cuentaRepository, never()).findById(anyLong());
+    }
+
+    /*
+     * Verifica un lote en modo individual con una transacción fallida.
+     *
+     * Las cuentas del lote se deben cargar con una sola consulta. La
+     * transacción inválida (retiro mayor al saldo) se reporta como fallida
+     * sin afectar las demás, que se guardan en una sola llamada a saveAll.
+     */
+    @Test
+    void testProcesarLote_Individual_ReportaFallidasSinAfectarLasDemas() {
+        LoteTransaccionRequest lote = LoteTransaccionRequest.builder()
+                .todoONada(false)
+                .transacciones(List.of(
+                        TransaccionRequest.builder().tipoTransaccion(TipoTrasaccion.RETIRO)
+                                .monto(new BigDecimal("5000.00")).cuentaOrigenId(1L).build(),
+                        TransaccionRequest.builder().tipoTransaccion(TipoTrasaccion.TRANSFERENCIA)
+                                .monto(new BigDecimal("250.00")).cuentaOrigenId(1L).cuentaDestinoId(2L).build()))
+                .build();
+
+        when(cuentaRepository.bloquearTodasPorId(any())).thenReturn(List.of(cuentaOrigen, cuentaDestino));
+        when(transaccionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        LoteTransaccionResponse response = transaccionService.procesarLote(lote);
+
+        assertEquals(1, response.getExitosas(), "Solo la transferencia debe aplicarse");
+        assertEquals(1, response.getFallidas(), "El retiro sin fondos debe reportarse como fallido");
+        assertFalse(response.getResultados().get(0).getExitosa());
+        assertTrue(response.getResultados().get(0).getError().contains("Saldo insuficiente"));
+        assertEquals(new BigDecimal("750.00"), cuentaOrigen.getSaldo());
+        assertEquals(new BigDecimal("750.00"), cuentaDestino.getSaldo());
+        verify(cuentaRepository, times(1)).bloquearTodasPorId(any());
+        verify(cuentaRepository, never()).findById(anyLong());
+    }
+
+    /*
+     * Verifica que un lote todo o nada se rechace completo si una transacción falla.
+     */
+    @Test
+    void testProcesarLote_TodoONada_RechazaElLoteCompleto() {
+        LoteTransaccionRequest lote = LoteTransaccionRequest.builder()
+                .todoONada(true)
+                .transacciones(List.of(
+                        TransaccionRequest.builder().tipoTransaccion(TipoTrasaccion.CONSIGNACION)
+                                .monto(new BigDecimal("100.00")).cuentaOrigenId(1L).build(),
+                        TransaccionRequest.builder().tipoTransaccion(TipoTrasaccion.RETIRO)
+                                .monto(new BigDecimal("100.00")).cuentaOrigenId(99L).build()))
+                .build();
+
+        when(cuentaRepository.bloquearTodasPorId(any())).thenReturn(List.of(cuentaOrigen));
+
+        BuisnessException exception = assertThrows(BuisnessException.class,
+                () -> transaccionService.procesarLote(lote));
+
+        assertTrue(exception.getMessage().contains("transacción 1"),
+                "El mensaje debe indicar la transacción que falló");
+        verify(transaccionRepository, never()).saveAll(anyList());
+    }
+
+    /*
+     * Verifica que con el motor de ledger habilitado el saldo lo controle el
+     * motor y no se ejecuten actualizaciones sobre la tabla de cuentas.
+     */
+    @Test
+    void testProcesarTransferencia_LedgerHabilitado_DelegaEnElMotor() {
+        transaccionRequest = TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.TRANSFERENCIA)
+                .monto(new BigDecimal("300.00"))
+                .cuentaOrigenId(1L)
+                .cuentaDestinoId(2L)
+                .build();
+
+        when(motorLedger.estaHabilitado()).thenReturn(true);
+        when(cacheCuentas.buscarPorId(1L)).thenReturn(Optional.of(datos(cuentaOrigen)));
+        when(cacheCuentas.buscarPorId(2L)).thenReturn(Optional.of(datos(cuentaDestino)));
+        when(motorLedger.enviar(eq(TipoTrasaccion.TRANSFERENCIA), eq(1L), eq(2L), eq(new BigDecimal("300.00")),
+                isNull(), any(MotorLedger.Gravamen.class)))
+                .thenReturn(CompletableFuture.completedFuture(MovimientoLedger.builder().id(7L)
+                        .tipoTransaccion(TipoTrasaccion.TRANSFERENCIA).monto(new BigDecimal("300.00"))
+                        .cuentaOrigenId(1L).cuentaDestinoId(2L).build()));
+
+        TransaccionResponse resultado = transaccionService.crear(transaccionRequest);
+
+        assertEquals(7L, resultado.getId());
+        assertEquals("5312345678", resultado.getNumeroCuentaOrigen());
+        assertEquals("3387654321", resultado.getNumeroCuentaDestino());
+        verify(cuentaRepository, never()).debitarSaldo(anyLong(), any());
+        verify(cuentaRepository, never()).acreditarSaldo(anyLong(), any());
+        verify(transaccionRepository, never()).save(any());
+    }
+
+    /*
+     * Verifica que un retiro de una cuenta no exenta cobre el GMF.
+     *
+     * El gravamen se debita en la misma actualizacion condicional del monto
+     * y queda registrado como un retiro aparte que referencia la transaccion.
+     */
+    @Test
+    void testProcesarRetiro_CuentaNoExenta_CobraGmfEnOtraTransaccion() {
+        transaccionRequest = TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.RETIRO)
+                .monto(new BigDecimal("100.00"))
+                .cuentaOrigenId(1L)
+                .build();
+
+        when(cacheCuentas.buscarPorId(1L)).thenReturn(Optional.of(datos(cuentaOrigen)));
+        when(gmfService.liquidar(10L, false, new BigDecimal("100.00"))).thenReturn(new BigDecimal("0.40"));
+        when(cuentaRepository.debitarSaldo(1L, new BigDecimal("100.40"))).thenReturn(1);
+        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(invocation -> {
+            Transaccion t = invocation.getArgument(0);
+            t.setId(t.getDescripcion() == null ? 1L : 2L);
+            return t;
+        });
+
+        TransaccionResponse response = transaccionService.crear(transaccionRequest);
+
+        assertEquals(new BigDecimal("100.00"), response.getMonto());
+        ArgumentCaptor<Transaccion> guardadas = ArgumentCaptor.forClass(Transaccion.class);
+        verify(transaccionRepository, times(2)).save(guardadas.capture());
+        Transaccion gravamen = guardadas.getAllValues().get(1);
+        assertEquals(TipoTrasaccion.GMF, gravamen.getTipoTrasaccion());
+        assertEquals(new BigDecimal("0.40"), gravamen.getMonto());
+        assertEquals("GMF 4x1000 transaccion 1", gravamen.getDescripcion());
+        verify(gmfService).liquidar(10L, false, new BigDecimal("100.00"));
+    }
+
+    /*
+     * Verifica que una transaccion de tipo GMF no se pueda solicitar.
+     *
+     * Solo el sistema la genera al cobrar el gravamen de un debito; de lo
+     * contrario se guardaria un GMF sin debitar la cuenta.
+     */
+    @Test
+    void testCrear_TipoGmf_LanzaExcepcion() {
+        transaccionRequest = TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.GMF)
+                .monto(new BigDecimal("4.00"))
+                .cuentaOrigenId(1L)
+                .build();
+        when(cacheCuentas.buscarPorId(1L)).thenReturn(Optional.of(datos(cuentaOrigen)));
+
+        BuisnessException exception = assertThrows(BuisnessException.class,
+                () -> transaccionService.crear(transaccionRequest));
+
+        assertTrue(exception.getMessage().contains("GMF"));
+        verify(transaccionRepository, never()).save(any());
+        verify(cuentaRepository, never()).debitarSaldo(anyLong(), any());
+    }
+
+    /*
+     * Verifica que los retiros de un lote paguen el GMF igual que los individuales.
+     *
+     * El primer retiro se debita con su gravamen y este se guarda como otro
+     * retiro; al segundo no le alcanza el saldo para el monto mas el gravamen,
+     * se reporta como fallido y lo sumado al acumulado del cliente se revierte.
+     */
+    @Test
+    void testProcesarLote_Retiros_CobranGmfYRevierteElAcumuladoDelFallido() {
+        LoteTransaccionRequest lote = LoteTransaccionRequest.builder()
+                .todoONada(false)
+                .transacciones(List.of(
+                        TransaccionRequest.builder().tipoTransaccion(TipoTrasaccion.RETIRO)
+                                .monto(new BigDecimal("900.00")).cuentaOrigenId(1L).build(),
+                        TransaccionRequest.builder().tipoTransaccion(TipoTrasaccion.RETIRO)
+                                .monto(new BigDecimal("96.40")).cuentaOrigenId(1L).build()))
+                .build();
+
+        when(cuentaRepository.bloquearTodasPorId(any())).thenReturn(List.of(cuentaOrigen));
+        when(gmfService.liquidar(10L, false, new BigDecimal("900.00"))).thenReturn(new BigDecimal("3.60"));
+        when(gmfService.liquidar(10L, false, new BigDecimal("96.40"))).thenReturn(new BigDecimal("0.39"));
+        when(transaccionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transaccion> transacciones = invocation.getArgument(0);
+            transacciones.forEach(t -> t.setId(1L));
+            return transacciones;
+        });
+        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(invocation -> {
+            Transaccion t = invocation.getArgument(0);
+            t.setId(2L);
+            return t;
+        });
+
+        LoteTransaccionResponse response = transaccionService.procesarLote(lote);
+
+        assertEquals(1, response.getExitosas());
+        assertTrue(response.getResultados().get(1).getError().contains("Saldo insuficiente"));
+        assertEquals(new BigDecimal("96.40"), cuentaOrigen.getSaldo(), "Se debitan $900 mas $3.60 de GMF");
+        verify(gmfService).revertir(10L, false, new BigDecimal("96.40"));
+        ArgumentCaptor<Transaccion> gravamen = ArgumentCaptor.forClass(Transaccion.class);
+        verify(transaccionRepository).save(gravamen.capture());
+        assertEquals(new BigDecimal("3.60"), gravamen.getValue().getMonto());
+        assertEquals("GMF 4x1000 transaccion 1", gravamen.getValue().getDescripcion());
+    }
+
+    /*
+     * Verifica que con el motor de ledger el GMF se liquide con el cliente de
+     * la cuenta y se envie al motor junto con el monto del retiro.
+     */
+    @Test
+    void testProcesarRetiro_LedgerHabilitado_EnviaElGmfAlMotor() {
+        transaccionRequest = TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.RETIRO)
+                .monto(new BigDecimal("100.00"))
+                .cuentaOrigenId(1L)
+                .build();
+        MotorLedger.Gravamen gravamen = new MotorLedger.Gravamen(new BigDecimal("0.40"), "GMF 4x1000 transaccion ");
+
+        when(motorLedger.estaHabilitado()).thenReturn(true);
+        when(cacheCuentas.buscarPorId(1L)).thenReturn(Optional.of(datos(cuentaOrigen)));
+        when(gmfService.liquidarEnTransaccionPropia(10L, false, new BigDecimal("100.00")))
+                .thenReturn(new BigDecimal("0.40"));
+        when(motorLedger.enviar(TipoTrasaccion.RETIRO, 1L, null, new BigDecimal("100.00"), null, gravamen))
+                .thenReturn(CompletableFuture.completedFuture(MovimientoLedger.builder().id(7L)
+                        .tipoTransaccion(TipoTrasaccion.RETIRO).monto(new BigDecimal("100.00"))
+                        .cuentaOrigenId(1L).build()));
+
+        TransaccionResponse resultado = transaccionService.crear(transaccionRequest);
+
+        assertEquals(7L, resultado.getId());
+        verify(motorLedger).enviar(TipoTrasaccion.RETIRO, 1L, null, new BigDecimal("100.00"), null, gravamen);
+        verify(gmfService, never()).revertirEnTransaccionPropia(any(), any(), any());
+    }
+
+    /*
+     * Verifica que si el motor no responde a tiempo el acumulado del GMF no
+     * se revierta con la respuesta de la peticion, sino con lo que el motor
+     * haga despues: el retiro sigue en la cola del shard y puede aplicarse.
+     */
+    @Test
+    void testProcesarRetiro_LedgerNoRespondeATiempo_RevierteElGmfSoloSiElMotorLoRechaza() {
+        cuentaOrigen.setExentaGMF(true);
+        transaccionRequest = TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.RETIRO)
+                .monto(new BigDecimal("100.00"))
+                .cuentaOrigenId(1L)
+                .build();
+        CompletableFuture<MovimientoLedger> aplicado = new CompletableFuture<>();
+        CompletableFuture<MovimientoLedger> rechazado = new CompletableFuture<>();
+
+        when(motorLedger.estaHabilitado()).thenReturn(true);
+        when(cacheCuentas.buscarPorId(1L)).thenReturn(Optional.of(datos(cuentaOrigen)));
+        when(motorLedger.enviar(eq(TipoTrasaccion.RETIRO), eq(1L), isNull(), eq(new BigDecimal("100.00")), isNull(),
+                any(MotorLedger.Gravamen.class))).thenReturn(aplicado, rechazado);
+        doThrow(new BuisnessException("El motor de transacciones no respondio a tiempo")).when(motorLedger).esperar(any());
+
+        assertThrows(BuisnessException.class, () -> transaccionService.crear(transaccionRequest));
+        assertThrows(BuisnessException.class, () -> transaccionService.crear(transaccionRequest));
+        verify(gmfService, never()).revertirEnTransaccionPropia(any(), any(), any());
+
+        aplicado.complete(MovimientoLedger.builder().id(7L).build());
+        rechazado.completeExceptionally(new BuisnessException("Saldo insuficiente"));
+
+        verify(gmfService, timeout(1000)).revertirEnTransaccionPropia(10L, true, new BigDecimal("100.00"));
+        verify(gmfService, times(2)).liquidarEnTransaccionPropia(10L, true, new BigDecimal("100.00"));
+        verify(gmfService, never()).liquidar(any(), any(), any());
+    }
+
+    /*
+     * Verifica que si el fsync del journal falla despues de aplicar el retiro
+     * el acumulado del GMF se mantenga: el gravamen ya se desconto en memoria
+     * y va camino de la base de datos.
+     */
+    @Test
+    void testProcesarRetiro_LedgerFsyncFallido_MantieneElAcumuladoDelGmf() {
+        cuentaOrigen.setExentaGMF(true);
+        transaccionRequest = TransaccionRequest.builder()
+                .tipoTransaccion(TipoTrasaccion.RETIRO)
+                .monto(new BigDecimal("100.00"))
+                .cuentaOrigenId(1L)
+                .build();
+
+        when(motorLedger.estaHabilitado()).thenReturn(true);
+        when(cacheCuentas.buscarPorId(1L)).thenReturn(Optional.of(datos(cuentaOrigen)));
+        when(motorLedger.enviar(eq(TipoTrasaccion.RETIRO), eq(1L), isNull(), eq(new BigDecimal("100.00")), isNull(),
+                any(MotorLedger.Gravamen.class))).thenReturn(CompletableFuture.failedFuture(
+                        new MotorLedger.MovimientoSinSincronizar(7L, new IOException("fsync"))));
+        doThrow(new IllegalStateException("Error ejecutando movimiento en el ledger")).when(motorLedger).esperar(any());
+
+        assertThrows(IllegalStateException.class, () -> transaccionService.crear(transaccionRequest));
+
+        verify(gmfService).liquidarEnTransaccionPropia(10L, true, new BigDecimal("100.00"));
+        verify(gmfService, never()).revertirEnTransaccionPropia(any(), any(), any());
+    }
+
+    /*
+     * Datos de cuenta que devolveria la cache para una cuenta de prueba.
+     */
+    private DatosCuenta datos(Cuenta cuenta) {
+        return new DatosCuenta(cuenta.getId(), cuenta.getNumeroCuenta(), cuenta.getTipoCuenta(), cuenta.getEstado(),
+                cuenta.getExentaGMF(), null, cuenta.getCliente().getId(), null, null);
+    }
+}
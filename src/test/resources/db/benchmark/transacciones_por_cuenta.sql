@@ -0,0 +1,147 @@
+-- =====================================================================
+-- Benchmark de las consultas por cuenta sobre trasacciones
+--
+-- Compara la forma anterior (origen = :id OR destino = :id) con la
+-- UNION ALL de TransaccionRepository, sin indices y con los indices de la
+-- migracion 002. Genera los datos en un esquema aparte; ejecutar en una
+-- base PostgreSQL local, nunca en produccion:
+--
+--   createdb finanzas_benchmark
+--   psql -d finanzas_benchmark -f transacciones_por_cuenta.sql
+--
+-- Con :'filas' y :'cuentas' se cambia el volumen, por ejemplo
+--   psql -v filas=10000000 -v cuentas=200000 -d finanzas_benchmark -f ...
+-- Cada EXPLAIN (ANALYZE, BUFFERS) se ejecuta dos veces y se toma el segundo
+-- para medir con la cache caliente.
+-- =====================================================================
+
+\set ON_ERROR_STOP on
+\timing on
+
+\if :{?filas}
+\else
+\set filas 5000000
+\endif
+\if :{?cuentas}
+\else
+\set cuentas 100000
+\endif
+\set cuenta 4242
+
+DROP SCHEMA IF EXISTS benchmark CASCADE;
+CREATE SCHEMA benchmark;
+SET search_path = benchmark;
+
+CREATE TABLE cuentas (
+    id             bigint PRIMARY KEY,
+    numero_cuenta  varchar(20) NOT NULL,
+    saldo          numeric(15, 2) NOT NULL
+);
+
+CREATE TABLE trasacciones (
+    id                 bigint PRIMARY KEY,
+    tipo_transaccion   varchar(20) NOT NULL,
+    monto              numeric(15, 2) NOT NULL,
+    fecha              timestamp NOT NULL,
+    descripcion        varchar(255),
+    cuenta_origen_id   bigint NOT NULL REFERENCES cuentas (id),
+    cuenta_destino_id  bigint REFERENCES cuentas (id)
+);
+
+INSERT INTO cuentas
+SELECT c, '53' || lpad(c::text, 8, '0'), 1000000
+FROM generate_series(1, :cuentas) c;
+
+-- 60% transferencias, 25% consignaciones, 15% retiros, repartidas en dos anos
+INSERT INTO trasacciones
+SELECT i,
+       CASE WHEN r < 0.60 THEN 'TRANSFERENCIA' WHEN r < 0.85 THEN 'CONSIGNACION' ELSE 'RETIRO' END,
+       round((random() * 500000 + 1)::numeric, 2),
+       timestamp '2025-01-01' + (i::double precision / :filas) * interval '730 days',
+       'Movimiento ' || i,
+       origen,
+       CASE WHEN r < 0.60 THEN 1 + (origen + 1 + (random() * (:cuentas - 2))::bigint) % :cuentas END
+FROM (SELECT i, random() AS r, 1 + (random() * (:cuentas - 1))::bigint AS origen
+      FROM generate_series(1, :filas) i) g;
+
+ANALYZE cuentas;
+ANALYZE trasacciones;
+
+\echo '=== Sin indices: OR ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT t.id FROM trasacciones t
+WHERE t.cuenta_origen_id = :cuenta OR t.cuenta_destino_id = :cuenta
+ORDER BY t.fecha DESC LIMIT 20;
+
+CREATE INDEX idx_trasacciones_origen_fecha ON trasacciones (cuenta_origen_id, fecha);
+CREATE INDEX idx_trasacciones_destino_fecha ON trasacciones (cuenta_destino_id, fecha);
+ANALYZE trasacciones;
+
+\echo '=== Ultimas 20, con indices: OR ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT t.id, t.tipo_transaccion, t.monto, t.fecha, t.descripcion,
+       o.numero_cuenta AS numero_cuenta_origen, d.numero_cuenta AS numero_cuenta_destino
+FROM trasacciones t JOIN cuentas o ON o.id = t.cuenta_origen_id
+LEFT JOIN cuentas d ON d.id = t.cuenta_destino_id
+WHERE o.id = :cuenta OR d.id = :cuenta
+ORDER BY t.fecha DESC, t.id DESC LIMIT 20;
+
+\echo '=== Ultimas 20, con indices: UNION ALL (findUltimasTransaccionesByCuenta) ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.* FROM (
+    (SELECT t.id, t.tipo_transaccion, t.monto, t.fecha, t.descripcion,
+            o.numero_cuenta AS numero_cuenta_origen, d.numero_cuenta AS numero_cuenta_destino
+     FROM trasacciones t JOIN cuentas o ON o.id = t.cuenta_origen_id
+     LEFT JOIN cuentas d ON d.id = t.cuenta_destino_id WHERE t.cuenta_origen_id = :cuenta
+     ORDER BY t.fecha DESC, t.id DESC LIMIT 20)
+    UNION ALL
+    (SELECT t.id, t.tipo_transaccion, t.monto, t.fecha, t.descripcion,
+            o.numero_cuenta AS numero_cuenta_origen, d.numero_cuenta AS numero_cuenta_destino
+     FROM trasacciones t JOIN cuentas d ON d.id = t.cuenta_destino_id
+     JOIN cuentas o ON o.id = t.cuenta_origen_id
+     WHERE t.cuenta_destino_id = :cuenta AND t.cuenta_origen_id <> :cuenta
+     ORDER BY t.fecha DESC, t.id DESC LIMIT 20)
+) u ORDER BY u.fecha DESC, u.id DESC LIMIT 20;
+
+\echo '=== Movimientos de un mes, con indices: OR ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT t.id, t.fecha, t.monto FROM trasacciones t
+WHERE (t.cuenta_origen_id = :cuenta OR t.cuenta_destino_id = :cuenta)
+  AND t.fecha >= timestamp '2026-03-01' AND t.fecha < timestamp '2026-04-01'
+ORDER BY t.fecha, t.id;
+
+\echo '=== Movimientos de un mes, con indices: UNION ALL (buscarMovimientosExtracto) ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT t.id, t.fecha, t.monto FROM trasacciones t
+WHERE t.cuenta_origen_id = :cuenta
+  AND t.fecha >= timestamp '2026-03-01' AND t.fecha < timestamp '2026-04-01'
+UNION ALL
+SELECT t.id, t.fecha, t.monto FROM trasacciones t
+WHERE t.cuenta_destino_id = :cuenta AND t.cuenta_origen_id <> :cuenta
+  AND t.fecha >= timestamp '2026-03-01' AND t.fecha < timestamp '2026-04-01'
+ORDER BY fecha, id;
+
+\echo '=== Saldo al inicio del periodo, con indices: OR ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT c.saldo - (SELECT COALESCE(SUM(CASE WHEN t.tipo_transaccion = 'RETIRO' THEN -t.monto
+                                           WHEN t.tipo_transaccion = 'TRANSFERENCIA' AND t.cuenta_origen_id = :cuenta THEN -t.monto
+                                           ELSE t.monto END), 0)
+                  FROM trasacciones t
+                  WHERE (t.cuenta_origen_id = :cuenta OR t.cuenta_destino_id = :cuenta)
+                    AND t.fecha >= timestamp '2026-03-01')
+FROM cuentas c WHERE c.id = :cuenta;
+
+\echo '=== Saldo al inicio del periodo, con indices: UNION ALL (calcularSaldoAl) ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT c.saldo - COALESCE((SELECT SUM(u.efecto) FROM (
+    SELECT CASE WHEN t.tipo_transaccion = 'CONSIGNACION' THEN t.monto ELSE -t.monto END AS efecto
+    FROM trasacciones t WHERE t.cuenta_origen_id = :cuenta AND t.fecha >= timestamp '2026-03-01'
+    UNION ALL
+    SELECT CASE WHEN t.tipo_transaccion = 'RETIRO' THEN -t.monto ELSE t.monto END
+    FROM trasacciones t
+    WHERE t.cuenta_destino_id = :cuenta AND t.cuenta_origen_id <> :cuenta AND t.fecha >= timestamp '2026-03-01'
+) u), 0)
+FROM cuentas c WHERE c.id = :cuenta;
+
+RESET search_path;
+DROP SCHEMA benchmark CASCADE;